@@ -1,5 +1,6 @@
 package com.brein.time.timeintervals.collections;
 
+import com.brein.time.timeintervals.intervals.IntervalKey;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
@@ -11,7 +12,7 @@ import java.util.concurrent.TimeUnit;
 
 public class CaffeineIntervalCollectionFactory extends PersistableIntervalCollectionFactory implements Externalizable {
 
-    private transient LoadingCache<String, IntervalCollection> cache;
+    private transient LoadingCache<IntervalKey, IntervalCollection> cache;
 
     private long cacheSize;
     private long expire;
@@ -29,9 +30,9 @@ public class CaffeineIntervalCollectionFactory extends PersistableIntervalCollec
         this.cache = createCache(cacheSize, expire, timeUnit);
     }
 
-    protected LoadingCache<String, IntervalCollection> createCache(final long cacheSize,
-                                                                   final long expire,
-                                                                   final TimeUnit timeUnit) {
+    protected LoadingCache<IntervalKey, IntervalCollection> createCache(final long cacheSize,
+                                                                        final long expire,
+                                                                        final TimeUnit timeUnit) {
         this.cacheSize = cacheSize;
         this.expire = expire;
         this.timeUnit = timeUnit;
@@ -44,6 +45,11 @@ public class CaffeineIntervalCollectionFactory extends PersistableIntervalCollec
 
     @Override
     public IntervalCollection load(final String key) {
+        return load(IntervalKey.valueOf(key));
+    }
+
+    @Override
+    public IntervalCollection load(final IntervalKey key) {
         final IntervalCollection result = this.cache.get(key);
 
         if (LOGGER.isDebugEnabled()) {
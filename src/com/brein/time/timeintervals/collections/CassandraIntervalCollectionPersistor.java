@@ -4,8 +4,11 @@ import com.brein.time.exceptions.FailedConnection;
 import com.brein.time.exceptions.FailedIO;
 import com.brein.time.exceptions.FailedLoad;
 import com.brein.time.exceptions.IllegalConfiguration;
+import com.brein.time.timeintervals.intervals.IntervalKey;
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.DataType;
 import com.datastax.driver.core.Host;
 import com.datastax.driver.core.KeyspaceMetadata;
 import com.datastax.driver.core.Metadata;
@@ -46,11 +49,13 @@ public class CassandraIntervalCollectionPersistor implements IntervalCollectionP
     private String replicator;
     private String columnFamily;
     private String keySpace;
+    private boolean binaryKeys;
 
     public CassandraIntervalCollectionPersistor() {
         this.replicator = "{'class': 'SimpleStrategy', 'replication_factor' : 1}";
         this.columnFamily = "intervalTree";
         this.keySpace = "intervalTree";
+        this.binaryKeys = true;
         this.cluster = null;
         this.session = null;
 
@@ -145,13 +150,15 @@ public class CassandraIntervalCollectionPersistor implements IntervalCollectionP
         final KeyspaceMetadata keySpaceMeta = this.cluster.getMetadata().getKeyspace(ks);
         final TableMetadata tableMetadata = keySpaceMeta.getTable(cf);
 
-        // check if the table exists
+        // check if the table exists, a table created by an earlier version uses the unique identifier as key
         if (tableMetadata != null) {
+            final ColumnMetadata keyMetadata = tableMetadata.getColumn(KEY_COLUMN);
+            this.binaryKeys = keyMetadata != null && DataType.blob().equals(keyMetadata.getType());
             return;
         }
 
         final String stmt = String.format("CREATE TABLE %s (\n" +
-                "  " + KEY_COLUMN + " text,\n" +
+                "  " + KEY_COLUMN + " " + (this.binaryKeys ? "blob" : "text") + ",\n" +
                 "  " + COLL_COLUMN + " blob,\n" +
                 "  PRIMARY KEY (" + KEY_COLUMN + ")\n" +
                 ");", cf);
@@ -185,6 +192,24 @@ public class CassandraIntervalCollectionPersistor implements IntervalCollectionP
         return this;
     }
 
+    public boolean isBinaryKeys() {
+        return binaryKeys;
+    }
+
+    /**
+     * Defines if the keys of the collections are stored as binary {@link IntervalKey} (17 bytes for numeric intervals)
+     * or as unique identifier (text), when the table is created. If the table exists, the type of the key column is
+     * used.
+     *
+     * @param binaryKeys {@code true} to store binary keys (default), {@code false} to store the unique identifiers
+     *
+     * @return {@code this} instance
+     */
+    public CassandraIntervalCollectionPersistor setBinaryKeys(final boolean binaryKeys) {
+        this.binaryKeys = binaryKeys;
+        return this;
+    }
+
     public Session getSession() {
         if (this.session == null) {
             throw new FailedConnection("You have to establish a connection using connect(...).");
@@ -234,6 +259,11 @@ public class CassandraIntervalCollectionPersistor implements IntervalCollectionP
 
     @Override
     public IntervalCollection load(final String key) {
+        return load(IntervalKey.valueOf(key));
+    }
+
+    @Override
+    public IntervalCollection load(final IntervalKey key) {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Loading IntervalCollection: " + key);
         }
@@ -246,7 +276,7 @@ public class CassandraIntervalCollectionPersistor implements IntervalCollectionP
         }
 
         final BoundStatement boundStmt = new BoundStatement(this.select);
-        boundStmt.setString(0, key);
+        bindKey(boundStmt, 0, key);
 
         final ResultSet result = getSession().execute(boundStmt);
         if (result.isExhausted()) {
@@ -291,7 +321,7 @@ public class CassandraIntervalCollectionPersistor implements IntervalCollectionP
 
         final BoundStatement boundStmt = new BoundStatement(this.upsert);
         boundStmt.setBytes(0, ByteBuffer.wrap(byteStream.toByteArray()));
-        boundStmt.setString(1, event.getKey());
+        bindKey(boundStmt, 1, event.getIntervalKey());
 
         getSession().execute(boundStmt);
     }
@@ -316,7 +346,7 @@ public class CassandraIntervalCollectionPersistor implements IntervalCollectionP
             }
 
             final BoundStatement boundStmt = new BoundStatement(this.delete);
-            boundStmt.setString(0, event.getKey());
+            bindKey(boundStmt, 0, event.getIntervalKey());
 
             getSession().execute(boundStmt);
         } else {
@@ -325,6 +355,14 @@ public class CassandraIntervalCollectionPersistor implements IntervalCollectionP
         }
     }
 
+    protected void bindKey(final BoundStatement boundStmt, final int idx, final IntervalKey key) {
+        if (this.binaryKeys) {
+            boundStmt.setBytes(idx, key.toBytes());
+        } else {
+            boundStmt.setString(idx, key.toString());
+        }
+    }
+
     public void dropKeySpace() {
         if (LOGGER.isInfoEnabled()) {
             LOGGER.info("Dropping key-space: " + this.keySpace);
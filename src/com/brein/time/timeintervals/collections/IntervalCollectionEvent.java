@@ -1,9 +1,10 @@
 package com.brein.time.timeintervals.collections;
 
 import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.IntervalKey;
 
 public class IntervalCollectionEvent {
-    private final String key;
+    private final IntervalKey key;
     private final IInterval interval;
     private final IntervalCollection collection;
     private final IntervalCollectionEventType eventType;
@@ -11,13 +12,20 @@ public class IntervalCollectionEvent {
     public IntervalCollectionEvent(final IInterval interval,
                                    final IntervalCollection collection,
                                    final IntervalCollectionEventType eventType) {
-        this(interval.getUniqueIdentifier(), interval, collection, eventType);
+        this(interval.getIntervalKey(), interval, collection, eventType);
     }
 
     public IntervalCollectionEvent(final String key,
                                    final IInterval interval,
                                    final IntervalCollection collection,
                                    final IntervalCollectionEventType eventType) {
+        this(IntervalKey.valueOf(key), interval, collection, eventType);
+    }
+
+    public IntervalCollectionEvent(final IntervalKey key,
+                                   final IInterval interval,
+                                   final IntervalCollection collection,
+                                   final IntervalCollectionEventType eventType) {
         this.key = key;
         this.interval = interval;
         this.collection = collection;
@@ -25,6 +33,10 @@ public class IntervalCollectionEvent {
     }
 
     public String getKey() {
+        return key.toString();
+    }
+
+    public IntervalKey getIntervalKey() {
         return key;
     }
 
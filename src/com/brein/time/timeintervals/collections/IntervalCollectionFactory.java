@@ -2,6 +2,7 @@ package com.brein.time.timeintervals.collections;
 
 import com.brein.time.exceptions.IllegalConfiguration;
 import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.IntervalKey;
 
 import java.io.Serializable;
 
@@ -18,6 +19,19 @@ public interface IntervalCollectionFactory extends Serializable {
 
     IntervalCollection load(final String key);
 
+    /**
+     * Loads the collection of the intervals with the specified {@code key}. By default the collection is loaded using
+     * the unique identifier represented by the key (see {@link #load(String)}), factories caching or persisting the
+     * collections should use the key directly.
+     *
+     * @param key the key of the intervals of the collection
+     *
+     * @return the collection
+     */
+    default IntervalCollection load(final IntervalKey key) {
+        return load(key.toString());
+    }
+
     default boolean useWeakReferences() {
         return false;
     }
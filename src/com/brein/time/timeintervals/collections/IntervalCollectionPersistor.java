@@ -1,9 +1,15 @@
 package com.brein.time.timeintervals.collections;
 
+import com.brein.time.timeintervals.intervals.IntervalKey;
+
 public interface IntervalCollectionPersistor {
 
     IntervalCollection load(final String key);
 
+    default IntervalCollection load(final IntervalKey key) {
+        return load(key.toString());
+    }
+
     void upsert(final IntervalCollectionEvent event);
 
     void remove(final IntervalCollectionEvent event);
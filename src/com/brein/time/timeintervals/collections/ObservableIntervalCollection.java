@@ -3,6 +3,7 @@ package com.brein.time.timeintervals.collections;
 import com.brein.time.timeintervals.filters.IntervalFilter;
 import com.brein.time.timeintervals.indexes.IntervalValueComparator;
 import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.IntervalKey;
 import org.apache.log4j.Logger;
 
 import java.util.Collection;
@@ -91,7 +92,7 @@ public class ObservableIntervalCollection extends Observable implements Interval
         if (interval == null || this.countObservers() == 0 || !result) {
             return false;
         } else if (!disableNotification.get()) {
-            final String key = interval.getUniqueIdentifier();
+            final IntervalKey key = interval.getIntervalKey();
 
             if (LOGGER.isTraceEnabled()) {
                 LOGGER.trace("Notifying observers for '" + key + "'.");
@@ -1,5 +1,7 @@
 package com.brein.time.timeintervals.collections;
 
+import com.brein.time.timeintervals.intervals.IntervalKey;
+
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -36,6 +38,11 @@ public class PersistableIntervalCollectionFactory
 
     @Override
     public IntervalCollection load(final String key) {
+        return load(IntervalKey.valueOf(key));
+    }
+
+    @Override
+    public IntervalCollection load(final IntervalKey key) {
         IntervalCollection result;
         if (this.persistor == null) {
             result = null;
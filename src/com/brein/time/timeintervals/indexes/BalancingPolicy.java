@@ -0,0 +1,31 @@
+package com.brein.time.timeintervals.indexes;
+
+/**
+ * The policies an {@link IntervalTree} can use to keep itself balanced while intervals are added and removed, see
+ * {@link IntervalTreeBuilder#useBalancingPolicy(BalancingPolicy)}.
+ */
+public enum BalancingPolicy {
+
+    /**
+     * Keeps the tree strictly height-balanced (AVL), i.e., the heights of the sub-trees of every node differ by at most
+     * one. Queries benefit from the lowest possible height, updates may need rotations all the way up to the root.
+     */
+    AVL,
+
+    /**
+     * Keeps the tree heap-ordered by a priority of the nodes (treap). The priority is derived from the start and end of
+     * a node (see {@link IntervalTreeNode#getPriority()}), so that the tree is expected to have a logarithmic height
+     * (even if the intervals are added in order) and an update needs less than two rotations on average. The shape of
+     * the tree only depends on the intervals it contains, not on the order they were added in.
+     */
+    TREAP,
+
+    /**
+     * The tree is not balanced automatically, i.e., {@link IntervalTree#balance()} has to be called when needed.
+     */
+    NONE;
+
+    public boolean isAutoBalancing() {
+        return !NONE.equals(this);
+    }
+}
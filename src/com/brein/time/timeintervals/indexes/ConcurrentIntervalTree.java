@@ -0,0 +1,377 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.exceptions.FailedIO;
+import com.brein.time.timeintervals.filters.IntervalFilter;
+import com.brein.time.timeintervals.intervals.AllenIntervalRelation;
+import com.brein.time.timeintervals.intervals.IInterval;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A thread-safe {@code Collection} of intervals, which uses an {@link IntervalTree} (including the specialized
+ * implementations like the {@link LongIntervalTree}) to index the intervals. All modifications are applied to the
+ * wrapped tree under an exclusive lock, i.e., the tree keeps using the same balancing logic.
+ * <p>
+ * Every modification publishes a copy-on-write view of the modified tree (see {@link IntervalTree#snapshot()}) before
+ * the exclusive lock is released. The queries traversing the tree (e.g., {@link #overlap(IInterval)}) are answered by
+ * the latest published view without acquiring the lock, i.e., they are neither blocked by a modification, nor do they
+ * block one. The view reads the nodes shared with the tree optimistically, and waits for at most one modification of
+ * a node, if the node is modified while it is read. Lookups of a single value (e.g., {@link #size()}) are performed
+ * optimistically (see {@link StampedLock#tryOptimisticRead()}). Only {@link #isBalanced()} and {@link
+ * #saveToFile(File)} need the tree itself and are executed holding the shared lock.
+ * <p>
+ * The costs of the views are paid by the modifications, a node modified after a view was published records its
+ * former state (including its intervals) as long as the view is in use, see {@link SnapshotIntervalTree}. Streams and
+ * iterators are created on the view, i.e., they are never affected by later modifications.
+ */
+@SuppressWarnings("NullableProblems")
+public class ConcurrentIntervalTree implements Collection<IInterval> {
+    private final StampedLock lock = new StampedLock();
+    private final IntervalTree tree;
+
+    private volatile SnapshotIntervalTree view;
+
+    public ConcurrentIntervalTree(final IntervalTree tree) {
+        this.tree = tree;
+        this.view = tree.snapshot();
+    }
+
+    public Collection<IInterval> find(final IInterval query) {
+        return read(view -> view.find(query));
+    }
+
+    public Collection<IInterval> find(final IInterval query, final IntervalFilter filter) {
+        return read(view -> view.find(query, filter));
+    }
+
+    public Collection<IInterval> overlap(final IInterval query) {
+        return read(view -> view.overlap(query));
+    }
+
+    public Stream<IInterval> overlapStream(final IInterval query) {
+        return read(view -> view.overlapStream(query));
+    }
+
+    public void overlap(final IInterval query, final Consumer<IInterval> visitor) {
+        read(view -> {
+            view.overlap(query, visitor);
+            return null;
+        });
+    }
+
+    public void overlap(final long start, final long end, final Consumer<IInterval> visitor) {
+        read(view -> {
+            view.overlap(this.tree.toValue(start), this.tree.toValue(end), visitor);
+            return null;
+        });
+    }
+
+    public Collection<IInterval> stab(final Comparable point) {
+        return read(view -> view.stab(point));
+    }
+
+    public void stab(final long point, final Consumer<IInterval> visitor) {
+        read(view -> {
+            final Comparable value = this.tree.toValue(point);
+            view.overlap(value, value, visitor);
+            return null;
+        });
+    }
+
+    public Collection<IInterval> relate(final IInterval query, final AllenIntervalRelation... relations) {
+        return read(view -> view.relate(query, relations));
+    }
+
+    public <A> A aggregate(final IntervalTreeAggregator<A> aggregator) {
+        return read(view -> view.aggregate(aggregator));
+    }
+
+    public long countOverlaps(final IInterval query) {
+        return read(view -> view.countOverlaps(query));
+    }
+
+    public long maxConcurrency(final IInterval window) {
+        return read(view -> view.maxConcurrency(window));
+    }
+
+    public IInterval ceiling(final Comparable start) {
+        return read(view -> view.ceiling(start));
+    }
+
+    public IInterval higher(final Comparable start) {
+        return read(view -> view.higher(start));
+    }
+
+    public IInterval floor(final Comparable start) {
+        return read(view -> view.floor(start));
+    }
+
+    public IInterval lower(final Comparable start) {
+        return read(view -> view.lower(start));
+    }
+
+    public List<IInterval> nearest(final Comparable point, final int k) {
+        return read(view -> view.nearest(point, k));
+    }
+
+    /**
+     * Creates an iterator over the intervals starting at or after {@code start}, see {@link #iterator()}.
+     *
+     * @param start the value to start the iteration at
+     *
+     * @return an iterator over the intervals starting at or after {@code start}
+     */
+    public Iterator<IInterval> iteratorFrom(final Comparable start) {
+        return read(view -> view.iteratorFrom(start));
+    }
+
+    public List<List<IInterval>> overlapAll(final List<? extends IInterval> queries) {
+        return overlapAll(queries, null);
+    }
+
+    /**
+     * Determines the overlapping intervals for each of the specified {@code queries}, all queries are answered by the
+     * same view. If a {@code pool} is specified, the queries are answered in parallel.
+     *
+     * @param queries the intervals to find the overlapping intervals for
+     * @param pool    the pool used to answer the queries in parallel, can be {@code null}
+     *
+     * @return the overlapping intervals of each query, in the order of the queries
+     */
+    public List<List<IInterval>> overlapAll(final List<? extends IInterval> queries, final ForkJoinPool pool) {
+        return read(view -> overlapAll(view, queries, pool));
+    }
+
+    public ConcurrentIntervalTree insert(final IInterval interval) {
+        add(interval);
+        return this;
+    }
+
+    public ConcurrentIntervalTree delete(final IInterval interval) {
+        remove(interval);
+        return this;
+    }
+
+    public long advanceWatermark(final Comparable watermark) {
+        return write(() -> this.tree.advanceWatermark(watermark));
+    }
+
+    public Comparable getWatermark() {
+        return readOptimistic(IntervalTree::getWatermark);
+    }
+
+    public void balance() {
+        write(() -> {
+            this.tree.balance();
+            return null;
+        });
+    }
+
+    public boolean isBalanced() {
+        return readLocked(IntervalTree::isBalanced);
+    }
+
+    public FrozenIntervalTree freeze() {
+        return read(SnapshotIntervalTree::freeze);
+    }
+
+    /**
+     * Gets the immutable view of the current state of the tree, i.e., the view published by the latest modification,
+     * see {@link IntervalTree#snapshot()}. The view can be streamed without holding any lock of {@code this} tree.
+     *
+     * @return the immutable view of the current state of the tree
+     */
+    public SnapshotIntervalTree snapshot() {
+        return this.view;
+    }
+
+    public IntervalTreeConfiguration getConfiguration() {
+        return this.tree.getConfiguration();
+    }
+
+    public void saveToFile(final File file) throws FailedIO {
+        readLocked(tree -> {
+            tree.saveToFile(file);
+            return null;
+        });
+    }
+
+    @Override
+    public int size() {
+        return readOptimistic(IntervalTree::size);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return readOptimistic(IntervalTree::isEmpty);
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return read(view -> view.contains(o));
+    }
+
+    /**
+     * Creates an iterator over the intervals of the current view, i.e., the iterator is not affected by any
+     * modification of the tree and does not support {@link Iterator#remove()}.
+     *
+     * @return an iterator over the intervals of the current view
+     */
+    @Override
+    public Iterator<IInterval> iterator() {
+        return read(SnapshotIntervalTree::iterator);
+    }
+
+    @Override
+    public Stream<IInterval> stream() {
+        return read(SnapshotIntervalTree::stream);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return read(view -> view.stream().toArray(IInterval[]::new));
+    }
+
+    @Override
+    public <T> T[] toArray(final T[] arr) {
+        return read(view -> view.stream().collect(Collectors.toList()).toArray(arr));
+    }
+
+    @Override
+    public boolean add(final IInterval interval) {
+        return write(() -> this.tree.add(interval));
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        return write(() -> this.tree.remove(o));
+    }
+
+    @Override
+    public boolean containsAll(final Collection<?> c) {
+        return read(view -> c.stream().allMatch(view::contains));
+    }
+
+    @Override
+    public boolean addAll(final Collection<? extends IInterval> c) {
+        return write(() -> this.tree.addAll(c));
+    }
+
+    @Override
+    public boolean removeAll(final Collection<?> c) {
+        return write(() -> this.tree.removeAll(c));
+    }
+
+    @Override
+    public boolean retainAll(final Collection<?> c) {
+        return write(() -> this.tree.retainAll(c));
+    }
+
+    @Override
+    public void clear() {
+        write(() -> {
+            this.tree.clear();
+            return null;
+        });
+    }
+
+    /**
+     * Executes the specified {@code reader} on the latest published view of the tree, without acquiring any lock.
+     *
+     * @param reader the function reading from the view
+     * @param <T>    the type of the result
+     *
+     * @return the result of the reader
+     */
+    protected <T> T read(final Function<SnapshotIntervalTree, T> reader) {
+        return reader.apply(this.view);
+    }
+
+    /**
+     * Executes the specified {@code reader} on the wrapped tree holding the shared lock.
+     *
+     * @param reader the function reading from the tree, the function must not modify the tree
+     * @param <T>    the type of the result
+     *
+     * @return the result of the reader
+     */
+    protected <T> T readLocked(final Function<IntervalTree, T> reader) {
+        final long stamp = this.lock.readLock();
+        try {
+            return reader.apply(this.tree);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Executes the specified {@code reader} on the wrapped tree optimistically, i.e., without acquiring any lock. If
+     * the tree was modified while the reader was executed, the reader is executed again holding the shared lock. The
+     * reader must only read single fields of the tree, i.e., it must not traverse any nodes.
+     *
+     * @param reader the function reading a field of the tree
+     * @param <T>    the type of the result
+     *
+     * @return the result of the reader
+     */
+    protected <T> T readOptimistic(final Function<IntervalTree, T> reader) {
+        final long stamp = this.lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            final T result = reader.apply(this.tree);
+            if (this.lock.validate(stamp)) {
+                return result;
+            }
+        }
+
+        return readLocked(reader);
+    }
+
+    /**
+     * Executes the specified {@code writer} holding the exclusive lock and publishes the view of the modified tree,
+     * before the lock is released.
+     *
+     * @param writer the function modifying the tree
+     * @param <T>    the type of the result
+     *
+     * @return the result of the writer
+     */
+    protected <T> T write(final Supplier<T> writer) {
+        final long stamp = this.lock.writeLock();
+        try {
+            return writer.get();
+        } finally {
+            this.view = this.tree.snapshot();
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    protected List<List<IInterval>> overlapAll(final SnapshotIntervalTree view,
+                                               final List<? extends IInterval> queries,
+                                               final ForkJoinPool pool) {
+        if (pool == null) {
+            final List<List<IInterval>> results = new ArrayList<>(queries.size());
+            queries.forEach(query -> results.add(new ArrayList<>(view.overlap(query))));
+            return results;
+        } else {
+            return pool.submit(() -> queries.parallelStream()
+                    .<List<IInterval>>map(query -> new ArrayList<>(view.overlap(query)))
+                    .collect(Collectors.toList())).join();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return read(SnapshotIntervalTree::toString);
+    }
+}
@@ -0,0 +1,146 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.intervals.IntervalKey;
+
+/**
+ * Encodings of {@code Number} based endpoints as {@code long} values, preserving the order of the values. The
+ * encodings are used by the index structures working on primitive values (e.g., {@link MappedIntervalTree} or
+ * {@link FrozenIntervalTree}), i.e., two encoded values are compared using {@link Long#compare(long, long)}.
+ */
+public enum EndpointEncoding {
+
+    /**
+     * Encodes integral values (i.e., {@code Long}, {@code Integer}, {@code Short}, or {@code Byte}) as is.
+     */
+    LONG {
+        @Override
+        public boolean supports(final Object value) {
+            return LongIntervalTreeNode.isIntegral(value);
+        }
+
+        @Override
+        public long encode(final Object value) {
+            return LongIntervalTreeNode.toLong(value);
+        }
+
+        @Override
+        public long encodeLowerBound(final Object value) {
+            return LongIntervalTreeNode.toLowerBound(value);
+        }
+
+        @Override
+        public long encodeUpperBound(final Object value) {
+            return LongIntervalTreeNode.toUpperBound(value);
+        }
+
+        @Override
+        public Long encodeExact(final Object value) {
+            if (supports(value)) {
+                return encode(value);
+            }
+
+            final long lowerBound = encodeLowerBound(value);
+            return lowerBound == encodeUpperBound(value) ? lowerBound : null;
+        }
+
+        @Override
+        public Comparable decode(final long value) {
+            return value;
+        }
+    },
+
+    /**
+     * Encodes any {@code Number} using the bits of its {@code double} value, the bits of negative values are flipped
+     * to keep the order.
+     */
+    DOUBLE {
+        @Override
+        public boolean supports(final Object value) {
+            return value instanceof Number;
+        }
+
+        @Override
+        public long encode(final Object value) {
+            if (!supports(value)) {
+                throw new IllegalArgumentException(String.format("The value '%s (%s)' is not a number.",
+                        value, value == null ? null : value.getClass()));
+            }
+
+            // adding 0.0 turns -0.0 into 0.0
+            return IntervalKey.toSortableBits(Number.class.cast(value).doubleValue() + 0.0);
+        }
+
+        @Override
+        public long encodeLowerBound(final Object value) {
+            return encode(value);
+        }
+
+        @Override
+        public long encodeUpperBound(final Object value) {
+            return encode(value);
+        }
+
+        @Override
+        public Long encodeExact(final Object value) {
+            return encode(value);
+        }
+
+        @Override
+        public Comparable decode(final long value) {
+            return IntervalKey.fromSortableBits(value);
+        }
+    };
+
+    /**
+     * Determines the encoding to be used for the specified endpoints, i.e., {@link #LONG} if all values are integral,
+     * otherwise {@link #DOUBLE}.
+     *
+     * @param current the encoding determined for the previous endpoints, can be {@code null}
+     * @param start   the start of an interval
+     * @param end     the end of an interval
+     *
+     * @return the encoding supporting the previous and the specified endpoints
+     */
+    public static EndpointEncoding determine(final EndpointEncoding current, final Object start, final Object end) {
+        if (DOUBLE.equals(current)) {
+            return DOUBLE;
+        } else if (LONG.supports(start) && LONG.supports(end)) {
+            return LONG;
+        } else {
+            return DOUBLE;
+        }
+    }
+
+    public abstract boolean supports(final Object value);
+
+    public abstract long encode(final Object value);
+
+    /**
+     * Encodes the smallest value of the encoding, which is larger or equal to the specified {@code value}.
+     *
+     * @param value the value to encode
+     *
+     * @return the encoded lower bound
+     */
+    public abstract long encodeLowerBound(final Object value);
+
+    /**
+     * Encodes the largest value of the encoding, which is smaller or equal to the specified {@code value}.
+     *
+     * @param value the value to encode
+     *
+     * @return the encoded upper bound
+     */
+    public abstract long encodeUpperBound(final Object value);
+
+    /**
+     * Encodes the specified {@code value}, if the value can be represented exactly by the encoding.
+     *
+     * @param value the value to encode
+     *
+     * @return the encoded value, or {@code null} if the value cannot be represented
+     */
+    public abstract Long encodeExact(final Object value);
+
+    public abstract Comparable decode(final long value);
+}
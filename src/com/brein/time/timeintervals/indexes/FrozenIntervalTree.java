@@ -0,0 +1,238 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.filters.IntervalFilter;
+import com.brein.time.timeintervals.intervals.IInterval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * An immutable, array-backed copy of an {@link IntervalTree}, created using {@link IntervalTree#freeze()}. The nodes
+ * are stored in an implicit (Eytzinger) layout, i.e., the node {@code k} has the children {@code 2k} and {@code 2k +
+ * 1}, so that no references between nodes are needed and the top levels of the tree share a few cache lines. The
+ * start, end, and max values of the nodes are kept in primitive arrays (encoded using an {@link EndpointEncoding}),
+ * the intervals of all nodes are kept in a single array, grouped by node.
+ * <p>
+ * The frozen tree is not affected by any later modification of the tree it was created from. All intervals are
+ * copied when the tree is frozen, i.e., intervals of a tree using a persistor are loaded.
+ */
+public class FrozenIntervalTree implements Iterable<IInterval> {
+    private final IntervalTreeConfiguration configuration;
+    private final EndpointEncoding encoding;
+
+    private final int nodeCount;
+    private final int height;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxs;
+
+    private final int[] offsets;
+    private final IInterval[] intervals;
+
+    public FrozenIntervalTree(final IntervalTree tree) {
+        this(tree.getConfiguration(), tree.nodeIterator(), IntervalTreeNode::getStart, IntervalTreeNode::getEnd,
+                IntervalTreeNode::getCollection);
+    }
+
+    /**
+     * Creates a frozen tree of the nodes iterated by the specified {@code nodeIt} (ordered by their start), the
+     * endpoints and the intervals of a node are retrieved by the specified functions, e.g., to freeze the states of
+     * the nodes of a {@link SnapshotIntervalTree}.
+     */
+    protected <N> FrozenIntervalTree(final IntervalTreeConfiguration configuration,
+                                     final Iterator<N> nodeIt,
+                                     final Function<N, Comparable> start,
+                                     final Function<N, Comparable> end,
+                                     final Function<N, Iterable<IInterval>> intervalsOf) {
+        final List<N> nodes = new ArrayList<>();
+        nodeIt.forEachRemaining(nodes::add);
+
+        EndpointEncoding encoding = EndpointEncoding.LONG;
+        for (final N node : nodes) {
+            encoding = EndpointEncoding.determine(encoding, start.apply(node), end.apply(node));
+        }
+
+        this.configuration = configuration;
+        this.encoding = encoding;
+        this.nodeCount = nodes.size();
+        this.height = 32 - Integer.numberOfLeadingZeros(this.nodeCount);
+
+        // map the implicit positions to the sorted nodes, index 0 is not used
+        final int[] order = new int[this.nodeCount + 1];
+        layout(order, 0, 1);
+
+        this.starts = new long[this.nodeCount + 1];
+        this.ends = new long[this.nodeCount + 1];
+        this.maxs = new long[this.nodeCount + 1];
+        this.offsets = new int[this.nodeCount + 2];
+
+        final List<IInterval> intervals = new ArrayList<>();
+        for (int k = 1; k <= this.nodeCount; k++) {
+            final N node = nodes.get(order[k]);
+
+            this.starts[k] = encoding.encode(start.apply(node));
+            this.ends[k] = encoding.encode(end.apply(node));
+            this.offsets[k] = intervals.size();
+            intervalsOf.apply(node).forEach(intervals::add);
+        }
+        this.offsets[this.nodeCount + 1] = intervals.size();
+        this.intervals = intervals.toArray(new IInterval[intervals.size()]);
+
+        // the children are always located after the parent
+        for (int k = this.nodeCount; k >= 1; k--) {
+            long max = this.ends[k];
+            if (2 * k <= this.nodeCount) {
+                max = Math.max(max, this.maxs[2 * k]);
+            }
+            if (2 * k + 1 <= this.nodeCount) {
+                max = Math.max(max, this.maxs[2 * k + 1]);
+            }
+            this.maxs[k] = max;
+        }
+    }
+
+    protected int layout(final int[] order, final int position, final int k) {
+        if (k > this.nodeCount) {
+            return position;
+        }
+
+        int next = layout(order, position, 2 * k);
+        order[k] = next++;
+        return layout(order, next, 2 * k + 1);
+    }
+
+    public Collection<IInterval> find(final IInterval query) {
+        return find(query, this.configuration.getIntervalFilter());
+    }
+
+    public Collection<IInterval> find(final IInterval query, final IntervalFilter filter) {
+        final Long start = this.encoding.encodeExact(query.getNormStart());
+        final Long end = this.encoding.encodeExact(query.getNormEnd());
+        if (start == null || end == null) {
+            return Collections.emptyList();
+        }
+
+        int k = 1;
+        while (k <= this.nodeCount) {
+            final int cmpStart = Long.compare(this.starts[k], start);
+            final int cmp = cmpStart == 0 ? Long.compare(this.ends[k], end) : cmpStart;
+
+            if (cmp == 0) {
+                final IntervalValueComparator comparator = this.configuration.getValueComparator();
+                final List<IInterval> result = new ArrayList<>();
+                for (int i = this.offsets[k]; i < this.offsets[k + 1]; i++) {
+                    if (filter.match(comparator, this.intervals[i], query)) {
+                        result.add(this.intervals[i]);
+                    }
+                }
+
+                return result;
+            } else {
+                k = 2 * k + (cmp < 0 ? 1 : 0);
+            }
+        }
+
+        return Collections.emptyList();
+    }
+
+    public List<IInterval> overlap(final IInterval query) {
+        final List<IInterval> result = new ArrayList<>();
+        overlap(query, result::add);
+        return result;
+    }
+
+    public Stream<IInterval> overlapStream(final IInterval query) {
+        return overlap(query).stream();
+    }
+
+    public void overlap(final IInterval query, final Consumer<IInterval> visitor) {
+        _overlap(this.encoding.encodeLowerBound(query.getNormStart()),
+                this.encoding.encodeUpperBound(query.getNormEnd()), visitor);
+    }
+
+    public void overlap(final long start, final long end, final Consumer<IInterval> visitor) {
+        _overlap(this.encoding.encodeLowerBound(start), this.encoding.encodeUpperBound(end), visitor);
+    }
+
+    public List<IInterval> stab(final Comparable point) {
+        final List<IInterval> result = new ArrayList<>();
+        stab(point, result::add);
+        return result;
+    }
+
+    public void stab(final Comparable point, final Consumer<IInterval> visitor) {
+        _overlap(this.encoding.encodeLowerBound(point), this.encoding.encodeUpperBound(point), visitor);
+    }
+
+    public void stab(final long point, final Consumer<IInterval> visitor) {
+        _overlap(this.encoding.encodeLowerBound(point), this.encoding.encodeUpperBound(point), visitor);
+    }
+
+    /**
+     * Visits the intervals of all nodes overlapping with the encoded interval {@code [start, end]}, the nodes are
+     * visited in pre-order.
+     *
+     * @param start   the encoded start of the query
+     * @param end     the encoded end of the query
+     * @param visitor the consumer called for every overlapping interval
+     */
+    protected void _overlap(final long start, final long end, final Consumer<IInterval> visitor) {
+        if (this.nodeCount == 0) {
+            return;
+        }
+
+        final int[] stack = new int[this.height + 1];
+        int pos = 0;
+        stack[pos++] = 1;
+
+        while (pos > 0) {
+            final int k = stack[--pos];
+
+            if (this.starts[k] <= end) {
+                if (this.ends[k] >= start) {
+                    for (int i = this.offsets[k]; i < this.offsets[k + 1]; i++) {
+                        visitor.accept(this.intervals[i]);
+                    }
+                }
+
+                final int right = 2 * k + 1;
+                if (right <= this.nodeCount && this.maxs[right] >= start) {
+                    stack[pos++] = right;
+                }
+            }
+
+            final int left = 2 * k;
+            if (left <= this.nodeCount && this.maxs[left] >= start) {
+                stack[pos++] = left;
+            }
+        }
+    }
+
+    @Override
+    public Iterator<IInterval> iterator() {
+        return Collections.unmodifiableList(Arrays.asList(this.intervals)).iterator();
+    }
+
+    public int size() {
+        return this.intervals.length;
+    }
+
+    public boolean isEmpty() {
+        return this.intervals.length == 0;
+    }
+
+    public int getNodeCount() {
+        return this.nodeCount;
+    }
+
+    public IntervalTreeConfiguration getConfiguration() {
+        return this.configuration;
+    }
+}
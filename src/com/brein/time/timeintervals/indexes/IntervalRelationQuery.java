@@ -0,0 +1,245 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.intervals.AllenIntervalRelation;
+import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.NumberInterval;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A query for all intervals having one of the specified {@link AllenIntervalRelation}s to a query interval, i.e., an
+ * interval {@code i} is selected if {@code i.ir(query)} is one of the relations. The relations are decided based on
+ * the normalized endpoints, thus all intervals of a node have the same relation to the query.
+ * <p>
+ * Each relation bounds the start of the selected intervals (e.g., {@code BEGINS} requires the start of the query, and
+ * {@code BEFORE} any start before the start of the query) and the end of the selected intervals (e.g., {@code
+ * INCLUDES} requires an end after the end of the query). The query combines the bounds of all its relations, so that
+ * the tree can prune every sub-tree not containing any candidate.
+ * <p>
+ * The relations {@code STARTS_DIRECTLY_BEFORE} and {@code ENDS_DIRECTLY_BEFORE} need the value directly after the end
+ * (or before the start) of the query, which is only known if the query is a {@link NumberInterval}. For any other
+ * query, no interval has one of these relations.
+ */
+public class IntervalRelationQuery {
+    private final IntervalValueComparator cmp;
+    private final Set<AllenIntervalRelation> relations;
+
+    private final Comparable queryStart;
+    private final Comparable queryEnd;
+    private final Comparable beforeQueryStart;
+    private final Comparable afterQueryEnd;
+
+    private Comparable minStart = null;
+    private Comparable maxStart = null;
+    private Comparable minEnd = null;
+    private boolean unboundedMinStart = false;
+    private boolean unboundedMaxStart = false;
+    private boolean unboundedMinEnd = false;
+
+    @SuppressWarnings("unchecked")
+    public IntervalRelationQuery(final IntervalValueComparator cmp,
+                                 final IInterval query,
+                                 final AllenIntervalRelation... relations) {
+        this.cmp = cmp;
+        this.relations = relations.length == 0 ? EnumSet.noneOf(AllenIntervalRelation.class) :
+                EnumSet.of(relations[0], relations);
+
+        this.queryStart = query.getNormStart();
+        this.queryEnd = query.getNormEnd();
+
+        if (query instanceof NumberInterval) {
+            final NumberInterval numberQuery = NumberInterval.class.cast(query);
+            this.beforeQueryStart = neighbour(this.queryStart, Comparable.class.cast(
+                    numberQuery.getPreviousValue(Number.class.cast(this.queryStart))));
+            this.afterQueryEnd = neighbour(this.queryEnd, Comparable.class.cast(
+                    numberQuery.getNextValue(Number.class.cast(this.queryEnd))));
+        } else {
+            this.beforeQueryStart = null;
+            this.afterQueryEnd = null;
+        }
+
+        this.relations.forEach(this::bound);
+    }
+
+    /**
+     * The {@code NumberInterval} returns the value itself, if there is no next (or previous) value.
+     */
+    protected Comparable neighbour(final Comparable value, final Comparable neighbour) {
+        return neighbour == null || this.cmp.compare(value, neighbour) == 0 ? null : neighbour;
+    }
+
+    /**
+     * Widens the bounds of the candidates, so that all candidates of the specified {@code relation} are included. The
+     * bounds are inclusive, the exact decision is made by {@link #matches(Comparable, Comparable)}.
+     *
+     * @param relation the relation to bound the candidates for
+     */
+    protected void bound(final AllenIntervalRelation relation) {
+        switch (relation) {
+            case OVERLAPS:
+            case INCLUDES:
+            case ENDS:
+                boundStart(null, this.queryStart);
+                boundEnd(relation == AllenIntervalRelation.OVERLAPS ? this.queryStart : this.queryEnd);
+                break;
+            case IS_OVERLAPPED_BY:
+            case ENDS_BY:
+                boundStart(this.queryStart, this.queryEnd);
+                boundEnd(this.queryEnd);
+                break;
+            case EQUALS:
+            case BEGINS:
+            case BEGINS_BY:
+                boundStart(this.queryStart, this.queryStart);
+                boundEnd(relation == AllenIntervalRelation.BEGINS_BY ? this.queryStart : this.queryEnd);
+                break;
+            case IS_DURING:
+                boundStart(this.queryStart, this.queryEnd);
+                boundEnd(this.queryStart);
+                break;
+            case BEFORE:
+                boundStart(null, this.queryStart);
+                boundEnd(null);
+                break;
+            case AFTER:
+                boundStart(this.queryEnd, null);
+                boundEnd(this.queryEnd);
+                break;
+            case STARTS_DIRECTLY_BEFORE:
+                if (this.afterQueryEnd != null) {
+                    boundStart(this.afterQueryEnd, this.afterQueryEnd);
+                    boundEnd(this.afterQueryEnd);
+                }
+                break;
+            case ENDS_DIRECTLY_BEFORE:
+                if (this.beforeQueryStart != null) {
+                    boundStart(null, this.beforeQueryStart);
+                    boundEnd(this.beforeQueryStart);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("The relation '" + relation + "' is not supported.");
+        }
+    }
+
+    protected void boundStart(final Comparable min, final Comparable max) {
+        if (min == null) {
+            this.unboundedMinStart = true;
+        } else if (this.minStart == null || this.cmp.compare(min, this.minStart) < 0) {
+            this.minStart = min;
+        }
+
+        if (max == null) {
+            this.unboundedMaxStart = true;
+        } else if (this.maxStart == null || this.cmp.compare(max, this.maxStart) > 0) {
+            this.maxStart = max;
+        }
+    }
+
+    protected void boundEnd(final Comparable min) {
+        if (min == null) {
+            this.unboundedMinEnd = true;
+        } else if (this.minEnd == null || this.cmp.compare(min, this.minEnd) < 0) {
+            this.minEnd = min;
+        }
+    }
+
+    /**
+     * Checks if no interval can match the query, i.e., no relation selects any candidate.
+     *
+     * @return {@code true} if the query cannot match any interval, otherwise {@code false}
+     */
+    public boolean isEmpty() {
+        return this.maxStart == null && !this.unboundedMaxStart;
+    }
+
+    /**
+     * Checks if an interval starting at {@code start} may be a candidate, if not, no interval starting before {@code
+     * start} is a candidate.
+     */
+    public boolean startsAfterMin(final Comparable start) {
+        return this.unboundedMinStart || this.cmp.compare(start, this.minStart) >= 0;
+    }
+
+    /**
+     * Checks if an interval starting at {@code start} may be a candidate, if not, no interval starting after {@code
+     * start} is a candidate.
+     */
+    public boolean startsBeforeMax(final Comparable start) {
+        return this.unboundedMaxStart || this.cmp.compare(start, this.maxStart) <= 0;
+    }
+
+    /**
+     * Checks if a sub-tree with the specified {@code max} may contain a candidate.
+     */
+    public boolean containsCandidates(final Comparable max) {
+        return this.unboundedMinEnd || this.cmp.compare(max, this.minEnd) >= 0;
+    }
+
+    /**
+     * Checks if the normalized interval {@code [start, end]} has one of the relations to the query.
+     *
+     * @param start the normalized start of the interval
+     * @param end   the normalized end of the interval
+     *
+     * @return {@code true} if the interval has one of the relations, otherwise {@code false}
+     */
+    public boolean matches(final Comparable start, final Comparable end) {
+        final int cmpStart = this.cmp.compare(start, this.queryStart);
+        final int cmpEnd = this.cmp.compare(end, this.queryEnd);
+
+        for (final AllenIntervalRelation relation : this.relations) {
+            if (holds(relation, start, end, cmpStart, cmpEnd)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    protected boolean holds(final AllenIntervalRelation relation,
+                            final Comparable start,
+                            final Comparable end,
+                            final int cmpStart,
+                            final int cmpEnd) {
+        switch (relation) {
+            case OVERLAPS:
+                return cmpStart < 0 && cmpEnd < 0 && this.cmp.compare(this.queryStart, end) <= 0;
+            case IS_OVERLAPPED_BY:
+                return cmpStart > 0 && cmpEnd > 0 && this.cmp.compare(start, this.queryEnd) <= 0;
+            case EQUALS:
+                return cmpStart == 0 && cmpEnd == 0;
+            case BEGINS:
+                return cmpStart == 0 && cmpEnd > 0;
+            case BEGINS_BY:
+                return cmpStart == 0 && cmpEnd < 0;
+            case ENDS:
+                return cmpStart < 0 && cmpEnd == 0;
+            case ENDS_BY:
+                return cmpStart > 0 && cmpEnd == 0;
+            case BEFORE:
+                return this.cmp.compare(end, this.queryStart) < 0 && !endsDirectlyBefore(end);
+            case AFTER:
+                return this.cmp.compare(start, this.queryEnd) > 0 && !startsDirectlyBefore(start);
+            case INCLUDES:
+                return cmpStart < 0 && cmpEnd > 0;
+            case IS_DURING:
+                return cmpStart > 0 && cmpEnd < 0;
+            case STARTS_DIRECTLY_BEFORE:
+                return startsDirectlyBefore(start);
+            case ENDS_DIRECTLY_BEFORE:
+                return endsDirectlyBefore(end);
+            default:
+                return false;
+        }
+    }
+
+    protected boolean startsDirectlyBefore(final Comparable start) {
+        return this.afterQueryEnd != null && this.cmp.compare(start, this.afterQueryEnd) == 0;
+    }
+
+    protected boolean endsDirectlyBefore(final Comparable end) {
+        return this.beforeQueryStart != null && this.cmp.compare(end, this.beforeQueryStart) == 0;
+    }
+}
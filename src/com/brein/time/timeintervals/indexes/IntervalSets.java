@@ -0,0 +1,512 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.exceptions.IllegalConfiguration;
+import com.brein.time.timeintervals.intervals.DoubleInterval;
+import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.IntegerInterval;
+import com.brein.time.timeintervals.intervals.LongInterval;
+import com.brein.time.timeintervals.intervals.NumberInterval;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Set operations on the coverage of {@link IntervalTree} instances, i.e., on the values covered by at least one
+ * interval of a tree. The coverage is streamed from the in-order iteration of the nodes and all operations are linear
+ * merges of sorted streams, i.e., no pairwise overlap queries are needed. The results are sorted, disjoint, and not
+ * adjacent intervals (e.g., {@code [1, 5]} and {@code [6, 8]} of a tree of longs are coalesced to {@code [1, 8]}).
+ * <p>
+ * The endpoints must be numbers, the type of a resulting interval is determined by its endpoints, i.e., it is a
+ * {@link DoubleInterval} if any endpoint is a floating point number, an {@link IntegerInterval} if both endpoints are
+ * integers, and a {@link LongInterval} otherwise (e.g., for a tree of timestamps). The trees are not locked, i.e., a
+ * tree must not be modified while a stream is consumed (see {@link IntervalTree#snapshot()}).
+ */
+public class IntervalSets {
+
+    private IntervalSets() {
+        /*
+         * Utility classes, which are a collection of static members,
+         * are not meant to be instantiated.
+         */
+    }
+
+    /**
+     * Merges the overlapping and adjacent (see {@link NumberInterval#irEndsDirectlyBefore(IInterval)}) intervals of
+     * the {@code tree}.
+     *
+     * @param tree the tree to coalesce
+     *
+     * @return the sorted stream of the coalesced intervals
+     */
+    public static Stream<IInterval> coalesce(final IntervalTree tree) {
+        return stream(coverage(tree));
+    }
+
+    /**
+     * Determines the values covered by the {@code tree} within the specified {@code range}, the resulting intervals
+     * are cut at the bounds of the range.
+     *
+     * @param tree  the tree to determine the coverage of
+     * @param range the range to restrict the coverage to
+     *
+     * @return the sorted stream of the covered intervals within the range
+     */
+    public static Stream<IInterval> intersection(final IntervalTree tree, final IInterval range) {
+        final IntervalValueComparator cmp = comparator(tree);
+        return stream(new Intersection(cmp, coverage(tree, range), single(range)));
+    }
+
+    /**
+     * Determines the values within the specified {@code window} not covered by any interval of the {@code tree},
+     * i.e., the free time within the window.
+     *
+     * @param tree   the tree to determine the gaps of
+     * @param window the window to determine the gaps within
+     *
+     * @return the sorted stream of the gaps
+     */
+    public static Stream<IInterval> gaps(final IntervalTree tree, final IInterval window) {
+        final IntervalValueComparator cmp = comparator(tree);
+        return stream(new Difference(cmp, single(window), coverage(tree, window)));
+    }
+
+    public static Stream<IInterval> union(final IntervalTree tree, final IntervalTree other) {
+        final IntervalValueComparator cmp = comparator(tree);
+        return stream(new Coalesce(cmp, new Merge(cmp, coverage(tree), coverage(other))));
+    }
+
+    public static Stream<IInterval> intersection(final IntervalTree tree, final IntervalTree other) {
+        final IntervalValueComparator cmp = comparator(tree);
+        return stream(new Intersection(cmp, coverage(tree), coverage(other)));
+    }
+
+    /**
+     * Determines the values covered by the {@code tree}, but not by the {@code other} tree.
+     *
+     * @param tree  the tree to subtract from
+     * @param other the tree to be subtracted
+     *
+     * @return the sorted stream of the intervals covered only by the {@code tree}
+     */
+    public static Stream<IInterval> difference(final IntervalTree tree, final IntervalTree other) {
+        final IntervalValueComparator cmp = comparator(tree);
+        return stream(new Difference(cmp, coverage(tree), coverage(other)));
+    }
+
+    protected static Iterator<Span> coverage(final IntervalTree tree) {
+        return coalesce(comparator(tree), tree.nodeIterator());
+    }
+
+    protected static Iterator<Span> coverage(final IntervalTree tree, final IInterval range) {
+        final IntervalTreeNode root = tree.getRoot();
+        if (root == null) {
+            return Collections.emptyIterator();
+        }
+
+        // the overlapping nodes are iterated lazily, ordered by their start
+        final Iterator<IntervalTreeNode> nodeIt =
+                tree.overlappingNodeIterator(root, range.getNormStart(), range.getNormEnd());
+        return coalesce(comparator(tree), nodeIt);
+    }
+
+    protected static Iterator<Span> coalesce(final IntervalValueComparator cmp,
+                                             final Iterator<IntervalTreeNode> nodeIt) {
+        return new Coalesce(cmp, new Iterator<Span>() {
+
+            @Override
+            public boolean hasNext() {
+                return nodeIt.hasNext();
+            }
+
+            @Override
+            public Span next() {
+                final IntervalTreeNode node = nodeIt.next();
+                return new Span(node.getStart(), node.getEnd());
+            }
+        });
+    }
+
+    protected static Iterator<Span> single(final IInterval interval) {
+        final List<Span> spans = new ArrayList<>(1);
+        spans.add(new Span(interval.getNormStart(), interval.getNormEnd()));
+
+        return spans.iterator();
+    }
+
+    protected static IntervalValueComparator comparator(final IntervalTree tree) {
+        return tree.getConfiguration().getValueComparator();
+    }
+
+    protected static Comparable min(final IntervalValueComparator cmp,
+                                    final Comparable value1,
+                                    final Comparable value2) {
+        return cmp.compare(value1, value2) <= 0 ? value1 : value2;
+    }
+
+    protected static Comparable max(final IntervalValueComparator cmp,
+                                    final Comparable value1,
+                                    final Comparable value2) {
+        return cmp.compare(value1, value2) >= 0 ? value1 : value2;
+    }
+
+    protected static Stream<IInterval> stream(final Iterator<Span> spanIt) {
+        final Iterator<IInterval> it = new Iterator<IInterval>() {
+
+            @Override
+            public boolean hasNext() {
+                return spanIt.hasNext();
+            }
+
+            @Override
+            public IInterval next() {
+                final Span span = spanIt.next();
+                return createInterval(span.start, span.end);
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+
+    protected static IInterval createInterval(final Comparable start, final Comparable end) {
+        final Class<?> clazz = valueClass(start, end);
+        final Object normStart = isMinValue(start) ? null : start;
+        final Object normEnd = isMaxValue(end) ? null : end;
+
+        if (Long.class.equals(clazz)) {
+            return new LongInterval(Long.class.cast(normStart), Long.class.cast(normEnd));
+        } else if (Integer.class.equals(clazz)) {
+            return new IntegerInterval(Integer.class.cast(normStart), Integer.class.cast(normEnd));
+        } else if (Double.class.equals(clazz)) {
+            return new DoubleInterval(normStart == null ? null : Number.class.cast(normStart).doubleValue(),
+                    normEnd == null ? null : Number.class.cast(normEnd).doubleValue());
+        } else {
+            // smaller integral types are mapped to longs
+            return new LongInterval(IntervalValueComparator.mapNumberValue(normStart, Long.class),
+                    IntervalValueComparator.mapNumberValue(normEnd, Long.class));
+        }
+    }
+
+    protected static Class<?> valueClass(final Comparable start, final Comparable end) {
+        if (!(start instanceof Number) || !(end instanceof Number)) {
+            throw new IllegalConfiguration("Set operations are only supported for intervals with numeric endpoints.");
+        } else if (isFloatingPoint(start) || isFloatingPoint(end)) {
+            return Double.class;
+        } else if (start.getClass().equals(end.getClass())) {
+            return start.getClass();
+        } else {
+            return Long.class;
+        }
+    }
+
+    protected static boolean isFloatingPoint(final Comparable value) {
+        return value instanceof Double || value instanceof Float;
+    }
+
+    protected static boolean isMinValue(final Comparable value) {
+        if (value instanceof Long) {
+            return Long.MIN_VALUE == Long.class.cast(value);
+        } else if (value instanceof Integer) {
+            return Integer.MIN_VALUE == Integer.class.cast(value);
+        } else if (value instanceof Short) {
+            return Short.MIN_VALUE == Short.class.cast(value);
+        } else if (value instanceof Byte) {
+            return Byte.MIN_VALUE == Byte.class.cast(value);
+        } else if (value instanceof Double) {
+            return Double.MIN_VALUE == Double.class.cast(value);
+        } else {
+            return value instanceof Float && Float.MIN_VALUE == Float.class.cast(value);
+        }
+    }
+
+    protected static boolean isMaxValue(final Comparable value) {
+        if (value instanceof Long) {
+            return Long.MAX_VALUE == Long.class.cast(value);
+        } else if (value instanceof Integer) {
+            return Integer.MAX_VALUE == Integer.class.cast(value);
+        } else if (value instanceof Short) {
+            return Short.MAX_VALUE == Short.class.cast(value);
+        } else if (value instanceof Byte) {
+            return Byte.MAX_VALUE == Byte.class.cast(value);
+        } else if (value instanceof Double) {
+            return Double.MAX_VALUE == Double.class.cast(value);
+        } else {
+            return value instanceof Float && Float.MAX_VALUE == Float.class.cast(value);
+        }
+    }
+
+    /**
+     * Gets the value directly following the specified {@code value}, like {@link NumberInterval#getNextValue(Number)}.
+     */
+    protected static Comparable nextValue(final Comparable value) {
+        if (isMinValue(value) || isMaxValue(value)) {
+            return value;
+        } else if (value instanceof Long) {
+            return Long.class.cast(value) + 1L;
+        } else if (value instanceof Integer) {
+            return Integer.class.cast(value) + 1;
+        } else if (value instanceof Short) {
+            return (short) (Short.class.cast(value) + 1);
+        } else if (value instanceof Byte) {
+            return (byte) (Byte.class.cast(value) + 1);
+        } else if (isFloatingPoint(value)) {
+            return Math.nextAfter(Number.class.cast(value).doubleValue(), Double.POSITIVE_INFINITY);
+        } else {
+            throw new IllegalConfiguration("Set operations are only supported for intervals with numeric endpoints.");
+        }
+    }
+
+    /**
+     * Gets the value directly preceding the specified {@code value}, like
+     * {@link NumberInterval#getPreviousValue(Number)}.
+     */
+    protected static Comparable previousValue(final Comparable value) {
+        if (isMinValue(value) || isMaxValue(value)) {
+            return value;
+        } else if (value instanceof Long) {
+            return Long.class.cast(value) - 1L;
+        } else if (value instanceof Integer) {
+            return Integer.class.cast(value) - 1;
+        } else if (value instanceof Short) {
+            return (short) (Short.class.cast(value) - 1);
+        } else if (value instanceof Byte) {
+            return (byte) (Byte.class.cast(value) - 1);
+        } else if (isFloatingPoint(value)) {
+            return Math.nextAfter(Number.class.cast(value).doubleValue(), Double.NEGATIVE_INFINITY);
+        } else {
+            throw new IllegalConfiguration("Set operations are only supported for intervals with numeric endpoints.");
+        }
+    }
+
+    protected static class Span {
+        private final Comparable start;
+        private Comparable end;
+
+        protected Span(final Comparable start, final Comparable end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Base of the merging iterators, the next span is determined lazily.
+     */
+    protected static abstract class SpanIterator implements Iterator<Span> {
+        protected final IntervalValueComparator cmp;
+
+        private Span next = null;
+        private boolean determined = false;
+
+        protected SpanIterator(final IntervalValueComparator cmp) {
+            this.cmp = cmp;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!this.determined) {
+                this.next = findNext();
+                this.determined = true;
+            }
+
+            return this.next != null;
+        }
+
+        @Override
+        public Span next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            this.determined = false;
+            return this.next;
+        }
+
+        protected Span poll(final Iterator<Span> it) {
+            return it.hasNext() ? it.next() : null;
+        }
+
+        protected abstract Span findNext();
+    }
+
+    /**
+     * Merges the overlapping and adjacent spans of a stream sorted by the start of the spans.
+     */
+    protected static class Coalesce extends SpanIterator {
+        private final Iterator<Span> spanIt;
+
+        private Span pending;
+
+        protected Coalesce(final IntervalValueComparator cmp, final Iterator<Span> spanIt) {
+            super(cmp);
+
+            this.spanIt = spanIt;
+            this.pending = poll(spanIt);
+        }
+
+        @Override
+        protected Span findNext() {
+            if (this.pending == null) {
+                return null;
+            }
+
+            final Span current = new Span(this.pending.start, this.pending.end);
+            this.pending = poll(this.spanIt);
+
+            // the next span overlaps or starts directly after the current one
+            while (this.pending != null && this.cmp.compare(this.pending.start, nextValue(current.end)) <= 0) {
+                current.end = max(this.cmp, current.end, this.pending.end);
+                this.pending = poll(this.spanIt);
+            }
+
+            return current;
+        }
+    }
+
+    /**
+     * Merges two streams sorted by the start of the spans into one sorted stream.
+     */
+    protected static class Merge extends SpanIterator {
+        private final Iterator<Span> it1;
+        private final Iterator<Span> it2;
+
+        private Span head1;
+        private Span head2;
+
+        protected Merge(final IntervalValueComparator cmp, final Iterator<Span> it1, final Iterator<Span> it2) {
+            super(cmp);
+
+            this.it1 = it1;
+            this.it2 = it2;
+            this.head1 = poll(it1);
+            this.head2 = poll(it2);
+        }
+
+        @Override
+        protected Span findNext() {
+            final Span result;
+            if (this.head1 == null && this.head2 == null) {
+                result = null;
+            } else if (this.head2 == null ||
+                    this.head1 != null && this.cmp.compare(this.head1.start, this.head2.start) <= 0) {
+                result = this.head1;
+                this.head1 = poll(this.it1);
+            } else {
+                result = this.head2;
+                this.head2 = poll(this.it2);
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Intersects two coalesced streams, i.e., sorted streams of disjoint spans.
+     */
+    protected static class Intersection extends SpanIterator {
+        private final Iterator<Span> it1;
+        private final Iterator<Span> it2;
+
+        private Span head1;
+        private Span head2;
+
+        protected Intersection(final IntervalValueComparator cmp, final Iterator<Span> it1, final Iterator<Span> it2) {
+            super(cmp);
+
+            this.it1 = it1;
+            this.it2 = it2;
+            this.head1 = poll(it1);
+            this.head2 = poll(it2);
+        }
+
+        @Override
+        protected Span findNext() {
+            while (this.head1 != null && this.head2 != null) {
+                final Comparable start = max(this.cmp, this.head1.start, this.head2.start);
+                final Comparable end = min(this.cmp, this.head1.end, this.head2.end);
+
+                // the span ending first cannot intersect with any following span of the other stream
+                if (this.cmp.compare(this.head1.end, this.head2.end) <= 0) {
+                    this.head1 = poll(this.it1);
+                } else {
+                    this.head2 = poll(this.it2);
+                }
+
+                if (this.cmp.compare(start, end) <= 0) {
+                    return new Span(start, end);
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Subtracts the spans of a coalesced stream from the spans of another coalesced stream.
+     */
+    protected static class Difference extends SpanIterator {
+        private final Iterator<Span> minuendIt;
+        private final Iterator<Span> subtrahendIt;
+
+        private Span minuend;
+        private Span subtrahend;
+        private Comparable start;
+
+        protected Difference(final IntervalValueComparator cmp,
+                             final Iterator<Span> minuendIt,
+                             final Iterator<Span> subtrahendIt) {
+            super(cmp);
+
+            this.minuendIt = minuendIt;
+            this.subtrahendIt = subtrahendIt;
+            this.minuend = poll(minuendIt);
+            this.subtrahend = poll(subtrahendIt);
+            this.start = this.minuend == null ? null : this.minuend.start;
+        }
+
+        @Override
+        protected Span findNext() {
+            while (this.minuend != null) {
+
+                // skip the subtracted spans ending before the remaining part of the minuend
+                while (this.subtrahend != null && this.cmp.compare(this.subtrahend.end, this.start) < 0) {
+                    this.subtrahend = poll(this.subtrahendIt);
+                }
+
+                final Span result;
+                if (this.subtrahend == null || this.cmp.compare(this.subtrahend.start, this.minuend.end) > 0) {
+                    result = new Span(this.start, this.minuend.end);
+                    nextMinuend();
+                } else {
+                    result = this.cmp.compare(this.subtrahend.start, this.start) > 0
+                            ? new Span(this.start, previousValue(this.subtrahend.start)) : null;
+
+                    // the subtracted span may cover the following minuends as well, thus it is kept
+                    if (this.cmp.compare(this.subtrahend.end, this.minuend.end) >= 0) {
+                        nextMinuend();
+                    } else {
+                        this.start = nextValue(this.subtrahend.end);
+                        this.subtrahend = poll(this.subtrahendIt);
+                    }
+                }
+
+                if (result != null) {
+                    return result;
+                }
+            }
+
+            return null;
+        }
+
+        protected void nextMinuend() {
+            this.minuend = poll(this.minuendIt);
+            this.start = this.minuend == null ? null : this.minuend.start;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.brein.time.timeintervals.indexes;
 import com.brein.time.exceptions.FailedIO;
 import com.brein.time.exceptions.IllegalConfiguration;
 import com.brein.time.timeintervals.filters.IntervalFilter;
+import com.brein.time.timeintervals.indexes.IntervalTreeBuilder.IntervalType;
+import com.brein.time.timeintervals.intervals.AllenIntervalRelation;
 import com.brein.time.timeintervals.intervals.IInterval;
 import org.apache.log4j.Logger;
 
@@ -11,26 +13,50 @@ import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @SuppressWarnings("NullableProblems")
 public class IntervalTree implements Collection<IInterval>, Externalizable {
     private static final Logger LOGGER = Logger.getLogger(IntervalTree.class);
 
+    /**
+     * The minimal amount of queries answered by a single task, when a batch of queries is answered in parallel (see
+     * {@link #overlapAll(List, ForkJoinPool)}).
+     */
+    public static final int PARALLEL_BATCH_SIZE = 1024;
+
     private transient IntervalTreeConfiguration configuration = null;
     private IntervalTreeNode root = null;
 
     private long size = 0L;
 
+    private transient Comparable watermark = null;
+    private transient Comparable nextWatermark = null;
+
+    private final transient StampedLock snapshotLock = new StampedLock();
+    private transient WeakReference<SnapshotIntervalTree.Epoch> snapshotEpoch = null;
+    private transient long epoch = 0L;
+
     public Collection<IInterval> find(final IInterval query) {
         return find(query, this.configuration.getIntervalFilter());
     }
@@ -55,6 +81,18 @@ public class IntervalTree implements Collection<IInterval>, Externalizable {
         return root;
     }
 
+    /**
+     * Replaces the content of {@code this} tree with the already built tree of the specified {@code root}, e.g., when
+     * the nodes are read by a sub-class.
+     *
+     * @param root the root of the tree, can be {@code null}
+     * @param size the amount of intervals within the tree
+     */
+    protected void setRoot(final IntervalTreeNode root, final long size) {
+        this.root = root;
+        this.size = size;
+    }
+
     protected Collection<IInterval> _find(final IntervalTreeNode node,
                                           final IInterval query,
                                           final IntervalFilter filter) {
@@ -73,11 +111,21 @@ public class IntervalTree implements Collection<IInterval>, Externalizable {
         }
     }
 
+    /**
+     * Creates a stream of all intervals overlapping the specified {@code query}. The stream is based on an {@link
+     * IntervalTreeSpliterator}, which prunes the sub-trees not containing any overlapping interval and splits along
+     * the structure of the tree, i.e., the stream can be processed in parallel.
+     *
+     * @param query the interval to find the overlapping intervals for
+     *
+     * @return a stream of the overlapping intervals, ordered by the nodes of the tree
+     */
     public Stream<IInterval> overlapStream(final IInterval query) {
         if (this.root == null) {
             return Stream.empty();
         } else {
-            return _overlap(this.root, query);
+            return StreamSupport.stream(new IntervalTreeSpliterator(this.root, query.getNormStart(),
+                    query.getNormEnd(), this.size), false);
         }
     }
 
@@ -85,401 +133,1585 @@ public class IntervalTree implements Collection<IInterval>, Externalizable {
         if (this.root == null) {
             return Collections.emptyList();
         } else {
-            return _overlap(this.root, query).collect(Collectors.toList());
+            final List<IInterval> result = new ArrayList<>();
+            overlap(query, result::add);
+            return result;
         }
     }
 
-    protected Stream<IInterval> _overlap(final IntervalTreeNode node, final IInterval query) {
-
-        if (node == null) {
-            return Stream.empty();
-        }
+    /**
+     * Pushes every interval overlapping the specified {@code query} to the {@code visitor}. In contrast to {@link
+     * #overlap(IInterval)} and {@link #overlapStream(IInterval)}, the method neither collects the result, nor creates
+     * any streams. The tree is traversed iteratively (pre-order) using an explicit stack.
+     *
+     * @param query   the interval to find the overlapping intervals for
+     * @param visitor the consumer called for every overlapping interval
+     */
+    public void overlap(final IInterval query, final Consumer<IInterval> visitor) {
+        _overlap(query.getNormStart(), query.getNormEnd(), visitor);
+    }
 
-        // we create three streams:
-        //  1. the one of the current node
-        //  2. the one coming from the left
-        //  3. the one coming form the right
-        final Stream<IInterval> nodeStream;
-        final Stream<IInterval> leftNodeStream;
-        final Stream<IInterval> rightNodeStream;
+    /**
+     * Pushes every interval overlapping {@code [start, end]} to the {@code visitor}, see {@link #overlap(IInterval,
+     * Consumer)}.
+     *
+     * @param start   the first included value of the query
+     * @param end     the last included value of the query
+     * @param visitor the consumer called for every overlapping interval
+     */
+    public void overlap(final long start, final long end, final Consumer<IInterval> visitor) {
+        _overlap(toValue(start), toValue(end), visitor);
+    }
 
-        if (node.compare(node.getStart(), query.getNormEnd()) <= 0 &&
-                node.compare(node.getEnd(), query.getNormStart()) >= 0) {
-            nodeStream = node.getIntervals().stream();
+    /**
+     * Determines all intervals containing the specified {@code point}, i.e., the result is the same as the one of
+     * {@code overlap([point, point])}, but no query interval is needed and each node is only compared with the point.
+     *
+     * @param point the value to find the containing intervals for
+     *
+     * @return the intervals containing the point
+     */
+    public Collection<IInterval> stab(final Comparable point) {
+        if (this.root == null) {
+            return Collections.emptyList();
         } else {
-            nodeStream = Stream.empty();
+            final List<IInterval> result = new ArrayList<>();
+            stab(point, result::add);
+            return result;
         }
+    }
 
-        if (node.hasLeft() && node.compare(node.getLeft().getMax(), query.getNormStart()) >= 0) {
-            leftNodeStream = this._overlap(node.getLeft(), query);
+    public Stream<IInterval> stabStream(final Comparable point) {
+        if (this.root == null) {
+            return Stream.empty();
         } else {
-            leftNodeStream = Stream.empty();
+            return StreamSupport.stream(new IntervalTreeSpliterator(this.root, point, point, this.size), false);
         }
+    }
 
-        rightNodeStream = this._overlap(node.getRight(), query);
-
-        return Stream.of(nodeStream, leftNodeStream, rightNodeStream).flatMap(s -> s);
+    public void stab(final Comparable point, final Consumer<IInterval> visitor) {
+        _stab(point, visitor);
     }
 
-    public IntervalTree insert(final IInterval interval) {
-        add(interval);
-        return this;
+    public void stab(final long point, final Consumer<IInterval> visitor) {
+        _stab(toValue(point), visitor);
     }
 
-    protected IntervalTreeNode _add(final IntervalTreeNode node,
-                                    final IInterval interval,
-                                    final AtomicBoolean changed) {
-        if (node == null) {
-            changed.set(true);
-            return createNode(interval);
+    /**
+     * Maps the specified primitive value to the type of the values of the tree (see {@link IntervalType}), so that
+     * the value can be compared by a strict comparator (see {@link IntervalTreeBuilder#usePredefinedType(IntervalType,
+     * boolean)}). Values out of the range of an {@code Integer} tree are bounded to its minimal or maximal value.
+     *
+     * @param value the value to be mapped
+     *
+     * @return the mapped value
+     */
+    protected Comparable toValue(final long value) {
+        final IntervalType type = this.configuration == null ? null : this.configuration.getIntervalType();
+        if (type == IntervalType.INTEGER) {
+            return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+        } else if (type == IntervalType.DOUBLE) {
+            return (double) value;
+        } else {
+            return value;
         }
+    }
 
-        final IntervalTreeNodeChildType childType;
-        final int cmpNode = node.compareTo(interval);
-        if (cmpNode == 0) {
-            changed.set(node.addInterval(interval));
-            return node;
-        } else if (cmpNode < 0) {
-            childType = IntervalTreeNodeChildType.RIGHT;
-        } else {
-            childType = IntervalTreeNodeChildType.LEFT;
+    protected void _stab(final Comparable point, final Consumer<IInterval> visitor) {
+        final IntervalTreeNode root = this.root;
+        if (root == null) {
+            return;
         }
 
-        // add the node to the child and replace the returned value
-        node.setChild(_add(node.getChild(childType), interval, changed), childType);
+        final IntervalTreeNode[] stack = new IntervalTreeNode[(int) root.getHeight() + 1];
+        int pos = 0;
+        stack[pos++] = root;
 
-        // the node may have changed, thus we may have to re-balance
-        return isAutoBalancing() ? balance(node) : node;
-    }
+        while (pos > 0) {
+            final IntervalTreeNode node = stack[--pos];
 
-    protected IntervalTreeNode createNode(final IInterval interval) {
-        final IntervalTreeNode node = new IntervalTreeNode();
-        node.setConfiguration(this.configuration);
-        node.init(interval);
-        node.addInterval(interval);
+            // if the node starts after the point, neither the node nor the right sub-tree can contain it
+            if (node.compare(node.getStart(), point) <= 0) {
+                if (node.compare(node.getEnd(), point) >= 0) {
+                    node.getCollection().forEach(visitor);
+                }
 
-        return node;
-    }
+                final IntervalTreeNode right = node.getRight();
+                if (right != null && node.compare(right.getMax(), point) >= 0) {
+                    stack[pos++] = right;
+                }
+            }
 
-    public void balance() {
-        this.nodeIterator().forEachRemaining(node -> {
-            if (node.isLeaf()) {
-                // nothing to do
-            } else if (node.isRoot()) {
-                this.root = balance(node);
-            } else {
-                node.setLeft(balance(node.getLeft()));
-                node.setRight(balance(node.getRight()));
+            final IntervalTreeNode left = node.getLeft();
+            if (left != null && node.compare(left.getMax(), point) >= 0) {
+                stack[pos++] = left;
             }
-        });
+        }
     }
 
-    public boolean isBalanced() {
-        return isBalanced(this.root);
+    /**
+     * Gets the value aggregated for the whole tree by the specified {@code aggregator}, see {@link
+     * IntervalTreeAggregator}.
+     *
+     * @param aggregator the aggregator to get the value for, must be an aggregator of the tree
+     * @param <A>        the type of the aggregated value
+     *
+     * @return the aggregated value, or {@code null} if the tree is empty
+     */
+    public <A> A aggregate(final IntervalTreeAggregator<A> aggregator) {
+        final IntervalTreeNode root = this.root;
+        if (root == null) {
+            return null;
+        }
+
+        calculateAggregates(root);
+        return root.getAggregate(aggregator);
     }
 
-    @SuppressWarnings("SimplifiableIfStatement")
-    protected boolean isBalanced(final IntervalTreeNode node) {
-        if (node == null) {
-            return true;
+    /**
+     * Calculates the missing aggregates (e.g., of a loaded tree) of the sub-tree of the specified {@code node}
+     * bottom-up, i.e., a node is calculated after its children. Sub-trees with calculated aggregates are skipped.
+     *
+     * @param node the root of the sub-tree to calculate the aggregates for
+     */
+    protected void calculateAggregates(final IntervalTreeNode node) {
+        if (node != null) {
+            node.calculateMissingAggregates();
         }
-        return Math.abs(determineBalance(node)) <= 1L &&
-                isBalanced(node.getLeft()) && isBalanced(node.getRight());
     }
 
-    protected IntervalTreeNode balance(final IntervalTreeNode node) {
+    /**
+     * Counts the intervals overlapping with the specified {@code query}, without collecting the intervals. If the tree
+     * maintains the aggregates {@link IntervalTreeAggregators#COUNT} and {@link IntervalTreeAggregators#MIN_END}, every
+     * sub-tree with all intervals overlapping the query is counted as a whole, i.e., without visiting its nodes.
+     *
+     * @param query the interval to count the overlapping intervals for
+     *
+     * @return the amount of overlapping intervals
+     */
+    public long countOverlaps(final IInterval query) {
+        final int countIdx = this.configuration.indexOf(IntervalTreeAggregators.COUNT);
+        final int minEndIdx = this.configuration.indexOf(IntervalTreeAggregators.MIN_END);
 
-        // check the balance
-        final long balance = determineBalance(node);
-        if (Math.abs(balance) <= 1) {
-            return node;
+        return _countOverlaps(this.root, query.getNormStart(), query.getNormEnd(), false,
+                countIdx != -1 && minEndIdx != -1 ? countIdx : -1, minEndIdx);
+    }
+
+    /**
+     * Counts the intervals of the sub-tree of {@code node} overlapping with {@code [start, end]}.
+     *
+     * @param node             the root of the sub-tree
+     * @param start            the normalized start of the query
+     * @param end              the normalized end of the query
+     * @param startsBeforeEnd  {@code true} if all nodes of the sub-tree are known to start before (or with) the end
+     *                         of the query
+     * @param countIdx         the position of the count aggregate, or {@code -1} if sub-trees cannot be counted
+     * @param minEndIdx        the position of the min-end aggregate
+     *
+     * @return the amount of overlapping intervals within the sub-tree
+     */
+    protected long _countOverlaps(final IntervalTreeNode node,
+                                  final Comparable start,
+                                  final Comparable end,
+                                  final boolean startsBeforeEnd,
+                                  final int countIdx,
+                                  final int minEndIdx) {
+        if (node == null) {
+            return 0L;
+        } else if (countIdx != -1) {
+            calculateAggregates(node);
         }
 
-        // find the deepest unbalanced sub-tree (there may be more down the road)
+        // the stack (and the flags of its nodes) never holds more than one pending node per level, see _overlap
+        final int maxSize = (int) node.getHeight() + 1;
+        final IntervalTreeNode[] stack = new IntervalTreeNode[maxSize];
+        final boolean[] stackStartsBeforeEnd = new boolean[maxSize];
+        int pos = 0;
+        stack[pos] = node;
+        stackStartsBeforeEnd[pos++] = startsBeforeEnd;
+
+        long count = 0L;
+        while (pos > 0) {
+            final IntervalTreeNode current = stack[--pos];
+            final boolean currentStartsBeforeEnd = stackStartsBeforeEnd[pos];
+
+            if (current.compare(current.getMax(), start) < 0) {
+                continue;
+            } else if (currentStartsBeforeEnd && countIdx != -1 &&
+                    current.compare(current.getAggregate(minEndIdx), start) >= 0) {
+                count += Long.class.cast(current.getAggregate(countIdx));
+                continue;
+            }
 
-        // validate the different four cases four unbalanced tree's
-        final long balanceLeft = balance > 1L ? determineBalance(node.getLeft()) : 0L;
-        final long balanceRight = balance < -1L ? determineBalance(node.getRight()) : 0L;
+            // the left sub-tree only contains nodes starting before (or with) this node
+            final boolean nodeStartsBeforeEnd = currentStartsBeforeEnd || current.compare(current.getStart(), end) <= 0;
+            if (nodeStartsBeforeEnd) {
+                if (current.compare(current.getEnd(), start) >= 0) {
+                    count += current.getCollection().size();
+                }
 
-        // Left Left Case
-        if (balance > 1 && balanceLeft >= 0) {
-            return rightRotate(node);
-        }
-        // Right Right Case
-        else if (balance < -1 && balanceRight <= 0) {
-            return leftRotate(node);
-        }
-        // Left Right Case
-        else if (balance > 1 && balanceLeft < 0) {
-            node.setLeft(leftRotate(node.getLeft()));
-            return rightRotate(node);
+                if (current.hasRight()) {
+                    stack[pos] = current.getRight();
+                    stackStartsBeforeEnd[pos++] = currentStartsBeforeEnd;
+                }
+            }
+
+            if (current.hasLeft()) {
+                stack[pos] = current.getLeft();
+                stackStartsBeforeEnd[pos++] = nodeStartsBeforeEnd;
+            }
         }
-        // Right Left Case
-        else if (balance < -1 && balanceRight > 0) {
-            node.setRight(rightRotate(node.getRight()));
-            return leftRotate(node);
+
+        return count;
+    }
+
+    /**
+     * Determines the maximal amount of intervals overlapping at the same point within the specified {@code window}.
+     * This is a materializing helper, i.e., it is not answered by the aggregates of the tree: the nodes overlapping
+     * with the window are collected (ordered by their start), copied and sorted by their end, and swept. Thus, it
+     * needs memory linear to the amount of overlapping nodes (the intervals themselves are not collected).
+     *
+     * @param window the interval to determine the maximal concurrency within
+     *
+     * @return the maximal amount of intervals containing the same point of the window
+     */
+    public long maxConcurrency(final IInterval window) {
+        final Comparable start = window.getNormStart();
+        final Comparable end = window.getNormEnd();
+
+        final List<IntervalTreeNode> byStart = new ArrayList<>();
+        collectOverlappingNodes(this.root, start, end, byStart);
+        if (byStart.isEmpty()) {
+            return 0L;
         }
-        // any other Case, no changes - should never happen
-        else {
-            LOGGER.warn(String.format("Balancing node '%s' reached an unexpected state (b: %d, l: %d, r: %d)",
-                    node, balance, balanceLeft, balanceRight));
-            LOGGER.warn(this);
-            return node;
+
+        final IntervalTreeNode[] byEnd = byStart.toArray(new IntervalTreeNode[byStart.size()]);
+        Arrays.sort(byEnd, (n1, n2) -> n1.compare(n1.getEnd(), n2.getEnd()));
+
+        long concurrency = 0L;
+        long max = 0L;
+        int pos = 0;
+        for (final IntervalTreeNode node : byStart) {
+
+            // intervals ending before this node starts are not active anymore
+            while (pos < byEnd.length && node.compare(byEnd[pos].getEnd(), node.getStart()) < 0) {
+                concurrency -= byEnd[pos++].getCollection().size();
+            }
+
+            concurrency += node.getCollection().size();
+            max = Math.max(max, concurrency);
         }
+
+        return max;
     }
 
-    public IntervalTree delete(final IInterval interval) {
-        remove(interval);
-        return this;
+    /**
+     * Collects the nodes of the sub-tree of the specified {@code node} overlapping with {@code [start, end]}, ordered
+     * by the nodes (i.e., by their start).
+     *
+     * @param node  the root of the sub-tree
+     * @param start the normalized start of the query
+     * @param end   the normalized end of the query
+     * @param nodes the list to add the overlapping nodes to
+     */
+    protected void collectOverlappingNodes(final IntervalTreeNode node,
+                                           final Comparable start,
+                                           final Comparable end,
+                                           final List<IntervalTreeNode> nodes) {
+        overlappingNodeIterator(node, start, end).forEachRemaining(nodes::add);
     }
 
-    protected IntervalTreeNode _remove(final IntervalTreeNode node,
-                                       final IInterval interval,
-                                       final AtomicBoolean changed) {
-        if (node == null) {
-            changed.set(false);
-            return null;
-        }
+    /**
+     * Iterates lazily over the nodes of the sub-tree of the specified {@code node} overlapping with {@code [start,
+     * end]}, ordered by the nodes (i.e., by their start). Sub-trees with a max before the {@code start} are pruned and
+     * the iteration stops with the first node starting after the {@code end}.
+     *
+     * @param node  the root of the sub-tree
+     * @param start the normalized start of the query
+     * @param end   the normalized end of the query
+     *
+     * @return an iterator over the overlapping nodes
+     */
+    protected Iterator<IntervalTreeNode> overlappingNodeIterator(final IntervalTreeNode node,
+                                                                 final Comparable start,
+                                                                 final Comparable end) {
+        return new Iterator<IntervalTreeNode>() {
+            // the stack holds the path to the current node, i.e., the nodes whose left sub-tree is visited
+            private final IntervalTreeNode[] stack =
+                    new IntervalTreeNode[node == null ? 0 : (int) node.getHeight() + 1];
+            private int pos = 0;
+            private IntervalTreeNode current = node;
+            private IntervalTreeNode next = advance();
 
-        final IntervalTreeNodeChildType childType;
-        final int cmpNode = node.compareTo(interval);
-        if (cmpNode == 0) {
-            if (node.removeInterval(interval)) {
-                if (LOGGER.isTraceEnabled()) {
-                    LOGGER.trace("Removed interval '" + interval + "' from node '" + node + "'.");
+            @Override
+            public boolean hasNext() {
+                return this.next != null;
+            }
+
+            @Override
+            public IntervalTreeNode next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
                 }
 
-                changed.set(true);
-                return removeEmptyNode(node);
-            } else {
-                changed.set(false);
-                return node;
+                final IntervalTreeNode result = this.next;
+                this.next = advance();
+                return result;
             }
-        } else if (cmpNode < 0) {
-            childType = IntervalTreeNodeChildType.RIGHT;
-        } else {
-            childType = IntervalTreeNodeChildType.LEFT;
-        }
 
-        // add the node to the child and replace the returned value
-        node.setChild(_remove(node.getChild(childType), interval, changed), childType);
+            private IntervalTreeNode advance() {
+                while (true) {
+                    while (this.current != null && this.current.compare(this.current.getMax(), start) >= 0) {
+                        this.stack[this.pos++] = this.current;
+                        this.current = this.current.getLeft();
+                    }
+
+                    if (this.pos == 0) {
+                        return null;
+                    }
+                    final IntervalTreeNode candidate = this.stack[--this.pos];
+
+                    // all following nodes start after this node, i.e., after the end of the query
+                    if (candidate.compare(candidate.getStart(), end) > 0) {
+                        this.pos = 0;
+                        this.current = null;
+                        return null;
+                    }
+                    this.current = candidate.getRight();
 
-        return isAutoBalancing() ? balance(node) : node;
+                    if (candidate.compare(candidate.getEnd(), start) >= 0) {
+                        return candidate;
+                    }
+                }
+            }
+        };
     }
 
     /**
-     * Removes an empty node (i.e., does not contain any intervals). When removing an empty node, the resulting tree
-     * must be rebalanced (if activated, see {@link #isAutoBalancing()}). The method returns the re-organized, balanced
-     * sub-tree. The returned sub-tree can be at most better (in height) by one - if the tree was balanced before.
-     * <p>
-     * - http://www.mathcs.emory.edu/~cheung/Courses/323/Syllabus/Trees/AVL-delete.html<br/>
-     * - http://quiz.geeksforgeeks.org/binary-search-tree-set-2-delete/
+     * Determines all intervals having one of the specified {@code relations} to the {@code query}, i.e., all intervals
+     * {@code i} with {@code i.ir(query)} being one of the relations. The relations are answered by the index, i.e.,
+     * only the nodes with a start and max possibly satisfying one of the relations are visited, see {@link
+     * IntervalRelationQuery}.
      *
-     * @param node the node which contained the removed interval
+     * @param query     the interval to relate the intervals of the tree to
+     * @param relations the relations to be selected
      *
-     * @return the new root to be used in replacement for the passed {@code node}
+     * @return the intervals having one of the relations to the query
      */
-    protected IntervalTreeNode removeEmptyNode(final IntervalTreeNode node) {
-        if (!node.isEmpty()) {
-            return node;
+    public Collection<IInterval> relate(final IInterval query, final AllenIntervalRelation... relations) {
+        final List<IInterval> result = new ArrayList<>();
+        relate(query, result::add, relations);
+        return result;
+    }
+
+    public void relate(final IInterval query,
+                       final Consumer<IInterval> visitor,
+                       final AllenIntervalRelation... relations) {
+        final IntervalRelationQuery relationQuery = new IntervalRelationQuery(
+                this.configuration.getValueComparator(), query, relations);
+
+        final IntervalTreeNode root = this.root;
+        if (root == null || relationQuery.isEmpty()) {
+            return;
         }
 
-        /*
-         * There is a different between the new root (rootNode) of the sub-tree and the position where the
-         * action really took place (i.e., the parent of the node, which was modified). To understand the difference,
-          * it is best to look at:
-         *
-         * - http://www.mathcs.emory.edu/~cheung/Courses/323/Syllabus/Trees/AVL-delete.html
-         */
-        final IntervalTreeNode rootNode;
-        final IntervalTreeNode actionNode;
+        final IntervalTreeNode[] stack = new IntervalTreeNode[(int) root.getHeight() + 1];
+        int pos = 0;
+        stack[pos++] = root;
 
-        // the empty not is a leaf, just remove it
-        if (node.isLeaf()) {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Removing leaf '" + node + "' from tree.");
+        while (pos > 0) {
+            final IntervalTreeNode node = stack[--pos];
+
+            // the left sub-tree only contains nodes starting before (or with) the node, the right one after (or with)
+            final boolean startsAfterMin = relationQuery.startsAfterMin(node.getStart());
+            final boolean startsBeforeMax = relationQuery.startsBeforeMax(node.getStart());
+
+            if (startsAfterMin && startsBeforeMax && relationQuery.matches(node.getStart(), node.getEnd())) {
+                node.getCollection().forEach(visitor);
             }
 
-            rootNode = null;
-            actionNode = null; // the action-node would be node.getParent(), but will be balanced in the _remove
-        }
-        // we have an empty node, which just have one parent, so we just keep that one parent
-        else if (node.isSingleParent()) {
-            rootNode = node.getSingleChild();
-            actionNode = null; // the action-node would be node.getParent(), but will be balanced in the _remove
+            final IntervalTreeNode right = node.getRight();
+            if (startsBeforeMax && right != null && relationQuery.containsCandidates(right.getMax())) {
+                stack[pos++] = right;
+            }
 
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Removing node '" + node + "' and replacing with '" +
-                        rootNode + "' from tree.");
+            final IntervalTreeNode left = node.getLeft();
+            if (startsAfterMin && left != null && relationQuery.containsCandidates(left.getMax())) {
+                stack[pos++] = left;
             }
         }
-        // we have two sub-trees
-        else {
-            rootNode = findLeftLeaf(node.getRight());
-            actionNode = node == rootNode.getParent() ? null : rootNode.getParent();
+    }
 
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Removing node '" + node + "' and replacing with smallest '" +
-                        rootNode + "' from tree.");
-            }
+    /**
+     * Determines the overlapping intervals for each of the specified {@code queries}, see {@link
+     * #overlapAll(List, ForkJoinPool)}.
+     *
+     * @param queries the intervals to find the overlapping intervals for
+     *
+     * @return the overlapping intervals of each query, in the order of the queries
+     */
+    public List<List<IInterval>> overlapAll(final List<? extends IInterval> queries) {
+        return overlapAll(queries, null);
+    }
 
-            final IntervalTreeNodeContext nodeCtx = node.detach();
-            final IntervalTreeNodeChildType replacementChildType = rootNode.determineChildType();
-            final IntervalTreeNodeContext replacementCtx = rootNode.detach();
+    /**
+     * Determines the overlapping intervals for each of the specified {@code queries}. Instead of traversing the tree
+     * once per query, the queries are sorted by their start and the tree is traversed once for all of them. A
+     * sub-tree is only visited for the queries starting before the max of the sub-tree, and a right sub-tree only if
+     * any of these queries ends after the start of its parent. The result of each query is the same as the one of
+     * {@link #overlap(IInterval)}.
+     * <p>
+     * If a {@code pool} is specified and the batch contains at least {@link #PARALLEL_BATCH_SIZE} queries, the sorted
+     * queries are split into chunks, which are traversed in parallel. The tree must not be modified while the queries
+     * are answered.
+     *
+     * @param queries the intervals to find the overlapping intervals for
+     * @param pool    the pool used to answer large batches in parallel, can be {@code null}
+     *
+     * @return the overlapping intervals of each query, in the order of the queries
+     */
+    public List<List<IInterval>> overlapAll(final List<? extends IInterval> queries, final ForkJoinPool pool) {
+        final int nrOfQueries = queries.size();
+        final List<List<IInterval>> results = new ArrayList<>(nrOfQueries);
+        for (int i = 0; i < nrOfQueries; i++) {
+            results.add(new ArrayList<>());
+        }
+
+        final IntervalTreeNode root = this.root;
+        if (root == null || nrOfQueries == 0) {
+            return results;
+        }
 
-            // if the replacementCtx has children, we have to move them to the old parent (can only have one)
-            if (replacementCtx.isSingleParent()) {
-                replacementCtx.getParent().setChild(replacementCtx.getSingleChild(), replacementChildType);
+        // sort the queries by their start
+        final IntervalValueComparator cmp = this.configuration.getValueComparator();
+        final Integer[] order = new Integer[nrOfQueries];
+        for (int i = 0; i < nrOfQueries; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i1, i2) -> cmp.compare(queries.get(i1).getNormStart(), queries.get(i2).getNormStart()));
+
+        final OverlapBatch batch = new OverlapBatch(nrOfQueries);
+        for (int i = 0; i < nrOfQueries; i++) {
+            final IInterval query = queries.get(order[i]);
+            batch.starts[i] = query.getNormStart();
+            batch.ends[i] = query.getNormEnd();
+            batch.results.add(results.get(order[i]));
+        }
+
+        if (pool == null || nrOfQueries < PARALLEL_BATCH_SIZE) {
+            _overlapAll(root, batch, 0, nrOfQueries);
+        } else {
+            final int chunkSize = Math.max(PARALLEL_BATCH_SIZE,
+                    (nrOfQueries + pool.getParallelism() - 1) / pool.getParallelism());
+
+            final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int from = 0; from < nrOfQueries; from += chunkSize) {
+                final int chunkFrom = from;
+                final int chunkTo = Math.min(from + chunkSize, nrOfQueries);
+                tasks.add(pool.submit(() -> _overlapAll(root, batch, chunkFrom, chunkTo)));
             }
+            tasks.forEach(ForkJoinTask::join);
+        }
+
+        return results;
+    }
+
+    protected void _overlapAll(final IntervalTreeNode node, final OverlapBatch batch, final int from, final int to) {
+        if (node == null) {
+            return;
+        }
 
-            // it may be that the node had the smallestNode as child, in that case we have to keep the old child
-            if (nodeCtx.getLeft() == rootNode) {
-                rootNode.setLeft(replacementCtx.getLeft());
+        // the stack (and the queries of its sub-trees) never holds more than one pending node per level, see _overlap
+        final int maxSize = (int) node.getHeight() + 1;
+        final IntervalTreeNode[] stack = new IntervalTreeNode[maxSize];
+        final int[] stackTo = new int[maxSize];
+        int pos = 0;
+        stack[pos] = node;
+        stackTo[pos++] = to;
+
+        while (pos > 0) {
+            final IntervalTreeNode current = stack[--pos];
+            final int currentTo = stackTo[pos];
+
+            // the queries starting after the max of the sub-tree cannot overlap with any node of the sub-tree
+            final Comparable max = current.getMax();
+            int lo = from;
+            int hi = currentTo;
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (current.compare(batch.starts[mid], max) > 0) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            final int until = lo;
+            if (until == from) {
+                continue;
+            }
 
-                rootNode.setRight(nodeCtx.getRight());
-                rootNode.setParent(nodeCtx.getParent());
-            } else if (nodeCtx.getRight() == rootNode) {
-                rootNode.setRight(replacementCtx.getRight());
+            // the right sub-tree only contains nodes starting at or after the current node
+            boolean visitRight = false;
+            for (int i = from; i < until; i++) {
+                if (current.compare(current.getStart(), batch.ends[i]) <= 0) {
+                    visitRight = true;
 
-                rootNode.setLeft(nodeCtx.getLeft());
-                rootNode.setParent(nodeCtx.getParent());
-            } else {
-                rootNode.setContext(nodeCtx);
+                    if (current.compare(current.getEnd(), batch.starts[i]) >= 0) {
+                        current.getCollection().forEach(batch.results.get(i)::add);
+                    }
+                }
             }
-        }
 
-        // if we replace the root, we have to let the
-        if (rootNode != null && node.isRoot()) {
-            rootNode.setParent(null);
-            rootNode.setLevel(0L);
+            if (visitRight && current.hasRight()) {
+                stack[pos] = current.getRight();
+                stackTo[pos++] = until;
+            }
+            if (current.hasLeft()) {
+                stack[pos] = current.getLeft();
+                stackTo[pos++] = until;
+            }
         }
+    }
 
-        if (LOGGER.isTraceEnabled()) {
-            LOGGER.trace("rootNode: " + rootNode);
-            LOGGER.trace("actionNode: " + actionNode);
+    protected void _overlap(final Comparable start, final Comparable end, final Consumer<IInterval> visitor) {
+        final IntervalTreeNode root = this.root;
+        if (root == null) {
+            return;
         }
 
-        if (!isAutoBalancing()) {
-            return rootNode;
-        } else if (rootNode == null) {
-            return null;
-        } else if (actionNode == null) {
-            return balance(rootNode);
-        } else {
+        // the stack never holds more than one pending node per level, plus the two children of the current one
+        final IntervalTreeNode[] stack = new IntervalTreeNode[(int) root.getHeight() + 1];
+        int pos = 0;
+        stack[pos++] = root;
 
-            /*
-             * In this case, we have to follow up from the actionNode up to the rootNode
-             * and make sure everything is balanced within this area.
-             */
-            IntervalTreeNodeChildType childType = actionNode.determineChildType();
-            IntervalTreeNode n = actionNode.getParent();
+        while (pos > 0) {
+            final IntervalTreeNode node = stack[--pos];
 
-            do {
-                final IntervalTreeNode child = n.getChild(childType);
-                n.setChild(balance(child), childType);
+            // if the node starts after the query, neither the node nor the right sub-tree can overlap
+            if (node.compare(node.getStart(), end) <= 0) {
+                if (node.compare(node.getEnd(), start) >= 0) {
+                    node.getCollection().forEach(visitor);
+                }
 
-                if (n == rootNode) {
-                    break;
+                final IntervalTreeNode right = node.getRight();
+                if (right != null && node.compare(right.getMax(), start) >= 0) {
+                    stack[pos++] = right;
                 }
+            }
+
+            final IntervalTreeNode left = node.getLeft();
+            if (left != null && node.compare(left.getMax(), start) >= 0) {
+                stack[pos++] = left;
+            }
+        }
+    }
+
+    public IntervalTree insert(final IInterval interval) {
+        add(interval);
+        return this;
+    }
 
-                childType = n.determineChildType();
-                n = n.getParent();
-            } while (true);
+    /**
+     * Loads the specified intervals into {@code this} empty tree. Instead of inserting the intervals one by one, the
+     * intervals are sorted by their normalized start and end, grouped into nodes, and the nodes are linked into a
+     * perfectly balanced tree bottom-up. The max and height of each node are calculated once while linking, i.e.,
+     * besides the sorting (which is linear for already sorted intervals) the tree is created in {@code O(n)}. A {@link
+     * BalancingPolicy#TREAP} links the nodes into the tree heap-ordered by their priorities instead, which is also done
+     * in {@code O(n)}.
+     *
+     * @param intervals the intervals to be loaded
+     *
+     * @return {@code this} tree
+     *
+     * @throws IllegalStateException if the tree is not empty
+     */
+    public IntervalTree bulkLoad(final Iterable<? extends IInterval> intervals) throws IllegalStateException {
+        final List<IInterval> sorted = new ArrayList<>();
+        intervals.forEach(sorted::add);
+
+        return _bulkLoad(sorted);
+    }
+
+    public IntervalTree bulkLoad(final Stream<? extends IInterval> intervals) throws IllegalStateException {
+        return _bulkLoad(intervals.collect(Collectors.toCollection(ArrayList::new)));
+    }
+
+    protected IntervalTree _bulkLoad(final List<IInterval> sorted) throws IllegalStateException {
+        if (this.root != null) {
+            throw new IllegalStateException("Intervals can only be bulk-loaded into an empty tree.");
+        }
+
+        final IntervalValueComparator cmp = this.configuration.getValueComparator();
+        sorted.sort((i1, i2) -> {
+            final int cmpStart = cmp.compare(i1.getNormStart(), i2.getNormStart());
+            return cmpStart == 0 ? cmp.compare(i1.getNormEnd(), i2.getNormEnd()) : cmpStart;
+        });
+
+        // group the intervals, all intervals of a node have the same unique identifier
+        final List<IntervalTreeNode> nodes = new ArrayList<>();
+        IntervalTreeNode current = null;
+        long size = 0L;
+        for (final IInterval interval : sorted) {
+            if (current == null || current.compareTo(interval) != 0) {
+                current = createNode(interval);
+                nodes.add(current);
+                size++;
+            } else if (current.addInterval(interval)) {
+                size++;
+            }
+        }
+
+        if (BalancingPolicy.TREAP.equals(this.configuration.getBalancingPolicy())) {
+            this.root = linkByPriority(nodes);
+        } else {
+            this.root = link(nodes, 0, nodes.size() - 1);
+        }
+        this.size = size;
+
+        return this;
+    }
+
+    protected IntervalTreeNode link(final List<IntervalTreeNode> nodes, final int from, final int to) {
+        if (from > to) {
+            return null;
+        }
+
+        final int mid = (from + to) >>> 1;
+        final IntervalTreeNode node = nodes.get(mid);
+        node.link(link(nodes, from, mid - 1), link(nodes, mid + 1, to));
+
+        return node;
+    }
+
+    /**
+     * Links the specified, sorted {@code nodes} into a tree, which is heap-ordered by the priorities of the nodes (see
+     * {@link IntervalTreeNode#getPriority()}). The stack holds the right spine of the tree linked so far, a node is
+     * linked (and its values are calculated) once it is removed from the spine, i.e., once its sub-tree is complete.
+     *
+     * @param nodes the sorted nodes to be linked
+     *
+     * @return the root of the linked tree, or {@code null} if there are no nodes
+     */
+    protected IntervalTreeNode linkByPriority(final List<IntervalTreeNode> nodes) {
+        final IntervalTreeNode[] stack = new IntervalTreeNode[nodes.size()];
+        int pos = 0;
+
+        for (final IntervalTreeNode node : nodes) {
+            final int priority = node.getPriority();
+
+            // the nodes with a lower priority become the left sub-tree of the node
+            IntervalTreeNode last = null;
+            while (pos > 0 && stack[pos - 1].getPriority() < priority) {
+                final IntervalTreeNode completed = stack[--pos];
+                completed.link(completed.getLeft(), last);
+                last = completed;
+            }
+
+            node.link(last, null);
+            stack[pos++] = node;
+        }
+
+        IntervalTreeNode last = null;
+        while (pos > 0) {
+            final IntervalTreeNode completed = stack[--pos];
+            completed.link(completed.getLeft(), last);
+            last = completed;
+        }
+
+        return last;
+    }
+
+    protected IntervalTreeNode createNode(final IInterval interval) {
+        final IntervalTreeNode node = newNode();
+        node.setConfiguration(this.configuration);
+        node.init(interval);
+        node.addInterval(interval);
+
+        // a new node is not part of any snapshot, thus its state never has to be recorded
+        if (this.snapshotEpoch != null) {
+            node.setEpoch(this.epoch);
+        }
+
+        return node;
+    }
+
+    /**
+     * Creates a new, not initialized node used by {@code this} tree. Specialized trees (e.g., {@link
+     * LongIntervalTree}) override this method to use a specialized node implementation.
+     *
+     * @return a new, not initialized node
+     */
+    protected IntervalTreeNode newNode() {
+        return new IntervalTreeNode();
+    }
+
+    /**
+     * Balances the whole tree, i.e., the nodes are re-linked (in-order) into a perfectly balanced tree. The re-linked
+     * tree is not heap-ordered, i.e., a {@link BalancingPolicy#TREAP} only restores the order along the paths of
+     * later updates.
+     */
+    public void balance() {
+        if (this.root == null) {
+            return;
+        }
+
+        final long stamp = lockSnapshots();
+        try {
+            final List<IntervalTreeNode> nodes = new ArrayList<>();
+            nodeIterator().forEachRemaining(nodes::add);
+            nodes.forEach(this::modify);
+
+            this.root = link(nodes, 0, nodes.size() - 1);
+            this.root.setParent(null);
+        } finally {
+            unlockSnapshots(stamp);
+        }
+    }
+
+    public boolean isBalanced() {
+        return isBalanced(this.root);
+    }
+
+    @SuppressWarnings("SimplifiableIfStatement")
+    protected boolean isBalanced(final IntervalTreeNode node) {
+        if (node == null) {
+            return true;
+        }
+        return Math.abs(determineBalance(node)) <= 1L &&
+                isBalanced(node.getLeft()) && isBalanced(node.getRight());
+    }
+
+    /**
+     * Re-balances the sub-tree of the specified {@code node} by rotating it, if needed. The parent of the node is not
+     * modified, the returned root of the sub-tree already references the parent.
+     *
+     * @param node the root of the sub-tree to be balanced
+     *
+     * @return the new root of the sub-tree
+     */
+    protected IntervalTreeNode balance(final IntervalTreeNode node) {
+
+        // check the balance
+        final long balance = determineBalance(node);
+        if (Math.abs(balance) <= 1) {
+            return node;
+        }
+
+        // validate the different four cases four unbalanced tree's
+        final long balanceLeft = balance > 1L ? determineBalance(node.getLeft()) : 0L;
+        final long balanceRight = balance < -1L ? determineBalance(node.getRight()) : 0L;
+
+        // Left Left Case
+        if (balance > 1 && balanceLeft >= 0) {
+            return rightRotate(node);
+        }
+        // Right Right Case
+        else if (balance < -1 && balanceRight <= 0) {
+            return leftRotate(node);
+        }
+        // Left Right Case
+        else if (balance > 1 && balanceLeft < 0) {
+            modify(node).attach(leftRotate(node.getLeft()), IntervalTreeNodeChildType.LEFT);
+            return rightRotate(node);
+        }
+        // Right Left Case
+        else if (balance < -1 && balanceRight > 0) {
+            modify(node).attach(rightRotate(node.getRight()), IntervalTreeNodeChildType.RIGHT);
+            return leftRotate(node);
+        }
+        // any other Case, no changes - should never happen
+        else {
+            LOGGER.warn(String.format("Balancing node '%s' reached an unexpected state (b: %d, l: %d, r: %d)",
+                    node, balance, balanceLeft, balanceRight));
+            LOGGER.warn(this);
+            return node;
+        }
+    }
+
+    public IntervalTree delete(final IInterval interval) {
+        remove(interval);
+        return this;
+    }
+
+    /**
+     * Removes the specified {@code node} (which does not contain any intervals anymore) from the tree. A node with two
+     * children is replaced by its in-order successor.
+     * <p>
+     * - http://www.mathcs.emory.edu/~cheung/Courses/323/Syllabus/Trees/AVL-delete.html<br/>
+     * - http://quiz.geeksforgeeks.org/binary-search-tree-set-2-delete/
+     *
+     * @param node the node to be removed
+     */
+    protected void removeNode(final IntervalTreeNode node) {
+
+        // a treap moves the node down instead of replacing it, so that the heap-order is kept
+        final IntervalTreeNode top = node.isFullParent() && BalancingPolicy.TREAP.equals(getBalancingPolicy()) ?
+                rotateDown(node) : null;
+        final IntervalTreeNode parent = node.getParent();
+
+        if (node.isFullParent()) {
+            final IntervalTreeNode successor = findLeftLeaf(node.getRight());
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Removing node '" + node + "' and replacing with smallest '" + successor + "' from tree.");
+            }
+
+            // the position where the tree was modified, it is the successor if it is the right child of the node
+            final IntervalTreeNode modified;
+            if (successor.getParent() == node) {
+                modified = successor;
+            } else {
+                modified = successor.getParent();
+                modify(modified).attach(successor.getRight(), IntervalTreeNodeChildType.LEFT);
+                modify(successor).attach(node.getRight(), IntervalTreeNodeChildType.RIGHT);
+            }
+            modify(successor).attach(node.getLeft(), IntervalTreeNodeChildType.LEFT);
+            replace(parent, node, successor);
+            clear(node);
+
+            // the successor replaced the node, thus its parent must be re-calculated even if the successor's values
+            // did not change
+            retrace(modified, successor);
+        } else {
+            final IntervalTreeNode child = node.hasLeft() ? node.getLeft() : node.getRight();
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Removing node '" + node + "' and replacing with '" + child + "' from tree.");
+            }
+
+            replace(parent, node, child);
+            clear(node);
+            retrace(parent, top);
+        }
+    }
+
+    /**
+     * Attaches the specified {@code node} as new leaf to the {@code parent} and restores the balance of the tree.
+     *
+     * @param parent    the parent of the new leaf
+     * @param node      the new leaf, without any children
+     * @param childType the free position of the parent the leaf is attached to
+     */
+    protected void attachNode(final IntervalTreeNode parent,
+                              final IntervalTreeNode node,
+                              final IntervalTreeNodeChildType childType) {
+        modify(parent).attach(node, childType);
+
+        if (BalancingPolicy.TREAP.equals(getBalancingPolicy())) {
+            rotateUp(node);
+
+            // the rotations already re-calculated the attached node
+            retrace(node, node);
+        } else {
+            retrace(parent);
+        }
+    }
+
+    /**
+     * Inserts the specified {@code node}, which must not have any links to other nodes, into the tree. The tree must
+     * not contain a node with the same start and end.
+     *
+     * @param node the node to be inserted
+     */
+    protected void insertNode(final IntervalTreeNode node) {
+        modify(node).recalculate();
+
+        if (this.root == null) {
+            this.root = node;
+            return;
+        }
+
+        IntervalTreeNode current = this.root;
+        while (true) {
+            final IntervalTreeNodeChildType childType = current.compareTo(node) < 0 ?
+                    IntervalTreeNodeChildType.RIGHT : IntervalTreeNodeChildType.LEFT;
+            final IntervalTreeNode child = current.getChild(childType);
+
+            if (child == null) {
+                attachNode(current, node, childType);
+                return;
+            } else {
+                current = child;
+            }
+        }
+    }
+
+    /**
+     * Rotates the specified {@code node} up, until its parent has a higher priority (see {@link
+     * IntervalTreeNode#getPriority()}), i.e., the heap-order of a {@link BalancingPolicy#TREAP} is restored after the
+     * node was added as leaf. The rotated nodes are re-calculated, their ancestors are not.
+     *
+     * @param node the node to be rotated up
+     */
+    protected void rotateUp(final IntervalTreeNode node) {
+        final int priority = node.getPriority();
+
+        IntervalTreeNode parent;
+        while ((parent = node.getParent()) != null && parent.getPriority() < priority) {
+            final IntervalTreeNode grandParent = parent.getParent();
+            replace(grandParent, parent, parent.getLeft() == node ? rightRotate(parent) : leftRotate(parent));
+        }
+    }
+
+    /**
+     * Rotates the specified {@code node} down (always rotating the child with the higher priority up), until the node
+     * has at most one child and can be removed without violating the heap-order of a {@link BalancingPolicy#TREAP}.
+     *
+     * @param node the node to be rotated down, must have two children
+     *
+     * @return the node which took the former position of the specified node
+     */
+    protected IntervalTreeNode rotateDown(final IntervalTreeNode node) {
+        IntervalTreeNode top = null;
+
+        while (node.isFullParent()) {
+            final IntervalTreeNode parent = node.getParent();
+            final IntervalTreeNode rotated = node.getLeft().getPriority() > node.getRight().getPriority() ?
+                    rightRotate(node) : leftRotate(node);
+            replace(parent, node, rotated);
+
+            if (top == null) {
+                top = rotated;
+            }
+        }
+
+        return top;
+    }
+
+    /**
+     * Removes all intervals ending before the specified {@code watermark}, i.e., all intervals with a normalized end
+     * smaller than the watermark. Instead of deleting the intervals one by one, the tree is split at the watermark: the
+     * nodes starting at or after the watermark are kept as whole sub-trees, which are joined back together, all nodes
+     * starting before it are dropped, except the (usually few) nodes still ending at or after the watermark, which are
+     * inserted again. If the tree maintains {@link IntervalTreeAggregators#COUNT}, the dropped sub-trees are not even
+     * visited.
+     * <p>
+     * The watermark never moves backwards, i.e., a watermark smaller than the current one does not remove anything.
+     * Like {@link #clear()}, dropping the intervals does not remove them from a persistor used by the tree.
+     *
+     * @param watermark the new watermark
+     *
+     * @return the amount of removed intervals
+     */
+    public long advanceWatermark(final Comparable watermark) {
+        final long stamp = lockSnapshots();
+        try {
+            return _advanceWatermark(watermark);
+        } finally {
+            unlockSnapshots(stamp);
+        }
+    }
+
+    protected long _advanceWatermark(final Comparable watermark) {
+        final IntervalValueComparator cmp = this.configuration.getValueComparator();
+        if (watermark == null || this.watermark != null && cmp.compare(watermark, this.watermark) <= 0) {
+            return 0L;
+        }
+
+        this.watermark = watermark;
+        this.nextWatermark = null;
+        if (this.root == null || cmp.compare(this.root.getMax(), watermark) < 0) {
+            final long removed = this.size;
+            _clear();
+            return removed;
+        }
+
+        final List<IntervalTreeNode> kept = new ArrayList<>();
+        final List<IntervalTreeNode> retained = new ArrayList<>();
+        final int countIdx = this.configuration.indexOf(IntervalTreeAggregators.COUNT);
+        if (countIdx != -1) {
+            calculateAggregates(this.root);
+        }
+        long removed = 0L;
+
+        // the nodes of the right part are kept together with their right sub-trees, the left part is dropped
+        IntervalTreeNode node = this.root;
+        while (node != null) {
+            if (cmp.compare(node.getStart(), watermark) >= 0) {
+                kept.add(node);
+                node = node.getLeft();
+            } else {
+                removed += drop(node, node.getLeft(), watermark, retained, countIdx);
+                node = node.getRight();
+            }
+        }
+
+        // join the kept parts bottom-up, every part is smaller than the node of the part above
+        IntervalTreeNode joined = null;
+        for (int i = kept.size() - 1; i >= 0; i--) {
+            final IntervalTreeNode keptNode = kept.get(i);
+            joined = join(joined, keptNode, keptNode.getRight());
+        }
+        this.root = joined;
+
+        for (final IntervalTreeNode retainedNode : retained) {
+            clear(retainedNode);
+            insertNode(retainedNode);
+        }
+        this.size -= removed;
+
+        return removed;
+    }
+
+    /**
+     * Drops the specified {@code node} and its {@code left} sub-tree (both starting before the {@code watermark}),
+     * nodes ending at or after the watermark are collected to be retained. Sub-trees ending before the watermark are
+     * counted using the aggregate at {@code countIdx} (if available), without visiting them.
+     *
+     * @return the amount of dropped intervals
+     */
+    protected long drop(final IntervalTreeNode node,
+                        final IntervalTreeNode left,
+                        final Comparable watermark,
+                        final List<IntervalTreeNode> retained,
+                        final int countIdx) {
+        long dropped = 0L;
+
+        if (node.compare(node.getEnd(), watermark) >= 0) {
+            retained.add(node);
+        } else {
+            dropped += node.getCollection().size();
+        }
+
+        final Deque<IntervalTreeNode> stack = new ArrayDeque<>();
+        if (left != null) {
+            stack.push(left);
+        }
+
+        while (!stack.isEmpty()) {
+            final IntervalTreeNode current = stack.pop();
+
+            if (countIdx != -1 && current.compare(current.getMax(), watermark) < 0) {
+                dropped += Long.class.cast(current.getAggregate(countIdx));
+                continue;
+            } else if (current.compare(current.getEnd(), watermark) >= 0) {
+                retained.add(current);
+            } else {
+                dropped += current.getCollection().size();
+            }
+
+            if (current.hasLeft()) {
+                stack.push(current.getLeft());
+            }
+            if (current.hasRight()) {
+                stack.push(current.getRight());
+            }
+        }
+
+        return dropped;
+    }
+
+    /**
+     * Joins the sub-trees {@code left} and {@code right} using the specified {@code node}, i.e., all nodes of the left
+     * sub-tree must be smaller than the node and all nodes of the right sub-tree must be larger. The join keeps the
+     * invariant of the {@link BalancingPolicy} of the tree: for {@link BalancingPolicy#AVL} the lower sub-tree is
+     * linked into the spine of the higher one at the position of the same height, so that only the path above has to
+     * be re-calculated (and re-balanced), for {@link BalancingPolicy#TREAP} the node is rotated down until the heap
+     * order is restored, and for {@link BalancingPolicy#NONE} the sub-trees are just attached to the node.
+     *
+     * @param left  the sub-tree with the smaller nodes, can be {@code null}
+     * @param node  the node joining the two sub-trees
+     * @param right the sub-tree with the larger nodes, can be {@code null}
+     *
+     * @return the root of the joined tree
+     */
+    protected IntervalTreeNode join(final IntervalTreeNode left,
+                                    final IntervalTreeNode node,
+                                    final IntervalTreeNode right) {
+        final long leftHeight = left == null ? 0L : left.getHeight();
+        final long rightHeight = right == null ? 0L : right.getHeight();
+
+        node.setParent(null);
+        if (left != null) {
+            left.setParent(null);
+        }
+        if (right != null) {
+            right.setParent(null);
+        }
+
+        final BalancingPolicy policy = getBalancingPolicy();
+        if (BalancingPolicy.TREAP.equals(policy)) {
+            return joinTreap(left, node, right);
+        }
+
+        final IntervalTreeNodeChildType side;
+        if (BalancingPolicy.AVL.equals(policy) && leftHeight > rightHeight + 1) {
+            side = IntervalTreeNodeChildType.RIGHT;
+        } else if (BalancingPolicy.AVL.equals(policy) && rightHeight > leftHeight + 1) {
+            side = IntervalTreeNodeChildType.LEFT;
+        } else {
+            modify(node).attach(left, IntervalTreeNodeChildType.LEFT);
+            node.attach(right, IntervalTreeNodeChildType.RIGHT);
+            node.recalculate();
+
+            return node;
+        }
+
+        // walk down the spine of the higher sub-tree facing the lower one
+        final IntervalTreeNode lower = IntervalTreeNodeChildType.RIGHT.equals(side) ? right : left;
+        final long lowerHeight = Math.min(leftHeight, rightHeight);
+
+        IntervalTreeNode parent = IntervalTreeNodeChildType.RIGHT.equals(side) ? left : right;
+        IntervalTreeNode spine = parent.getChild(side);
+        while (spine != null && spine.getHeight() > lowerHeight + 1) {
+            parent = spine;
+            spine = spine.getChild(side);
+        }
+
+        modify(node).attach(spine, side.flip());
+        node.attach(lower, side);
+        modify(parent).attach(node, side);
+
+        // the retracing updates the root of the tree, the joined tree is set as root afterwards anyways
+        retrace(node, node);
+
+        IntervalTreeNode root = node;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+
+        return root;
+    }
+
+    /**
+     * Joins the sub-trees like {@link #join(IntervalTreeNode, IntervalTreeNode, IntervalTreeNode)}, keeping the heap
+     * order of a {@link BalancingPolicy#TREAP}: the node is attached as root of the two sub-trees and rotated down
+     * (always rotating the child with the higher priority up), until no child has a higher priority.
+     */
+    protected IntervalTreeNode joinTreap(final IntervalTreeNode left,
+                                         final IntervalTreeNode node,
+                                         final IntervalTreeNode right) {
+        modify(node).attach(left, IntervalTreeNodeChildType.LEFT);
+        node.attach(right, IntervalTreeNodeChildType.RIGHT);
+        node.recalculate();
+
+        final int priority = node.getPriority();
+        IntervalTreeNode top = null;
+        while (true) {
+            IntervalTreeNode higher = node.getLeft();
+            if (node.hasRight() && (higher == null || node.getRight().getPriority() > higher.getPriority())) {
+                higher = node.getRight();
+            }
+            if (higher == null || higher.getPriority() <= priority) {
+                break;
+            }
+
+            final IntervalTreeNode parent = node.getParent();
+            final IntervalTreeNode rotated = higher == node.getLeft() ? rightRotate(node) : leftRotate(node);
+            replace(parent, node, rotated);
+
+            if (top == null) {
+                top = rotated;
+            }
+        }
+
+        if (top == null) {
+            return node;
+        }
+
+        // the rotations re-calculated the node, the nodes rotated up above it have to be re-calculated
+        retrace(node.getParent(), top);
+        return top;
+    }
+
+    /**
+     * Checks if the specified {@code interval} is retained by a tree using a retention (see {@link
+     * IntervalTreeConfiguration#setRetention(Number)}), i.e., if it does not end before the watermark. The watermark
+     * follows the start of the added intervals, it is advanced in steps of a sixteenth of the retention, so that the
+     * expired intervals are removed in batches.
+     *
+     * @param interval the interval to be added
+     *
+     * @return {@code true} if the interval can be added, otherwise {@code false}
+     */
+    protected boolean retain(final IInterval interval) {
+        final IntervalValueComparator cmp = this.configuration.getValueComparator();
+        final Number retention = this.configuration.getRetention();
+
+        final Comparable candidate = offset(interval.getNormStart(), retention, -1L);
+        if (this.nextWatermark == null || cmp.compare(candidate, this.nextWatermark) >= 0) {
+
+            // the lock is already held by the adding method
+            _advanceWatermark(candidate);
+            this.nextWatermark = offset(this.watermark, retention, 16L);
+        }
+
+        return cmp.compare(interval.getNormEnd(), this.watermark) >= 0;
+    }
+
+    /**
+     * Moves the specified {@code value} by the {@code amount} divided by the {@code divisor}, the result has the same
+     * type as the value.
+     */
+    protected Comparable offset(final Comparable value, final Number amount, final long divisor) {
+        if (LongIntervalTreeNode.isIntegral(value) && LongIntervalTreeNode.isIntegral(amount)) {
+            final long offset = LongIntervalTreeNode.toLong(value) + LongIntervalTreeNode.toLong(amount) / divisor;
+            return IntervalValueComparator.mapNumberValue(offset, value.getClass());
+        } else if (value instanceof Number) {
+            final double offset = Number.class.cast(value).doubleValue() + amount.doubleValue() / divisor;
+            return IntervalValueComparator.mapNumberValue(offset, value.getClass());
+        } else {
+            throw new IllegalConfiguration(String.format("A retention cannot be used with the value '%s (%s)'.",
+                    value, value == null ? null : value.getClass()));
+        }
+    }
+
+    public Comparable getWatermark() {
+        return this.watermark;
+    }
+
+    /**
+     * Walks from the specified {@code node} up to the root, re-calculating and (if {@link BalancingPolicy#AVL} is used)
+     * re-balancing every node of the path. The walk stops as soon as a node neither changed nor had to be
+     * re-balanced, because none of its ancestors are affected in that case.
+     *
+     * @param node the deepest node of the modified path, can be {@code null}
+     */
+    protected void retrace(final IntervalTreeNode node) {
+        retrace(node, null);
+    }
+
+    /**
+     * Walks from the specified {@code node} up to the root, see {@link #retrace(IntervalTreeNode)}. The walk does not
+     * stop before the parent of {@code until} is reached, which is needed if {@code until} was moved to a new
+     * position.
+     *
+     * @param node  the deepest node of the modified path, can be {@code null}
+     * @param until the ancestor of the node (or the node itself), whose parent must be re-calculated in any case
+     */
+    protected void retrace(final IntervalTreeNode node, final IntervalTreeNode until) {
+        final boolean avl = BalancingPolicy.AVL.equals(getBalancingPolicy());
+        boolean forced = until != null;
+
+        IntervalTreeNode current = node;
+        while (current != null) {
+            final IntervalTreeNode parent = current.getParent();
+            final boolean changed = modify(current).recalculate();
+            final IntervalTreeNode balanced = avl ? balance(current) : current;
+
+            if (balanced != current) {
+                replace(parent, current, balanced);
+            } else if (!changed && !forced) {
+                return;
+            }
+
+            if (current == until) {
+                forced = false;
+            }
+            current = parent;
+        }
+    }
+
+    /**
+     * Replaces the child {@code node} of {@code parent} with the specified {@code replacement}, without re-calculating
+     * the parent.
+     *
+     * @param parent      the parent of the node, {@code null} if the node is the root
+     * @param node        the node to be replaced
+     * @param replacement the replacement, can be {@code null}
+     */
+    protected void replace(final IntervalTreeNode parent,
+                           final IntervalTreeNode node,
+                           final IntervalTreeNode replacement) {
+        if (parent == null) {
+            this.root = replacement;
+            if (replacement != null) {
+                replacement.setParent(null);
+            }
+        } else if (parent.getLeft() == node) {
+            modify(parent).attach(replacement, IntervalTreeNodeChildType.LEFT);
+        } else {
+            modify(parent).attach(replacement, IntervalTreeNodeChildType.RIGHT);
+        }
+    }
+
+    /**
+     * Removes all links of a node removed from the tree.
+     */
+    protected void clear(final IntervalTreeNode node) {
+        modify(node).setParent(null);
+        node.attach(null, IntervalTreeNodeChildType.LEFT);
+        node.attach(null, IntervalTreeNodeChildType.RIGHT);
+        node.resetMax();
+    }
+
+    // Get Balance factor of node N
+    protected long determineBalance(final IntervalTreeNode node) {
+        if (node == null) {
+            return 0L;
+        }
+
+        return (node.hasLeft() ? node.getLeft().getHeight() : 0) -
+                (node.hasRight() ? node.getRight().getHeight() : 0);
+    }
+
+    protected IntervalTreeNode leftRotate(final IntervalTreeNode node) {
+        final IntervalTreeNode parent = node.getParent();
+        final IntervalTreeNode right = node.getRight();
+
+        modify(node).attach(right.getLeft(), IntervalTreeNodeChildType.RIGHT);
+        modify(right).attach(node, IntervalTreeNodeChildType.LEFT);
+        right.setParent(parent);
+
+        node.recalculate();
+        right.recalculate();
+
+        return right;
+    }
+
+    protected IntervalTreeNode rightRotate(final IntervalTreeNode node) {
+        final IntervalTreeNode parent = node.getParent();
+        final IntervalTreeNode left = node.getLeft();
+
+        modify(node).attach(left.getRight(), IntervalTreeNodeChildType.LEFT);
+        modify(left).attach(node, IntervalTreeNodeChildType.RIGHT);
+        left.setParent(parent);
+
+        node.recalculate();
+        left.recalculate();
+
+        return left;
+    }
+
+    protected IntervalTreeNode findLeftLeaf(final IntervalTreeNode startNode) {
+        if (startNode == null) {
+            return null;
+        }
+
+        IntervalTreeNode node = startNode;
+        while (node.getLeft() != null) {
+            node = node.getLeft();
+        }
+
+        return node;
+    }
+
+    protected PositionedNode findLeftLeaf(final PositionedNode posNode) {
+        if (posNode == null || posNode.getNode() == null) {
+            return null;
+        }
+
+        IntervalTreeNode node = posNode.getNode();
+        long offset = 0;
+        while (node.getLeft() != null) {
+            node = node.getLeft();
+            offset++;
+        }
+
+        return PositionedNode.moveLeft(node, posNode, offset);
+    }
+
+    @Override
+    public int size() {
+        return size < Integer.MAX_VALUE ? Long.valueOf(size).intValue() : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.root == null;
+    }
+
+    @Override
+    @SuppressWarnings("SimplifiableIfStatement")
+    public boolean contains(final Object o) {
+
+        if (o instanceof IInterval) {
+            return !find(IInterval.class.cast(o)).isEmpty();
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public Iterator<IInterval> iterator() {
+        return intervalIterator(nodeIterator());
+    }
+
+    /**
+     * Creates an iterator over the intervals of the tree (ordered by the nodes) starting with the first interval with
+     * a normalized start larger or equal to {@code start}. The iterator is positioned in {@code O(log n)} and advances
+     * lazily.
+     *
+     * @param start the value to start the iteration at
+     *
+     * @return the iterator over all intervals starting at or after {@code start}
+     */
+    public Iterator<IInterval> iteratorFrom(final Comparable start) {
+        return intervalIterator(nodeIterator(ceilingNode(start, true)));
+    }
+
+    /**
+     * Gets the first interval (ordered by the nodes) with a normalized start larger or equal to {@code start}.
+     *
+     * @param start the value to navigate to
+     *
+     * @return the interval, or {@code null} if there is no such interval
+     */
+    public IInterval ceiling(final Comparable start) {
+        return first(ceilingNode(start, true));
+    }
+
+    /**
+     * Gets the first interval (ordered by the nodes) with a normalized start larger than {@code start}.
+     *
+     * @param start the value to navigate to
+     *
+     * @return the interval, or {@code null} if there is no such interval
+     */
+    public IInterval higher(final Comparable start) {
+        return first(ceilingNode(start, false));
+    }
+
+    /**
+     * Gets the last interval (ordered by the nodes) with a normalized start smaller or equal to {@code start}.
+     *
+     * @param start the value to navigate to
+     *
+     * @return the interval, or {@code null} if there is no such interval
+     */
+    public IInterval floor(final Comparable start) {
+        return last(floorNode(start, true));
+    }
+
+    /**
+     * Gets the last interval (ordered by the nodes) with a normalized start smaller than {@code start}.
+     *
+     * @param start the value to navigate to
+     *
+     * @return the interval, or {@code null} if there is no such interval
+     */
+    public IInterval lower(final Comparable start) {
+        return last(floorNode(start, false));
+    }
 
-            return balance(rootNode);
-        }
+    /**
+     * Determines the interval closest to the specified {@code point}, see {@link #nearest(Comparable, int)}.
+     *
+     * @param point the value to find the closest interval for
+     *
+     * @return the closest interval, or {@code null} if the tree is empty
+     */
+    public IInterval nearest(final Comparable point) {
+        final List<IInterval> nearest = nearest(point, 1);
+        return nearest.isEmpty() ? null : nearest.get(0);
     }
 
-    // Get Balance factor of node N
-    protected long determineBalance(final IntervalTreeNode node) {
-        if (node == null) {
-            return 0L;
+    /**
+     * Determines the {@code k} intervals closest to the specified {@code point}. The distance of an interval
+     * containing the point is {@code 0}, otherwise it is the distance between the point and the closer normalized
+     * endpoint. The nodes are visited best-first, bounding the distance of a sub-tree by its max and by the start of
+     * the nodes it is located right of, i.e., only {@code O(log n + k)} nodes are visited for typical trees. The
+     * distance is calculated using the {@code double} values, thus the endpoints must be numbers.
+     *
+     * @param point the value to find the closest intervals for
+     * @param k     the maximal amount of intervals to return
+     *
+     * @return the closest intervals, ordered by their distance
+     */
+    public List<IInterval> nearest(final Comparable point, final int k) {
+        if (this.root == null || k <= 0) {
+            return Collections.emptyList();
         }
 
-        return (node.hasLeft() ? node.getLeft().getHeight() : 0) -
-                (node.hasRight() ? node.getRight().getHeight() : 0);
-    }
-
-    protected IntervalTreeNode leftRotate(final IntervalTreeNode node) {
-        final IntervalTreeNode right = node.getRight();
+        final double value = toDouble(point);
+        final List<IInterval> result = new ArrayList<>((int) Math.min(k, this.size));
+        final PriorityQueue<NearestCandidate<IntervalTreeNode>> candidates = new PriorityQueue<>();
+        candidates.add(nearestCandidate(this.root, true, Double.NEGATIVE_INFINITY, value));
 
-        final IntervalTreeNodeContext rightCtx = right.detach();
-        final IntervalTreeNodeContext nodeCtx = node.detach();
+        while (!candidates.isEmpty() && result.size() < k) {
+            final NearestCandidate<IntervalTreeNode> candidate = candidates.poll();
+            final IntervalTreeNode node = candidate.getNode();
 
-        node.setLeft(nodeCtx.getLeft());
-        node.setRight(rightCtx.getLeft());
-        right.setLeft(node);
-        right.setRight(rightCtx.getRight());
+            if (candidate.isSubtree()) {
+                candidates.add(nearestCandidate(node, false, candidate.getMinStart(), value));
+                if (node.getLeft() != null) {
+                    candidates.add(nearestCandidate(node.getLeft(), true, candidate.getMinStart(), value));
+                }
+                if (node.getRight() != null) {
+                    candidates.add(nearestCandidate(node.getRight(), true, toDouble(node.getStart()), value));
+                }
+            } else {
+                final Iterator<IInterval> it = node.iterator();
+                while (it.hasNext() && result.size() < k) {
+                    result.add(it.next());
+                }
+            }
+        }
 
-        return right;
+        return result;
     }
 
-    protected IntervalTreeNode rightRotate(final IntervalTreeNode node) {
-        final IntervalTreeNode left = node.getLeft();
-
-        final IntervalTreeNodeContext leftCtx = left.detach();
-        final IntervalTreeNodeContext nodeCtx = node.detach();
+    protected static NearestCandidate<IntervalTreeNode> nearestCandidate(final IntervalTreeNode node,
+                                                                         final boolean subtree,
+                                                                         final double minStart,
+                                                                         final double point) {
+        return new NearestCandidate<>(node, subtree, minStart, node.getStart(), node.getEnd(), node.getMax(), point);
+    }
 
-        node.setLeft(leftCtx.getRight());
-        node.setRight(nodeCtx.getRight());
-        left.setRight(node);
-        left.setLeft(leftCtx.getLeft());
+    /**
+     * Finds the first node (in-order) with a start larger (or equal, if {@code inclusive}) than {@code start}.
+     */
+    protected IntervalTreeNode ceilingNode(final Comparable start, final boolean inclusive) {
+        IntervalTreeNode result = null;
+        IntervalTreeNode node = this.root;
+        while (node != null) {
+            final int cmp = node.compare(node.getStart(), start);
+            if (cmp > 0 || inclusive && cmp == 0) {
+                result = node;
+                node = node.getLeft();
+            } else {
+                node = node.getRight();
+            }
+        }
 
-        return left;
+        return result;
     }
 
-    protected IntervalTreeNode findLeftLeaf(final IntervalTreeNode startNode) {
-        if (startNode == null) {
-            return null;
+    /**
+     * Finds the last node (in-order) with a start smaller (or equal, if {@code inclusive}) than {@code start}.
+     */
+    protected IntervalTreeNode floorNode(final Comparable start, final boolean inclusive) {
+        IntervalTreeNode result = null;
+        IntervalTreeNode node = this.root;
+        while (node != null) {
+            final int cmp = node.compare(node.getStart(), start);
+            if (cmp < 0 || inclusive && cmp == 0) {
+                result = node;
+                node = node.getRight();
+            } else {
+                node = node.getLeft();
+            }
         }
 
-        IntervalTreeNode node = startNode;
-        while (node.getLeft() != null) {
-            node = node.getLeft();
-        }
+        return result;
+    }
 
-        return node;
+    protected IInterval first(final IntervalTreeNode node) {
+        return node == null ? null : node.iterator().next();
     }
 
-    protected PositionedNode findLeftLeaf(final PositionedNode posNode) {
-        if (posNode == null || posNode.getNode() == null) {
+    protected IInterval last(final IntervalTreeNode node) {
+        if (node == null) {
             return null;
         }
 
-        IntervalTreeNode node = posNode.getNode();
-        long offset = 0;
-        while (node.getLeft() != null) {
-            node = node.getLeft();
-            offset++;
+        IInterval last = null;
+        for (final IInterval interval : node) {
+            last = interval;
         }
-
-        return PositionedNode.moveLeft(node, posNode, offset);
-    }
-
-    @Override
-    public int size() {
-        return size < Integer.MAX_VALUE ? Long.valueOf(size).intValue() : Integer.MAX_VALUE;
-    }
-
-    @Override
-    public boolean isEmpty() {
-        return this.root == null;
+        return last;
     }
 
-    @Override
-    @SuppressWarnings("SimplifiableIfStatement")
-    public boolean contains(final Object o) {
-
-        if (o instanceof IInterval) {
-            return !find(IInterval.class.cast(o)).isEmpty();
+    protected static double toDouble(final Object value) {
+        if (value instanceof Number) {
+            return Number.class.cast(value).doubleValue();
         } else {
-            return false;
+            throw new IllegalArgumentException(String.format("The value '%s (%s)' is not a number.",
+                    value, value == null ? null : value.getClass()));
         }
     }
 
-    @Override
-    public Iterator<IInterval> iterator() {
-        final Iterator<IntervalTreeNode> outerNodeIt = nodeIterator();
+    protected Iterator<IInterval> intervalIterator(final Iterator<IntervalTreeNode> outerNodeIt) {
 
         return new Iterator<IInterval>() {
             private Iterator<IInterval> nodeCollectionIt = null;
@@ -553,12 +1785,48 @@ public class IntervalTree implements Collection<IInterval>, Externalizable {
 
     @Override
     public boolean add(final IInterval interval) {
-        final AtomicBoolean changed = new AtomicBoolean(false);
+        final long stamp = lockSnapshots();
+        try {
+            return _add(interval);
+        } finally {
+            unlockSnapshots(stamp);
+        }
+    }
+
+    protected boolean _add(final IInterval interval) {
+        if (this.configuration.getRetention() != null && !retain(interval)) {
+            return false;
+        } else if (this.root == null) {
+            this.root = createNode(interval);
+            this.size++;
+            return true;
+        }
 
-        this.root = _add(this.root, interval, changed);
-        this.size += changed.get() ? 1 : 0;
+        IntervalTreeNode node = this.root;
+        while (true) {
+            final int cmpNode = node.compareTo(interval);
+            if (cmpNode == 0) {
+                if (modify(node).addInterval(interval)) {
+                    this.size++;
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+
+            final IntervalTreeNodeChildType childType = cmpNode < 0 ?
+                    IntervalTreeNodeChildType.RIGHT : IntervalTreeNodeChildType.LEFT;
+            final IntervalTreeNode child = node.getChild(childType);
 
-        return changed.get();
+            if (child == null) {
+                attachNode(node, createNode(interval), childType);
+
+                this.size++;
+                return true;
+            } else {
+                node = child;
+            }
+        }
     }
 
     @Override
@@ -571,12 +1839,39 @@ public class IntervalTree implements Collection<IInterval>, Externalizable {
             return false;
         }
 
-        final AtomicBoolean changed = new AtomicBoolean(false);
+        final long stamp = lockSnapshots();
+        try {
+            return _remove(interval);
+        } finally {
+            unlockSnapshots(stamp);
+        }
+    }
+
+    protected boolean _remove(final IInterval interval) {
+        IntervalTreeNode node = this.root;
+        while (node != null) {
+            final int cmpNode = node.compareTo(interval);
+            if (cmpNode == 0) {
+                break;
+            }
+
+            node = cmpNode < 0 ? node.getRight() : node.getLeft();
+        }
+
+        if (node == null || !modify(node).removeInterval(interval)) {
+            return false;
+        }
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("Removed interval '" + interval + "' from node '" + node + "'.");
+        }
 
-        this.root = _remove(this.root, interval, changed);
-        this.size -= changed.get() ? 1 : 0;
+        if (node.isEmpty()) {
+            removeNode(node);
+        }
+        this.size--;
 
-        return changed.get();
+        return true;
     }
 
     @Override
@@ -592,16 +1887,20 @@ public class IntervalTree implements Collection<IInterval>, Externalizable {
 
     @Override
     public boolean addAll(final Collection<? extends IInterval> c) {
-        final AtomicBoolean changed = new AtomicBoolean(false);
-        c.forEach(interval -> changed.compareAndSet(false, add(interval)));
-        return changed.get();
+        boolean changed = false;
+        for (final IInterval interval : c) {
+            changed |= add(interval);
+        }
+        return changed;
     }
 
     @Override
     public boolean removeAll(final Collection<?> c) {
-        final AtomicBoolean changed = new AtomicBoolean(false);
-        c.forEach(interval -> changed.compareAndSet(false, remove(interval)));
-        return changed.get();
+        boolean changed = false;
+        for (final Object o : c) {
+            changed |= remove(o);
+        }
+        return changed;
     }
 
     @Override
@@ -622,17 +1921,44 @@ public class IntervalTree implements Collection<IInterval>, Externalizable {
         return true;
     }
 
+    /**
+     * Removes all intervals from the tree and resets the watermark (see {@link #advanceWatermark(Comparable)}). The
+     * snapshots taken before are not affected, because the nodes they use are not modified anymore.
+     */
     @Override
     public void clear() {
+        _clear();
+
+        this.watermark = null;
+        this.nextWatermark = null;
+        this.snapshotEpoch = null;
+    }
+
+    protected void _clear() {
         this.root = null;
         this.size = 0;
     }
 
+    /**
+     * Creates a {@code Spliterator} splitting along the structure of the tree, thus {@code stream().parallel()} uses
+     * several threads to process the intervals of the tree.
+     *
+     * @return the spliterator over all intervals of the tree
+     *
+     * @see IntervalTreeSpliterator
+     */
+    @Override
+    public Spliterator<IInterval> spliterator() {
+        return new IntervalTreeSpliterator(this.root, this.size);
+    }
+
     public Iterator<IntervalTreeNode> nodeIterator() {
-        final IntervalTreeNode outerFirstNext = findLeftLeaf(this.root);
+        return nodeIterator(findLeftLeaf(this.root));
+    }
 
+    protected Iterator<IntervalTreeNode> nodeIterator(final IntervalTreeNode first) {
         return new Iterator<IntervalTreeNode>() {
-            private IntervalTreeNode next = outerFirstNext;
+            private IntervalTreeNode next = first;
 
             @Override
             public boolean hasNext() {
@@ -743,27 +2069,89 @@ public class IntervalTree implements Collection<IInterval>, Externalizable {
     @Override
     public void writeExternal(final ObjectOutput out) throws IOException {
         out.writeLong(this.size);
+        if (this.root == null) {
+            return;
+        }
 
-        if (this.root != null) {
-            this.root.writeExternal(out);
+        // the nodes are written in pre-order, each followed by the flag of its left child; the flag of the right
+        // child is written once the left sub-tree is completed
+        final IntervalTreeNode[] stack = new IntervalTreeNode[(int) this.root.getHeight() + 1];
+        int pos = 0;
+        IntervalTreeNode node = this.root;
+
+        while (true) {
+            while (node != null) {
+                node.writeNode(out);
+                out.writeBoolean(node.hasLeft());
+                stack[pos++] = node;
+                node = node.getLeft();
+            }
+
+            if (pos == 0) {
+                break;
+            }
+
+            node = stack[--pos];
+            out.writeBoolean(node.hasRight());
+            node = node.getRight();
         }
     }
 
     @Override
     public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
         this.size = in.readLong();
+        if (this.size <= 0) {
+            return;
+        }
 
-        if (this.size > 0) {
-            this.root = new IntervalTreeNode();
-            this.root.setConfiguration(this.configuration);
-            this.root.readExternal(in);
+        // the format is the one written by writeExternal, the nodes with a pending right flag are on the stack; the
+        // max and height of the nodes are part of the format, the aggregates are calculated when first needed
+        final Deque<IntervalTreeNode> stack = new ArrayDeque<>();
+        IntervalTreeNode node = readNode(in);
+        this.root = node;
+
+        while (node != null) {
+            if (in.readBoolean()) {
+                final IntervalTreeNode left = readNode(in);
+                node.attach(left, IntervalTreeNodeChildType.LEFT);
+                stack.push(node);
+                node = left;
+                continue;
+            }
+
+            // the left sub-tree of the node is completed, find the next right child to be read
+            while (true) {
+                if (in.readBoolean()) {
+                    final IntervalTreeNode right = readNode(in);
+                    node.attach(right, IntervalTreeNodeChildType.RIGHT);
+                    node = right;
+                    break;
+                }
+
+                node = stack.poll();
+                if (node == null) {
+                    break;
+                }
+            }
         }
     }
 
+    protected IntervalTreeNode readNode(final ObjectInput in) throws IOException, ClassNotFoundException {
+        final IntervalTreeNode node = newNode();
+        node.setConfiguration(this.configuration);
+        node.readNode(in);
+
+        return node;
+    }
+
     public boolean isAutoBalancing() {
         return this.configuration.isAutoBalancing();
     }
 
+    public BalancingPolicy getBalancingPolicy() {
+        return this.configuration.getBalancingPolicy();
+    }
+
     public IntervalTreeConfiguration getConfiguration() {
         return configuration;
     }
@@ -776,7 +2164,271 @@ public class IntervalTree implements Collection<IInterval>, Externalizable {
         this.configuration = configuration;
     }
 
+    /**
+     * Creates an immutable, array-backed copy of the current state of the tree, optimized for read-only lookups.
+     *
+     * @return the frozen copy of the tree
+     *
+     * @see FrozenIntervalTree
+     */
+    public FrozenIntervalTree freeze() {
+        return new FrozenIntervalTree(this);
+    }
+
+    /**
+     * Creates an immutable view of the current state of the tree in {@code O(1)}, without copying any node. The view
+     * shares the nodes with the tree, a node modified afterwards records its former state for the view first, i.e.,
+     * the tree copies the modified paths (and not the whole tree) as long as the view is in use. The view can be
+     * queried (e.g., streamed) by other threads while the tree keeps being modified, the modifications have to be
+     * applied by a single thread (which also creates the snapshots), e.g., using a {@link ConcurrentIntervalTree}. The
+     * view keeps the current aggregates of the tree (see {@link #aggregate(IntervalTreeAggregator)}).
+     *
+     * @return the immutable view of the current state of the tree
+     *
+     * @see SnapshotIntervalTree
+     */
+    public SnapshotIntervalTree snapshot() {
+        final SnapshotIntervalTree.Epoch previous = this.snapshotEpoch == null ? null : this.snapshotEpoch.get();
+        final SnapshotIntervalTree.Epoch epoch = new SnapshotIntervalTree.Epoch(++this.epoch);
+
+        // the older snapshots also need the states recorded for the new one
+        if (previous != null) {
+            previous.setNext(epoch);
+        }
+        this.snapshotEpoch = new WeakReference<>(epoch);
+
+        // the view keeps the aggregates of the root, the missing ones (e.g., of a loaded tree) are calculated first
+        final Object[] aggregates = new Object[this.configuration.getAggregators().length];
+        for (int i = 0; this.root != null && i < aggregates.length; i++) {
+            aggregates[i] = this.root.getAggregate(i);
+        }
+
+        return new SnapshotIntervalTree(this.configuration, this.snapshotLock, epoch, this.root, this.size,
+                aggregates);
+    }
+
+    /**
+     * Acquires the lock, which prevents the snapshots from reading the nodes while the tree is modified. The lock is
+     * only acquired if there are snapshots in use. The lock is not re-entrant, i.e., it must only be acquired by the
+     * public modifying methods, which call the internal ones (e.g., {@link #_advanceWatermark(Comparable)}).
+     *
+     * @return the stamp to release the lock with, {@code 0} if the lock was not acquired
+     */
+    protected long lockSnapshots() {
+        if (this.snapshotEpoch == null) {
+            return 0L;
+        } else {
+            return this.snapshotLock.writeLock();
+        }
+    }
+
+    protected void unlockSnapshots(final long stamp) {
+        if (stamp != 0L) {
+            this.snapshotLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Must be called before the children, the max, or the intervals of the specified {@code node} are modified. If
+     * the node was not modified since the latest snapshot was taken, its current state is recorded for the snapshots.
+     *
+     * @param node the node to be modified
+     *
+     * @return the specified node
+     */
+    protected IntervalTreeNode modify(final IntervalTreeNode node) {
+        if (this.snapshotEpoch == null) {
+            return node;
+        }
+
+        final SnapshotIntervalTree.Epoch epoch = this.snapshotEpoch.get();
+        if (epoch == null) {
+
+            // all the snapshots have been released
+            this.snapshotEpoch = null;
+        } else if (node.getEpoch() < epoch.getNumber()) {
+            epoch.record(node);
+            node.setEpoch(epoch.getNumber());
+        }
+
+        return node;
+    }
+
+    /**
+     * Writes the tree using the binary snapshot format (see {@link IntervalTreeSnapshot}). The nodes are written in
+     * pre-order without recursion, i.e., the depth of the tree does not affect the stack used.
+     *
+     * @param out the stream to write to
+     *
+     * @throws IOException if the tree cannot be written
+     */
+    public void writeSnapshot(final ObjectOutput out) throws IOException {
+        IntervalTreeSnapshot.writeVarLong(out, this.size);
+
+        if (this.root == null) {
+            IntervalTreeSnapshot.writeVarLong(out, 0L);
+            return;
+        }
+        IntervalTreeSnapshot.writeVarLong(out, this.root.getHeight());
+
+        final IntervalTreeSnapshot snapshot = new IntervalTreeSnapshot();
+        final IntervalTreeNode[] stack = new IntervalTreeNode[(int) this.root.getHeight() + 1];
+        int pos = 0;
+        stack[pos++] = this.root;
+
+        while (pos > 0) {
+            final IntervalTreeNode node = stack[--pos];
+            snapshot.writeNode(out, node);
+
+            if (node.hasRight()) {
+                stack[pos++] = node.getRight();
+            }
+            if (node.hasLeft()) {
+                stack[pos++] = node.getLeft();
+            }
+        }
+    }
+
+    /**
+     * Reads a tree written by {@link #writeSnapshot(ObjectOutput)}. The configuration of the tree must be set prior to
+     * reading the tree. The levels of the nodes are set while reading, the max and height values are calculated once
+     * all nodes are read, by linking the nodes bottom-up (i.e., in reversed pre-order).
+     *
+     * @param in the stream to read from
+     *
+     * @throws IOException            if the tree cannot be read
+     * @throws ClassNotFoundException if a class used by the tree cannot be found
+     */
+    public void readSnapshot(final ObjectInput in) throws IOException, ClassNotFoundException {
+        this.size = IntervalTreeSnapshot.readVarLong(in);
+
+        final long height = IntervalTreeSnapshot.readVarLong(in);
+        if (height == 0L) {
+            this.root = null;
+            return;
+        }
+
+        final IntervalTreeSnapshot snapshot = new IntervalTreeSnapshot();
+        final List<IntervalTreeNode> nodes = new ArrayList<>();
+        byte[] nodeFlags = new byte[1024];
+
+        // the amount of right children, which are read once the left sub-tree is completed
+        int pendingRight = 0;
+
+        while (true) {
+            final IntervalTreeNode node = newNode();
+            node.setConfiguration(this.configuration);
+
+            final int flags = snapshot.readNode(in, node);
+
+            if (nodes.size() == nodeFlags.length) {
+                nodeFlags = Arrays.copyOf(nodeFlags, nodeFlags.length << 1);
+            }
+            nodeFlags[nodes.size()] = (byte) flags;
+            nodes.add(node);
+
+            if (IntervalTreeSnapshot.hasRight(flags)) {
+                pendingRight++;
+            }
+
+            if (IntervalTreeSnapshot.hasLeft(flags)) {
+                // the left child is read next
+            } else if (pendingRight > 0) {
+                pendingRight--;
+            } else {
+                break;
+            }
+        }
+
+        // in reversed pre-order the children of a node are completed before the node, the left one on top
+        final Deque<IntervalTreeNode> completed = new ArrayDeque<>();
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            final IntervalTreeNode node = nodes.get(i);
+            final int flags = nodeFlags[i];
+
+            final IntervalTreeNode left = IntervalTreeSnapshot.hasLeft(flags) ? completed.pop() : null;
+            final IntervalTreeNode right = IntervalTreeSnapshot.hasRight(flags) ? completed.pop() : null;
+            node.link(left, right);
+
+            completed.push(node);
+        }
+
+        this.root = completed.pop();
+    }
+
     public void saveToFile(final File file) throws FailedIO {
         IntervalTreeBuilder.saveToFile(file, this);
     }
+
+    /**
+     * A candidate of a {@code nearest} query, the type {@code N} of the node depends on the structure queried (e.g.,
+     * the state of a node for a {@link SnapshotIntervalTree}).
+     */
+    protected static class NearestCandidate<N> implements Comparable<NearestCandidate<N>> {
+        private final N node;
+        private final boolean subtree;
+        private final double minStart;
+        private final double distance;
+
+        /**
+         * Creates a candidate, which is either a single {@code node} (with the specified {@code start} and {@code
+         * end}) or the sub-tree of the node. The distance of a sub-tree is a lower bound of the distances of its
+         * intervals, using the sub-tree's {@code max} and {@code minStart}, i.e., the start of the nearest node the
+         * sub-tree is located right of.
+         */
+        protected NearestCandidate(final N node,
+                                   final boolean subtree,
+                                   final double minStart,
+                                   final Comparable start,
+                                   final Comparable end,
+                                   final Comparable max,
+                                   final double point) {
+            this.node = node;
+            this.subtree = subtree;
+            this.minStart = minStart;
+
+            if (subtree) {
+                this.distance = Math.max(0.0, Math.max(point - toDouble(max), minStart - point));
+            } else {
+                this.distance = Math.max(0.0, Math.max(point - toDouble(end), toDouble(start) - point));
+            }
+        }
+
+        protected N getNode() {
+            return this.node;
+        }
+
+        protected boolean isSubtree() {
+            return this.subtree;
+        }
+
+        protected double getMinStart() {
+            return this.minStart;
+        }
+
+        @Override
+        @SuppressWarnings("NullableProblems")
+        public int compareTo(final NearestCandidate<N> candidate) {
+            final int cmp = Double.compare(this.distance, candidate.distance);
+
+            // nodes are preferred over sub-trees with the same distance, so that they are returned early
+            return cmp == 0 ? Boolean.compare(this.subtree, candidate.subtree) : cmp;
+        }
+    }
+
+    /**
+     * The sorted queries of a batch (see {@link #overlapAll(List, ForkJoinPool)}), together with the lists collecting
+     * the result of each query.
+     */
+    protected static class OverlapBatch {
+        private final Object[] starts;
+        private final Object[] ends;
+        private final List<List<IInterval>> results;
+
+        protected OverlapBatch(final int nrOfQueries) {
+            this.starts = new Object[nrOfQueries];
+            this.ends = new Object[nrOfQueries];
+            this.results = new ArrayList<>(nrOfQueries);
+        }
+    }
 }
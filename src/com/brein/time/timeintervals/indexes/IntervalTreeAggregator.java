@@ -0,0 +1,29 @@
+package com.brein.time.timeintervals.indexes;
+
+import java.io.Serializable;
+
+/**
+ * An aggregate maintained for every sub-tree of an {@link IntervalTree}, in addition to the max and height kept by
+ * every {@link IntervalTreeNode}. The aggregators of a tree are specified using {@link
+ * IntervalTreeBuilder#maintainAggregates(IntervalTreeAggregator[])}, the aggregates are updated whenever the
+ * intervals of a node or the children of a node change (e.g., when the tree is re-balanced). Predefined aggregators
+ * are available in {@link IntervalTreeAggregators}.
+ * <p>
+ * An aggregator is stored with the configuration of the tree, i.e., it must be serializable.
+ *
+ * @param <A> the type of the aggregated value
+ */
+@FunctionalInterface
+public interface IntervalTreeAggregator<A> extends Serializable {
+
+    /**
+     * Aggregates the value of the sub-tree with the specified {@code node} as root.
+     *
+     * @param node  the root of the sub-tree
+     * @param left  the aggregated value of the left sub-tree, {@code null} if there is no left child
+     * @param right the aggregated value of the right sub-tree, {@code null} if there is no right child
+     *
+     * @return the aggregated value of the sub-tree
+     */
+    A aggregate(final IntervalTreeNode node, final A left, final A right);
+}
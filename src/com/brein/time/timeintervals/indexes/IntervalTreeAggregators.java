@@ -0,0 +1,98 @@
+package com.brein.time.timeintervals.indexes;
+
+/**
+ * The predefined {@link IntervalTreeAggregator} instances. The aggregators using the amount of intervals of a node
+ * ({@link #COUNT} and {@link #SUM_OF_DURATIONS}) load the collection of the node, which may be expensive if the tree
+ * uses a persistor with weak references.
+ */
+public class IntervalTreeAggregators {
+
+    /**
+     * The amount of intervals within the sub-tree, used by {@link IntervalTree#countOverlaps(
+     *com.brein.time.timeintervals.intervals.IInterval)} together with {@link #MIN_END}.
+     */
+    public static final IntervalTreeAggregator<Long> COUNT = new Count();
+
+    /**
+     * The smallest normalized start of the sub-tree.
+     */
+    public static final IntervalTreeAggregator<Comparable> MIN_START = new MinStart();
+
+    /**
+     * The smallest normalized end of the sub-tree.
+     */
+    public static final IntervalTreeAggregator<Comparable> MIN_END = new MinEnd();
+
+    /**
+     * The sum of the durations (i.e., {@code normEnd - normStart}) of all intervals of the sub-tree, the endpoints
+     * must be numbers.
+     */
+    public static final IntervalTreeAggregator<Double> SUM_OF_DURATIONS = new SumOfDurations();
+
+    private IntervalTreeAggregators() {
+        /*
+         * Utility classes, which are a collection of static members,
+         * are not meant to be instantiated.
+         */
+    }
+
+    private static class Count implements IntervalTreeAggregator<Long> {
+
+        @Override
+        public Long aggregate(final IntervalTreeNode node, final Long left, final Long right) {
+            return node.getCollection().size() + (left == null ? 0L : left) + (right == null ? 0L : right);
+        }
+
+        private Object readResolve() {
+            return COUNT;
+        }
+    }
+
+    private static class MinStart implements IntervalTreeAggregator<Comparable> {
+
+        @Override
+        public Comparable aggregate(final IntervalTreeNode node, final Comparable left, final Comparable right) {
+
+            // the left sub-tree contains the nodes with a smaller (or equal) start
+            return left == null ? node.getStart() : left;
+        }
+
+        private Object readResolve() {
+            return MIN_START;
+        }
+    }
+
+    private static class MinEnd implements IntervalTreeAggregator<Comparable> {
+
+        @Override
+        public Comparable aggregate(final IntervalTreeNode node, final Comparable left, final Comparable right) {
+            Comparable min = node.getEnd();
+            if (left != null && node.compare(left, min) < 0) {
+                min = left;
+            }
+            if (right != null && node.compare(right, min) < 0) {
+                min = right;
+            }
+
+            return min;
+        }
+
+        private Object readResolve() {
+            return MIN_END;
+        }
+    }
+
+    private static class SumOfDurations implements IntervalTreeAggregator<Double> {
+
+        @Override
+        public Double aggregate(final IntervalTreeNode node, final Double left, final Double right) {
+            final double duration = IntervalTree.toDouble(node.getEnd()) - IntervalTree.toDouble(node.getStart());
+            return duration * node.getCollection().size() +
+                    (left == null ? 0.0 : left) + (right == null ? 0.0 : right);
+        }
+
+        private Object readResolve() {
+            return SUM_OF_DURATIONS;
+        }
+    }
+}
@@ -12,13 +12,21 @@ import com.brein.time.timeintervals.intervals.LongInterval;
 import com.brein.time.timeintervals.intervals.NumberInterval;
 import com.brein.time.timeintervals.intervals.TimestampInterval;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class IntervalTreeBuilder {
 
@@ -27,8 +35,13 @@ public class IntervalTreeBuilder {
     private IntervalCollectionFactory factory = null;
     private IntervalFilter filter = null;
     private IntervalValueComparator valueComparator = null;
-    private boolean autoBalancing = true;
+    private IntervalType intervalType = null;
+    private BalancingPolicy balancingPolicy = BalancingPolicy.AVL;
     private boolean writeCollections = false;
+    private boolean primitiveNodes = false;
+    private Iterable<? extends IInterval> bulkIntervals = null;
+    private IntervalTreeAggregator[] aggregators = null;
+    private Number retention = null;
 
     public static IntervalTreeBuilder newBuilder() {
         return new IntervalTreeBuilder();
@@ -42,10 +55,13 @@ public class IntervalTreeBuilder {
             }
         }
 
-        try (final FileOutputStream fos = new FileOutputStream(file, false);
-             final ObjectOutputStream oos = new ObjectOutputStream(fos)) {
+        try (final OutputStream os = new BufferedOutputStream(new FileOutputStream(file, false))) {
+            IntervalTreeSnapshot.writeHeader(os);
+
+            final ObjectOutputStream oos = new ObjectOutputStream(os);
             tree.getConfiguration().writeExternal(oos);
-            tree.writeExternal(oos);
+            tree.writeSnapshot(oos);
+            oos.flush();
         } catch (final IOException e) {
             throw new FailedIO("Could not save the tree to the file: " + file, e);
         }
@@ -83,6 +99,7 @@ public class IntervalTreeBuilder {
     public IntervalTreeBuilder usePredefinedType(final IntervalType intervalType, final boolean strict) {
         this.valueComparator = intervalType.getComparator(strict);
         this.filter = intervalType.getIntervalFilter();
+        this.intervalType = intervalType;
         return this;
     }
 
@@ -91,7 +108,24 @@ public class IntervalTreeBuilder {
     }
 
     public IntervalTreeBuilder setAutoBalancing(final boolean autoBalancing) {
-        this.autoBalancing = autoBalancing;
+        if (!autoBalancing) {
+            this.balancingPolicy = BalancingPolicy.NONE;
+        } else if (!this.balancingPolicy.isAutoBalancing()) {
+            this.balancingPolicy = BalancingPolicy.AVL;
+        }
+        return this;
+    }
+
+    /**
+     * Specifies the policy used to keep the tree balanced, the default is {@link BalancingPolicy#AVL}. A {@link
+     * BalancingPolicy#TREAP} needs fewer rotations per update, which pays off for write-heavy trees.
+     *
+     * @param balancingPolicy the policy to be used
+     *
+     * @return {@code this} builder
+     */
+    public IntervalTreeBuilder useBalancingPolicy(final BalancingPolicy balancingPolicy) {
+        this.balancingPolicy = balancingPolicy;
         return this;
     }
 
@@ -104,48 +138,230 @@ public class IntervalTreeBuilder {
         return this;
     }
 
+    /**
+     * Enables nodes keeping their values as primitive values, if supported by the predefined type (see {@link
+     * #usePredefinedType(IntervalType)}), i.e., {@link IntervalType#LONG} and {@link IntervalType#TIMESTAMP} create a
+     * {@link LongIntervalTree}. Such a tree can only hold intervals with integral normalized values, adding any other
+     * interval fails with an {@code IllegalArgumentException}.
+     *
+     * @return {@code this} builder
+     */
+    public IntervalTreeBuilder enablePrimitiveNodes() {
+        return setPrimitiveNodes(true);
+    }
+
+    public IntervalTreeBuilder setPrimitiveNodes(final boolean primitiveNodes) {
+        this.primitiveNodes = primitiveNodes;
+        return this;
+    }
+
+    /**
+     * Specifies the aggregates to be maintained for every sub-tree, see {@link IntervalTreeAggregator}. The aggregates
+     * {@link IntervalTreeAggregators#COUNT} and {@link IntervalTreeAggregators#MIN_END} are used by {@link
+     * IntervalTree#countOverlaps(IInterval)} to count whole sub-trees.
+     *
+     * @param aggregators the aggregators to be maintained
+     *
+     * @return {@code this} builder
+     */
+    public IntervalTreeBuilder maintainAggregates(final IntervalTreeAggregator... aggregators) {
+        this.aggregators = aggregators;
+        return this;
+    }
+
+    /**
+     * Specifies the retention of the tree, i.e., intervals ending more than {@code retention} before the latest start
+     * added to the tree are removed automatically, see {@link IntervalTreeConfiguration#setRetention(Number)}.
+     *
+     * @param retention the retention (in the unit of the normalized values of the intervals)
+     *
+     * @return {@code this} builder
+     */
+    public IntervalTreeBuilder useRetention(final Number retention) {
+        this.retention = retention;
+        return this;
+    }
+
+    /**
+     * Specifies intervals to be loaded into the tree when it is built. If the tree is empty after it is created (or
+     * loaded), the intervals are bulk-loaded (see {@link IntervalTree#bulkLoad(Iterable)}), otherwise the intervals are
+     * added one by one.
+     *
+     * @param intervals the intervals to be loaded
+     *
+     * @return {@code this} builder
+     */
+    public IntervalTreeBuilder bulkLoad(final Iterable<? extends IInterval> intervals) {
+        this.bulkIntervals = intervals;
+        return this;
+    }
+
+    /**
+     * Specifies intervals to be loaded into the tree when it is built, see {@link #bulkLoad(Iterable)}. The stream is
+     * consumed immediately, i.e., the intervals are loaded by every tree built by {@code this} builder.
+     *
+     * @param intervals the intervals to be loaded
+     *
+     * @return {@code this} builder
+     */
+    public IntervalTreeBuilder bulkLoad(final Stream<? extends IInterval> intervals) {
+        return bulkLoad(intervals.collect(Collectors.toList()));
+    }
+
     public IntervalTree build() throws FailedIO {
-        if (this.file == null) {
+        final IntervalTree tree = buildTree();
+
+        if (this.bulkIntervals == null) {
+            // nothing to load
+        } else if (tree.isEmpty()) {
+            tree.bulkLoad(this.bulkIntervals);
+        } else {
+            this.bulkIntervals.forEach(tree::add);
+        }
+
+        return tree;
+    }
+
+    protected IntervalTree buildTree() throws FailedIO {
+        return buildTree(this.file);
+    }
+
+    /**
+     * Loads the tree from the specified {@code file} using the persistor of {@code this} builder, if there is no such
+     * file the tree is created from the settings of {@code this} builder.
+     *
+     * @param file the file to load the tree from, can be {@code null}
+     *
+     * @return the loaded (or created) tree
+     *
+     * @throws FailedIO if the tree cannot be loaded from the file
+     */
+    protected IntervalTree buildTree(final File file) throws FailedIO {
+        if (file == null) {
             return buildFromSettings();
-        } else if (!this.file.exists() || !this.file.isFile()) {
+        } else if (!file.exists() || !file.isFile()) {
             return buildFromSettings();
         } else {
-            final IntervalTree tree = new IntervalTree();
             final IntervalTreeConfiguration configuration = new IntervalTreeConfiguration();
 
-            try (final FileInputStream fis = new FileInputStream(file);
-                 final ObjectInput oin = new ObjectInputStream(fis)) {
+            try (final InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+
+                // files written by earlier versions do not have a snapshot header
+                final boolean snapshot = IntervalTreeSnapshot.readHeader(is) != -1;
+                final ObjectInput oin = new ObjectInputStream(is);
 
                 configuration.readExternal(oin);
                 configuration.setPersistor(this.persistor);
 
+                final IntervalTree tree = createTree(configuration);
                 tree.setConfiguration(configuration);
-                tree.readExternal(oin);
+                if (snapshot) {
+                    tree.readSnapshot(oin);
+                } else {
+                    tree.readExternal(oin);
+                }
+
+                return tree;
             } catch (final IOException | ClassNotFoundException e) {
                 throw new FailedIO("Could not load the tree from the file: " + file, e);
             }
+        }
+    }
+
+    /**
+     * Builds the tree (see {@link #build()}) and wraps it into a thread-safe {@link ConcurrentIntervalTree}.
+     *
+     * @return the thread-safe tree
+     *
+     * @throws FailedIO if the tree cannot be loaded from the specified file
+     */
+    public ConcurrentIntervalTree buildConcurrent() throws FailedIO {
+        return new ConcurrentIntervalTree(build());
+    }
 
-            return tree;
+    /**
+     * Opens the file specified by {@link #loadFromFile(File)} as read-only {@link MappedIntervalTree}. The file must
+     * have been written using {@link MappedIntervalTree#write(File, IntervalTree)}, the specified persistor (see
+     * {@link #usePersistor(IntervalCollectionPersistor)}) is used by the factory of the tree.
+     *
+     * @return the read-only tree
+     *
+     * @throws FailedIO if the tree cannot be opened from the specified file
+     */
+    public MappedIntervalTree buildMapped() throws FailedIO {
+        if (this.file == null) {
+            throw new FailedIO("A mapped tree must be loaded from a file.");
         }
+
+        return MappedIntervalTree.open(this.file, this.persistor);
+    }
+
+    /**
+     * Opens the file specified by {@link #loadFromFile(File)} as read-only {@link PagedIntervalTree}, i.e., only the
+     * root page is read and the other pages are read when first needed. The file must have been written using {@link
+     * PagedIntervalTree#write(File, IntervalTree, int)}, the specified persistor (see {@link
+     * #usePersistor(IntervalCollectionPersistor)}) is used by the factory of the tree.
+     *
+     * @return the read-only tree, which must be closed when not needed anymore
+     *
+     * @throws FailedIO if the tree cannot be opened from the specified file
+     */
+    public PagedIntervalTree buildPaged() throws FailedIO {
+        if (this.file == null) {
+            throw new FailedIO("A paged tree must be loaded from a file.");
+        }
+
+        return PagedIntervalTree.open(this.file, this.persistor);
+    }
+
+    /**
+     * Builds a {@link PartitionedIntervalIndex} using partitions of the specified duration. Every partition (and the
+     * overflow tree of the index) is a tree created based on the settings of {@code this} builder, a file specified by
+     * {@link #loadFromFile(File)} is not loaded. The intervals specified by {@link #bulkLoad(Iterable)} are added to
+     * the index. Partitions loaded by the index (see {@link PartitionedIntervalIndex#loadPartition(long, File)}) use
+     * the persistor of {@code this} builder.
+     *
+     * @param partition the duration of a partition, e.g., a day or an hour
+     *
+     * @return the partitioned index
+     */
+    public PartitionedIntervalIndex buildPartitioned(final Duration partition) {
+        final PartitionedIntervalIndex index = new PartitionedIntervalIndex(this::buildFromSettings,
+                this::buildTree, partition.getSeconds());
+        if (this.bulkIntervals != null) {
+            this.bulkIntervals.forEach(index::add);
+        }
+
+        return index;
     }
 
     protected IntervalTree buildFromSettings() {
-        final IntervalTree tree = new IntervalTree();
         final IntervalTreeConfiguration configuration = new IntervalTreeConfiguration();
 
-        configuration.setAutoBalancing(this.autoBalancing);
+        configuration.setIntervalType(this.intervalType);
+        configuration.setBalancingPolicy(this.balancingPolicy);
         configuration.setValueComparator(this.valueComparator);
         configuration.setIntervalFilter(this.filter);
         configuration.setWritingCollectionsToFile(this.writeCollections);
+        configuration.setUsingPrimitiveNodes(this.primitiveNodes);
+        configuration.setAggregators(this.aggregators);
+        configuration.setRetention(this.retention);
 
         configuration.setFactory(this.factory);
         configuration.setPersistor(this.persistor);
 
+        final IntervalTree tree = createTree(configuration);
         tree.setConfiguration(configuration);
 
         return tree;
     }
 
+    protected IntervalTree createTree(final IntervalTreeConfiguration configuration) {
+        final IntervalType intervalType = configuration.getIntervalType();
+        return intervalType == null ? new IntervalTree() :
+                intervalType.createTree(configuration.isUsingPrimitiveNodes());
+    }
+
     public enum IntervalType {
 
         /**
@@ -154,6 +370,7 @@ public class IntervalTreeBuilder {
          * LongInterval}.
          */
         NUMBER(NumberInterval.class,
+                IntervalTree::new,
                 IntervalFilters::weakEqual,
                 IntervalValueComparator::compareNumbers,
                 IntervalValueComparator::compareNumbers),
@@ -161,44 +378,65 @@ public class IntervalTreeBuilder {
          * If you plan to hold {@link IntegerInterval} instances within the tree, use this type.
          */
         INTEGER(IntegerInterval.class,
+                IntervalTree::new,
                 IntervalFilters::weakEqual,
-                IntervalValueComparator::compareNumbers,
+                IntervalValueComparator::compareIntegerNumbers,
                 IntervalValueComparator::compareInts),
         /**
-         * If you plan to hold {@link LongInterval} instances within the tree, use this type.
+         * If you plan to hold {@link LongInterval} instances within the tree, use this type. If primitive nodes are
+         * enabled, the type creates a {@link LongIntervalTree}, which can only hold intervals with integral values.
          */
         LONG(LongInterval.class,
+                LongIntervalTree::new,
                 IntervalFilters::weakEqual,
-                IntervalValueComparator::compareNumbers,
+                IntervalValueComparator::compareLongNumbers,
                 IntervalValueComparator::compareLongs),
         /**
          * If you plan to hold {@link DoubleInterval} instances within the tree, use this type.
          */
         DOUBLE(DoubleInterval.class,
+                IntervalTree::new,
                 IntervalFilters::weakEqual,
-                IntervalValueComparator::compareNumbers,
+                IntervalValueComparator::compareDoubleNumbers,
                 IntervalValueComparator::compareDoubles),
         /**
-         * If you plan to hold {@link TimestampInterval} instances within the tree, use this type.
+         * If you plan to hold {@link TimestampInterval} instances within the tree, use this type. If primitive nodes
+         * are enabled, the type creates a {@link LongIntervalTree}, which can only hold intervals with integral values.
          */
         TIMESTAMP(TimestampInterval.class,
+                LongIntervalTree::new,
                 IntervalFilters::weakEqual,
-                IntervalValueComparator::compareNumbers,
+                IntervalValueComparator::compareLongNumbers,
                 IntervalValueComparator::compareLongs);
 
         private final Class<? extends IInterval> clazz;
+        private final Supplier<IntervalTree> primitiveTreeFactory;
         private final IntervalFilter intervalFilter;
         private final IntervalValueComparator comparator;
         private final IntervalValueComparator strictComparator;
 
         IntervalType(final Class<? extends IInterval> clazz,
+                     final Supplier<IntervalTree> primitiveTreeFactory,
                      final IntervalFilter intervalFilter,
                      final IntervalValueComparator comparator,
                      final IntervalValueComparator strictComparator) {
             this.clazz = clazz;
+            this.primitiveTreeFactory = primitiveTreeFactory;
             this.intervalFilter = intervalFilter;
             this.comparator = comparator;
-            this.strictComparator = comparator;
+            this.strictComparator = strictComparator;
+        }
+
+        /**
+         * Creates the tree for {@code this} type, which is a specialized tree keeping primitive values (if available
+         * and requested), otherwise a generic {@link IntervalTree}.
+         *
+         * @param primitive {@code true} to create a tree keeping primitive values, if available for the type
+         *
+         * @return the created tree
+         */
+        public IntervalTree createTree(final boolean primitive) {
+            return primitive ? this.primitiveTreeFactory.get() : new IntervalTree();
         }
 
         public IntervalFilter getIntervalFilter() {
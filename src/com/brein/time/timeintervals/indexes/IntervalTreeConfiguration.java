@@ -4,50 +4,120 @@ import com.brein.time.exceptions.IllegalConfiguration;
 import com.brein.time.timeintervals.collections.IntervalCollectionFactory;
 import com.brein.time.timeintervals.collections.IntervalCollectionPersistor;
 import com.brein.time.timeintervals.filters.IntervalFilter;
+import com.brein.time.timeintervals.indexes.IntervalTreeBuilder.IntervalType;
 import org.apache.log4j.Logger;
 
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.io.OptionalDataException;
 
 @SuppressWarnings("NullableProblems")
 public class IntervalTreeConfiguration implements Externalizable {
     private static final Logger LOGGER = Logger.getLogger(IntervalTreeConfiguration.class);
 
-    private boolean autoBalancing = true;
+    private BalancingPolicy balancingPolicy = BalancingPolicy.AVL;
+    private Number retention = null;
     private boolean usesPersistor = false;
     private boolean writingCollectionsToFile = false;
+    private boolean usingPrimitiveNodes = false;
     private IntervalValueComparator valueComparator = null;
     private IntervalFilter intervalFilter = null;
     private IntervalCollectionFactory factory = null;
+    private IntervalType intervalType = null;
+    private IntervalTreeAggregator[] aggregators = new IntervalTreeAggregator[0];
 
     @Override
     public void writeExternal(final ObjectOutput out) throws IOException {
-        out.writeBoolean(this.autoBalancing);
+        out.writeBoolean(isAutoBalancing());
         out.writeBoolean(this.usesPersistor);
         out.writeBoolean(this.writingCollectionsToFile);
         out.writeObject(this.valueComparator);
         out.writeObject(this.intervalFilter);
         out.writeObject(this.factory);
+        out.writeObject(this.intervalType);
+        out.writeObject(this.aggregators);
+        out.writeObject(this.balancingPolicy);
+        out.writeObject(this.retention);
+        out.writeObject(this.usingPrimitiveNodes);
     }
 
     @Override
     public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
-        this.autoBalancing = in.readBoolean();
+        final boolean autoBalancing = in.readBoolean();
         this.usesPersistor = in.readBoolean();
         this.writingCollectionsToFile = in.readBoolean();
         this.valueComparator = IntervalValueComparator.class.cast(in.readObject());
         this.intervalFilter = IntervalFilter.class.cast(in.readObject());
         this.factory = IntervalCollectionFactory.class.cast(in.readObject());
+        this.intervalType = IntervalType.class.cast(readOptionalObject(in));
+
+        final Object aggregators = readOptionalObject(in);
+        this.aggregators = aggregators == null ? new IntervalTreeAggregator[0] :
+                IntervalTreeAggregator[].class.cast(aggregators);
+
+        // configurations written by earlier versions only knew about AVL balancing
+        final Object balancingPolicy = readOptionalObject(in);
+        if (balancingPolicy != null) {
+            this.balancingPolicy = BalancingPolicy.class.cast(balancingPolicy);
+        } else {
+            this.balancingPolicy = autoBalancing ? BalancingPolicy.AVL : BalancingPolicy.NONE;
+        }
+        this.retention = Number.class.cast(readOptionalObject(in));
+
+        final Object usingPrimitiveNodes = readOptionalObject(in);
+        this.usingPrimitiveNodes = usingPrimitiveNodes != null && Boolean.class.cast(usingPrimitiveNodes);
+    }
+
+    /**
+     * Reads an object, which was added to the serialized configuration in a later version. Configurations written by
+     * an earlier version are directly followed by the tree's data, in that case {@code null} is returned and the
+     * stream is left untouched.
+     *
+     * @param in the stream to read from
+     *
+     * @return the read object, or {@code null} if the configuration did not contain the object
+     *
+     * @throws IOException            if the object cannot be read
+     * @throws ClassNotFoundException if the class of the object cannot be found
+     */
+    protected Object readOptionalObject(final ObjectInput in) throws IOException, ClassNotFoundException {
+        try {
+            return in.readObject();
+        } catch (final OptionalDataException e) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("The configuration was written by an earlier version, using defaults.");
+            }
+
+            return null;
+        }
     }
 
     public boolean isAutoBalancing() {
-        return autoBalancing;
+        return this.balancingPolicy.isAutoBalancing();
     }
 
+    /**
+     * Enables or disables the automatic balancing of the tree. Enabling keeps an already selected balancing policy, if
+     * no policy was selected {@link BalancingPolicy#AVL} is used.
+     *
+     * @param autoBalancing {@code true} to balance the tree automatically, otherwise {@code false}
+     */
     public void setAutoBalancing(final boolean autoBalancing) {
-        this.autoBalancing = autoBalancing;
+        if (!autoBalancing) {
+            this.balancingPolicy = BalancingPolicy.NONE;
+        } else if (!isAutoBalancing()) {
+            this.balancingPolicy = BalancingPolicy.AVL;
+        }
+    }
+
+    public BalancingPolicy getBalancingPolicy() {
+        return balancingPolicy;
+    }
+
+    public void setBalancingPolicy(final BalancingPolicy balancingPolicy) {
+        this.balancingPolicy = balancingPolicy == null ? BalancingPolicy.AVL : balancingPolicy;
     }
 
     public IntervalValueComparator getValueComparator() {
@@ -87,6 +157,69 @@ public class IntervalTreeConfiguration implements Externalizable {
         this.writingCollectionsToFile = writingCollectionsToFile;
     }
 
+    public boolean isUsingPrimitiveNodes() {
+        return usingPrimitiveNodes;
+    }
+
+    /**
+     * Specifies if the nodes of the tree keep their values as primitive values, i.e., if a specialized tree is created
+     * for the interval type (see {@link IntervalType#createTree(boolean)}).
+     *
+     * @param usingPrimitiveNodes {@code true} to use primitive nodes, otherwise {@code false}
+     */
+    public void setUsingPrimitiveNodes(final boolean usingPrimitiveNodes) {
+        this.usingPrimitiveNodes = usingPrimitiveNodes;
+    }
+
+    public IntervalType getIntervalType() {
+        return intervalType;
+    }
+
+    public void setIntervalType(final IntervalType intervalType) {
+        this.intervalType = intervalType;
+    }
+
+    public Number getRetention() {
+        return retention;
+    }
+
+    /**
+     * Sets the retention of the tree, i.e., the tree only keeps intervals ending at most {@code retention} before the
+     * latest start added to the tree (see {@link IntervalTree#advanceWatermark(Comparable)}). The retention is given in
+     * the unit of the normalized values of the intervals.
+     *
+     * @param retention the retention, {@code null} to keep all intervals
+     */
+    public void setRetention(final Number retention) {
+        this.retention = retention;
+    }
+
+    public IntervalTreeAggregator[] getAggregators() {
+        return aggregators;
+    }
+
+    public void setAggregators(final IntervalTreeAggregator[] aggregators) {
+        this.aggregators = aggregators == null ? new IntervalTreeAggregator[0] : aggregators;
+    }
+
+    /**
+     * Determines the position of the specified {@code aggregator} within the aggregators of the tree, which is the
+     * position of the aggregated value within the nodes.
+     *
+     * @param aggregator the aggregator to look up
+     *
+     * @return the position of the aggregator, or {@code -1} if the aggregator is not used
+     */
+    public int indexOf(final IntervalTreeAggregator aggregator) {
+        for (int i = 0; i < this.aggregators.length; i++) {
+            if (this.aggregators[i].equals(aggregator)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
     public IntervalFilter getIntervalFilter() {
         return intervalFilter;
     }
@@ -7,6 +7,7 @@ import com.brein.time.timeintervals.collections.ObservableIntervalCollection;
 import com.brein.time.timeintervals.collections.UnmodifiableIntervalCollection;
 import com.brein.time.timeintervals.filters.IntervalFilter;
 import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.IntervalKey;
 
 import java.io.Externalizable;
 import java.io.IOException;
@@ -22,26 +23,53 @@ public class IntervalTreeNode extends IntervalTreeNodeContext
     private transient WeakReference<IntervalCollection> referenceCollection;
     private IntervalCollection collection;
 
-    private String key;
+    private IntervalKey key;
     private Comparable start;
     private Comparable end;
 
     private Comparable max;
-    private long level;
     private long height;
+    private transient Object[] aggregates;
+    private transient volatile long epoch;
 
     private IntervalTreeConfiguration configuration;
 
     public void init(final IInterval interval) {
-        this.start = interval.getNormStart();
-        this.end = interval.getNormEnd();
-        this.max = interval.getNormEnd();
-        this.key = interval.getUniqueIdentifier();
-
-        this.level = 0L;
+        init(interval.getIntervalKey(), interval.getNormStart(), interval.getNormEnd());
+    }
+
+    /**
+     * Initializes {@code this} node without an interval, e.g., when the node is read from a snapshot (see {@link
+     * IntervalTreeSnapshot}).
+     *
+     * @param key   the key of the intervals of the node
+     * @param start the normalized start of the intervals of the node
+     * @param end   the normalized end of the intervals of the node
+     */
+    protected void init(final IntervalKey key, final Comparable start, final Comparable end) {
+        initEndpoints(start, end);
+        this.key = key;
         this.height = 1L;
     }
 
+    /**
+     * Initializes the start, end, and max value of {@code this} node based on the normalized values of an interval.
+     * Specialized nodes (e.g., {@link LongIntervalTreeNode}) override this method to store the values in a different
+     * representation.
+     *
+     * @param start the normalized start of the interval to initialize the node with
+     * @param end   the normalized end of the interval to initialize the node with
+     */
+    protected void initEndpoints(final Comparable start, final Comparable end) {
+        this.start = start;
+        this.end = end;
+        this.max = end;
+    }
+
+    protected IntervalKey getKey() {
+        return key;
+    }
+
     public Comparable getStart() {
         return start;
     }
@@ -65,41 +93,50 @@ public class IntervalTreeNode extends IntervalTreeNodeContext
         }
     }
 
+    /**
+     * Gets the level of {@code this} node, i.e., the amount of ancestors. The level is not stored within the node
+     * (otherwise every rotation would have to update the levels of the moved sub-trees), instead it is determined
+     * when needed, using the parents.
+     *
+     * @return the level of {@code this} node, {@code 0} for the root
+     */
     public long getLevel() {
+        long level = 0L;
+        IntervalTreeNode node = getParent();
+        while (node != null) {
+            level++;
+            node = node.getParent();
+        }
+
         return level;
     }
 
-    public void setLevel(final long level) {
-        if (this.level == level) {
-            return;
+    public void updateMax() {
+        if (calculateMax() && hasParent()) {
+            getParent().updateMax();
         }
-        this.level = level;
+    }
 
-        if (hasLeft()) {
-            getLeft().setLevel(level + 1);
+    /**
+     * Calculates the max of {@code this} node based on the end of the node and the max of the children, without
+     * propagating the change to the parent.
+     *
+     * @return {@code true} if the max changed, otherwise {@code false}
+     */
+    protected boolean calculateMax() {
+        Comparable max = this.end;
+        if (hasLeft() && compare(max, getLeft().max) < 0) {
+            max = getLeft().max;
         }
-        if (hasRight()) {
-            getRight().setLevel(level + 1);
+        if (hasRight() && compare(max, getRight().max) < 0) {
+            max = getRight().max;
         }
-    }
 
-    @SuppressWarnings("unchecked")
-    public void updateMax() {
-        if (isLeaf()) {
-            setMax(this.end);
-        } else if (isSingleParent()) {
-            final Comparable singleChildMax = getSingleChild().max;
-            setMax(compare(this.end, singleChildMax) < 0 ? singleChildMax : this.end);
+        if (compare(this.max, max) == 0) {
+            return false;
         } else {
-            final Comparable leftMax = getLeft().max;
-            final Comparable rightMax = getRight().max;
-            final Comparable thisMax = this.end;
-
-            if (compare(leftMax, rightMax) < 0) {
-                setMax(compare(thisMax, rightMax) < 0 ? rightMax : thisMax);
-            } else {
-                setMax(compare(thisMax, leftMax) < 0 ? leftMax : thisMax);
-            }
+            this.max = max;
+            return true;
         }
     }
 
@@ -119,24 +156,152 @@ public class IntervalTreeNode extends IntervalTreeNodeContext
     }
 
     public void updateHeight() {
-        if (isLeaf()) {
-            setHeight(1L);
-        } else if (isSingleParent()) {
-            setHeight(getSingleChild().getHeight() + 1);
+        if (calculateHeight() && hasParent()) {
+            getParent().updateHeight();
+        }
+    }
+
+    protected boolean calculateHeight() {
+        final long height = Math.max(hasLeft() ? getLeft().height : 0L, hasRight() ? getRight().height : 0L) + 1L;
+
+        if (this.height == height) {
+            return false;
         } else {
-            setHeight(Math.max(getLeft().getHeight(), getRight().getHeight()) + 1);
+            this.height = height;
+            return true;
         }
     }
 
+    /**
+     * Recalculates the max, the height, and the aggregates of {@code this} node based on the children, without
+     * propagating any change to the parent. The tree uses this method when re-tracing a modified path bottom-up.
+     *
+     * @return {@code true} if any of the values changed, otherwise {@code false}
+     */
+    protected boolean recalculate() {
+        final boolean maxChanged = calculateMax();
+        final boolean heightChanged = calculateHeight();
+        final boolean aggregatesChanged = calculateAggregates();
+
+        return maxChanged || heightChanged || aggregatesChanged;
+    }
+
+    /**
+     * Gets the value aggregated for the sub-tree of {@code this} node by the specified {@code aggregator}.
+     *
+     * @param aggregator the aggregator to get the value for, must be an aggregator of the tree
+     * @param <A>        the type of the aggregated value
+     *
+     * @return the aggregated value
+     *
+     * @throws IllegalArgumentException if the aggregator is not an aggregator of the tree
+     */
+    @SuppressWarnings("unchecked")
+    public <A> A getAggregate(final IntervalTreeAggregator<A> aggregator) {
+        final int index = this.configuration.indexOf(aggregator);
+        if (index == -1) {
+            throw new IllegalArgumentException("The aggregator '" + aggregator + "' is not maintained by the tree.");
+        }
+
+        return (A) getAggregate(index);
+    }
+
+    /**
+     * Checks if the aggregates of {@code this} node are calculated, i.e., if they can be read without calculating the
+     * aggregates of the sub-tree (e.g., after the tree was loaded).
+     *
+     * @return {@code true} if the aggregates are available, otherwise {@code false}
+     */
+    protected boolean hasAggregates() {
+        return this.aggregates != null || this.configuration.getAggregators().length == 0;
+    }
+
+    protected Object getAggregate(final int index) {
+        if (this.aggregates == null) {
+            calculateMissingAggregates();
+        }
+
+        return this.aggregates[index];
+    }
+
+    /**
+     * Calculates the missing aggregates (e.g., of a loaded tree) of the sub-tree of {@code this} node bottom-up, i.e.,
+     * a node is calculated after its children. Sub-trees with calculated aggregates are skipped.
+     */
+    protected void calculateMissingAggregates() {
+        if (hasAggregates()) {
+            return;
+        }
+
+        // the stack holds the path from this node to the one calculated next
+        final IntervalTreeNode[] stack = new IntervalTreeNode[(int) getHeight() + 1];
+        int pos = 0;
+        stack[pos++] = this;
+
+        while (pos > 0) {
+            final IntervalTreeNode current = stack[pos - 1];
+            final IntervalTreeNode left = current.getLeft();
+            final IntervalTreeNode right = current.getRight();
+
+            if (left != null && !left.hasAggregates()) {
+                stack[pos++] = left;
+            } else if (right != null && !right.hasAggregates()) {
+                stack[pos++] = right;
+            } else {
+                current.calculateAggregates();
+                pos--;
+            }
+        }
+    }
+
+    /**
+     * Recalculates the aggregates of {@code this} node, if any aggregate changed, the aggregates of the parent are
+     * updated as well.
+     */
+    public void updateAggregates() {
+        if (calculateAggregates() && hasParent()) {
+            getParent().updateAggregates();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected boolean calculateAggregates() {
+        final IntervalTreeAggregator[] aggregators = this.configuration.getAggregators();
+        if (aggregators.length == 0) {
+            return false;
+        } else if (this.aggregates == null) {
+            this.aggregates = new Object[aggregators.length];
+        }
+
+        boolean changed = false;
+        for (int i = 0; i < aggregators.length; i++) {
+            final Object left = hasLeft() ? getLeft().getAggregate(i) : null;
+            final Object right = hasRight() ? getRight().getAggregate(i) : null;
+            final Object value = aggregators[i].aggregate(this, left, right);
+
+            if (!Objects.equals(this.aggregates[i], value)) {
+                this.aggregates[i] = value;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
     public IntervalCollection getIntervals() {
         return new UnmodifiableIntervalCollection(getCollection());
     }
 
     public boolean addInterval(final IInterval interval) {
-        assert this.key.equals(interval.getUniqueIdentifier());
+        assert this.key.equals(interval.getIntervalKey());
         assert compareTo(interval) == 0;
 
-        return getCollection().add(interval);
+        final boolean added = getCollection().add(interval);
+        if (added) {
+            updateAggregates();
+        }
+
+        return added;
     }
 
     public boolean isEmpty() {
@@ -144,7 +309,12 @@ public class IntervalTreeNode extends IntervalTreeNodeContext
     }
 
     public boolean removeInterval(final IInterval interval) {
-        return getCollection().remove(interval);
+        final boolean removed = getCollection().remove(interval);
+        if (removed) {
+            updateAggregates();
+        }
+
+        return removed;
     }
 
     public Collection<IInterval> find(final IInterval interval,
@@ -153,13 +323,13 @@ public class IntervalTreeNode extends IntervalTreeNodeContext
     }
 
     public String getId() {
-        return String.format("[%s, %s]", this.start, this.end);
+        return String.format("[%s, %s]", getStart(), getEnd());
     }
 
     @Override
     @SuppressWarnings("NullableProblems")
     public int compareTo(final IntervalTreeNode node) {
-        return compareTo(node.start, node.end);
+        return compareTo(node.getStart(), node.getEnd());
     }
 
     public int compareTo(final IInterval interval) {
@@ -168,11 +338,11 @@ public class IntervalTreeNode extends IntervalTreeNodeContext
 
     public int compareTo(final Comparable start, final Comparable end) {
 
-        final int cmpStart = compare(this.start, start);
+        final int cmpStart = compare(getStart(), start);
         if (cmpStart < 0) {
             return -1;
         } else if (cmpStart == 0) {
-            return compare(this.end, end);
+            return compare(getEnd(), end);
         } else {
             return 1;
         }
@@ -195,7 +365,7 @@ public class IntervalTreeNode extends IntervalTreeNodeContext
     @Override
     public String toString() {
         return String.format("[%s, %s] (max: %s, count: %d, level: %d, height: %d)",
-                this.start, this.end, this.max, getCollection().size(), this.level, this.height);
+                getStart(), getEnd(), getMax(), getCollection().size(), getLevel(), this.height);
     }
 
     protected void setChild(final IntervalTreeNode node, final IntervalTreeNodeChildType childType) {
@@ -208,11 +378,45 @@ public class IntervalTreeNode extends IntervalTreeNodeContext
         // set the new parent
         if (node != null) {
             node.setParent(this);
-            node.setLevel(this.level + 1);
         }
 
         updateMax();
         updateHeight();
+        updateAggregates();
+    }
+
+    /**
+     * Links the specified sub-trees as children of {@code this} node and calculates the max, height, and aggregates of
+     * {@code this} node based on the children. In contrast to {@link #setChild(IntervalTreeNode,
+     * IntervalTreeNodeChildType)} the changes are not propagated to the parent, i.e., the method is meant to be used
+     * when building a tree bottom-up, with {@code this} node not having a parent yet.
+     *
+     * @param left  the complete left sub-tree, can be {@code null}
+     * @param right the complete right sub-tree, can be {@code null}
+     */
+    protected void link(final IntervalTreeNode left, final IntervalTreeNode right) {
+        attach(left, IntervalTreeNodeChildType.LEFT);
+        attach(right, IntervalTreeNodeChildType.RIGHT);
+        recalculate();
+    }
+
+    /**
+     * Sets the specified {@code node} as child of {@code this} node, without recalculating or propagating any value,
+     * see {@link #recalculate()}.
+     *
+     * @param node      the new child, can be {@code null}
+     * @param childType the position of the child
+     */
+    protected void attach(final IntervalTreeNode node, final IntervalTreeNodeChildType childType) {
+        if (IntervalTreeNodeChildType.LEFT.equals(childType)) {
+            super.setLeft(node);
+        } else if (IntervalTreeNodeChildType.RIGHT.equals(childType)) {
+            super.setRight(node);
+        }
+
+        if (node != null) {
+            node.setParent(this);
+        }
     }
 
     protected IntervalTreeNode get(final IntervalTreeNodeChildType childType) {
@@ -237,12 +441,18 @@ public class IntervalTreeNode extends IntervalTreeNodeContext
         this.setParent(null);
         this.setLeft(null);
         this.setRight(null);
-        this.max = end;
-        this.level = 0L;
+        this.resetMax();
 
         return ctx;
     }
 
+    /**
+     * Resets the max value of {@code this} node to the end of the node, without propagating the change.
+     */
+    protected void resetMax() {
+        this.max = this.end;
+    }
+
     public void removeChild(final IntervalTreeNode node) {
         replaceChild(node, IntervalTreeNode.class.cast(null));
     }
@@ -285,13 +495,38 @@ public class IntervalTreeNode extends IntervalTreeNodeContext
         return Objects.hash(getStart(), getEnd());
     }
 
+    /**
+     * Determines the priority of {@code this} node used by {@link BalancingPolicy#TREAP}. The priority is a scrambled
+     * hash of the start and end of the node, i.e., it looks random (even for sequential values), but it does not have
+     * to be stored and is the same after the node is persisted and loaded again.
+     *
+     * @return the priority of {@code this} node
+     */
+    public int getPriority() {
+        return scramble(hashCode());
+    }
+
+    /**
+     * Scrambles the bits of the specified {@code hash} (using the finalizer of MurmurHash3).
+     */
+    protected static int scramble(final int hash) {
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+
+        return h;
+    }
+
     @Override
     public boolean equals(final Object obj) {
         if (obj == this) {
             return true;
         } else if (obj == null) {
             return false;
-        } else if (IntervalTreeNode.class.equals(obj.getClass())) {
+        } else if (getClass().equals(obj.getClass())) {
             final IntervalTreeNode node = IntervalTreeNode.class.cast(obj);
             return compareTo(node) == 0;
         } else {
@@ -301,48 +536,89 @@ public class IntervalTreeNode extends IntervalTreeNodeContext
 
     @Override
     public void writeExternal(final ObjectOutput out) throws IOException {
+        writeNode(out);
+        writeChild(out, IntervalTreeNodeChildType.LEFT);
+        writeChild(out, IntervalTreeNodeChildType.RIGHT);
+    }
+
+    /**
+     * Writes {@code this} node without its children, see {@link #writeExternal(ObjectOutput)}.
+     *
+     * @param out the stream to write to
+     *
+     * @throws IOException if the node cannot be written
+     */
+    protected void writeNode(final ObjectOutput out) throws IOException {
         out.writeObject(this.key);
-        out.writeObject(this.start);
-        out.writeObject(this.end);
-        out.writeObject(this.max);
-        out.writeLong(this.level);
+        writeEndpoints(out);
+        out.writeLong(getLevel());
         out.writeLong(this.height);
 
         if (this.configuration.isWritingCollectionsToFile()) {
+            writeCollection(out);
+        }
+    }
 
-            // we never want to write the observable (it's not even serializable)
-            if (ObservableIntervalCollection.class.isInstance(this.collection)) {
-                final ObservableIntervalCollection observable =
-                        ObservableIntervalCollection.class.cast(this.collection);
+    protected void writeCollection(final ObjectOutput out) throws IOException {
 
-                // write the wrapped instance and register the observing factory later
-                out.writeObject(observable.getWrappedCollection());
-            } else {
+        // we never want to write the observable (it's not even serializable)
+        if (ObservableIntervalCollection.class.isInstance(this.collection)) {
+            final ObservableIntervalCollection observable =
+                    ObservableIntervalCollection.class.cast(this.collection);
 
-                // write the default collection as is
-                out.writeObject(this.collection);
-            }
+            // write the wrapped instance and register the observing factory later
+            out.writeObject(observable.getWrappedCollection());
+        } else {
+
+            // write the default collection as is
+            out.writeObject(this.collection);
         }
+    }
 
-        writeChild(out, IntervalTreeNodeChildType.LEFT);
-        writeChild(out, IntervalTreeNodeChildType.RIGHT);
+    protected void readCollection(final ObjectInput in) throws IOException, ClassNotFoundException {
+        this.collection = wrapCollection(IntervalCollection.class.cast(in.readObject()));
     }
 
     @Override
     public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
-        this.key = String.class.cast(in.readObject());
-        this.start = Comparable.class.cast(in.readObject());
-        this.end = Comparable.class.cast(in.readObject());
-        this.max = Comparable.class.cast(in.readObject());
-        this.level = in.readLong();
+        readNode(in);
+        readChild(in, IntervalTreeNodeChildType.LEFT);
+        readChild(in, IntervalTreeNodeChildType.RIGHT);
+    }
+
+    /**
+     * Reads {@code this} node without its children, see {@link #readExternal(ObjectInput)}.
+     *
+     * @param in the stream to read from
+     *
+     * @throws IOException            if the node cannot be read
+     * @throws ClassNotFoundException if a class of the node cannot be found
+     */
+    protected void readNode(final ObjectInput in) throws IOException, ClassNotFoundException {
+        // nodes written by earlier versions are identified by the unique identifier
+        final Object key = in.readObject();
+        this.key = key instanceof String ? IntervalKey.valueOf(String.class.cast(key)) : IntervalKey.class.cast(key);
+        readEndpoints(in);
+
+        // the level is determined by the position of the node
+        in.readLong();
         this.height = in.readLong();
 
         if (this.configuration.isWritingCollectionsToFile()) {
-            this.collection = wrapCollection(IntervalCollection.class.cast(in.readObject()));
+            readCollection(in);
         }
+    }
 
-        readChild(in, IntervalTreeNodeChildType.LEFT);
-        readChild(in, IntervalTreeNodeChildType.RIGHT);
+    protected void writeEndpoints(final ObjectOutput out) throws IOException {
+        out.writeObject(this.start);
+        out.writeObject(this.end);
+        out.writeObject(this.max);
+    }
+
+    protected void readEndpoints(final ObjectInput in) throws IOException, ClassNotFoundException {
+        this.start = Comparable.class.cast(in.readObject());
+        this.end = Comparable.class.cast(in.readObject());
+        this.max = Comparable.class.cast(in.readObject());
     }
 
     protected void writeChild(final ObjectOutput out,
@@ -360,7 +636,7 @@ public class IntervalTreeNode extends IntervalTreeNodeContext
         final boolean hasChild = in.readBoolean();
         final IntervalTreeNode node;
         if (hasChild) {
-            node = new IntervalTreeNode();
+            node = createChildNode();
             node.setConfiguration(this.configuration);
             node.readExternal(in);
         } else {
@@ -370,10 +646,38 @@ public class IntervalTreeNode extends IntervalTreeNodeContext
         setChild(node, type);
     }
 
+    /**
+     * Creates an empty node of the same kind as {@code this} node, used when reading the children from a stream.
+     *
+     * @return a new, not initialized node
+     */
+    protected IntervalTreeNode createChildNode() {
+        return new IntervalTreeNode();
+    }
+
+    /**
+     * Gets the epoch {@code this} node was modified in the last time, i.e., the number of the latest snapshot taken
+     * before the modification (see {@link IntervalTree#snapshot()}). The snapshots taken before that epoch read the
+     * state recorded for them, instead of the current state of the node.
+     *
+     * @return the epoch of the last modification
+     */
+    protected long getEpoch() {
+        return epoch;
+    }
+
+    protected void setEpoch(final long epoch) {
+        this.epoch = epoch;
+    }
+
     public void setConfiguration(final IntervalTreeConfiguration configuration) {
         this.configuration = configuration;
     }
 
+    public IntervalTreeConfiguration getConfiguration() {
+        return configuration;
+    }
+
     protected IntervalCollection getCollection() {
         final IntervalCollectionFactory factory = this.configuration.getFactory();
         if (factory == null) {
@@ -0,0 +1,277 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.intervals.IntervalKey;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+
+/**
+ * The binary snapshot format used to save an {@link IntervalTree} to a file (see {@link
+ * IntervalTreeBuilder#saveToFile(java.io.File, IntervalTree)}). A snapshot starts with a versioned header (see {@link
+ * #writeHeader(OutputStream)}), followed by the configuration of the tree and the nodes of the tree in pre-order.
+ * <p>
+ * In contrast to the Java serialization of the tree (see {@link IntervalTree#writeExternal(ObjectOutput)}), a node
+ * only consists of a flags byte, the endpoints, the key (only if it cannot be derived from the endpoints), and the
+ * collection (only if collections are written). The max, level, and height of a node are recalculated when the
+ * snapshot is read. Integral endpoints are written as zig-zag encoded variable-length deltas, i.e., the start is
+ * written relative to the start of the previously written node and the end relative to the start of the node.
+ * <p>
+ * An instance keeps the state needed to calculate the deltas, i.e., a new instance must be used for every snapshot.
+ */
+public class IntervalTreeSnapshot {
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = new byte[]{'B', 'I', 'T', 'S'};
+
+    private static final int FLAG_LEFT = 0x01;
+    private static final int FLAG_RIGHT = 0x02;
+    private static final int FLAG_KEY = 0x04;
+    private static final int START_TYPE_SHIFT = 3;
+    private static final int END_TYPE_SHIFT = 5;
+
+    private static final int TYPE_LONG = 0;
+    private static final int TYPE_INTEGER = 1;
+    private static final int TYPE_DOUBLE = 2;
+    private static final int TYPE_OBJECT = 3;
+
+    private long previousStart = 0L;
+
+    public static void writeHeader(final OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+    }
+
+    /**
+     * Reads the header of a snapshot from the specified stream. If the stream does not start with a header (e.g., the
+     * file was written using Java serialization by an earlier version), the stream is reset to the position it had
+     * prior to calling the method, thus the stream must support {@link InputStream#mark(int)}.
+     *
+     * @param in the stream to read from
+     *
+     * @return the version of the snapshot, or {@code -1} if the stream does not start with a snapshot header
+     *
+     * @throws IOException if the stream cannot be read, or the version of the snapshot is not supported
+     */
+    public static int readHeader(final InputStream in) throws IOException {
+        in.mark(MAGIC.length + 1);
+
+        for (final byte b : MAGIC) {
+            if (in.read() != b) {
+                in.reset();
+                return -1;
+            }
+        }
+
+        final int version = in.read();
+        if (version < 1 || version > VERSION) {
+            throw new StreamCorruptedException("Unsupported snapshot version: " + version);
+        }
+
+        return version;
+    }
+
+    public static void writeVarLong(final DataOutput out, final long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0L) {
+            out.writeByte((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.writeByte((int) remaining);
+    }
+
+    public static long readVarLong(final DataInput in) throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new StreamCorruptedException("Malformed variable-length value.");
+    }
+
+    public static void writeZigZag(final DataOutput out, final long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readZigZag(final DataInput in) throws IOException {
+        final long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1L);
+    }
+
+    /**
+     * Writes the specified {@code node} (without its children).
+     *
+     * @param out  the stream to write to
+     * @param node the node to be written
+     *
+     * @throws IOException if the node cannot be written
+     */
+    public void writeNode(final ObjectOutput out, final IntervalTreeNode node) throws IOException {
+        final Comparable start = node.getStart();
+        final Comparable end = node.getEnd();
+        final IntervalKey key = node.getKey();
+
+        final int startType = determineType(start);
+        final int endType = determineType(end);
+        final boolean derivable = isIntegral(startType) && isIntegral(endType) &&
+                key.equals(deriveKey(start, end));
+
+        int flags = startType << START_TYPE_SHIFT | endType << END_TYPE_SHIFT;
+        if (node.hasLeft()) {
+            flags |= FLAG_LEFT;
+        }
+        if (node.hasRight()) {
+            flags |= FLAG_RIGHT;
+        }
+        if (!derivable) {
+            flags |= FLAG_KEY;
+        }
+        out.writeByte(flags);
+
+        // write the start relative to the previous node, and the end relative to the start
+        final long base;
+        if (isIntegral(startType)) {
+            final long startValue = Number.class.cast(start).longValue();
+            writeZigZag(out, startValue - this.previousStart);
+
+            this.previousStart = startValue;
+            base = startValue;
+        } else {
+            writeValue(out, startType, start);
+            base = 0L;
+        }
+
+        if (isIntegral(endType)) {
+            writeZigZag(out, Number.class.cast(end).longValue() - base);
+        } else {
+            writeValue(out, endType, end);
+        }
+
+        if (!derivable) {
+            out.writeUTF(key.toString());
+        }
+
+        if (node.getConfiguration().isWritingCollectionsToFile()) {
+            node.writeCollection(out);
+        }
+    }
+
+    /**
+     * Reads a node (without its children), i.e., the node is initialized with the read endpoints and key, and the
+     * collection is read if collections are written. The returned flags can be checked using {@link
+     * #hasLeft(int)} and {@link #hasRight(int)}.
+     *
+     * @param in   the stream to read from
+     * @param node the node to be initialized, the configuration of the node must be set
+     *
+     * @return the flags of the read node
+     *
+     * @throws IOException            if the node cannot be read
+     * @throws ClassNotFoundException if the class of an endpoint or collection cannot be found
+     */
+    public int readNode(final ObjectInput in, final IntervalTreeNode node) throws IOException, ClassNotFoundException {
+        final int flags = in.readUnsignedByte();
+        final int startType = (flags >>> START_TYPE_SHIFT) & 0x03;
+        final int endType = (flags >>> END_TYPE_SHIFT) & 0x03;
+
+        final Comparable start;
+        final long base;
+        if (isIntegral(startType)) {
+            final long startValue = this.previousStart + readZigZag(in);
+            start = toIntegral(startType, startValue);
+
+            this.previousStart = startValue;
+            base = startValue;
+        } else {
+            start = readValue(in, startType);
+            base = 0L;
+        }
+
+        final Comparable end;
+        if (isIntegral(endType)) {
+            end = toIntegral(endType, base + readZigZag(in));
+        } else {
+            end = readValue(in, endType);
+        }
+
+        final IntervalKey key = (flags & FLAG_KEY) == 0 ? deriveKey(start, end) : IntervalKey.valueOf(in.readUTF());
+        node.init(key, start, end);
+
+        if (node.getConfiguration().isWritingCollectionsToFile()) {
+            node.readCollection(in);
+        }
+
+        return flags;
+    }
+
+    public static boolean hasLeft(final int flags) {
+        return (flags & FLAG_LEFT) != 0;
+    }
+
+    public static boolean hasRight(final int flags) {
+        return (flags & FLAG_RIGHT) != 0;
+    }
+
+    protected int determineType(final Comparable value) {
+        if (value instanceof Long) {
+            return TYPE_LONG;
+        } else if (value instanceof Integer) {
+            return TYPE_INTEGER;
+        } else if (value instanceof Double) {
+            return TYPE_DOUBLE;
+        } else {
+            return TYPE_OBJECT;
+        }
+    }
+
+    protected boolean isIntegral(final int type) {
+        return type == TYPE_LONG || type == TYPE_INTEGER;
+    }
+
+    protected Comparable toIntegral(final int type, final long value) {
+        if (type == TYPE_INTEGER) {
+            return (int) value;
+        } else {
+            return value;
+        }
+    }
+
+    protected void writeValue(final ObjectOutput out, final int type, final Comparable value) throws IOException {
+        if (type == TYPE_DOUBLE) {
+            out.writeDouble(Double.class.cast(value));
+        } else {
+            out.writeObject(value);
+        }
+    }
+
+    protected Comparable readValue(final ObjectInput in, final int type) throws IOException, ClassNotFoundException {
+        if (type == TYPE_DOUBLE) {
+            return in.readDouble();
+        } else {
+            return Comparable.class.cast(in.readObject());
+        }
+    }
+
+    /**
+     * Creates the key a {@code NumberInterval} with integral values uses (see {@link
+     * com.brein.time.timeintervals.intervals.NumberInterval#getIntervalKey()}).
+     *
+     * @param start the integral start
+     * @param end   the integral end
+     *
+     * @return the key
+     */
+    protected IntervalKey deriveKey(final Comparable start, final Comparable end) {
+        return IntervalKey.of(start, end);
+    }
+}
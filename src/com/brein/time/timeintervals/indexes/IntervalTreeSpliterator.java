@@ -0,0 +1,200 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.intervals.IInterval;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A {@code Spliterator} traversing the intervals of an {@link IntervalTree} in order (i.e., ordered by the nodes),
+ * which splits along the structure of the tree. The pending work is a sequence of entries, each entry being either a
+ * single node or a whole sub-tree. A split hands out the first half of the entries as prefix; if only one sub-tree is
+ * pending, the sub-tree is first expanded into its left sub-tree, its root, and its right sub-tree.
+ * <p>
+ * If created with a query range, the spliterator only returns the intervals overlapping with the range, sub-trees
+ * not containing any overlapping interval are pruned (using the max of the sub-tree) before they are expanded.
+ * <p>
+ * A spliterator over the whole tree is {@link #SIZED} until it is split the first time. The nodes do not know the
+ * amount of intervals within their sub-tree, thus the parts created by a split only provide an estimate.
+ */
+public class IntervalTreeSpliterator implements Spliterator<IInterval> {
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private final Comparable start;
+    private final Comparable end;
+
+    private Iterator<IInterval> current = Collections.emptyIterator();
+    private boolean sized;
+    private long estimate;
+
+    /**
+     * Creates a spliterator over all intervals of the tree with the specified {@code root}.
+     *
+     * @param root the root of the tree, can be {@code null}
+     * @param size the amount of intervals within the tree
+     */
+    public IntervalTreeSpliterator(final IntervalTreeNode root, final long size) {
+        this(root, null, null, size);
+        this.sized = true;
+    }
+
+    /**
+     * Creates a spliterator over all intervals of the tree with the specified {@code root} overlapping with {@code
+     * [start, end]}.
+     *
+     * @param root     the root of the tree, can be {@code null}
+     * @param start    the normalized start of the query
+     * @param end      the normalized end of the query
+     * @param estimate the estimated amount of overlapping intervals
+     */
+    public IntervalTreeSpliterator(final IntervalTreeNode root,
+                                   final Comparable start,
+                                   final Comparable end,
+                                   final long estimate) {
+        this.start = start;
+        this.end = end;
+        this.sized = false;
+        this.estimate = estimate;
+
+        if (root != null && containsCandidates(root)) {
+            this.entries.add(new Entry(root, true));
+        }
+    }
+
+    protected IntervalTreeSpliterator(final Comparable start,
+                                      final Comparable end,
+                                      final long estimate) {
+        this.start = start;
+        this.end = end;
+        this.sized = false;
+        this.estimate = estimate;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super IInterval> action) {
+        while (!this.current.hasNext()) {
+            final IntervalTreeNode node = nextNode();
+            if (node == null) {
+                return false;
+            }
+            this.current = node.getCollection().iterator();
+        }
+
+        action.accept(this.current.next());
+        if (this.sized) {
+            this.estimate--;
+        }
+
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super IInterval> action) {
+        this.current.forEachRemaining(action);
+
+        IntervalTreeNode node;
+        while ((node = nextNode()) != null) {
+            node.getCollection().forEach(action);
+        }
+
+        this.current = Collections.emptyIterator();
+        this.estimate = 0L;
+    }
+
+    @Override
+    public Spliterator<IInterval> trySplit() {
+
+        // expand a single sub-tree, so that there is something to split
+        while (this.entries.size() == 1 && this.entries.peekFirst().subtree) {
+            expand(this.entries.pollFirst());
+        }
+
+        final int nrOfEntries = this.entries.size();
+        if (nrOfEntries < 2 && !(nrOfEntries == 1 && this.current.hasNext())) {
+            return null;
+        }
+
+        // the prefix contains the current iterator and the first half of the entries
+        final IntervalTreeSpliterator prefix = new IntervalTreeSpliterator(this.start, this.end, this.estimate / 2);
+        prefix.current = this.current;
+        for (int i = 0; i < nrOfEntries / 2; i++) {
+            prefix.entries.addLast(this.entries.pollFirst());
+        }
+
+        this.current = Collections.emptyIterator();
+        this.estimate -= prefix.estimate;
+        this.sized = false;
+
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return this.estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | (this.sized ? SIZED : 0);
+    }
+
+    /**
+     * Determines the next node to be visited, expanding the pending sub-trees as needed.
+     *
+     * @return the next node, or {@code null} if no more nodes are pending
+     */
+    protected IntervalTreeNode nextNode() {
+        Entry entry;
+        while ((entry = this.entries.pollFirst()) != null) {
+            if (entry.subtree) {
+                expand(entry);
+            } else {
+                return entry.node;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Replaces the specified sub-tree with its left sub-tree, its root, and its right sub-tree (in that order), at the
+     * front of the pending entries. Parts not containing any overlapping interval are not added.
+     *
+     * @param entry the sub-tree to be expanded
+     */
+    protected void expand(final Entry entry) {
+        final IntervalTreeNode node = entry.node;
+        final boolean startsBeforeEnd = this.end == null || node.compare(node.getStart(), this.end) <= 0;
+
+        final IntervalTreeNode right = node.getRight();
+        if (right != null && startsBeforeEnd && containsCandidates(right)) {
+            this.entries.addFirst(new Entry(right, true));
+        }
+
+        if (startsBeforeEnd && (this.start == null || node.compare(node.getEnd(), this.start) >= 0)) {
+            this.entries.addFirst(new Entry(node, false));
+        }
+
+        final IntervalTreeNode left = node.getLeft();
+        if (left != null && containsCandidates(left)) {
+            this.entries.addFirst(new Entry(left, true));
+        }
+    }
+
+    protected boolean containsCandidates(final IntervalTreeNode subtree) {
+        return this.start == null || subtree.compare(subtree.getMax(), this.start) >= 0;
+    }
+
+    protected static class Entry {
+        private final IntervalTreeNode node;
+        private final boolean subtree;
+
+        protected Entry(final IntervalTreeNode node, final boolean subtree) {
+            this.node = node;
+            this.subtree = subtree;
+        }
+    }
+}
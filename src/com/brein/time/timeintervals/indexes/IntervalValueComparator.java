@@ -3,7 +3,6 @@ package com.brein.time.timeintervals.indexes;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Stream;
 
 @FunctionalInterface
 public interface IntervalValueComparator extends Serializable {
@@ -19,7 +18,7 @@ public interface IntervalValueComparator extends Serializable {
     );
 
     static int compareLongs(final Object o1, final Object o2) {
-        if (!Long.class.isAssignableFrom(o1.getClass()) || !Long.class.isAssignableFrom(o2.getClass())) {
+        if (!(o1 instanceof Long) || !(o2 instanceof Long)) {
             throw new IllegalArgumentException(String.format(ERROR_MSG, o1, o1.getClass(), o2, o2.getClass()));
         } else {
             return Long.class.cast(o1).compareTo(Long.class.cast(o2));
@@ -27,7 +26,7 @@ public interface IntervalValueComparator extends Serializable {
     }
 
     static int compareInts(final Object o1, final Object o2) {
-        if (!Integer.class.isAssignableFrom(o1.getClass()) || !Integer.class.isAssignableFrom(o2.getClass())) {
+        if (!(o1 instanceof Integer) || !(o2 instanceof Integer)) {
             throw new IllegalArgumentException(String.format(ERROR_MSG, o1, o1.getClass(), o2, o2.getClass()));
         } else {
             return Integer.class.cast(o1).compareTo(Integer.class.cast(o2));
@@ -35,34 +34,69 @@ public interface IntervalValueComparator extends Serializable {
     }
 
     static int compareDoubles(final Object o1, final Object o2) {
-        if (!Double.class.isAssignableFrom(o1.getClass()) || !Double.class.isAssignableFrom(o2.getClass())) {
+        if (!(o1 instanceof Double) || !(o2 instanceof Double)) {
             throw new IllegalArgumentException(String.format(ERROR_MSG, o1, o1.getClass(), o2, o2.getClass()));
         } else {
             return Double.class.cast(o1).compareTo(Double.class.cast(o2));
         }
     }
 
+    /**
+     * Compares two numbers of any type, numbers of different types are compared as the larger type of the two (see
+     * {@link #NUMBER_HIERARCHY}).
+     */
     static int compareNumbers(final Object o1, final Object o2) {
+        final Class<?> clazz1 = o1.getClass();
+        final Class<?> clazz2 = o2.getClass();
 
-        if (!Number.class.isAssignableFrom(o1.getClass()) || !Number.class.isAssignableFrom(o2.getClass())) {
-            throw new IllegalArgumentException(String.format(ERROR_MSG, o1, o1.getClass(), o2, o2.getClass()));
-        } else if (Comparable.class.isAssignableFrom(o1.getClass()) && o1.getClass().equals(o2.getClass())) {
+        if (!(o1 instanceof Number) || !(o2 instanceof Number)) {
+            throw new IllegalArgumentException(String.format(ERROR_MSG, o1, clazz1, o2, clazz2));
+        } else if (clazz1 == clazz2 && o1 instanceof Comparable) {
             //noinspection unchecked
             return Comparable.class.cast(o1).compareTo(o2);
+        }
+
+        final int type1 = NumberPromotion.typeOf(clazz1);
+        final int type2 = NumberPromotion.typeOf(clazz2);
+        if (type1 != NumberPromotion.UNKNOWN && type2 != NumberPromotion.UNKNOWN) {
+            return NumberPromotion.compare(Number.class.cast(o1), type1, Number.class.cast(o2), type2);
+        }
+
+        // numbers not part of the hierarchy are mapped to the known type
+        final Class<? extends Comparable> mappedClazz = NUMBER_HIERARCHY.get(Math.max(type1, type2));
+        final Comparable mappedO1 = mapNumberValue(o1, mappedClazz);
+        final Comparable mappedO2 = mapNumberValue(o2, mappedClazz);
+
+        //noinspection unchecked
+        return mappedO1.compareTo(mappedO2);
+    }
+
+    /**
+     * Compares two numbers like {@link #compareNumbers(Object, Object)}, but checks for two {@code Long} values first,
+     * i.e., the comparator used by a tree of {@code LongInterval} instances, which may still be queried with other
+     * types of intervals.
+     */
+    static int compareLongNumbers(final Object o1, final Object o2) {
+        if (o1.getClass() == Long.class && o2.getClass() == Long.class) {
+            return Long.compare(Long.class.cast(o1), Long.class.cast(o2));
         } else {
-            final int pos = Stream.of(o1.getClass(), o2.getClass())
-                    .map(NUMBER_HIERARCHY::indexOf)
-                    .filter(idx -> idx != -1)
-                    .mapToInt(idx -> idx)
-                    .max()
-                    .orElse(-1);
-            final Class<? extends Comparable> mappedClazz = NUMBER_HIERARCHY.get(pos);
+            return compareNumbers(o1, o2);
+        }
+    }
 
-            final Comparable mappedO1 = mapNumberValue(o1, mappedClazz);
-            final Comparable mappedO2 = mapNumberValue(o2, mappedClazz);
+    static int compareIntegerNumbers(final Object o1, final Object o2) {
+        if (o1.getClass() == Integer.class && o2.getClass() == Integer.class) {
+            return Integer.compare(Integer.class.cast(o1), Integer.class.cast(o2));
+        } else {
+            return compareNumbers(o1, o2);
+        }
+    }
 
-            //noinspection unchecked
-            return mappedO1.compareTo(mappedO2);
+    static int compareDoubleNumbers(final Object o1, final Object o2) {
+        if (o1.getClass() == Double.class && o2.getClass() == Double.class) {
+            return Double.compare(Double.class.cast(o1), Double.class.cast(o2));
+        } else {
+            return compareNumbers(o1, o2);
         }
     }
 
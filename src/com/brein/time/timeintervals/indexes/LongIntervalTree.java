@@ -0,0 +1,117 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.LongInterval;
+import com.brein.time.timeintervals.intervals.PrimitiveLongInterval;
+import com.brein.time.timeintervals.intervals.TimestampInterval;
+
+import java.util.function.Consumer;
+
+/**
+ * An {@code IntervalTree} specialized for intervals with integral values, e.g., {@link LongInterval} or {@link
+ * TimestampInterval}. The nodes of the tree keep the start, end, and max values as primitive {@code long} values, so
+ * that the tree neither has to box the values, nor has to use the configured {@link IntervalValueComparator} when
+ * adding, removing, finding, or querying for overlapping intervals.
+ * <p>
+ * The tree is created by the {@link IntervalTreeBuilder}, if the {@link IntervalTreeBuilder.IntervalType#LONG} or
+ * {@link IntervalTreeBuilder.IntervalType#TIMESTAMP} is used. Only intervals with integral normalized values can be
+ * added to the tree, nevertheless any {@code Number} based interval can be used to query the tree.
+ *
+ * @see LongIntervalTreeNode
+ */
+public class LongIntervalTree extends IntervalTree {
+
+    @Override
+    protected IntervalTreeNode newNode() {
+        return new LongIntervalTreeNode();
+    }
+
+    @Override
+    public void overlap(final IInterval query, final Consumer<IInterval> visitor) {
+        if (query instanceof PrimitiveLongInterval) {
+            final PrimitiveLongInterval longQuery = PrimitiveLongInterval.class.cast(query);
+            overlap(longQuery.getNormStartLong(), longQuery.getNormEndLong(), visitor);
+            return;
+        }
+
+        final long start = LongIntervalTreeNode.toLowerBound(query.getNormStart());
+        final long end = LongIntervalTreeNode.toUpperBound(query.getNormEnd());
+
+        overlap(start, end, visitor);
+    }
+
+    @Override
+    public void overlap(final long start, final long end, final Consumer<IInterval> visitor) {
+        final LongIntervalTreeNode root = LongIntervalTreeNode.class.cast(getRoot());
+        if (root == null) {
+            return;
+        }
+
+        final LongIntervalTreeNode[] stack = new LongIntervalTreeNode[(int) root.getHeight() + 1];
+        int pos = 0;
+        stack[pos++] = root;
+
+        while (pos > 0) {
+            final LongIntervalTreeNode node = stack[--pos];
+
+            if (node.getStartLong() <= end) {
+                if (node.getEndLong() >= start) {
+                    node.getCollection().forEach(visitor);
+                }
+
+                final LongIntervalTreeNode right = LongIntervalTreeNode.class.cast(node.getRight());
+                if (right != null && right.getMaxLong() >= start) {
+                    stack[pos++] = right;
+                }
+            }
+
+            final LongIntervalTreeNode left = LongIntervalTreeNode.class.cast(node.getLeft());
+            if (left != null && left.getMaxLong() >= start) {
+                stack[pos++] = left;
+            }
+        }
+    }
+
+    @Override
+    public void stab(final Comparable point, final Consumer<IInterval> visitor) {
+        if (LongIntervalTreeNode.isIntegral(point)) {
+            stab(LongIntervalTreeNode.toLong(point), visitor);
+        } else {
+
+            // a non-integral point is contained in all intervals containing its floor and ceiling
+            overlap(LongIntervalTreeNode.toLowerBound(point), LongIntervalTreeNode.toUpperBound(point), visitor);
+        }
+    }
+
+    @Override
+    public void stab(final long point, final Consumer<IInterval> visitor) {
+        final LongIntervalTreeNode root = LongIntervalTreeNode.class.cast(getRoot());
+        if (root == null) {
+            return;
+        }
+
+        final LongIntervalTreeNode[] stack = new LongIntervalTreeNode[(int) root.getHeight() + 1];
+        int pos = 0;
+        stack[pos++] = root;
+
+        while (pos > 0) {
+            final LongIntervalTreeNode node = stack[--pos];
+
+            if (node.getStartLong() <= point) {
+                if (node.getEndLong() >= point) {
+                    node.getCollection().forEach(visitor);
+                }
+
+                final LongIntervalTreeNode right = LongIntervalTreeNode.class.cast(node.getRight());
+                if (right != null && right.getMaxLong() >= point) {
+                    stack[pos++] = right;
+                }
+            }
+
+            final LongIntervalTreeNode left = LongIntervalTreeNode.class.cast(node.getLeft());
+            if (left != null && left.getMaxLong() >= point) {
+                stack[pos++] = left;
+            }
+        }
+    }
+}
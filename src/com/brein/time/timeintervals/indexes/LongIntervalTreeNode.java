@@ -0,0 +1,261 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.PrimitiveIntegerInterval;
+import com.brein.time.timeintervals.intervals.PrimitiveLongInterval;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * A node of a {@link LongIntervalTree}, which keeps the start, end, and max value as primitive {@code long} values.
+ * The node can only be initialized with intervals having integral (i.e., {@code Long}, {@code Integer}, {@code
+ * Short}, or {@code Byte}) normalized values. All comparisons with such intervals are done without using the
+ * configured {@link IntervalValueComparator}, intervals with primitive values (e.g., {@link PrimitiveLongInterval}) are
+ * compared without boxing.
+ */
+public class LongIntervalTreeNode extends IntervalTreeNode {
+    private long start;
+    private long end;
+    private long max;
+
+    // the boxed values are created lazily for the generic (i.e., comparable based) traversals and kept until changed
+    private Long boxedStart;
+    private Long boxedEnd;
+    private Long boxedMax;
+
+    public static boolean isIntegral(final Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    public static long toLong(final Object value) {
+        if (value instanceof Long) {
+            return Long.class.cast(value);
+        } else if (isIntegral(value)) {
+            return Number.class.cast(value).longValue();
+        } else {
+            throw new IllegalArgumentException(String.format("The value '%s (%s)' is not an integral value.",
+                    value, value == null ? null : value.getClass()));
+        }
+    }
+
+    /**
+     * Determines the smallest {@code long} value, which is larger or equal to the specified {@code value}.
+     *
+     * @param value the value to determine the lower bound for
+     *
+     * @return the smallest {@code long} value, which is larger or equal to {@code value}
+     */
+    public static long toLowerBound(final Object value) {
+        if (isIntegral(value)) {
+            return toLong(value);
+        } else if (value instanceof Number) {
+            return (long) Math.ceil(Number.class.cast(value).doubleValue());
+        } else {
+            throw new IllegalArgumentException(String.format("The value '%s (%s)' is not a number.",
+                    value, value == null ? null : value.getClass()));
+        }
+    }
+
+    /**
+     * Determines the largest {@code long} value, which is smaller or equal to the specified {@code value}.
+     *
+     * @param value the value to determine the upper bound for
+     *
+     * @return the largest {@code long} value, which is smaller or equal to {@code value}
+     */
+    public static long toUpperBound(final Object value) {
+        if (isIntegral(value)) {
+            return toLong(value);
+        } else if (value instanceof Number) {
+            return (long) Math.floor(Number.class.cast(value).doubleValue());
+        } else {
+            throw new IllegalArgumentException(String.format("The value '%s (%s)' is not a number.",
+                    value, value == null ? null : value.getClass()));
+        }
+    }
+
+    @Override
+    protected void initEndpoints(final Comparable start, final Comparable end) {
+        this.start = toLong(start);
+        this.end = toLong(end);
+        this.max = this.end;
+        resetBoxedValues();
+    }
+
+    @Override
+    public Comparable getStart() {
+        Long boxed = this.boxedStart;
+        if (boxed == null) {
+            boxed = this.start;
+            this.boxedStart = boxed;
+        }
+
+        return boxed;
+    }
+
+    @Override
+    public Comparable getEnd() {
+        Long boxed = this.boxedEnd;
+        if (boxed == null) {
+            boxed = this.end;
+            this.boxedEnd = boxed;
+        }
+
+        return boxed;
+    }
+
+    @Override
+    public Comparable getMax() {
+        Long boxed = this.boxedMax;
+        if (boxed == null) {
+            boxed = this.max;
+            this.boxedMax = boxed;
+        }
+
+        return boxed;
+    }
+
+    protected void resetBoxedValues() {
+        this.boxedStart = null;
+        this.boxedEnd = null;
+        this.boxedMax = null;
+    }
+
+    @Override
+    public int getPriority() {
+
+        // same as the hash of the boxed values, without boxing them
+        return scramble(31 * (31 + Long.hashCode(this.start)) + Long.hashCode(this.end));
+    }
+
+    public long getStartLong() {
+        return this.start;
+    }
+
+    public long getEndLong() {
+        return this.end;
+    }
+
+    public long getMaxLong() {
+        return this.max;
+    }
+
+    @Override
+    public void setMax(final Comparable max) {
+        setMax(toLong(max));
+    }
+
+    public void setMax(final long max) {
+        if (this.max == max) {
+            return;
+        }
+        this.max = max;
+        this.boxedMax = null;
+
+        if (hasParent()) {
+            getParent().updateMax();
+        }
+    }
+
+    @Override
+    protected boolean calculateMax() {
+        long max = this.end;
+        if (hasLeft()) {
+            max = Math.max(max, LongIntervalTreeNode.class.cast(getLeft()).max);
+        }
+        if (hasRight()) {
+            max = Math.max(max, LongIntervalTreeNode.class.cast(getRight()).max);
+        }
+
+        if (this.max == max) {
+            return false;
+        } else {
+            this.max = max;
+            this.boxedMax = null;
+            return true;
+        }
+    }
+
+    @Override
+    protected void resetMax() {
+        if (this.max != this.end) {
+            this.max = this.end;
+            this.boxedMax = null;
+        }
+    }
+
+    @Override
+    public int compareTo(final IntervalTreeNode node) {
+        if (node instanceof LongIntervalTreeNode) {
+            final LongIntervalTreeNode longNode = LongIntervalTreeNode.class.cast(node);
+            return compareTo(longNode.start, longNode.end);
+        } else {
+            return super.compareTo(node);
+        }
+    }
+
+    @Override
+    public int compareTo(final IInterval interval) {
+
+        // primitive intervals are compared without boxing their values
+        if (interval instanceof PrimitiveLongInterval) {
+            final PrimitiveLongInterval longInterval = PrimitiveLongInterval.class.cast(interval);
+            return compareTo(longInterval.getNormStartLong(), longInterval.getNormEndLong());
+        } else if (interval instanceof PrimitiveIntegerInterval) {
+            final PrimitiveIntegerInterval intInterval = PrimitiveIntegerInterval.class.cast(interval);
+            return compareTo(intInterval.getNormStartInt(), intInterval.getNormEndInt());
+        }
+
+        final Object start = interval.getNormStart();
+        final Object end = interval.getNormEnd();
+
+        if (isIntegral(start) && isIntegral(end)) {
+            return compareTo(toLong(start), toLong(end));
+        } else {
+            return super.compareTo(interval);
+        }
+    }
+
+    public int compareTo(final long start, final long end) {
+        final int cmpStart = Long.compare(this.start, start);
+        if (cmpStart == 0) {
+            return Long.compare(this.end, end);
+        } else {
+            return cmpStart;
+        }
+    }
+
+    /**
+     * Checks if the interval represented by {@code this} node overlaps with {@code [start, end]}.
+     *
+     * @param start the first included value of the interval
+     * @param end   the last included value of the interval
+     *
+     * @return {@code true} if the intervals overlap, otherwise {@code false}
+     */
+    public boolean overlaps(final long start, final long end) {
+        return this.start <= end && this.end >= start;
+    }
+
+    @Override
+    protected void writeEndpoints(final ObjectOutput out) throws IOException {
+        out.writeLong(this.start);
+        out.writeLong(this.end);
+        out.writeLong(this.max);
+    }
+
+    @Override
+    protected void readEndpoints(final ObjectInput in) throws IOException, ClassNotFoundException {
+        this.start = in.readLong();
+        this.end = in.readLong();
+        this.max = in.readLong();
+        resetBoxedValues();
+    }
+
+    @Override
+    protected IntervalTreeNode createChildNode() {
+        return new LongIntervalTreeNode();
+    }
+}
@@ -0,0 +1,631 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.exceptions.FailedIO;
+import com.brein.time.timeintervals.collections.IntervalCollectionPersistor;
+import com.brein.time.timeintervals.filters.IntervalFilter;
+import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.IntervalKey;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A read-only interval tree, which answers queries directly from a memory-mapped file (see {@link
+ * FileChannel#map(FileChannel.MapMode, long, long)}). The file is created from an {@link IntervalTree} using {@link
+ * #write(File, IntervalTree)} and opened using {@link #open(File, IntervalCollectionPersistor)} or {@link
+ * IntervalTreeBuilder#buildMapped()}. Opening the file does not read the nodes, thus it is instant, and the pages of
+ * the file are shared (using the page cache of the OS) by all processes opening the same file.
+ * <p>
+ * The file consists of a header (including the configuration of the tree), a node region, and a payload region. The
+ * nodes are stored in pre-order (i.e., the root is the first node) at a fixed stride of {@link #NODE_STRIDE} bytes:
+ * <pre>
+ *     start (8) | end (8) | max (8) | left (4) | right (4) | payload offset (8)
+ * </pre>
+ * The endpoints are encoded using an {@link EndpointEncoding}, i.e., {@code long} values if all endpoints of the tree
+ * are integral, otherwise order-preserving bit representations of their {@code double} values, thus a node is always
+ * compared using {@code long} comparisons. The payload of a node contains the binary key of the node (see {@link
+ * IntervalKey#toBytes()}), which is read directly from the mapped file, and (if collections are written, see {@link
+ * IntervalTreeConfiguration#isWritingCollectionsToFile()}) the serialized collection of the node, which is only
+ * deserialized if the node is part of a result. Otherwise, the collection is loaded using the configured factory,
+ * e.g., using a persistor.
+ * <p>
+ * The tree keeps the file open until it is closed (see {@link #close()}).
+ */
+public class MappedIntervalTree implements Iterable<IInterval>, Closeable {
+    public static final int VERSION = 1;
+    public static final int NODE_STRIDE = 40;
+
+    private static final byte[] MAGIC = new byte[]{'B', 'I', 'T', 'M'};
+    private static final int HEADER_SIZE = MAGIC.length + 4 + 4 + 4 + 8 + 8 + 4;
+    private static final int CHUNK_SIZE = 1 << 30;
+    private static final int NODES_PER_CHUNK = CHUNK_SIZE / NODE_STRIDE;
+    private static final int NO_CHILD = -1;
+
+    private static final int START = 0;
+    private static final int END = 8;
+    private static final int MAX = 16;
+    private static final int LEFT = 24;
+    private static final int RIGHT = 28;
+    private static final int PAYLOAD = 32;
+
+    private final File file;
+    private final FileChannel channel;
+
+    private final IntervalTreeConfiguration configuration;
+    private final EndpointEncoding encoding;
+    private final int height;
+    private final long nodeCount;
+    private final long size;
+
+    private final ByteBuffer[] nodeChunks;
+    private final ByteBuffer[] payloadChunks;
+
+    private volatile boolean closed = false;
+
+    protected MappedIntervalTree(final File file,
+                                 final FileChannel channel,
+                                 final IntervalTreeConfiguration configuration,
+                                 final EndpointEncoding encoding,
+                                 final int height,
+                                 final long nodeCount,
+                                 final long size,
+                                 final ByteBuffer[] nodeChunks,
+                                 final ByteBuffer[] payloadChunks) {
+        this.file = file;
+        this.channel = channel;
+        this.configuration = configuration;
+        this.encoding = encoding;
+        this.height = height;
+        this.nodeCount = nodeCount;
+        this.size = size;
+        this.nodeChunks = nodeChunks;
+        this.payloadChunks = payloadChunks;
+    }
+
+    /**
+     * Writes the specified {@code tree} to the specified {@code file}, so that it can be opened as {@code
+     * MappedIntervalTree}. The endpoints of the tree must be {@code Number} instances.
+     *
+     * @param file the file to write to
+     * @param tree the tree to be written
+     *
+     * @throws FailedIO if the file cannot be written
+     */
+    public static void write(final File file, final IntervalTree tree) throws FailedIO {
+        final IntervalTreeNode root = tree.getRoot();
+
+        // determine the amount of nodes and the encoding to be used
+        long nodeCount = 0L;
+        EndpointEncoding encoding = EndpointEncoding.LONG;
+        for (final Iterator<IntervalTreeNode> it = tree.nodeIterator(); it.hasNext(); ) {
+            final IntervalTreeNode node = it.next();
+            encoding = EndpointEncoding.determine(encoding, node.getStart(), node.getEnd());
+            nodeCount++;
+        }
+        if (nodeCount > (long) Integer.MAX_VALUE) {
+            throw new FailedIO("The tree has too many nodes to be mapped: " + nodeCount);
+        }
+
+        final File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            if (!parent.mkdirs()) {
+                throw new FailedIO("Could not create parent directory: " + parent);
+            }
+        }
+
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final byte[] configuration = serializeConfiguration(tree.getConfiguration());
+            final long nodesOffset = align(HEADER_SIZE + configuration.length);
+            final long payloadOffset = nodesOffset + nodeCount * NODE_STRIDE;
+
+            // write the header
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + configuration.length);
+            header.put(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(encoding.ordinal())
+                    .putInt(root == null ? 0 : (int) root.getHeight())
+                    .putLong(nodeCount)
+                    .putLong(tree.size())
+                    .putInt(configuration.length)
+                    .put(configuration);
+            header.flip();
+            writeFully(channel, header, 0L);
+
+            if (root != null) {
+                channel.position(payloadOffset);
+                final OutputStream payloadOut = new BufferedOutputStream(Channels.newOutputStream(channel));
+                writeNodes(channel, nodesOffset, payloadOut, root, encoding);
+                payloadOut.flush();
+            }
+        } catch (final IOException e) {
+            throw new FailedIO("Could not write the mapped tree to the file: " + file, e);
+        }
+    }
+
+    protected static void writeNodes(final FileChannel channel,
+                                     final long nodesOffset,
+                                     final OutputStream payloadOut,
+                                     final IntervalTreeNode root,
+                                     final EndpointEncoding encoding) throws IOException {
+        final ByteBuffer records = ByteBuffer.allocate(1024 * NODE_STRIDE);
+        final ByteBuffer link = ByteBuffer.allocate(4);
+        long recordsOffset = nodesOffset;
+        long payloadPosition = 0L;
+
+        // the stack contains the nodes to be written, together with the index of the parent to link the node to
+        final IntervalTreeNode[] stack = new IntervalTreeNode[(int) root.getHeight() + 1];
+        final int[] parents = new int[stack.length];
+        int pos = 0;
+        stack[pos] = root;
+        parents[pos++] = NO_CHILD;
+
+        int index = 0;
+        while (pos > 0) {
+            final IntervalTreeNode node = stack[--pos];
+            final int parent = parents[pos];
+
+            // the index of a right child is only known once the whole left sub-tree of the parent is written
+            if (parent != NO_CHILD && node.determineChildType() == IntervalTreeNodeChildType.RIGHT) {
+                final long linkPosition = nodesOffset + (long) parent * NODE_STRIDE + RIGHT;
+
+                if (linkPosition >= recordsOffset) {
+                    records.putInt((int) (linkPosition - recordsOffset), index);
+                } else {
+                    link.clear();
+                    link.putInt(index).flip();
+                    writeFully(channel, link, linkPosition);
+                }
+            }
+
+            final byte[] payload = serializePayload(node);
+            if ((payloadPosition % CHUNK_SIZE) + 4 + payload.length > CHUNK_SIZE) {
+                if (4 + payload.length > CHUNK_SIZE) {
+                    throw new IOException("The payload of the node '" + node + "' is too large.");
+                }
+
+                // payloads never span several chunks
+                final long padding = CHUNK_SIZE - (payloadPosition % CHUNK_SIZE);
+                for (long i = 0; i < padding; i++) {
+                    payloadOut.write(0);
+                }
+                payloadPosition += padding;
+            }
+
+            records.putLong(encoding.encode(node.getStart()))
+                    .putLong(encoding.encode(node.getEnd()))
+                    .putLong(encoding.encode(node.getMax()))
+                    .putInt(node.hasLeft() ? index + 1 : NO_CHILD)
+                    .putInt(NO_CHILD)
+                    .putLong(payloadPosition);
+            if (!records.hasRemaining()) {
+                records.flip();
+                recordsOffset += writeFully(channel, records, recordsOffset);
+                records.clear();
+            }
+
+            payloadOut.write(payload.length >>> 24);
+            payloadOut.write(payload.length >>> 16);
+            payloadOut.write(payload.length >>> 8);
+            payloadOut.write(payload.length);
+            payloadOut.write(payload);
+            payloadPosition += 4 + payload.length;
+
+            if (node.hasRight()) {
+                stack[pos] = node.getRight();
+                parents[pos++] = index;
+            }
+            if (node.hasLeft()) {
+                stack[pos] = node.getLeft();
+                parents[pos++] = index;
+            }
+
+            index++;
+        }
+
+        records.flip();
+        writeFully(channel, records, recordsOffset);
+    }
+
+    /**
+     * Opens the specified file, written by {@link #write(File, IntervalTree)}, as read-only tree.
+     *
+     * @param file      the file to open
+     * @param persistor the persistor to be used by the factory of the tree, can be {@code null}
+     *
+     * @return the opened tree, which must be closed when not needed anymore
+     *
+     * @throws FailedIO if the file cannot be opened
+     */
+    public static MappedIntervalTree open(final File file,
+                                          final IntervalCollectionPersistor persistor) throws FailedIO {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0L);
+            header.flip();
+
+            for (final byte b : MAGIC) {
+                if (header.get() != b) {
+                    throw new FailedIO("The file is not a mapped tree: " + file);
+                }
+            }
+
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new FailedIO("Unsupported version '" + version + "' of the mapped tree: " + file);
+            }
+
+            final EndpointEncoding encoding = EndpointEncoding.values()[header.getInt()];
+            final int height = header.getInt();
+            final long nodeCount = header.getLong();
+            final long size = header.getLong();
+
+            final ByteBuffer configurationBuffer = ByteBuffer.allocate(header.getInt());
+            readFully(channel, configurationBuffer, HEADER_SIZE);
+            final IntervalTreeConfiguration configuration = deserializeConfiguration(configurationBuffer.array());
+            configuration.setPersistor(persistor);
+
+            final long nodesOffset = align(HEADER_SIZE + configurationBuffer.capacity());
+            final long payloadOffset = nodesOffset + nodeCount * NODE_STRIDE;
+
+            return new MappedIntervalTree(file, channel, configuration, encoding, height, nodeCount, size,
+                    map(channel, nodesOffset, nodeCount * NODE_STRIDE, (long) NODES_PER_CHUNK * NODE_STRIDE),
+                    map(channel, payloadOffset, Math.max(0L, channel.size() - payloadOffset), CHUNK_SIZE));
+        } catch (final IOException | ClassNotFoundException | RuntimeException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (final IOException ignore) {
+                    // the original exception is thrown
+                }
+            }
+
+            if (e instanceof FailedIO) {
+                throw FailedIO.class.cast(e);
+            } else {
+                throw new FailedIO("Could not open the mapped tree from the file: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Closes the file of {@code this} tree, the tree cannot be queried anymore. The mapped regions are released, when
+     * the tree is garbage collected, i.e., queries already running when the tree is closed still finish.
+     *
+     * @throws FailedIO if the file cannot be closed
+     */
+    @Override
+    public void close() throws FailedIO {
+        this.closed = true;
+
+        try {
+            this.channel.close();
+        } catch (final IOException e) {
+            throw new FailedIO("Could not close the mapped tree: " + this.file, e);
+        }
+    }
+
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    protected void checkOpen() throws FailedIO {
+        if (this.closed) {
+            throw new FailedIO("The mapped tree is closed: " + this.file);
+        }
+    }
+
+    public Collection<IInterval> find(final IInterval query) {
+        return find(query, this.configuration.getIntervalFilter());
+    }
+
+    public Collection<IInterval> find(final IInterval query, final IntervalFilter filter) {
+        checkOpen();
+
+        final Long start = this.encoding.encodeExact(query.getNormStart());
+        final Long end = this.encoding.encodeExact(query.getNormEnd());
+        if (start == null || end == null || this.nodeCount == 0L) {
+            return Collections.emptyList();
+        }
+
+        int index = 0;
+        while (index != NO_CHILD) {
+            final int cmpStart = Long.compare(getLong(index, START), start);
+            final int cmp = cmpStart == 0 ? Long.compare(getLong(index, END), end) : cmpStart;
+
+            if (cmp == 0) {
+                return createNode(index).find(query, filter);
+            } else if (cmp < 0) {
+                index = getInt(index, RIGHT);
+            } else {
+                index = getInt(index, LEFT);
+            }
+        }
+
+        return Collections.emptyList();
+    }
+
+    public List<IInterval> overlap(final IInterval query) {
+        final List<IInterval> result = new ArrayList<>();
+        overlap(query, result::add);
+        return result;
+    }
+
+    public Stream<IInterval> overlapStream(final IInterval query) {
+        return overlap(query).stream();
+    }
+
+    /**
+     * Visits all intervals overlapping with the specified {@code query}, in the same order as the {@link IntervalTree}
+     * the file was written from would (see {@link IntervalTree#overlap(IInterval, Consumer)}).
+     *
+     * @param query   the interval to query for
+     * @param visitor the consumer called for every overlapping interval
+     */
+    public void overlap(final IInterval query, final Consumer<IInterval> visitor) {
+        checkOpen();
+        if (this.nodeCount == 0L) {
+            return;
+        }
+
+        final long start = this.encoding.encodeLowerBound(query.getNormStart());
+        final long end = this.encoding.encodeUpperBound(query.getNormEnd());
+
+        final int[] stack = new int[this.height + 1];
+        int pos = 0;
+        stack[pos++] = 0;
+
+        while (pos > 0) {
+            final int index = stack[--pos];
+
+            if (getLong(index, START) <= end) {
+                if (getLong(index, END) >= start) {
+                    createNode(index).getCollection().forEach(visitor);
+                }
+
+                final int right = getInt(index, RIGHT);
+                if (right != NO_CHILD && getLong(right, MAX) >= start) {
+                    stack[pos++] = right;
+                }
+            }
+
+            final int left = getInt(index, LEFT);
+            if (left != NO_CHILD && getLong(left, MAX) >= start) {
+                stack[pos++] = left;
+            }
+        }
+    }
+
+    /**
+     * Iterates over the intervals of the tree, ordered by the nodes (in pre-order), i.e., not sorted.
+     *
+     * @return an iterator over all intervals of the tree
+     */
+    @Override
+    public Iterator<IInterval> iterator() {
+        checkOpen();
+
+        return new Iterator<IInterval>() {
+            private int index = 0;
+            private Iterator<IInterval> nodeIt = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!this.nodeIt.hasNext() && this.index < nodeCount) {
+                    this.nodeIt = createNode(this.index++).getCollection().iterator();
+                }
+
+                return this.nodeIt.hasNext();
+            }
+
+            @Override
+            public IInterval next() {
+                hasNext();
+                return this.nodeIt.next();
+            }
+        };
+    }
+
+    public long size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0L;
+    }
+
+    public long getNodeCount() {
+        return this.nodeCount;
+    }
+
+    public IntervalTreeConfiguration getConfiguration() {
+        return this.configuration;
+    }
+
+    protected long getLong(final int index, final int field) {
+        return this.nodeChunks[index / NODES_PER_CHUNK].getLong((index % NODES_PER_CHUNK) * NODE_STRIDE + field);
+    }
+
+    protected int getInt(final int index, final int field) {
+        return this.nodeChunks[index / NODES_PER_CHUNK].getInt((index % NODES_PER_CHUNK) * NODE_STRIDE + field);
+    }
+
+    /**
+     * Creates a detached {@code IntervalTreeNode} for the node at the specified {@code index}, the node is initialized
+     * with the key read directly from the payload and the endpoints of the node. The collection is only deserialized,
+     * if it is written to the file.
+     *
+     * @param index the index of the node
+     *
+     * @return the created node
+     */
+    protected IntervalTreeNode createNode(final int index) {
+        final long offset = getLong(index, PAYLOAD);
+        final ByteBuffer chunk = this.payloadChunks[(int) (offset / CHUNK_SIZE)];
+        final int position = (int) (offset % CHUNK_SIZE);
+
+        final IntervalTreeNode node = new IntervalTreeNode();
+        node.setConfiguration(this.configuration);
+
+        final Comparable start = this.encoding.decode(getLong(index, START));
+        final Comparable end = this.encoding.decode(getLong(index, END));
+        // the payload is the length, the length of the key, the key, and the collection
+        final int length = chunk.getInt(position);
+        final int keyLength = chunk.getInt(position + 4);
+        node.init(IntervalKey.fromBytes(chunk, position + 8, keyLength), start, end);
+
+        if (this.configuration.isWritingCollectionsToFile()) {
+            final ByteBuffer collection = chunk.duplicate();
+            collection.limit(position + 4 + length).position(position + 8 + keyLength);
+
+            try (final ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(collection))) {
+                node.readCollection(in);
+            } catch (final IOException | ClassNotFoundException e) {
+                throw new FailedIO("Could not read the collection of the node: " + index, e);
+            }
+        }
+
+        return node;
+    }
+
+    protected static byte[] serializePayload(final IntervalTreeNode node) throws IOException {
+        final ByteBuffer key = node.getKey().toBytes();
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(key.remaining());
+        out.write(key.array(), key.arrayOffset() + key.position(), key.remaining());
+        out.flush();
+
+        if (node.getConfiguration().isWritingCollectionsToFile()) {
+            try (final ObjectOutputStream collectionOut = new ObjectOutputStream(bytes)) {
+                node.writeCollection(collectionOut);
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    protected static byte[] serializeConfiguration(final IntervalTreeConfiguration configuration) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            configuration.writeExternal(out);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    protected static IntervalTreeConfiguration deserializeConfiguration(final byte[] bytes)
+            throws IOException, ClassNotFoundException {
+        final IntervalTreeConfiguration configuration = new IntervalTreeConfiguration();
+        try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            configuration.readExternal(in);
+        }
+
+        return configuration;
+    }
+
+    protected static ByteBuffer[] map(final FileChannel channel,
+                                      final long offset,
+                                      final long length,
+                                      final long chunkSize) throws IOException {
+        final int nrOfChunks = (int) ((length + chunkSize - 1) / chunkSize);
+        final ByteBuffer[] chunks = new ByteBuffer[nrOfChunks];
+
+        for (int i = 0; i < nrOfChunks; i++) {
+            final long chunkOffset = i * chunkSize;
+            final MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, offset + chunkOffset,
+                    Math.min(chunkSize, length - chunkOffset));
+            chunks[i] = chunk.order(ByteOrder.BIG_ENDIAN);
+        }
+
+        return chunks;
+    }
+
+    /**
+     * An {@code InputStream} reading the remaining bytes of a buffer, without copying them.
+     */
+    protected static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        public ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) {
+            if (length == 0) {
+                return 0;
+            } else if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+
+            final int read = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+
+    protected static long align(final long position) {
+        return (position + 7L) & ~7L;
+    }
+
+    protected static long writeFully(final FileChannel channel,
+                                     final ByteBuffer buffer,
+                                     final long position) throws IOException {
+        long written = 0L;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+
+        return written;
+    }
+
+    protected static void readFully(final FileChannel channel,
+                                    final ByteBuffer buffer,
+                                    final long position) throws IOException {
+        long read = 0L;
+        while (buffer.hasRemaining()) {
+            final int current = channel.read(buffer, position + read);
+            if (current < 0) {
+                throw new IOException("Unexpected end of file.");
+            }
+            read += current;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.brein.time.timeintervals.indexes;
+
+/**
+ * The comparison of two numbers of different types (see {@link IntervalValueComparator#compareNumbers(Object,
+ * Object)}). The number of each type of the {@link IntervalValueComparator#NUMBER_HIERARCHY} is promoted to the larger
+ * type of the two, the promotion is looked up in a table, i.e., no values are boxed. Two integral values of any type
+ * are compared as {@code long} (which is equal to the comparison as the larger type), floating point values are
+ * compared as {@code float} or {@code double}.
+ */
+final class NumberPromotion {
+    static final int UNKNOWN = -1;
+
+    private static final int INTEGRAL = 0;
+    private static final int FLOAT = 1;
+    private static final int DOUBLE = 2;
+
+    private static final int BYTE_IDX = IntervalValueComparator.NUMBER_HIERARCHY.indexOf(Byte.class);
+    private static final int SHORT_IDX = IntervalValueComparator.NUMBER_HIERARCHY.indexOf(Short.class);
+    private static final int INTEGER_IDX = IntervalValueComparator.NUMBER_HIERARCHY.indexOf(Integer.class);
+    private static final int LONG_IDX = IntervalValueComparator.NUMBER_HIERARCHY.indexOf(Long.class);
+    private static final int FLOAT_IDX = IntervalValueComparator.NUMBER_HIERARCHY.indexOf(Float.class);
+    private static final int DOUBLE_IDX = IntervalValueComparator.NUMBER_HIERARCHY.indexOf(Double.class);
+
+    private static final int[][] PROMOTION;
+
+    static {
+        final int size = IntervalValueComparator.NUMBER_HIERARCHY.size();
+
+        PROMOTION = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int k = 0; k < size; k++) {
+                final int promoted = Math.max(i, k);
+                if (promoted == DOUBLE_IDX) {
+                    PROMOTION[i][k] = DOUBLE;
+                } else if (promoted == FLOAT_IDX) {
+                    PROMOTION[i][k] = FLOAT;
+                } else {
+                    PROMOTION[i][k] = INTEGRAL;
+                }
+            }
+        }
+    }
+
+    private NumberPromotion() {
+        /*
+         * Utility classes, which are a collection of static members,
+         * are not meant to be instantiated.
+         */
+    }
+
+    /**
+     * Gets the position of the specified {@code clazz} within the {@link IntervalValueComparator#NUMBER_HIERARCHY},
+     * without searching the list.
+     *
+     * @param clazz the class to get the position for
+     *
+     * @return the position, or {@link #UNKNOWN} if the class is not part of the hierarchy
+     */
+    static int typeOf(final Class<?> clazz) {
+        if (clazz == Long.class) {
+            return LONG_IDX;
+        } else if (clazz == Integer.class) {
+            return INTEGER_IDX;
+        } else if (clazz == Double.class) {
+            return DOUBLE_IDX;
+        } else if (clazz == Float.class) {
+            return FLOAT_IDX;
+        } else if (clazz == Short.class) {
+            return SHORT_IDX;
+        } else if (clazz == Byte.class) {
+            return BYTE_IDX;
+        } else {
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * Compares the two numbers of the specified types, both types must be known.
+     */
+    static int compare(final Number n1, final int type1, final Number n2, final int type2) {
+        switch (PROMOTION[type1][type2]) {
+            case DOUBLE:
+                return Double.compare(n1.doubleValue(), n2.doubleValue());
+            case FLOAT:
+                return Float.compare(n1.floatValue(), n2.floatValue());
+            default:
+                return Long.compare(n1.longValue(), n2.longValue());
+        }
+    }
+}
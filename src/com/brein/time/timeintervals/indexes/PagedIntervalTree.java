@@ -0,0 +1,453 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.exceptions.FailedIO;
+import com.brein.time.timeintervals.collections.IntervalCollectionPersistor;
+import com.brein.time.timeintervals.intervals.IInterval;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only interval tree, whose nodes are loaded lazily from a paged file. The file is created from an {@link
+ * IntervalTree} using {@link #write(File, IntervalTree, int)} and opened using {@link #open(File,
+ * IntervalCollectionPersistor)} or {@link IntervalTreeBuilder#buildPaged()}. Opening the file only reads the header
+ * and the root page, thus it is nearly instant even for huge trees.
+ * <p>
+ * A page contains a sub-tree of at most {@code pageDepth} levels, the nodes of a page are written in pre-order using
+ * the node format of {@link IntervalTreeSnapshot}, together with the max and the height of every node and the offsets
+ * of the pages below the page. A page is read when a child being the root of the page is accessed for the first time
+ * (see {@link PagedIntervalTreeNode}) and is kept in a cache of soft references, i.e., the pages not used anymore are
+ * evicted by the garbage collector under memory pressure and read again when needed. A node keeps a strong reference
+ * to its parent, thus the pages above a node in use are never evicted, and only the part of the tree being queried
+ * (e.g., the recent part of the time-line) occupies the heap.
+ * <p>
+ * The tree supports all queries of an {@link IntervalTree}, queries visiting the whole tree (e.g., iterating the tree
+ * or the aggregates, see {@link IntervalTreeNode#getAggregate(IntervalTreeAggregator)}) load all the pages. The
+ * collections of the nodes of a page are read with the page if collections are written (see {@link
+ * IntervalTreeConfiguration#isWritingCollectionsToFile()}), otherwise they are loaded using the configured factory.
+ * The file is kept open until the tree is closed.
+ */
+public class PagedIntervalTree extends IntervalTree implements Closeable {
+    public static final int VERSION = 1;
+    public static final int DEFAULT_PAGE_DEPTH = 7;
+    public static final long NO_PAGE = -1L;
+
+    private static final byte[] MAGIC = new byte[]{'B', 'I', 'T', 'P'};
+    private static final int HEADER_SIZE = MAGIC.length + 4 + 4 + 8 + 8 + 4;
+
+    private final Map<Long, PageReference> pages = new HashMap<>();
+    private final ReferenceQueue<IntervalTreeNode> evicted = new ReferenceQueue<>();
+
+    private final File file;
+    private final FileChannel channel;
+    private final int pageDepth;
+
+    private long pageReads = 0L;
+
+    protected PagedIntervalTree(final File file,
+                                final FileChannel channel,
+                                final IntervalTreeConfiguration configuration,
+                                final int pageDepth) {
+        this.file = file;
+        this.channel = channel;
+        this.pageDepth = pageDepth;
+
+        setConfiguration(configuration);
+    }
+
+    /**
+     * Writes the specified {@code tree} to the specified {@code file} using pages of {@link #DEFAULT_PAGE_DEPTH}
+     * levels, see {@link #write(File, IntervalTree, int)}.
+     *
+     * @param file the file to write to
+     * @param tree the tree to be written
+     *
+     * @throws FailedIO if the file cannot be written
+     */
+    public static void write(final File file, final IntervalTree tree) throws FailedIO {
+        write(file, tree, DEFAULT_PAGE_DEPTH);
+    }
+
+    /**
+     * Writes the specified {@code tree} to the specified {@code file}, so that it can be opened as {@code
+     * PagedIntervalTree}. The pages are written bottom-up, i.e., the offsets of the pages below a page are known when
+     * the page is written, and the root page is the last page of the file.
+     *
+     * @param file      the file to write to
+     * @param tree      the tree to be written
+     * @param pageDepth the maximal amount of levels of a page, i.e., a page contains at most {@code 2^pageDepth - 1}
+     *                  nodes
+     *
+     * @throws FailedIO if the file cannot be written
+     */
+    public static void write(final File file, final IntervalTree tree, final int pageDepth) throws FailedIO {
+        if (pageDepth < 1) {
+            throw new IllegalArgumentException("The depth of a page must be positive, but was: " + pageDepth);
+        }
+
+        final File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            if (!parent.mkdirs()) {
+                throw new FailedIO("Could not create parent directory: " + parent);
+            }
+        }
+
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final byte[] configuration = MappedIntervalTree.serializeConfiguration(tree.getConfiguration());
+            MappedIntervalTree.writeFully(channel, ByteBuffer.wrap(configuration), HEADER_SIZE);
+
+            final IntervalTreeNode root = tree.getRoot();
+            final long rootOffset = root == null ? NO_PAGE : writePage(channel, root, pageDepth);
+
+            // the header is written last, when the offset of the root page is known
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.put(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(pageDepth)
+                    .putLong(tree.size())
+                    .putLong(rootOffset)
+                    .putInt(configuration.length);
+            header.flip();
+            MappedIntervalTree.writeFully(channel, header, 0L);
+        } catch (final IOException e) {
+            throw new FailedIO("Could not write the paged tree to the file: " + file, e);
+        }
+    }
+
+    /**
+     * Writes the page of the specified {@code root} (after the pages below it) to the end of the file.
+     *
+     * @param channel   the channel to write to
+     * @param root      the root of the page
+     * @param pageDepth the maximal amount of levels of a page
+     *
+     * @return the offset of the written page
+     *
+     * @throws IOException if the page cannot be written
+     */
+    protected static long writePage(final FileChannel channel,
+                                    final IntervalTreeNode root,
+                                    final int pageDepth) throws IOException {
+        final Map<IntervalTreeNode, Long> children = new IdentityHashMap<>();
+        writeChildPages(channel, root, 1, pageDepth, children);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            writeNodes(out, new IntervalTreeSnapshot(), root, 1, pageDepth, children);
+        }
+
+        final ByteBuffer page = ByteBuffer.allocate(4 + bytes.size());
+        page.putInt(bytes.size()).put(bytes.toByteArray()).flip();
+
+        final long offset = channel.size();
+        MappedIntervalTree.writeFully(channel, page, offset);
+
+        return offset;
+    }
+
+    protected static void writeChildPages(final FileChannel channel,
+                                          final IntervalTreeNode node,
+                                          final int level,
+                                          final int pageDepth,
+                                          final Map<IntervalTreeNode, Long> children) throws IOException {
+        for (final IntervalTreeNode child : new IntervalTreeNode[]{node.getLeft(), node.getRight()}) {
+            if (child == null) {
+                continue;
+            } else if (level == pageDepth) {
+                children.put(child, writePage(channel, child, pageDepth));
+            } else {
+                writeChildPages(channel, child, level + 1, pageDepth, children);
+            }
+        }
+    }
+
+    protected static void writeNodes(final ObjectOutput out,
+                                     final IntervalTreeSnapshot snapshot,
+                                     final IntervalTreeNode node,
+                                     final int level,
+                                     final int pageDepth,
+                                     final Map<IntervalTreeNode, Long> children) throws IOException {
+        snapshot.writeNode(out, node);
+
+        // the max is mostly the end of the node, i.e., it is only written if it differs
+        final boolean endIsMax = node.compare(node.getMax(), node.getEnd()) == 0;
+        out.writeBoolean(endIsMax);
+        if (!endIsMax) {
+            out.writeObject(node.getMax());
+        }
+        IntervalTreeSnapshot.writeVarLong(out, node.getHeight());
+
+        if (level == pageDepth) {
+            out.writeLong(node.hasLeft() ? children.get(node.getLeft()) : NO_PAGE);
+            out.writeLong(node.hasRight() ? children.get(node.getRight()) : NO_PAGE);
+        } else {
+            if (node.hasLeft()) {
+                writeNodes(out, snapshot, node.getLeft(), level + 1, pageDepth, children);
+            }
+            if (node.hasRight()) {
+                writeNodes(out, snapshot, node.getRight(), level + 1, pageDepth, children);
+            }
+        }
+    }
+
+    /**
+     * Opens the specified file, written by {@link #write(File, IntervalTree, int)}, as read-only tree. Only the header
+     * and the root page are read, the file is kept open until the tree is closed.
+     *
+     * @param file      the file to open
+     * @param persistor the persistor to be used by the factory of the tree, can be {@code null}
+     *
+     * @return the opened tree
+     *
+     * @throws FailedIO if the file cannot be opened
+     */
+    public static PagedIntervalTree open(final File file,
+                                         final IntervalCollectionPersistor persistor) throws FailedIO {
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        } catch (final IOException e) {
+            throw new FailedIO("Could not open the paged tree from the file: " + file, e);
+        }
+
+        boolean opened = false;
+        try {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            MappedIntervalTree.readFully(channel, header, 0L);
+            header.flip();
+
+            for (final byte b : MAGIC) {
+                if (header.get() != b) {
+                    throw new FailedIO("The file is not a paged tree: " + file);
+                }
+            }
+
+            final int version = header.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new FailedIO("Unsupported version '" + version + "' of the paged tree: " + file);
+            }
+
+            final int pageDepth = header.getInt();
+            final long size = header.getLong();
+            final long rootOffset = header.getLong();
+
+            final ByteBuffer configurationBuffer = ByteBuffer.allocate(header.getInt());
+            MappedIntervalTree.readFully(channel, configurationBuffer, HEADER_SIZE);
+            final IntervalTreeConfiguration configuration =
+                    MappedIntervalTree.deserializeConfiguration(configurationBuffer.array());
+            configuration.setPersistor(persistor);
+
+            final PagedIntervalTree tree = new PagedIntervalTree(file, channel, configuration, pageDepth);
+            if (rootOffset != NO_PAGE) {
+
+                // the root page is never evicted, it is strongly referenced by the tree
+                tree.setRoot(tree.readPage(rootOffset), size);
+            }
+
+            opened = true;
+            return tree;
+        } catch (final IOException | ClassNotFoundException e) {
+            throw new FailedIO("Could not open the paged tree from the file: " + file, e);
+        } finally {
+            if (!opened) {
+                try {
+                    channel.close();
+                } catch (final IOException ignored) {
+                    // the opening failed anyway
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the root of the page at the specified {@code offset}, the page is read if it is not cached.
+     *
+     * @param offset the offset of the page
+     * @param parent the node the root of the page is the child of
+     *
+     * @return the root of the page
+     *
+     * @throws FailedIO if the page cannot be read
+     */
+    protected IntervalTreeNode resolve(final long offset, final IntervalTreeNode parent) throws FailedIO {
+        synchronized (this.pages) {
+            expunge();
+
+            final PageReference reference = this.pages.get(offset);
+            IntervalTreeNode page = reference == null ? null : reference.get();
+            if (page == null) {
+                page = readPage(offset);
+                page.setParent(parent);
+                this.pages.put(offset, new PageReference(offset, page, this.evicted));
+            }
+
+            return page;
+        }
+    }
+
+    /**
+     * Removes the pages evicted by the garbage collector from the cache.
+     */
+    protected void expunge() {
+        PageReference reference;
+        while ((reference = PageReference.class.cast(this.evicted.poll())) != null) {
+            this.pages.remove(reference.offset, reference);
+        }
+    }
+
+    protected IntervalTreeNode readPage(final long offset) throws FailedIO {
+        try {
+            final ByteBuffer length = ByteBuffer.allocate(4);
+            MappedIntervalTree.readFully(this.channel, length, offset);
+            length.flip();
+
+            final ByteBuffer bytes = ByteBuffer.allocate(length.getInt());
+            MappedIntervalTree.readFully(this.channel, bytes, offset + 4);
+
+            final IntervalTreeNode root;
+            try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.array()))) {
+                root = readNodes(in, new IntervalTreeSnapshot(), 1);
+            }
+            this.pageReads++;
+
+            return root;
+        } catch (final IOException | ClassNotFoundException e) {
+            throw new FailedIO("Could not read the page '" + offset + "' of the paged tree: " + this.file, e);
+        }
+    }
+
+    protected IntervalTreeNode readNodes(final ObjectInput in,
+                                         final IntervalTreeSnapshot snapshot,
+                                         final int level) throws IOException, ClassNotFoundException {
+        final PagedIntervalTreeNode node = new PagedIntervalTreeNode(this);
+        node.setConfiguration(getConfiguration());
+
+        // the node has no parent yet, i.e., setting the max and height is not propagated
+        final int flags = snapshot.readNode(in, node);
+        if (!in.readBoolean()) {
+            node.setMax(Comparable.class.cast(in.readObject()));
+        }
+        node.setHeight(IntervalTreeSnapshot.readVarLong(in));
+
+        if (level == this.pageDepth) {
+            node.setPages(in.readLong(), in.readLong());
+        } else {
+            if (IntervalTreeSnapshot.hasLeft(flags)) {
+                node.attach(readNodes(in, snapshot, level + 1), IntervalTreeNodeChildType.LEFT);
+            }
+            if (IntervalTreeSnapshot.hasRight(flags)) {
+                node.attach(readNodes(in, snapshot, level + 1), IntervalTreeNodeChildType.RIGHT);
+            }
+        }
+
+        return node;
+    }
+
+    public int getPageDepth() {
+        return this.pageDepth;
+    }
+
+    /**
+     * Gets the amount of pages currently cached, i.e., read and not evicted yet. The root page is not cached, it is
+     * kept by the tree.
+     *
+     * @return the amount of cached pages
+     */
+    public int getCachedPages() {
+        synchronized (this.pages) {
+            expunge();
+            return this.pages.size();
+        }
+    }
+
+    /**
+     * Gets the amount of pages read from the file since the tree was opened, including the root page and pages read
+     * again after being evicted.
+     *
+     * @return the amount of read pages
+     */
+    public long getPageReads() {
+        synchronized (this.pages) {
+            return this.pageReads;
+        }
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+    @Override
+    public void close() throws FailedIO {
+        try {
+            this.channel.close();
+        } catch (final IOException e) {
+            throw new FailedIO("Could not close the paged tree: " + this.file, e);
+        }
+    }
+
+    @Override
+    public boolean add(final IInterval interval) {
+        throw new UnsupportedOperationException("A paged tree is read-only.");
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        throw new UnsupportedOperationException("A paged tree is read-only.");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("A paged tree is read-only.");
+    }
+
+    @Override
+    public void balance() {
+        throw new UnsupportedOperationException("A paged tree is read-only.");
+    }
+
+    @Override
+    public long advanceWatermark(final Comparable watermark) {
+        throw new UnsupportedOperationException("A paged tree is read-only.");
+    }
+
+    @Override
+    protected IntervalTree _bulkLoad(final List<IInterval> sorted) {
+        throw new UnsupportedOperationException("A paged tree is read-only.");
+    }
+
+    @Override
+    public void readExternal(final ObjectInput in) {
+        throw new UnsupportedOperationException("A paged tree is read-only.");
+    }
+
+    /**
+     * A soft reference to the root of a cached page, which knows the offset of the page.
+     */
+    protected static class PageReference extends SoftReference<IntervalTreeNode> {
+        private final long offset;
+
+        public PageReference(final long offset,
+                             final IntervalTreeNode root,
+                             final ReferenceQueue<IntervalTreeNode> queue) {
+            super(root, queue);
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.brein.time.timeintervals.indexes;
+
+/**
+ * A node of a {@link PagedIntervalTree}. The children within the same page are linked like the children of any other
+ * node, a child being the root of another page is only referenced by the offset of that page. Such a child is
+ * resolved through the page cache of the tree whenever it is accessed, i.e., the node never keeps a strong reference
+ * to the pages below it, so that these pages can be evicted once no node of them is in use anymore.
+ */
+public class PagedIntervalTreeNode extends IntervalTreeNode {
+    private final transient PagedIntervalTree tree;
+
+    private long leftPage = PagedIntervalTree.NO_PAGE;
+    private long rightPage = PagedIntervalTree.NO_PAGE;
+
+    public PagedIntervalTreeNode(final PagedIntervalTree tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * Sets the offsets of the pages the children of {@code this} node are the roots of.
+     *
+     * @param leftPage  the offset of the page of the left child, {@link PagedIntervalTree#NO_PAGE} if the left child
+     *                  is not the root of another page
+     * @param rightPage the offset of the page of the right child, {@link PagedIntervalTree#NO_PAGE} if the right child
+     *                  is not the root of another page
+     */
+    protected void setPages(final long leftPage, final long rightPage) {
+        this.leftPage = leftPage;
+        this.rightPage = rightPage;
+    }
+
+    public long getLeftPage() {
+        return this.leftPage;
+    }
+
+    public long getRightPage() {
+        return this.rightPage;
+    }
+
+    @Override
+    public IntervalTreeNode getLeft() {
+        return this.leftPage == PagedIntervalTree.NO_PAGE ? super.getLeft() : this.tree.resolve(this.leftPage, this);
+    }
+
+    @Override
+    public IntervalTreeNode getRight() {
+        return this.rightPage == PagedIntervalTree.NO_PAGE ? super.getRight() : this.tree.resolve(this.rightPage, this);
+    }
+
+    @Override
+    public boolean hasLeft() {
+        return this.leftPage != PagedIntervalTree.NO_PAGE || super.hasLeft();
+    }
+
+    @Override
+    public boolean hasRight() {
+        return this.rightPage != PagedIntervalTree.NO_PAGE || super.hasRight();
+    }
+
+    @Override
+    public boolean isChild(final IntervalTreeNode node) {
+        return getLeft() == node || getRight() == node;
+    }
+}
@@ -0,0 +1,351 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.exceptions.FailedIO;
+import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.TimestampInterval;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * An index spanning several {@link IntervalTree} instances, each covering a partition of the time-line (e.g., a day or
+ * an hour of {@link TimestampInterval} instances). An interval is added to the partition it starts in, if it also ends
+ * within that partition, intervals spanning several partitions are kept in a dedicated overflow tree.
+ * <p>
+ * Queries are only answered by the partitions intersecting with the query (and the overflow tree), if a pool is
+ * specified the partitions are queried in parallel. The partitions can be removed, saved, or loaded independently,
+ * e.g., to drop or archive old partitions. The index is created using {@link
+ * IntervalTreeBuilder#buildPartitioned(Duration)}.
+ * <p>
+ * The index only supports intervals with integral normalized values, it is not thread-safe (besides the parallel
+ * queries).
+ */
+public class PartitionedIntervalIndex implements Iterable<IInterval> {
+
+    /**
+     * The minimal amount of trees (i.e., intersecting partitions and the overflow tree) needed to query the trees in
+     * parallel, see {@link #overlap(IInterval, ForkJoinPool)}.
+     */
+    public static final int PARALLEL_PARTITIONS = 2;
+
+    private final NavigableMap<Long, IntervalTree> partitions = new ConcurrentSkipListMap<>();
+    private final Supplier<IntervalTree> treeFactory;
+    private final Function<File, IntervalTree> treeLoader;
+    private final long partitionSize;
+    private final IntervalTree overflow;
+
+    /**
+     * Creates an index using partitions of the specified duration, for {@link TimestampInterval} instances the
+     * normalized values are seconds.
+     *
+     * @param treeFactory the factory used to create the trees of the partitions and the overflow tree
+     * @param partition   the duration of a partition
+     */
+    public PartitionedIntervalIndex(final Supplier<IntervalTree> treeFactory, final Duration partition) {
+        this(treeFactory, partition.getSeconds());
+    }
+
+    /**
+     * Creates an index using partitions of the specified size.
+     *
+     * @param treeFactory   the factory used to create the trees of the partitions and the overflow tree
+     * @param partitionSize the size of a partition, in the unit of the normalized values of the intervals
+     */
+    public PartitionedIntervalIndex(final Supplier<IntervalTree> treeFactory, final long partitionSize) {
+        this(treeFactory, file -> IntervalTreeBuilder.newBuilder().loadFromFile(file).build(), partitionSize);
+    }
+
+    /**
+     * Creates an index using partitions of the specified size, the partitions loaded from a file (see {@link
+     * #loadPartition(long, File)}) are loaded using the specified {@code treeLoader}, e.g., to use the persistor of
+     * the trees.
+     *
+     * @param treeFactory   the factory used to create the trees of the partitions and the overflow tree
+     * @param treeLoader    the function used to load the tree of a partition from a file
+     * @param partitionSize the size of a partition, in the unit of the normalized values of the intervals
+     */
+    public PartitionedIntervalIndex(final Supplier<IntervalTree> treeFactory,
+                                    final Function<File, IntervalTree> treeLoader,
+                                    final long partitionSize) {
+        if (partitionSize <= 0L) {
+            throw new IllegalArgumentException("The size of a partition must be positive, but was: " + partitionSize);
+        }
+
+        this.treeFactory = treeFactory;
+        this.treeLoader = treeLoader;
+        this.partitionSize = partitionSize;
+        this.overflow = treeFactory.get();
+    }
+
+    public boolean add(final IInterval interval) {
+        final long partition = determinePartition(LongIntervalTreeNode.toLong(interval.getNormStart()));
+
+        if (partition == determinePartition(LongIntervalTreeNode.toLong(interval.getNormEnd()))) {
+            return this.partitions.computeIfAbsent(partition, p -> this.treeFactory.get()).add(interval);
+        } else {
+            return this.overflow.add(interval);
+        }
+    }
+
+    public boolean remove(final IInterval interval) {
+        final IntervalTree tree = determineTree(interval);
+        return tree != null && tree.remove(interval);
+    }
+
+    public boolean contains(final IInterval interval) {
+        final IntervalTree tree = determineTree(interval);
+        return tree != null && tree.contains(interval);
+    }
+
+    public Collection<IInterval> find(final IInterval query) {
+        final IntervalTree tree = determineTree(query);
+        return tree == null ? Collections.emptyList() : tree.find(query);
+    }
+
+    public Collection<IInterval> overlap(final IInterval query) {
+        return overlap(query, ForkJoinPool.class.cast(null));
+    }
+
+    /**
+     * Determines the intervals overlapping the specified {@code query}. Only the partitions intersecting with the
+     * query and the overflow tree are queried, if a {@code pool} is specified and at least {@link
+     * #PARALLEL_PARTITIONS} trees have to be queried, the trees are queried in parallel.
+     *
+     * @param query the interval to find the overlapping intervals for
+     * @param pool  the pool used to query the partitions in parallel, can be {@code null}
+     *
+     * @return the overlapping intervals, ordered by partition
+     */
+    public Collection<IInterval> overlap(final IInterval query, final ForkJoinPool pool) {
+        final List<IntervalTree> trees = determineTrees(query);
+
+        final List<IInterval> result = new ArrayList<>();
+        if (pool == null || trees.size() < PARALLEL_PARTITIONS) {
+            trees.forEach(tree -> tree.overlap(query, result::add));
+        } else {
+            final List<ForkJoinTask<Collection<IInterval>>> tasks = new ArrayList<>(trees.size());
+            trees.forEach(tree -> tasks.add(pool.submit(() -> tree.overlap(query))));
+            tasks.forEach(task -> result.addAll(task.join()));
+        }
+
+        return result;
+    }
+
+    public void overlap(final IInterval query, final Consumer<IInterval> visitor) {
+        determineTrees(query).forEach(tree -> tree.overlap(query, visitor));
+    }
+
+    public Stream<IInterval> overlapStream(final IInterval query) {
+        return determineTrees(query).stream().flatMap(tree -> tree.overlapStream(query));
+    }
+
+    public Collection<IInterval> stab(final long point) {
+        final List<IInterval> result = new ArrayList<>();
+        this.overflow.stab(point, result::add);
+
+        final IntervalTree tree = this.partitions.get(determinePartition(point));
+        if (tree != null) {
+            tree.stab(point, result::add);
+        }
+
+        return result;
+    }
+
+    /**
+     * Determines the trees possibly containing intervals overlapping with the {@code query}, i.e., the overflow tree
+     * and all the partitions intersecting with the query.
+     *
+     * @param query the query to determine the trees for
+     *
+     * @return the trees to be queried
+     */
+    protected List<IntervalTree> determineTrees(final IInterval query) {
+        final long start = LongIntervalTreeNode.toLowerBound(query.getNormStart());
+        final long end = LongIntervalTreeNode.toUpperBound(query.getNormEnd());
+
+        final List<IntervalTree> trees = new ArrayList<>();
+        if (!this.overflow.isEmpty()) {
+            trees.add(this.overflow);
+        }
+        if (start <= end) {
+            final long from = determinePartition(start);
+            final long to = determinePartition(end);
+            trees.addAll(this.partitions.subMap(from, true, to, true).values());
+        }
+
+        return trees;
+    }
+
+    /**
+     * Determines the tree the specified {@code interval} belongs to.
+     *
+     * @param interval the interval to determine the tree for
+     *
+     * @return the tree, {@code null} if the interval belongs to a partition not available
+     */
+    protected IntervalTree determineTree(final IInterval interval) {
+        final Object start = interval.getNormStart();
+        final Object end = interval.getNormEnd();
+        if (!LongIntervalTreeNode.isIntegral(start) || !LongIntervalTreeNode.isIntegral(end)) {
+            return null;
+        }
+
+        final long partition = determinePartition(LongIntervalTreeNode.toLong(start));
+        if (partition == determinePartition(LongIntervalTreeNode.toLong(end))) {
+            return this.partitions.get(partition);
+        } else {
+            return this.overflow;
+        }
+    }
+
+    /**
+     * Determines the partition of the specified {@code value}, the partition is identified by its first value.
+     *
+     * @param value the value to determine the partition for
+     *
+     * @return the first value of the partition containing the value
+     */
+    public long determinePartition(final long value) {
+        return Math.floorDiv(value, this.partitionSize) * this.partitionSize;
+    }
+
+    /**
+     * Gets the partitions of {@code this} index, identified by their first value. The overflow tree (see {@link
+     * #getOverflow()}) is not contained.
+     *
+     * @return an unmodifiable view of the partitions
+     */
+    public NavigableMap<Long, IntervalTree> getPartitions() {
+        return Collections.unmodifiableNavigableMap(this.partitions);
+    }
+
+    public IntervalTree getPartition(final long value) {
+        return this.partitions.get(determinePartition(value));
+    }
+
+    public IntervalTree getOverflow() {
+        return this.overflow;
+    }
+
+    /**
+     * Removes the partition containing the specified {@code value} from {@code this} index.
+     *
+     * @param value a value of the partition to be removed
+     *
+     * @return the removed partition, {@code null} if there was no such partition
+     */
+    public IntervalTree removePartition(final long value) {
+        return this.partitions.remove(determinePartition(value));
+    }
+
+    /**
+     * Removes all intervals ending before the specified {@code watermark}. The partitions ending before the watermark
+     * are removed as a whole, the partition containing the watermark and the overflow tree are cut using {@link
+     * IntervalTree#advanceWatermark(Comparable)}.
+     *
+     * @param watermark the watermark
+     *
+     * @return the amount of removed intervals
+     */
+    public long advanceWatermark(final long watermark) {
+        final long partition = determinePartition(watermark);
+        final NavigableMap<Long, IntervalTree> expired = this.partitions.headMap(partition, false);
+
+        long removed = 0L;
+        for (final IntervalTree tree : expired.values()) {
+            removed += tree.size();
+        }
+        expired.clear();
+
+        final IntervalTree tree = this.partitions.get(partition);
+        if (tree != null) {
+            removed += tree.advanceWatermark(watermark);
+        }
+
+        return removed + this.overflow.advanceWatermark(watermark);
+    }
+
+    /**
+     * Saves the partition containing the specified {@code value} to the {@code file}, see {@link
+     * IntervalTreeBuilder#saveToFile(File, IntervalTree)}. The intervals are only written if the trees write their
+     * collections (see {@link IntervalTreeBuilder#enableWriteCollections()}), otherwise they must be kept by a
+     * persistor.
+     *
+     * @param value a value of the partition to be saved
+     * @param file  the file to save the partition to
+     *
+     * @return {@code true} if the partition was saved, {@code false} if there is no such partition
+     *
+     * @throws FailedIO if the partition cannot be written
+     */
+    public boolean savePartition(final long value, final File file) throws FailedIO {
+        final IntervalTree tree = getPartition(value);
+        if (tree == null) {
+            return false;
+        }
+
+        IntervalTreeBuilder.saveToFile(file, tree);
+        return true;
+    }
+
+    /**
+     * Loads the partition containing the specified {@code value} from the {@code file}, replacing the current
+     * partition (if any). The file must contain a tree saved by {@link #savePartition(long, File)}, the tree is loaded
+     * by the loader of {@code this} index, i.e., an index created by a builder uses the persistor of the builder.
+     *
+     * @param value a value of the partition to be loaded
+     * @param file  the file to load the partition from
+     *
+     * @return the loaded partition
+     *
+     * @throws FailedIO if the partition cannot be read
+     */
+    public IntervalTree loadPartition(final long value, final File file) throws FailedIO {
+        final IntervalTree tree = this.treeLoader.apply(file);
+        this.partitions.put(determinePartition(value), tree);
+
+        return tree;
+    }
+
+    public long getPartitionSize() {
+        return this.partitionSize;
+    }
+
+    public long size() {
+        long size = this.overflow.size();
+        for (final IntervalTree tree : this.partitions.values()) {
+            size += tree.size();
+        }
+
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return this.overflow.isEmpty() && this.partitions.values().stream().allMatch(IntervalTree::isEmpty);
+    }
+
+    public void clear() {
+        this.overflow.clear();
+        this.partitions.clear();
+    }
+
+    @Override
+    public Iterator<IInterval> iterator() {
+        return Stream.concat(this.partitions.values().stream(), Stream.of(this.overflow))
+                .flatMap(IntervalTree::stream)
+                .iterator();
+    }
+}
@@ -0,0 +1,721 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.filters.IntervalFilter;
+import com.brein.time.timeintervals.indexes.IntervalTree.NearestCandidate;
+import com.brein.time.timeintervals.intervals.AllenIntervalRelation;
+import com.brein.time.timeintervals.intervals.IInterval;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable view of an {@link IntervalTree}, showing the state of the tree at the time the view was created using
+ * {@link IntervalTree#snapshot()}. The view is persistent, i.e., it shares the nodes with the tree and with other
+ * snapshots. When the tree modifies a node for the first time after a snapshot was taken, the former state of the node
+ * (its children, max, and intervals) is recorded in the {@link Epoch} of the snapshot, thus every modification copies
+ * the modified path, and the recorded states are released together with the last snapshot needing them.
+ * <p>
+ * The view can be queried by any thread, while the tree is modified by another one. A node shared with the tree is read
+ * optimistically (see {@link StampedLock#tryOptimisticRead()}), if the tree was modified while the node was read, the
+ * node is read again holding the shared lock, i.e., a reader waits for at most one modification of the tree and a
+ * stream of the view can be consumed at any pace without blocking the tree.
+ */
+public class SnapshotIntervalTree implements Iterable<IInterval> {
+    private static final Logger LOGGER = Logger.getLogger(SnapshotIntervalTree.class);
+
+    private final IntervalTreeConfiguration configuration;
+    private final StampedLock lock;
+    private final Epoch epoch;
+    private final IntervalTreeNode root;
+    private final long size;
+    private final Object[] aggregates;
+
+    protected SnapshotIntervalTree(final IntervalTreeConfiguration configuration,
+                                   final StampedLock lock,
+                                   final Epoch epoch,
+                                   final IntervalTreeNode root,
+                                   final long size,
+                                   final Object[] aggregates) {
+        this.configuration = configuration;
+        this.lock = lock;
+        this.epoch = epoch;
+        this.root = root;
+        this.size = size;
+        this.aggregates = aggregates;
+    }
+
+    public Collection<IInterval> find(final IInterval query) {
+        return find(query, this.configuration.getIntervalFilter());
+    }
+
+    public Collection<IInterval> find(final IInterval query, final IntervalFilter filter) {
+        final IntervalValueComparator cmp = this.configuration.getValueComparator();
+        final Comparable start = query.getNormStart();
+        final Comparable end = query.getNormEnd();
+
+        NodeState node = state(this.root);
+        while (node != null) {
+            int cmpNode = cmp.compare(node.start, start);
+            if (cmpNode == 0) {
+                cmpNode = cmp.compare(node.end, end);
+            }
+
+            if (cmpNode == 0) {
+                return intervals(node).stream()
+                        .filter(interval -> filter.match(cmp, interval, query))
+                        .collect(Collectors.toList());
+            }
+            node = state(cmpNode < 0 ? node.right : node.left);
+        }
+
+        return Collections.emptyList();
+    }
+
+    public Collection<IInterval> overlap(final IInterval query) {
+        final List<IInterval> result = new ArrayList<>();
+        overlap(query, result::add);
+
+        return result;
+    }
+
+    public void overlap(final IInterval query, final Consumer<IInterval> visitor) {
+        intervalIterator(new NodeIterator(query.getNormStart(), query.getNormEnd())).forEachRemaining(visitor);
+    }
+
+    /**
+     * Creates a lazy stream of all intervals overlapping the specified {@code query}, ordered by the nodes of the tree.
+     * The nodes are read when the stream is consumed, the stream is not affected by any later modification of the
+     * tree.
+     *
+     * @param query the interval to find the overlapping intervals for
+     *
+     * @return a stream of the overlapping intervals
+     */
+    public Stream<IInterval> overlapStream(final IInterval query) {
+        return stream(intervalIterator(new NodeIterator(query.getNormStart(), query.getNormEnd())));
+    }
+
+    /**
+     * Pushes every interval overlapping {@code [start, end]} to the {@code visitor}, the values must be of the type of
+     * the values of the tree.
+     *
+     * @param start   the first included value of the query
+     * @param end     the last included value of the query
+     * @param visitor the consumer called for every overlapping interval
+     */
+    public void overlap(final Comparable start, final Comparable end, final Consumer<IInterval> visitor) {
+        intervalIterator(new NodeIterator(start, end)).forEachRemaining(visitor);
+    }
+
+    public Collection<IInterval> stab(final Comparable point) {
+        final List<IInterval> result = new ArrayList<>();
+        intervalIterator(new NodeIterator(point, point)).forEachRemaining(result::add);
+
+        return result;
+    }
+
+    public Collection<IInterval> relate(final IInterval query, final AllenIntervalRelation... relations) {
+        final List<IInterval> result = new ArrayList<>();
+        final IntervalRelationQuery relationQuery = new IntervalRelationQuery(
+                this.configuration.getValueComparator(), query, relations);
+
+        final NodeState root = state(this.root);
+        if (root == null || relationQuery.isEmpty()) {
+            return result;
+        }
+
+        final Deque<NodeState> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            final NodeState node = stack.pop();
+
+            // the left sub-tree only contains nodes starting before (or with) the node, the right one after (or with)
+            final boolean startsAfterMin = relationQuery.startsAfterMin(node.start);
+            final boolean startsBeforeMax = relationQuery.startsBeforeMax(node.start);
+
+            if (startsAfterMin && startsBeforeMax && relationQuery.matches(node.start, node.end)) {
+                result.addAll(intervals(node));
+            }
+
+            final NodeState right = startsBeforeMax ? state(node.right) : null;
+            if (right != null && relationQuery.containsCandidates(right.max)) {
+                stack.push(right);
+            }
+
+            final NodeState left = startsAfterMin ? state(node.left) : null;
+            if (left != null && relationQuery.containsCandidates(left.max)) {
+                stack.push(left);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the value aggregated for the whole tree at the time {@code this} snapshot was taken, see {@link
+     * IntervalTree#aggregate(IntervalTreeAggregator)}.
+     *
+     * @param aggregator the aggregator to get the value for, must be an aggregator of the tree
+     * @param <A>        the type of the aggregated value
+     *
+     * @return the aggregated value, or {@code null} if the tree is empty
+     *
+     * @throws IllegalArgumentException if the aggregator is not an aggregator of the tree
+     */
+    @SuppressWarnings("unchecked")
+    public <A> A aggregate(final IntervalTreeAggregator<A> aggregator) {
+        final int index = this.configuration.indexOf(aggregator);
+        if (index == -1) {
+            throw new IllegalArgumentException("The aggregator '" + aggregator + "' is not maintained by the tree.");
+        }
+
+        return (A) this.aggregates[index];
+    }
+
+    /**
+     * Counts the intervals overlapping with the specified {@code query}, without collecting the intervals. The
+     * overlapping nodes are visited, i.e., the aggregates of the sub-trees are not used.
+     *
+     * @param query the interval to count the overlapping intervals for
+     *
+     * @return the amount of overlapping intervals
+     */
+    public long countOverlaps(final IInterval query) {
+        long count = 0L;
+        final Iterator<NodeState> nodeIt = new NodeIterator(query.getNormStart(), query.getNormEnd());
+        while (nodeIt.hasNext()) {
+            count += count(nodeIt.next());
+        }
+
+        return count;
+    }
+
+    /**
+     * Determines the maximal amount of intervals overlapping at the same point within the specified {@code window},
+     * see {@link IntervalTree#maxConcurrency(IInterval)}.
+     *
+     * @param window the interval to determine the maximal concurrency within
+     *
+     * @return the maximal amount of intervals containing the same point of the window
+     */
+    public long maxConcurrency(final IInterval window) {
+        final List<NodeState> byStart = new ArrayList<>();
+        new NodeIterator(window.getNormStart(), window.getNormEnd()).forEachRemaining(byStart::add);
+        if (byStart.isEmpty()) {
+            return 0L;
+        }
+
+        final IntervalValueComparator cmp = this.configuration.getValueComparator();
+        final NodeState[] byEnd = byStart.toArray(new NodeState[byStart.size()]);
+        Arrays.sort(byEnd, (n1, n2) -> cmp.compare(n1.end, n2.end));
+
+        long concurrency = 0L;
+        long max = 0L;
+        int pos = 0;
+        for (final NodeState node : byStart) {
+
+            // intervals ending before this node starts are not active anymore
+            while (pos < byEnd.length && cmp.compare(byEnd[pos].end, node.start) < 0) {
+                concurrency -= count(byEnd[pos++]);
+            }
+
+            concurrency += count(node);
+            max = Math.max(max, concurrency);
+        }
+
+        return max;
+    }
+
+    /**
+     * Determines the {@code k} intervals closest to the specified {@code point}, see {@link
+     * IntervalTree#nearest(Comparable, int)}.
+     *
+     * @param point the value to find the closest intervals for
+     * @param k     the maximal amount of intervals to return
+     *
+     * @return the closest intervals, ordered by their distance
+     */
+    public List<IInterval> nearest(final Comparable point, final int k) {
+        final NodeState root = state(this.root);
+        if (root == null || k <= 0) {
+            return Collections.emptyList();
+        }
+
+        final double value = IntervalTree.toDouble(point);
+        final List<IInterval> result = new ArrayList<>((int) Math.min(k, this.size));
+        final PriorityQueue<NearestCandidate<NodeState>> candidates = new PriorityQueue<>();
+        candidates.add(nearestCandidate(root, true, Double.NEGATIVE_INFINITY, value));
+
+        while (!candidates.isEmpty() && result.size() < k) {
+            final NearestCandidate<NodeState> candidate = candidates.poll();
+            final NodeState node = candidate.getNode();
+
+            if (candidate.isSubtree()) {
+                candidates.add(nearestCandidate(node, false, candidate.getMinStart(), value));
+
+                final NodeState left = state(node.left);
+                if (left != null) {
+                    candidates.add(nearestCandidate(left, true, candidate.getMinStart(), value));
+                }
+                final NodeState right = state(node.right);
+                if (right != null) {
+                    candidates.add(nearestCandidate(right, true, IntervalTree.toDouble(node.start), value));
+                }
+            } else {
+                final Iterator<IInterval> it = intervals(node).iterator();
+                while (it.hasNext() && result.size() < k) {
+                    result.add(it.next());
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public IInterval ceiling(final Comparable start) {
+        return first(navigate(start, true, true));
+    }
+
+    public IInterval higher(final Comparable start) {
+        return first(navigate(start, true, false));
+    }
+
+    public IInterval floor(final Comparable start) {
+        return last(navigate(start, false, true));
+    }
+
+    public IInterval lower(final Comparable start) {
+        return last(navigate(start, false, false));
+    }
+
+    public boolean contains(final Object o) {
+        return o instanceof IInterval && !find(IInterval.class.cast(o)).isEmpty();
+    }
+
+    @Override
+    public Iterator<IInterval> iterator() {
+        return intervalIterator(new NodeIterator(null, null));
+    }
+
+    /**
+     * Creates an iterator over the intervals (ordered by the nodes) starting at or after {@code start}, see {@link
+     * IntervalTree#iteratorFrom(Comparable)}.
+     *
+     * @param start the value to start the iteration at
+     *
+     * @return the iterator over all intervals starting at or after {@code start}
+     */
+    public Iterator<IInterval> iteratorFrom(final Comparable start) {
+        return intervalIterator(new NodeIterator(null, null, start));
+    }
+
+    /**
+     * Creates an immutable, array-backed copy of {@code this} snapshot, see {@link IntervalTree#freeze()}.
+     *
+     * @return the frozen copy of the snapshot
+     */
+    public FrozenIntervalTree freeze() {
+        return new FrozenIntervalTree(this.configuration, new NodeIterator(null, null), node -> node.start,
+                node -> node.end, this::intervals);
+    }
+
+    public Stream<IInterval> stream() {
+        return stream(iterator());
+    }
+
+    public long size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.root == null;
+    }
+
+    public IntervalTreeConfiguration getConfiguration() {
+        return this.configuration;
+    }
+
+    /**
+     * Gets the number of {@code this} snapshot, i.e., the epoch of the tree the snapshot was created in.
+     *
+     * @return the number of the snapshot
+     */
+    public long getNumber() {
+        return this.epoch.getNumber();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        toString("", state(this.root), sb, true);
+        return sb.toString();
+    }
+
+    private void toString(final String prefix,
+                          final NodeState node,
+                          final StringBuilder sb,
+                          final boolean tail) {
+
+        sb.append(prefix)
+                .append(tail ? "└── " : "├── ")
+                .append(node)
+                .append(System.lineSeparator());
+
+        if (node == null || node.left == null && node.right == null) {
+            return;
+        }
+
+        final String newPrefix = prefix + (tail ? "    " : "│   ");
+        toString(newPrefix, state(node.left), sb, false);
+        toString(newPrefix, state(node.right), sb, true);
+    }
+
+    protected Stream<IInterval> stream(final Iterator<IInterval> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    protected Iterator<IInterval> intervalIterator(final Iterator<NodeState> nodeIt) {
+        return new Iterator<IInterval>() {
+            private Iterator<IInterval> intervalIt = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!this.intervalIt.hasNext() && nodeIt.hasNext()) {
+                    this.intervalIt = intervals(nodeIt.next()).iterator();
+                }
+
+                return this.intervalIt.hasNext();
+            }
+
+            @Override
+            public IInterval next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return this.intervalIt.next();
+            }
+        };
+    }
+
+    /**
+     * Gets the state of the specified {@code node} at the time {@code this} snapshot was taken.
+     *
+     * @param node the node to get the state for, can be {@code null}
+     *
+     * @return the state of the node, {@code null} if the node is {@code null}
+     */
+    protected NodeState state(final IntervalTreeNode node) {
+        if (node == null) {
+            return null;
+        }
+
+        return read(() -> {
+            final NodeState recorded = recorded(node);
+            return recorded == null ? new NodeState(node, false) : recorded;
+        });
+    }
+
+    /**
+     * Gets the intervals of the node of the specified {@code state}, at the time {@code this} snapshot was taken.
+     *
+     * @param state the state of the node
+     *
+     * @return the intervals of the node
+     */
+    protected List<IInterval> intervals(final NodeState state) {
+        if (state.intervals != null) {
+            return state.intervals;
+        }
+
+        return read(() -> {
+            final NodeState recorded = recorded(state.node);
+            return recorded == null ? NodeState.copyIntervals(state.node) : recorded.intervals;
+        });
+    }
+
+    /**
+     * Counts the intervals of the node of the specified {@code state}, at the time {@code this} snapshot was taken,
+     * without copying them.
+     *
+     * @param state the state of the node
+     *
+     * @return the amount of intervals of the node
+     */
+    protected int count(final NodeState state) {
+        if (state.intervals != null) {
+            return state.intervals.size();
+        }
+
+        return read(() -> {
+            final NodeState recorded = recorded(state.node);
+            return recorded == null ? state.node.getCollection().size() : recorded.intervals.size();
+        });
+    }
+
+    /**
+     * Navigates to the first node (if {@code ceiling}, otherwise to the last node) with a start larger (smaller) or
+     * equal (if {@code inclusive}) than {@code start}.
+     *
+     * @return the state of the found node, {@code null} if there is no such node
+     */
+    protected NodeState navigate(final Comparable start, final boolean ceiling, final boolean inclusive) {
+        final IntervalValueComparator cmp = this.configuration.getValueComparator();
+
+        NodeState result = null;
+        NodeState node = state(this.root);
+        while (node != null) {
+            final int cmpNode = cmp.compare(node.start, start);
+            if (ceiling ? cmpNode > 0 || inclusive && cmpNode == 0 : cmpNode < 0 || inclusive && cmpNode == 0) {
+                result = node;
+                node = state(ceiling ? node.left : node.right);
+            } else {
+                node = state(ceiling ? node.right : node.left);
+            }
+        }
+
+        return result;
+    }
+
+    protected IInterval first(final NodeState state) {
+        final List<IInterval> intervals = state == null ? Collections.emptyList() : intervals(state);
+        return intervals.isEmpty() ? null : intervals.get(0);
+    }
+
+    protected IInterval last(final NodeState state) {
+        final List<IInterval> intervals = state == null ? Collections.emptyList() : intervals(state);
+        return intervals.isEmpty() ? null : intervals.get(intervals.size() - 1);
+    }
+
+    protected static NearestCandidate<NodeState> nearestCandidate(final NodeState node,
+                                                                  final boolean subtree,
+                                                                  final double minStart,
+                                                                  final double point) {
+        return new NearestCandidate<>(node, subtree, minStart, node.start, node.end, node.max, point);
+    }
+
+    /**
+     * Gets the state recorded for {@code this} snapshot, if the specified {@code node} was modified after the
+     * snapshot was taken. The state is recorded in the epoch of the first snapshot taken before the modification, i.e.,
+     * in the epoch of {@code this} snapshot or of a later one.
+     *
+     * @param node the node to get the recorded state for
+     *
+     * @return the recorded state, {@code null} if the node was not modified after the snapshot was taken
+     */
+    protected NodeState recorded(final IntervalTreeNode node) {
+        if (node.getEpoch() < this.epoch.getNumber()) {
+            return null;
+        }
+
+        for (Epoch epoch = this.epoch; epoch != null; epoch = epoch.getNext()) {
+            final NodeState state = epoch.get(node);
+            if (state != null) {
+                return state;
+            }
+        }
+
+        throw new IllegalStateException("The node was modified, but no state was recorded for the snapshot " +
+                this.epoch.getNumber() + ".");
+    }
+
+    /**
+     * Executes the specified {@code reader} optimistically, if the tree was modified during the execution, the reader
+     * is executed again holding the shared lock (see {@link ConcurrentIntervalTree}).
+     */
+    protected <T> T read(final Supplier<T> reader) {
+        final long optimisticStamp = this.lock.tryOptimisticRead();
+
+        if (optimisticStamp != 0L) {
+            try {
+                final T result = reader.get();
+                if (this.lock.validate(optimisticStamp)) {
+                    return result;
+                }
+            } catch (final RuntimeException e) {
+                if (this.lock.validate(optimisticStamp)) {
+                    throw e;
+                } else if (LOGGER.isTraceEnabled()) {
+                    LOGGER.trace("Optimistic read failed due to a concurrent modification.", e);
+                }
+            }
+        }
+
+        final long stamp = this.lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Iterates (in-order) over the states of the nodes overlapping {@code [start, end]}, the sub-trees not containing
+     * any overlapping node are skipped. If no query is specified, all nodes are iterated. If {@code from} is
+     * specified, the nodes starting before it are skipped.
+     */
+    protected class NodeIterator implements Iterator<NodeState> {
+        private final IntervalValueComparator cmp = configuration.getValueComparator();
+        private final Deque<NodeState> stack = new ArrayDeque<>();
+        private final Comparable start;
+        private final Comparable end;
+        private final Comparable from;
+
+        private NodeState next;
+
+        public NodeIterator(final Comparable start, final Comparable end) {
+            this(start, end, null);
+        }
+
+        public NodeIterator(final Comparable start, final Comparable end, final Comparable from) {
+            this.start = start;
+            this.end = end;
+            this.from = from;
+
+            pushLeft(root);
+            this.next = findNext();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public NodeState next() {
+            if (this.next == null) {
+                throw new NoSuchElementException();
+            }
+
+            final NodeState current = this.next;
+            this.next = findNext();
+
+            return current;
+        }
+
+        protected NodeState findNext() {
+            while (!this.stack.isEmpty()) {
+                final NodeState node = this.stack.pop();
+
+                // all following nodes start after the node, i.e., none of them can overlap
+                if (this.end != null && this.cmp.compare(node.start, this.end) > 0) {
+                    this.stack.clear();
+                    return null;
+                }
+
+                pushLeft(node.right);
+                if (this.start == null || this.cmp.compare(node.end, this.start) >= 0) {
+                    return node;
+                }
+            }
+
+            return null;
+        }
+
+        protected void pushLeft(final IntervalTreeNode node) {
+            NodeState current = state(node);
+            while (current != null && (this.start == null || this.cmp.compare(current.max, this.start) >= 0)) {
+
+                // the node and its left sub-tree start before the value to start from
+                if (this.from != null && this.cmp.compare(current.start, this.from) < 0) {
+                    current = state(current.right);
+                } else {
+                    this.stack.push(current);
+                    current = state(current.left);
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of a node, which is needed to query the node, i.e., the endpoints, the max, and the children. The
+     * intervals are only part of a recorded state, the intervals of a node shared with the tree are read when needed.
+     */
+    protected static class NodeState {
+        private final IntervalTreeNode node;
+        private final Comparable start;
+        private final Comparable end;
+        private final Comparable max;
+        private final IntervalTreeNode left;
+        private final IntervalTreeNode right;
+        private final List<IInterval> intervals;
+
+        protected NodeState(final IntervalTreeNode node, final boolean withIntervals) {
+            this.node = node;
+            this.start = node.getStart();
+            this.end = node.getEnd();
+            this.max = node.getMax();
+            this.left = node.getLeft();
+            this.right = node.getRight();
+            this.intervals = withIntervals ? copyIntervals(node) : null;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%s, %s] (max: %s)", this.start, this.end, this.max);
+        }
+
+        protected static List<IInterval> copyIntervals(final IntervalTreeNode node) {
+            final List<IInterval> intervals = new ArrayList<>();
+            node.getCollection().forEach(intervals::add);
+
+            return Collections.unmodifiableList(intervals);
+        }
+    }
+
+    /**
+     * The states recorded for a snapshot, i.e., the states of the nodes modified after the snapshot was taken and
+     * before the next snapshot was taken. An epoch references the next epoch, because a node not modified before the
+     * next snapshot was taken records its state in a later epoch. The tree only references the latest epoch weakly.
+     */
+    protected static class Epoch {
+        private final Map<IntervalTreeNode, NodeState> states = Collections.synchronizedMap(new IdentityHashMap<>());
+        private final long number;
+
+        private volatile Epoch next = null;
+
+        protected Epoch(final long number) {
+            this.number = number;
+        }
+
+        protected void record(final IntervalTreeNode node) {
+            this.states.put(node, new NodeState(node, true));
+        }
+
+        protected NodeState get(final IntervalTreeNode node) {
+            return this.states.get(node);
+        }
+
+        protected long getNumber() {
+            return this.number;
+        }
+
+        protected Epoch getNext() {
+            return this.next;
+        }
+
+        protected void setNext(final Epoch next) {
+            this.next = next;
+        }
+    }
+}
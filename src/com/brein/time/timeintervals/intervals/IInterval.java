@@ -27,4 +27,14 @@ public interface IInterval<T extends Comparable<T> & Serializable>
      * @return the unique identifier
      */
     String getUniqueIdentifier();
+
+    /**
+     * Gets the compact, binary representation of the {@link #getUniqueIdentifier()}, which is used as key of the
+     * nodes of a tree and of the collections of a node.
+     *
+     * @return the key of the interval
+     */
+    default IntervalKey getIntervalKey() {
+        return IntervalKey.of(this);
+    }
 }
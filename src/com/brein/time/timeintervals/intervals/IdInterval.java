@@ -42,6 +42,25 @@ public class IdInterval<I extends Comparable<I> & Serializable, T extends Compar
         init(id, wrappedInterval);
     }
 
+    /**
+     * Creates an interval with the specified {@code id}, which wraps the pooled instance of the interval {@code
+     * [start, end]}, i.e., the wrapped interval is shared with all the other intervals created using the same {@code
+     * pool}.
+     *
+     * @param id    the identifier of the interval
+     * @param start the start of the interval
+     * @param end   the end of the interval
+     * @param clazz the type of the values
+     * @param pool  the pool used to share the wrapped interval
+     */
+    public IdInterval(final I id, final T start, final T end, final Class<T> clazz, final IntervalPool pool) {
+        init(id, pool.intern(createInterval(start, end, clazz)));
+    }
+
+    public IdInterval(final I id, final IInterval<T> wrappedInterval, final IntervalPool pool) {
+        init(id, pool.intern(wrappedInterval));
+    }
+
     @SuppressWarnings("unchecked")
     protected IInterval<T> createInterval(final T start, final T end, final Class<T> clazz) {
         if (Number.class.isAssignableFrom(clazz)) {
@@ -78,6 +97,11 @@ public class IdInterval<I extends Comparable<I> & Serializable, T extends Compar
         return wrappedInterval.getUniqueIdentifier();
     }
 
+    @Override
+    public IntervalKey getIntervalKey() {
+        return wrappedInterval.getIntervalKey();
+    }
+
     @Override
     @SuppressWarnings("NullableProblems")
     public int compareTo(final IInterval i) {
@@ -0,0 +1,300 @@
+package com.brein.time.timeintervals.intervals;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The compact, binary representation of the {@link IInterval#getUniqueIdentifier()}, i.e., two keys are equal if and
+ * only if the unique identifiers are equal. Numeric endpoints are kept as {@code long} values: an integral value (also
+ * an integral floating point value, e.g., {@code 5.0}) as its value, any other floating point value as its sortable
+ * bits (i.e., the bits of the value, which compare like the values, see {@link #toSortableBits(double)}), marked by a
+ * flag. Intervals with other endpoints are identified by their unique identifier.
+ * <p>
+ * The {@link #toString()} of a key is the unique identifier, {@link #valueOf(String)} parses an identifier, e.g.,
+ * one persisted by an earlier version.
+ */
+public final class IntervalKey implements Serializable, Comparable<IntervalKey> {
+    private static final long serialVersionUID = 1L;
+
+    private static final byte FLAG_DOUBLE_START = 0x01;
+    private static final byte FLAG_DOUBLE_END = 0x02;
+    private static final byte FLAG_IDENTIFIER = 0x04;
+
+    private static final int BINARY_LENGTH = 1 + 2 * Long.BYTES;
+
+    /**
+     * The intervals known to be identified by their normalized endpoints, i.e., the key of such an interval is created
+     * from its endpoints without creating the unique identifier. Sub-classes may override the identifier.
+     */
+    private static final Set<Class<?>> NUMBER_INTERVALS = new HashSet<>(Arrays.asList(NumberInterval.class,
+            LongInterval.class, IntegerInterval.class, DoubleInterval.class, TimestampInterval.class));
+
+    private final long start;
+    private final long end;
+    private final byte flags;
+    private final String identifier;
+
+    private IntervalKey(final long start, final long end, final byte flags, final String identifier) {
+        this.start = start;
+        this.end = end;
+        this.flags = flags;
+        this.identifier = identifier;
+    }
+
+    /**
+     * Creates the key of the specified {@code interval}, {@link IInterval#getIntervalKey()} should be used instead,
+     * because an interval may cache its key. The key of a known {@link NumberInterval} is created from its endpoints,
+     * any other key is derived from the {@link IInterval#getUniqueIdentifier()} (see {@link #valueOf(String)}).
+     *
+     * @param interval the interval to create the key for
+     *
+     * @return the key of the interval
+     */
+    public static IntervalKey of(final IInterval interval) {
+        final IntervalKey key = NUMBER_INTERVALS.contains(interval.getClass()) ?
+                of(interval.getNormStart(), interval.getNormEnd()) : null;
+        return key == null ? valueOf(interval.getUniqueIdentifier()) : key;
+    }
+
+    /**
+     * Creates the key of an interval with the specified normalized endpoints.
+     *
+     * @param start the normalized start
+     * @param end   the normalized end
+     *
+     * @return the key, or {@code null} if the endpoints are not numbers supported by {@link NumberInterval}
+     */
+    public static IntervalKey of(final Object start, final Object end) {
+        if (!isSupported(start) || !isSupported(end)) {
+            return null;
+        }
+
+        byte flags = 0;
+        final long startValue;
+        if (isFraction(start)) {
+            startValue = toSortableBits(Number.class.cast(start).doubleValue());
+            flags |= FLAG_DOUBLE_START;
+        } else {
+            startValue = Number.class.cast(start).longValue();
+        }
+
+        final long endValue;
+        if (isFraction(end)) {
+            endValue = toSortableBits(Number.class.cast(end).doubleValue());
+            flags |= FLAG_DOUBLE_END;
+        } else {
+            endValue = Number.class.cast(end).longValue();
+        }
+
+        return new IntervalKey(startValue, endValue, flags, null);
+    }
+
+    /**
+     * Creates the key of an interval with the specified integral normalized endpoints.
+     *
+     * @param start the normalized start
+     * @param end   the normalized end
+     *
+     * @return the key
+     */
+    public static IntervalKey of(final long start, final long end) {
+        return new IntervalKey(start, end, (byte) 0, null);
+    }
+
+    /**
+     * Parses the specified unique identifier (see {@link IInterval#getUniqueIdentifier()}).
+     *
+     * @param identifier the identifier to parse
+     *
+     * @return the key with the specified identifier
+     */
+    public static IntervalKey valueOf(final String identifier) {
+        final int separator = identifier.indexOf(',');
+        if (identifier.startsWith("[") && identifier.endsWith("]") && separator > 0) {
+            final Number start = parse(identifier.substring(1, separator));
+            final Number end = parse(identifier.substring(separator + 1, identifier.length() - 1));
+
+            // make sure that the parsed key has the same identifier (and not only an equal one)
+            final IntervalKey key = start == null || end == null ? null : of(start, end);
+            if (key != null && identifier.equals(key.toString())) {
+                return key;
+            }
+        }
+
+        return new IntervalKey(0L, 0L, FLAG_IDENTIFIER, identifier);
+    }
+
+    /**
+     * Reads a key from its binary representation (see {@link #toBytes()}).
+     *
+     * @param bytes the binary representation
+     *
+     * @return the key
+     */
+    public static IntervalKey fromBytes(final ByteBuffer bytes) {
+        return fromBytes(bytes, bytes.position(), bytes.remaining());
+    }
+
+    /**
+     * Reads a key from its binary representation (see {@link #toBytes()}) located at the specified {@code offset} of
+     * the {@code bytes}, without modifying (or duplicating) the buffer, e.g., from a memory-mapped file.
+     *
+     * @param bytes  the buffer containing the binary representation
+     * @param offset the absolute position of the binary representation within the buffer
+     * @param length the length of the binary representation
+     *
+     * @return the key
+     */
+    public static IntervalKey fromBytes(final ByteBuffer bytes, final int offset, final int length) {
+        final byte flags = bytes.get(offset);
+
+        if ((flags & FLAG_IDENTIFIER) == 0) {
+            return new IntervalKey(bytes.getLong(offset + 1), bytes.getLong(offset + 1 + Long.BYTES), flags, null);
+        } else {
+            final byte[] identifier = new byte[length - 1];
+            for (int i = 0; i < identifier.length; i++) {
+                identifier[i] = bytes.get(offset + 1 + i);
+            }
+
+            return new IntervalKey(0L, 0L, flags, new String(identifier, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Gets the binary representation of {@code this} key, i.e., a flags byte followed by the two values (17 bytes), or
+     * followed by the UTF-8 encoded identifier.
+     *
+     * @return the binary representation, which can be read using {@link #fromBytes(ByteBuffer)}
+     */
+    public ByteBuffer toBytes() {
+        final ByteBuffer buffer;
+        if (this.identifier == null) {
+            buffer = ByteBuffer.allocate(BINARY_LENGTH);
+            buffer.put(this.flags).putLong(this.start).putLong(this.end);
+        } else {
+            final byte[] identifier = this.identifier.getBytes(StandardCharsets.UTF_8);
+            buffer = ByteBuffer.allocate(1 + identifier.length);
+            buffer.put(this.flags).put(identifier);
+        }
+        buffer.flip();
+
+        return buffer;
+    }
+
+    /**
+     * Maps the specified {@code value} to a {@code long}, so that the {@code long} values compare like the {@code
+     * double} values (see {@link Double#compare(double, double)}).
+     *
+     * @param value the value to be mapped
+     *
+     * @return the sortable bits of the value
+     */
+    public static long toSortableBits(final double value) {
+        final long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    public static double fromSortableBits(final long bits) {
+        return Double.longBitsToDouble(bits ^ ((bits >> 63) & Long.MAX_VALUE));
+    }
+
+    protected static boolean isSupported(final Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Double ||
+                value instanceof Float || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * Checks if the value is a non-integral floating point number, the unique identifier of a {@link NumberInterval}
+     * represents an integral floating point number like a {@code long}.
+     */
+    protected static boolean isFraction(final Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            final double doubleValue = Number.class.cast(value).doubleValue();
+            return doubleValue != Math.rint(doubleValue);
+        } else {
+            return false;
+        }
+    }
+
+    protected static Number parse(final String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (final NumberFormatException e) {
+            try {
+                return Double.parseDouble(value);
+            } catch (final NumberFormatException ignore) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public int compareTo(final IntervalKey key) {
+        if (this.identifier != null || key.identifier != null) {
+            return toString().compareTo(key.toString());
+        }
+
+        final int cmp = compare(this.start, (this.flags & FLAG_DOUBLE_START) != 0,
+                key.start, (key.flags & FLAG_DOUBLE_START) != 0);
+        return cmp == 0 ? compare(this.end, (this.flags & FLAG_DOUBLE_END) != 0,
+                key.end, (key.flags & FLAG_DOUBLE_END) != 0) : cmp;
+    }
+
+    protected int compare(final long value1, final boolean fraction1, final long value2, final boolean fraction2) {
+        if (fraction1 == fraction2) {
+            return Long.compare(value1, value2);
+        } else {
+            return Double.compare(fraction1 ? fromSortableBits(value1) : value1,
+                    fraction2 ? fromSortableBits(value2) : value2);
+        }
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        } else if (obj instanceof IntervalKey) {
+            final IntervalKey key = IntervalKey.class.cast(obj);
+            return this.start == key.start && this.end == key.end && this.flags == key.flags &&
+                    (this.identifier == null ? key.identifier == null : this.identifier.equals(key.identifier));
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        if (this.identifier != null) {
+            return this.identifier.hashCode();
+        }
+
+        int result = Long.hashCode(this.start);
+        result = 31 * result + Long.hashCode(this.end);
+        result = 31 * result + this.flags;
+
+        return result;
+    }
+
+    /**
+     * Gets the unique identifier (see {@link IInterval#getUniqueIdentifier()}) represented by {@code this} key.
+     *
+     * @return the unique identifier
+     */
+    @Override
+    public String toString() {
+        if (this.identifier != null) {
+            return this.identifier;
+        }
+
+        return "[" + toString(this.start, (this.flags & FLAG_DOUBLE_START) != 0) + "," +
+                toString(this.end, (this.flags & FLAG_DOUBLE_END) != 0) + "]";
+    }
+
+    protected String toString(final long value, final boolean fraction) {
+        return fraction ? NumberInterval.formatDouble(fromSortableBits(value)) : String.valueOf(value);
+    }
+}
@@ -0,0 +1,131 @@
+package com.brein.time.timeintervals.intervals;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A pool used to share (i.e., intern) immutable interval instances, e.g., the intervals wrapped by many {@link
+ * IdInterval} instances with the same few ranges (see {@link IdInterval#IdInterval(Comparable, Comparable,
+ * Comparable, Class, IntervalPool)}). Number intervals are pooled by their class, the value type, and the endpoints
+ * as specified (including if they are open), i.e., {@code [1, 5]} and {@code (0, 6)} are different instances, even
+ * though they are equal. Any other interval is pooled by its class and equality. The pool is thread-safe.
+ * <p>
+ * The pool holds at most the specified amount of intervals, intervals interned if the pool is full are returned as
+ * is. Intervals, which are not immutable (i.e., {@link IdInterval} and {@link TimestampInterval}), cannot be pooled.
+ */
+public class IntervalPool {
+    public static final int DEFAULT_MAX_SIZE = 100_000;
+
+    private final ConcurrentMap<PoolKey, IInterval> intervals = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    public IntervalPool() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public IntervalPool(final int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximal size must be positive: " + maxSize);
+        }
+
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the pooled instance of the specified {@code interval}, the interval is added to the pool, if there is no
+     * pooled instance yet.
+     *
+     * @param interval the interval to intern
+     * @param <T>      the type of the values of the interval
+     * @param <X>      the type of the interval
+     *
+     * @return the pooled interval equal to {@code interval}, or {@code interval} if it is not pooled
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Comparable<T> & Serializable, X extends IInterval<T>> X intern(final X interval) {
+        if (interval instanceof IdInterval || interval instanceof TimestampInterval) {
+            throw new IllegalArgumentException("The interval '" + interval + "' (" + interval.getClass() + ") " +
+                    "is not immutable and cannot be pooled.");
+        }
+
+        final PoolKey key = new PoolKey(interval);
+        final IInterval pooled = this.intervals.get(key);
+        if (pooled != null) {
+            return (X) pooled;
+        } else if (this.intervals.size() >= this.maxSize) {
+            return interval;
+        } else {
+            final IInterval previous = this.intervals.putIfAbsent(key, interval);
+            return previous == null ? interval : (X) previous;
+        }
+    }
+
+    public int size() {
+        return this.intervals.size();
+    }
+
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    public void clear() {
+        this.intervals.clear();
+    }
+
+    protected static class PoolKey {
+        private final Class<?> intervalClazz;
+        private final Class<?> valueClazz;
+        private final Object start;
+        private final Object end;
+        private final boolean openStart;
+        private final boolean openEnd;
+
+        protected PoolKey(final IInterval interval) {
+            this.intervalClazz = interval.getClass();
+
+            /*
+             * A number interval keeps the specified endpoints, which differ for equal intervals (e.g., [1, 5] and
+             * (0, 6)), and the type of a generic number interval is not defined by the class. Any other interval
+             * (e.g., a primitive one) only keeps what defines its equality.
+             */
+            if (interval instanceof NumberInterval) {
+                final NumberInterval<?> numberInterval = NumberInterval.class.cast(interval);
+                this.valueClazz = numberInterval.getClazz();
+                this.start = numberInterval.getStart();
+                this.end = numberInterval.getEnd();
+                this.openStart = numberInterval.isOpenStart();
+                this.openEnd = numberInterval.isOpenEnd();
+            } else {
+                this.valueClazz = null;
+                this.start = interval;
+                this.end = null;
+                this.openStart = false;
+                this.openEnd = false;
+            }
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            } else if (obj instanceof PoolKey) {
+                final PoolKey poolKey = PoolKey.class.cast(obj);
+                return this.intervalClazz.equals(poolKey.intervalClazz) &&
+                        Objects.equals(this.valueClazz, poolKey.valueClazz) &&
+                        Objects.equals(this.start, poolKey.start) &&
+                        Objects.equals(this.end, poolKey.end) &&
+                        this.openStart == poolKey.openStart &&
+                        this.openEnd == poolKey.openEnd;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.intervalClazz, this.start, this.end, this.openStart, this.openEnd);
+        }
+    }
+}
@@ -16,6 +16,15 @@ import java.util.Locale;
 public class NumberInterval<T extends Number & Comparable<T>> implements IInterval<T>, Externalizable {
     private static final Logger LOGGER = Logger.getLogger(NumberInterval.class);
     private static final double MAX_DOUBLE = Math.pow(2, 54) - 2;
+    private static final ThreadLocal<DecimalFormat> DOUBLE_FORMAT = ThreadLocal.withInitial(() -> {
+
+        // http://stackoverflow.com/questions/16098046/
+        // how-to-print-double-value-without-scientific-notation-using-java
+        final DecimalFormat df = new DecimalFormat("0", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+        df.setMaximumFractionDigits(340);
+
+        return df;
+    });
 
     private Class clazz;
 
@@ -25,6 +34,15 @@ public class NumberInterval<T extends Number & Comparable<T>> implements IInterv
     private boolean openStart;
     private boolean openEnd;
 
+    /*
+     * The normalized values and the identifiers are needed for every comparison within a tree, thus the values are
+     * determined once (the interval is immutable) and the identifiers on first use.
+     */
+    private T normStart;
+    private T normEnd;
+    private String uniqueIdentifier;
+    private IntervalKey intervalKey;
+
     public NumberInterval() {
         // just for de- and serialization
     }
@@ -54,6 +72,7 @@ public class NumberInterval<T extends Number & Comparable<T>> implements IInterv
 
         this.openStart = openStart;
         this.openEnd = openEnd;
+        normalize();
 
         if (compare(getNormEnd(), getNormStart()) < 0) {
             throw new IllegalTimeInterval("The end value '" + end + "' " +
@@ -141,7 +160,7 @@ public class NumberInterval<T extends Number & Comparable<T>> implements IInterv
     }
 
     @SuppressWarnings("unchecked")
-    protected T getNextValue(final T val) {
+    public T getNextValue(final T val) {
         if (determineMinValue().equals(val) || determineMaxValue().equals(val)) {
             return val;
         }
@@ -164,7 +183,7 @@ public class NumberInterval<T extends Number & Comparable<T>> implements IInterv
     }
 
     @SuppressWarnings("unchecked")
-    protected T getPreviousValue(final T val) {
+    public T getPreviousValue(final T val) {
         if (determineMinValue().equals(val) || determineMaxValue().equals(val)) {
             return val;
         }
@@ -192,17 +211,30 @@ public class NumberInterval<T extends Number & Comparable<T>> implements IInterv
 
     @Override
     public T getNormStart() {
-        return norm(this.start, this.openStart, true);
+        return this.normStart;
     }
 
     @Override
     public T getNormEnd() {
-        return norm(this.end, this.openEnd, false);
+        return this.normEnd;
     }
 
     @Override
     public String getUniqueIdentifier() {
-        return "[" + unique(getNormStart()) + "," + unique(getNormEnd()) + "]";
+        if (this.uniqueIdentifier == null) {
+            this.uniqueIdentifier = "[" + unique(getNormStart()) + "," + unique(getNormEnd()) + "]";
+        }
+
+        return this.uniqueIdentifier;
+    }
+
+    @Override
+    public IntervalKey getIntervalKey() {
+        if (this.intervalKey == null) {
+            this.intervalKey = IntervalKey.of(this);
+        }
+
+        return this.intervalKey;
     }
 
     public T getEnd() {
@@ -228,22 +260,25 @@ public class NumberInterval<T extends Number & Comparable<T>> implements IInterv
     }
 
     protected String unique(final double value) {
+        return uniqueDouble(value);
+    }
+
+    static String uniqueDouble(final double value) {
         if (MAX_DOUBLE < Math.abs(value)) {
-            LOGGER.warn("Using double values larger than " + unique(MAX_DOUBLE));
+            LOGGER.warn("Using double values larger than " + uniqueDouble(MAX_DOUBLE));
         }
 
         if (value == Math.rint(value)) {
             return String.valueOf(Double.valueOf(value).longValue());
         } else {
-            // http://stackoverflow.com/questions/16098046/
-            // how-to-print-double-value-without-scientific-notation-using-java
-            final DecimalFormat df = new DecimalFormat("0", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
-            df.setMaximumFractionDigits(340);
-
-            return df.format(value);
+            return formatDouble(value);
         }
     }
 
+    static String formatDouble(final double value) {
+        return DOUBLE_FORMAT.get().format(value);
+    }
+
     public boolean isOpenStart() {
         return openStart;
     }
@@ -384,6 +419,13 @@ public class NumberInterval<T extends Number & Comparable<T>> implements IInterv
         return compare(getNormStart(), value) <= 0 && compare(getNormEnd(), value) >= 0;
     }
 
+    protected void normalize() {
+        this.normStart = norm(this.start, this.openStart, true);
+        this.normEnd = norm(this.end, this.openEnd, false);
+        this.uniqueIdentifier = null;
+        this.intervalKey = null;
+    }
+
     protected T norm(final T val, final boolean open, final boolean start) {
         if (start) {
             return open ? getNextValue(val) : val;
@@ -413,5 +455,6 @@ public class NumberInterval<T extends Number & Comparable<T>> implements IInterv
         this.end = (T) this.clazz.cast(in.readObject());
         this.openStart = in.readBoolean();
         this.openEnd = in.readBoolean();
+        normalize();
     }
 }
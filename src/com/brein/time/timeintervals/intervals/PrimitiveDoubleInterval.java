@@ -0,0 +1,124 @@
+package com.brein.time.timeintervals.intervals;
+
+import com.brein.time.exceptions.IllegalTimeInterval;
+import com.brein.time.exceptions.IllegalTimePoint;
+import com.brein.time.timeintervals.indexes.IntervalValueComparator;
+
+/**
+ * A flat, immutable interval of {@code double} values, which keeps only the normalized (i.e., closed) endpoints as
+ * primitive values, see {@link PrimitiveLongInterval}. The interval is identified like a {@link DoubleInterval} with
+ * the same normalized values. The infinite values are used as unbounded start and end (normalized like the ones of a
+ * {@link DoubleInterval}), the minimal and maximal value, as well as the edge values next to them are reserved.
+ */
+public final class PrimitiveDoubleInterval implements IInterval<Double> {
+    private static final long serialVersionUID = 1L;
+
+    private final double start;
+    private final double end;
+
+    public PrimitiveDoubleInterval(final double start, final double end) throws IllegalTimeInterval, IllegalTimePoint {
+        this(start, end, false, false);
+    }
+
+    public PrimitiveDoubleInterval(final double start,
+                                   final double end,
+                                   final boolean openStart,
+                                   final boolean openEnd) throws IllegalTimeInterval, IllegalTimePoint {
+        this.start = norm(start, openStart, true);
+        this.end = norm(end, openEnd, false);
+
+        if (this.end < this.start) {
+            throw new IllegalTimeInterval("The end value '" + end + "' " +
+                    "cannot be smaller than the start value '" + start + "'.");
+        }
+    }
+
+    protected static double norm(final double value, final boolean open, final boolean start) {
+        if (Double.isNaN(value)) {
+            throw new IllegalTimePoint("The value NaN is a not supported value.");
+        } else if (value == Double.NEGATIVE_INFINITY) {
+            return Double.MIN_VALUE;
+        } else if (value == Double.POSITIVE_INFINITY) {
+            return Double.MAX_VALUE;
+        } else if (value == Double.MIN_VALUE || value == Double.MAX_VALUE) {
+            throw new IllegalTimeInterval("The minimal and maximal value are reserved.");
+        } else if (value == Math.nextUp(Double.MIN_VALUE) || value == Math.nextDown(Double.MAX_VALUE)) {
+            throw new IllegalTimeInterval("The edge values are reserved and cannot be used.");
+        } else if (open) {
+            return start ? Math.nextUp(value) : Math.nextDown(value);
+        } else {
+            return value;
+        }
+    }
+
+    public double getNormStartDouble() {
+        return this.start;
+    }
+
+    public double getNormEndDouble() {
+        return this.end;
+    }
+
+    @Override
+    public Double getNormStart() {
+        return this.start;
+    }
+
+    @Override
+    public Double getNormEnd() {
+        return this.end;
+    }
+
+    @Override
+    public String getUniqueIdentifier() {
+        return "[" + NumberInterval.uniqueDouble(this.start) + "," + NumberInterval.uniqueDouble(this.end) + "]";
+    }
+
+    @Override
+    public IntervalKey getIntervalKey() {
+        return IntervalKey.of(getNormStart(), getNormEnd());
+    }
+
+    public boolean contains(final double value) {
+        return this.start <= value && value <= this.end;
+    }
+
+    public boolean overlaps(final double start, final double end) {
+        return this.start <= end && this.end >= start;
+    }
+
+    @Override
+    @SuppressWarnings("NullableProblems")
+    public int compareTo(final IInterval interval) {
+        if (interval instanceof PrimitiveDoubleInterval) {
+            final PrimitiveDoubleInterval i = PrimitiveDoubleInterval.class.cast(interval);
+            final int cmpStart = Double.compare(this.start, i.start);
+            return cmpStart == 0 ? Double.compare(this.end, i.end) : cmpStart;
+        } else {
+            final int cmpStart = IntervalValueComparator.compareNumbers(this.start, interval.getNormStart());
+            return cmpStart == 0 ? IntervalValueComparator.compareNumbers(this.end, interval.getNormEnd()) : cmpStart;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(this.start) + Double.hashCode(this.end);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        } else if (obj instanceof PrimitiveDoubleInterval) {
+            final PrimitiveDoubleInterval i = PrimitiveDoubleInterval.class.cast(obj);
+            return Double.compare(this.start, i.start) == 0 && Double.compare(this.end, i.end) == 0;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[" + this.start + ", " + this.end + "]";
+    }
+}
@@ -0,0 +1,115 @@
+package com.brein.time.timeintervals.intervals;
+
+import com.brein.time.exceptions.IllegalTimeInterval;
+import com.brein.time.timeintervals.indexes.IntervalValueComparator;
+
+/**
+ * A flat, immutable interval of {@code int} values, which keeps only the normalized (i.e., closed) endpoints as
+ * primitive values, see {@link PrimitiveLongInterval}. The interval is identified like an {@link IntegerInterval} with
+ * the same normalized values. The values {@code Integer.MIN_VALUE} and {@code Integer.MAX_VALUE} are used as unbounded
+ * start and end, the edge values next to them are reserved.
+ */
+public final class PrimitiveIntegerInterval implements IInterval<Integer> {
+    private static final long serialVersionUID = 1L;
+
+    private final int start;
+    private final int end;
+
+    public PrimitiveIntegerInterval(final int start, final int end) throws IllegalTimeInterval {
+        this(start, end, false, false);
+    }
+
+    public PrimitiveIntegerInterval(final int start, final int end, final boolean openStart, final boolean openEnd)
+            throws IllegalTimeInterval {
+        this.start = norm(start, openStart, true);
+        this.end = norm(end, openEnd, false);
+
+        if (this.end < this.start) {
+            throw new IllegalTimeInterval("The end value '" + end + "' " +
+                    "cannot be smaller than the start value '" + start + "'.");
+        }
+    }
+
+    protected static int norm(final int value, final boolean open, final boolean start) {
+        if (value == Integer.MIN_VALUE || value == Integer.MAX_VALUE) {
+            return value;
+        } else if (value == Integer.MIN_VALUE + 1 || value == Integer.MAX_VALUE - 1) {
+            throw new IllegalTimeInterval("The edge values are reserved and cannot be used.");
+        } else if (open) {
+            return start ? value + 1 : value - 1;
+        } else {
+            return value;
+        }
+    }
+
+    public int getNormStartInt() {
+        return this.start;
+    }
+
+    public int getNormEndInt() {
+        return this.end;
+    }
+
+    @Override
+    public Integer getNormStart() {
+        return this.start;
+    }
+
+    @Override
+    public Integer getNormEnd() {
+        return this.end;
+    }
+
+    @Override
+    public String getUniqueIdentifier() {
+        return "[" + this.start + "," + this.end + "]";
+    }
+
+    @Override
+    public IntervalKey getIntervalKey() {
+        return IntervalKey.of(this.start, this.end);
+    }
+
+    public boolean contains(final int value) {
+        return this.start <= value && value <= this.end;
+    }
+
+    public boolean overlaps(final int start, final int end) {
+        return this.start <= end && this.end >= start;
+    }
+
+    @Override
+    @SuppressWarnings("NullableProblems")
+    public int compareTo(final IInterval interval) {
+        if (interval instanceof PrimitiveIntegerInterval) {
+            final PrimitiveIntegerInterval i = PrimitiveIntegerInterval.class.cast(interval);
+            final int cmpStart = Integer.compare(this.start, i.start);
+            return cmpStart == 0 ? Integer.compare(this.end, i.end) : cmpStart;
+        } else {
+            final int cmpStart = IntervalValueComparator.compareNumbers(this.start, interval.getNormStart());
+            return cmpStart == 0 ? IntervalValueComparator.compareNumbers(this.end, interval.getNormEnd()) : cmpStart;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.start + this.end;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        } else if (obj instanceof PrimitiveIntegerInterval) {
+            final PrimitiveIntegerInterval i = PrimitiveIntegerInterval.class.cast(obj);
+            return this.start == i.start && this.end == i.end;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%d, %d]", this.start, this.end);
+    }
+}
@@ -0,0 +1,119 @@
+package com.brein.time.timeintervals.intervals;
+
+import com.brein.time.exceptions.IllegalTimeInterval;
+import com.brein.time.timeintervals.indexes.IntervalValueComparator;
+
+/**
+ * A flat, immutable interval of {@code long} values (e.g., time-stamps), which keeps only the normalized (i.e.,
+ * closed) endpoints as primitive values. In contrast to a {@link LongInterval} the instance does not hold any boxed
+ * values or cached identifiers, and the values can be retrieved without unboxing, see {@link #getNormStartLong()} and
+ * {@link #getNormEndLong()}.
+ * <p>
+ * The interval is identified like a {@link LongInterval} with the same normalized values (i.e., the unique
+ * identifiers and keys are equal). The values {@code Long.MIN_VALUE} and {@code Long.MAX_VALUE} are used as unbounded
+ * start and end (i.e., like {@code null} for a {@link LongInterval}), the edge values next to them are reserved.
+ */
+public final class PrimitiveLongInterval implements IInterval<Long> {
+    private static final long serialVersionUID = 1L;
+
+    private final long start;
+    private final long end;
+
+    public PrimitiveLongInterval(final long start, final long end) throws IllegalTimeInterval {
+        this(start, end, false, false);
+    }
+
+    public PrimitiveLongInterval(final long start, final long end, final boolean openStart, final boolean openEnd)
+            throws IllegalTimeInterval {
+        this.start = norm(start, openStart, true);
+        this.end = norm(end, openEnd, false);
+
+        if (this.end < this.start) {
+            throw new IllegalTimeInterval("The end value '" + end + "' " +
+                    "cannot be smaller than the start value '" + start + "'.");
+        }
+    }
+
+    protected static long norm(final long value, final boolean open, final boolean start) {
+        if (value == Long.MIN_VALUE || value == Long.MAX_VALUE) {
+            return value;
+        } else if (value == Long.MIN_VALUE + 1 || value == Long.MAX_VALUE - 1) {
+            throw new IllegalTimeInterval("The edge values are reserved and cannot be used.");
+        } else if (open) {
+            return start ? value + 1L : value - 1L;
+        } else {
+            return value;
+        }
+    }
+
+    public long getNormStartLong() {
+        return this.start;
+    }
+
+    public long getNormEndLong() {
+        return this.end;
+    }
+
+    @Override
+    public Long getNormStart() {
+        return this.start;
+    }
+
+    @Override
+    public Long getNormEnd() {
+        return this.end;
+    }
+
+    @Override
+    public String getUniqueIdentifier() {
+        return "[" + this.start + "," + this.end + "]";
+    }
+
+    @Override
+    public IntervalKey getIntervalKey() {
+        return IntervalKey.of(this.start, this.end);
+    }
+
+    public boolean contains(final long value) {
+        return this.start <= value && value <= this.end;
+    }
+
+    public boolean overlaps(final long start, final long end) {
+        return this.start <= end && this.end >= start;
+    }
+
+    @Override
+    @SuppressWarnings("NullableProblems")
+    public int compareTo(final IInterval interval) {
+        if (interval instanceof PrimitiveLongInterval) {
+            final PrimitiveLongInterval i = PrimitiveLongInterval.class.cast(interval);
+            final int cmpStart = Long.compare(this.start, i.start);
+            return cmpStart == 0 ? Long.compare(this.end, i.end) : cmpStart;
+        } else {
+            final int cmpStart = IntervalValueComparator.compareNumbers(this.start, interval.getNormStart());
+            return cmpStart == 0 ? IntervalValueComparator.compareNumbers(this.end, interval.getNormEnd()) : cmpStart;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(this.start) + Long.hashCode(this.end);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        } else if (obj instanceof PrimitiveLongInterval) {
+            final PrimitiveLongInterval i = PrimitiveLongInterval.class.cast(obj);
+            return this.start == i.start && this.end == i.end;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%d, %d]", this.start, this.end);
+    }
+}
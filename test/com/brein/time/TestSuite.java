@@ -1,8 +1,19 @@
 package com.brein.time;
 
 import com.brein.time.timeintervals.docs.TestDocsSuite;
+import com.brein.time.timeintervals.indexes.TestConcurrentIntervalTree;
+import com.brein.time.timeintervals.indexes.TestIntervalSets;
 import com.brein.time.timeintervals.indexes.TestIntervalTree;
+import com.brein.time.timeintervals.indexes.TestIntervalValueComparator;
+import com.brein.time.timeintervals.indexes.TestLongIntervalTree;
+import com.brein.time.timeintervals.indexes.TestMappedIntervalTree;
+import com.brein.time.timeintervals.indexes.TestPagedIntervalTree;
+import com.brein.time.timeintervals.indexes.TestPartitionedIntervalIndex;
+import com.brein.time.timeintervals.indexes.TestSnapshotIntervalTree;
 import com.brein.time.timeintervals.intervals.TestInterval;
+import com.brein.time.timeintervals.intervals.TestIntervalKey;
+import com.brein.time.timeintervals.intervals.TestIntervalPool;
+import com.brein.time.timeintervals.intervals.TestPrimitiveInterval;
 import com.brein.time.timeseries.TestBucketEndPoints;
 import com.brein.time.timeseries.TestBucketTimeSeries;
 import com.brein.time.timeseries.TestContainerBucketTimeSeries;
@@ -23,7 +34,18 @@ import org.junit.runners.Suite;
         TestBucketTimeSeriesTypeConverter.class,
         TestContainerBucketTimeSeriesTypeConverter.class,
         TestInterval.class,
+        TestIntervalKey.class,
+        TestIntervalPool.class,
+        TestPrimitiveInterval.class,
         TestIntervalTree.class,
+        TestLongIntervalTree.class,
+        TestConcurrentIntervalTree.class,
+        TestMappedIntervalTree.class,
+        TestPagedIntervalTree.class,
+        TestPartitionedIntervalIndex.class,
+        TestSnapshotIntervalTree.class,
+        TestIntervalSets.class,
+        TestIntervalValueComparator.class,
 
         TestDocsSuite.class
 })
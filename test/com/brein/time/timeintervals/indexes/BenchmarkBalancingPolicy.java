@@ -0,0 +1,121 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.collections.ListIntervalCollection;
+import com.brein.time.timeintervals.indexes.IntervalTreeBuilder.IntervalType;
+import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.LongInterval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the {@link BalancingPolicy} implementations on an insert-mostly timestamp workload, i.e.,
+ * intervals (given in seconds) arrive nearly in order, the oldest intervals are removed once in a while, and recent
+ * time windows are queried. The benchmark is not part of the tests, it can be run using the {@link #main(String[])}
+ * method (with the test class-path) or using {@code org.openjdk.jmh.Main}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkBalancingPolicy {
+    private static final long START = 1_500_000_000L;
+
+    @Param({"AVL", "TREAP"})
+    private BalancingPolicy policy;
+
+    @Param({"100000"})
+    private int size;
+
+    private final Random rnd = new Random(42L);
+    private final Deque<IInterval> window = new ArrayDeque<>();
+
+    private IntervalTree tree;
+    private long now;
+    private long operations;
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BenchmarkBalancingPolicy.class.getSimpleName())
+                .build()).run();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        this.tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .useBalancingPolicy(this.policy)
+                .build();
+        this.window.clear();
+        this.now = START;
+        this.operations = 0L;
+
+        for (int i = 0; i < this.size; i++) {
+            insert();
+        }
+    }
+
+    /**
+     * Adds a new interval to the tree, starting at most a minute before the current time.
+     */
+    protected void insert() {
+        this.now += this.rnd.nextInt(3);
+
+        final long start = this.now - (this.rnd.nextInt(10) == 0 ? this.rnd.nextInt(60) : 0);
+        final IInterval interval = new LongInterval(start, start + 1 + this.rnd.nextInt(3600));
+        if (this.tree.add(interval)) {
+            this.window.addLast(interval);
+        }
+    }
+
+    /**
+     * Ten inserts per removal of the oldest interval, i.e., the tree keeps growing.
+     */
+    @Benchmark
+    public void insertMostly() {
+        insert();
+
+        if (++this.operations % 10 == 0) {
+            this.tree.remove(this.window.pollFirst());
+        }
+    }
+
+    /**
+     * Every insert is followed by the removal of the oldest interval, i.e., a sliding window of a fixed size.
+     */
+    @Benchmark
+    public void slidingWindow() {
+        insert();
+        this.tree.remove(this.window.pollFirst());
+    }
+
+    /**
+     * Queries the intervals overlapping with a window of the last minute.
+     */
+    @Benchmark
+    public void queryRecent(final Blackhole blackhole) {
+        final long end = this.now - this.rnd.nextInt(3600);
+        this.tree.overlap(end - 60, end, blackhole::consume);
+    }
+}
@@ -0,0 +1,140 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.indexes.IntervalTreeBuilder.IntervalType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares the comparators of the {@link IntervalType} instances (non-strict and strict) with the former
+ * implementation of {@link IntervalValueComparator#compareNumbers(Object, Object)}, which determined the type to
+ * compare mixed numbers by searching the {@link IntervalValueComparator#NUMBER_HIERARCHY} and mapped (i.e., boxed)
+ * both values. The values are either all {@code Long} values or mixed {@code Long}, {@code Integer}, and {@code
+ * Double} values. The benchmark is not part of the tests, it can be run using the {@link #main(String[])} method (with
+ * the test class-path) or using {@code org.openjdk.jmh.Main}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BenchmarkIntervalValueComparator {
+    private static final int SIZE = 1024;
+
+    @Param({"false", "true"})
+    private boolean mixed;
+
+    private final Object[] values = new Object[SIZE];
+
+    private IntervalValueComparator comparator;
+    private IntervalValueComparator strictComparator;
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BenchmarkIntervalValueComparator.class.getSimpleName())
+                .build()).run();
+    }
+
+    @Setup
+    public void setUp() {
+        final Random rnd = new Random(42L);
+        for (int i = 0; i < SIZE; i++) {
+            final long value = 1_500_000_000L + rnd.nextInt(1_000_000);
+            if (!this.mixed || i % 3 == 0) {
+                this.values[i] = value;
+            } else if (i % 3 == 1) {
+                this.values[i] = (int) value;
+            } else {
+                this.values[i] = (double) value;
+            }
+        }
+
+        this.comparator = IntervalType.LONG.getComparator(false);
+        this.strictComparator = IntervalType.LONG.getComparator(true);
+    }
+
+    @Benchmark
+    public int formerNumbers() {
+        int result = 0;
+        for (int i = 1; i < SIZE; i++) {
+            result += formerCompareNumbers(this.values[i - 1], this.values[i]);
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public int numbers() {
+        int result = 0;
+        for (int i = 1; i < SIZE; i++) {
+            result += IntervalValueComparator.compareNumbers(this.values[i - 1], this.values[i]);
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public int longType() {
+        int result = 0;
+        for (int i = 1; i < SIZE; i++) {
+            result += this.comparator.compare(this.values[i - 1], this.values[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * The strict comparator can only compare {@code Long} values, thus mixed values are not benchmarked.
+     */
+    @Benchmark
+    public int strictLongType() {
+        if (this.mixed) {
+            return 0;
+        }
+
+        int result = 0;
+        for (int i = 1; i < SIZE; i++) {
+            result += this.strictComparator.compare(this.values[i - 1], this.values[i]);
+        }
+
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static int formerCompareNumbers(final Object o1, final Object o2) {
+        if (!Number.class.isAssignableFrom(o1.getClass()) || !Number.class.isAssignableFrom(o2.getClass())) {
+            throw new IllegalArgumentException();
+        } else if (Comparable.class.isAssignableFrom(o1.getClass()) && o1.getClass().equals(o2.getClass())) {
+            return Comparable.class.cast(o1).compareTo(o2);
+        } else {
+            final int pos = Stream.of(o1.getClass(), o2.getClass())
+                    .map(IntervalValueComparator.NUMBER_HIERARCHY::indexOf)
+                    .filter(idx -> idx != -1)
+                    .mapToInt(idx -> idx)
+                    .max()
+                    .orElse(-1);
+            final Class<? extends Comparable> mappedClazz = IntervalValueComparator.NUMBER_HIERARCHY.get(pos);
+
+            final Comparable mappedO1 = IntervalValueComparator.mapNumberValue(o1, mappedClazz);
+            final Comparable mappedO2 = IntervalValueComparator.mapNumberValue(o2, mappedClazz);
+
+            return mappedO1.compareTo(mappedO2);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.collections.ListIntervalCollection;
+import com.brein.time.timeintervals.indexes.IntervalTreeBuilder.IntervalType;
+import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.LongInterval;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TestConcurrentIntervalTree {
+
+    @Test
+    public void testSimpleUsage() {
+        final ConcurrentIntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .buildConcurrent();
+
+        tree.insert(new LongInterval(1L, 5L))
+                .insert(new LongInterval(2L, 5L))
+                .insert(new LongInterval(3L, 5L));
+
+        Assert.assertEquals(3, tree.size());
+        Assert.assertEquals(2, tree.overlap(new LongInterval(2L, 2L)).size());
+        Assert.assertEquals(1, tree.find(new LongInterval(2L, 5L)).size());
+        Assert.assertTrue(tree.contains(new LongInterval(3L, 5L)));
+
+        final List<IInterval> visited = new ArrayList<>();
+        tree.overlap(4L, 4L, visited::add);
+        Assert.assertEquals(3, visited.size());
+
+        tree.delete(new LongInterval(1L, 5L));
+        Assert.assertEquals(2, tree.size());
+        Assert.assertEquals(2, tree.stream().count());
+        Assert.assertTrue(tree.isBalanced());
+
+        Assert.assertEquals(2L, tree.ceiling(2L).getNormStart());
+        Assert.assertEquals(3L, tree.higher(2L).getNormStart());
+        Assert.assertEquals(3L, tree.floor(10L).getNormStart());
+        Assert.assertNull(tree.lower(2L));
+    }
+
+    @Test
+    public void testReadsWhileWriteLocked() throws Exception {
+        final ConcurrentIntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .maintainAggregates(IntervalTreeAggregators.COUNT)
+                .buildConcurrent();
+        for (long i = 0; i < 100; i++) {
+            tree.insert(new LongInterval(i, i + 10));
+        }
+
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            final Future<?> writer = executor.submit(() -> tree.write(() -> {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            Assert.assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+            // the queries are answered by the published view, i.e., they are not blocked by the writer
+            final LongInterval query = new LongInterval(50L, 50L);
+            final Future<?> reader = executor.submit(() -> {
+                Assert.assertEquals(11, tree.overlap(query).size());
+                Assert.assertEquals(11, tree.overlapStream(query).count());
+                Assert.assertEquals(11, tree.stab(50L).size());
+                Assert.assertEquals(11L, tree.countOverlaps(query));
+                Assert.assertEquals(11L, tree.maxConcurrency(query));
+                Assert.assertEquals(1, tree.find(new LongInterval(50L, 60L)).size());
+                Assert.assertEquals(2, tree.nearest(200L, 2).size());
+                Assert.assertEquals(100L, tree.aggregate(IntervalTreeAggregators.COUNT).longValue());
+                Assert.assertEquals(11, tree.overlapAll(Collections.singletonList(query)).get(0).size());
+                Assert.assertEquals(100, tree.toArray().length);
+                Assert.assertEquals(50L, tree.ceiling(50L).getNormStart());
+                Assert.assertEquals(50L, tree.iteratorFrom(50L).next().getNormStart());
+                Assert.assertEquals(11, tree.freeze().overlap(query).size());
+            });
+            reader.get(10, TimeUnit.SECONDS);
+
+            release.countDown();
+            writer.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        // the view published by a modification contains the modification
+        tree.insert(new LongInterval(50L, 50L));
+        Assert.assertEquals(12, tree.overlap(new LongInterval(50L, 50L)).size());
+        Assert.assertEquals(101L, tree.aggregate(IntervalTreeAggregators.COUNT).longValue());
+    }
+
+    @Test
+    public void testConcurrentReadsAndWrites() throws Exception {
+        final ConcurrentIntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .buildConcurrent();
+
+        final int nrOfIntervals = 20_000;
+        final int nrOfReaders = 4;
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final ExecutorService executor = Executors.newFixedThreadPool(nrOfReaders + 1);
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> {
+                for (long i = 0; i < nrOfIntervals; i++) {
+                    tree.insert(new LongInterval(i, i + 10));
+                }
+                done.set(true);
+            }));
+
+            for (int r = 0; r < nrOfReaders; r++) {
+                futures.add(executor.submit(() -> {
+                    while (!done.get()) {
+                        final int size = tree.size();
+                        if (size < 30) {
+                            continue;
+                        }
+
+                        // every interval [i, i + 10] with i in [point - 10, point] was added before the size was read
+                        final long point = size - 20;
+                        final Collection<IInterval> overlap = tree.overlap(new LongInterval(point, point));
+                        Assert.assertEquals(11, overlap.size());
+
+                        // the navigations are performed optimistically
+                        Assert.assertEquals(point, tree.ceiling(point).getNormStart());
+                        Assert.assertEquals(point, tree.floor(point).getNormStart());
+                        Assert.assertEquals(point + 1, tree.higher(point).getNormStart());
+                        Assert.assertEquals(point - 1, tree.lower(point).getNormStart());
+                    }
+                }));
+            }
+
+            for (final Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(nrOfIntervals, tree.size());
+        Assert.assertTrue(tree.isBalanced());
+        Assert.assertEquals(11, tree.overlap(new LongInterval(100L, 100L)).size());
+    }
+}
@@ -0,0 +1,147 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.collections.ListIntervalCollection;
+import com.brein.time.timeintervals.indexes.IntervalTreeBuilder.IntervalType;
+import com.brein.time.timeintervals.intervals.DoubleInterval;
+import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.LongInterval;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TestIntervalSets {
+    private static final int DOMAIN = 300;
+
+    @Test
+    public void testAgainstBruteForce() {
+        final Random rnd = new Random();
+        for (int run = 0; run < 50; run++) {
+            final IntervalTree tree = createTree(IntervalType.LONG);
+            final IntervalTree other = createTree(IntervalType.LONG);
+            final BitSet treeCoverage = fill(tree, rnd);
+            final BitSet otherCoverage = fill(other, rnd);
+
+            assertCoverage(treeCoverage, IntervalSets.coalesce(tree));
+
+            final BitSet union = BitSet.class.cast(treeCoverage.clone());
+            union.or(otherCoverage);
+            assertCoverage(union, IntervalSets.union(tree, other));
+
+            final BitSet intersection = BitSet.class.cast(treeCoverage.clone());
+            intersection.and(otherCoverage);
+            assertCoverage(intersection, IntervalSets.intersection(tree, other));
+
+            final BitSet difference = BitSet.class.cast(treeCoverage.clone());
+            difference.andNot(otherCoverage);
+            assertCoverage(difference, IntervalSets.difference(tree, other));
+
+            final int windowStart = rnd.nextInt(DOMAIN);
+            final LongInterval window = new LongInterval((long) windowStart, (long) windowStart + rnd.nextInt(100));
+            final BitSet windowCoverage = new BitSet();
+            windowCoverage.set(windowStart, window.getNormEnd().intValue() + 1);
+
+            final BitSet range = BitSet.class.cast(treeCoverage.clone());
+            range.and(windowCoverage);
+            assertCoverage(range, IntervalSets.intersection(tree, window));
+
+            windowCoverage.andNot(treeCoverage);
+            assertCoverage(windowCoverage, IntervalSets.gaps(tree, window));
+        }
+    }
+
+    @Test
+    public void testCoalesce() {
+        final IntervalTree tree = createTree(IntervalType.LONG);
+        tree.add(new LongInterval(1L, 5L));
+        tree.add(new LongInterval(6L, 8L));
+        tree.add(new LongInterval(2L, 3L));
+        tree.add(new LongInterval(10L, 12L));
+        tree.add(new LongInterval(11L, 20L));
+
+        Assert.assertEquals(Arrays.asList(new LongInterval(1L, 8L), new LongInterval(10L, 20L)),
+                IntervalSets.coalesce(tree).collect(Collectors.toList()));
+        Assert.assertEquals(Arrays.asList(new LongInterval(null, 0L), new LongInterval(9L, 9L),
+                new LongInterval(21L, null)),
+                IntervalSets.gaps(tree, new LongInterval(null, null)).collect(Collectors.toList()));
+        Assert.assertEquals(0L, IntervalSets.gaps(tree, new LongInterval(2L, 7L)).count());
+        Assert.assertEquals(0L, IntervalSets.coalesce(createTree(IntervalType.LONG)).count());
+    }
+
+    @Test
+    public void testOverlappingNodeIterator() {
+        final IntervalTree tree = createTree(IntervalType.LONG);
+        for (long i = 0; i < 100; i++) {
+            tree.add(new LongInterval(i, i + 2));
+        }
+
+        final Iterator<IntervalTreeNode> it = tree.overlappingNodeIterator(tree.getRoot(), 10L, 20L);
+        for (long i = 8; i <= 20; i++) {
+            Assert.assertTrue(it.hasNext());
+            Assert.assertEquals(i, it.next().getStart());
+        }
+        Assert.assertFalse(it.hasNext());
+        Assert.assertFalse(tree.overlappingNodeIterator(null, 10L, 20L).hasNext());
+    }
+
+    @Test
+    public void testNumberTree() {
+        final IntervalTree tree = createTree(IntervalType.NUMBER);
+        tree.add(new DoubleInterval(1.5, 2.5));
+        tree.add(new DoubleInterval(2.0, 4.0));
+        tree.add(new DoubleInterval(5.0, 6.0, true, false));
+
+        final List<IInterval> coverage = IntervalSets.coalesce(tree).collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList(new DoubleInterval(1.5, 4.0), new DoubleInterval(5.0, 6.0, true, false)),
+                coverage);
+
+        final List<IInterval> gaps = IntervalSets.gaps(tree, new DoubleInterval(0.0, 10.0))
+                .collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList(new DoubleInterval(0.0, 1.5, false, true),
+                new DoubleInterval(4.0, 5.0, true, false), new DoubleInterval(6.0, 10.0, true, false)), gaps);
+    }
+
+    protected BitSet fill(final IntervalTree tree, final Random rnd) {
+        final BitSet coverage = new BitSet();
+        final int amount = rnd.nextInt(30);
+        for (int i = 0; i < amount; i++) {
+            final int start = rnd.nextInt(DOMAIN);
+            final int end = start + rnd.nextInt(20);
+
+            tree.add(new LongInterval((long) start, (long) end));
+            coverage.set(start, end + 1);
+        }
+
+        return coverage;
+    }
+
+    protected void assertCoverage(final BitSet expected, final Stream<IInterval> result) {
+        final BitSet coverage = new BitSet();
+
+        long lastEnd = Long.MIN_VALUE;
+        for (final IInterval interval : result.collect(Collectors.toList())) {
+            final long start = Long.class.cast(interval.getNormStart());
+            final long end = Long.class.cast(interval.getNormEnd());
+
+            // the result must be sorted, disjoint, and not adjacent
+            Assert.assertTrue(lastEnd == Long.MIN_VALUE || lastEnd + 1L < start);
+            coverage.set((int) start, (int) end + 1);
+            lastEnd = end;
+        }
+
+        Assert.assertEquals(expected, coverage);
+    }
+
+    protected IntervalTree createTree(final IntervalType type) {
+        return IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(type)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+    }
+}
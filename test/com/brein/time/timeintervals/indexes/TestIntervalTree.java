@@ -3,6 +3,7 @@ package com.brein.time.timeintervals.indexes;
 import com.brein.time.timeintervals.collections.ListIntervalCollection;
 import com.brein.time.timeintervals.collections.SetIntervalCollection;
 import com.brein.time.timeintervals.indexes.IntervalTreeBuilder.IntervalType;
+import com.brein.time.timeintervals.intervals.AllenIntervalRelation;
 import com.brein.time.timeintervals.intervals.DoubleInterval;
 import com.brein.time.timeintervals.intervals.IInterval;
 import com.brein.time.timeintervals.intervals.IdInterval;
@@ -14,14 +15,21 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -110,6 +118,170 @@ public class TestIntervalTree {
         }
     }
 
+    @Test
+    public void testSequentialInsertAndDelete() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+
+        // sorted inserts are the worst case for the re-balancing
+        final int nrOfIntervals = 100_000;
+        for (long i = 0; i < nrOfIntervals; i++) {
+            tree.insert(new LongInterval(i, i + 10));
+        }
+        Assert.assertEquals(nrOfIntervals, tree.size());
+        Assert.assertTrue(tree.isBalanced());
+        Assert.assertTrue(tree.getRoot().getHeight() <= 1.45 * Math.log(nrOfIntervals) / Math.log(2));
+        Assert.assertEquals(nrOfIntervals + 9L, tree.getRoot().getMax());
+        Assert.assertEquals(11, tree.overlap(new LongInterval(500L, 500L)).size());
+
+        for (long i = 0; i < nrOfIntervals; i += 2) {
+            Assert.assertTrue(tree.remove(new LongInterval(i, i + 10)));
+        }
+        Assert.assertEquals(nrOfIntervals / 2, tree.size());
+        Assert.assertTrue(tree.isBalanced());
+        tree.nodeIterator().forEachRemaining(node -> assertNode(node, tree, false));
+
+        for (long i = 1; i < nrOfIntervals; i += 2) {
+            Assert.assertTrue(tree.remove(new LongInterval(i, i + 10)));
+        }
+        Assert.assertTrue(tree.isEmpty());
+        Assert.assertNull(tree.getRoot());
+    }
+
+    @Test
+    public void testTreapBalancing() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .useBalancingPolicy(BalancingPolicy.TREAP)
+                .build();
+        Assert.assertTrue(tree.isAutoBalancing());
+        Assert.assertEquals(BalancingPolicy.TREAP, tree.getBalancingPolicy());
+
+        // sorted inserts must not degenerate the treap
+        final int nrOfIntervals = 100_000;
+        for (long i = 0; i < nrOfIntervals; i++) {
+            tree.insert(new LongInterval(i, i + 10));
+        }
+        Assert.assertEquals(nrOfIntervals, tree.size());
+        Assert.assertTrue(tree.getRoot().getHeight() <= 4 * Math.log(nrOfIntervals) / Math.log(2));
+        Assert.assertEquals(nrOfIntervals + 9L, tree.getRoot().getMax());
+        Assert.assertEquals(11, tree.overlap(new LongInterval(500L, 500L)).size());
+        tree.nodeIterator().forEachRemaining(node -> assertTreapNode(node, tree));
+
+        final Random rnd = new Random();
+        final List<IInterval> added = new ArrayList<>(tree);
+        for (int i = 0; i < 2_000; i++) {
+            if (rnd.nextInt(3) == 0) {
+                final long start = rnd.nextInt(nrOfIntervals);
+                final IInterval interval = new LongInterval(start, start + rnd.nextInt(50));
+                if (!tree.contains(interval) && tree.add(interval)) {
+                    added.add(interval);
+                }
+            } else {
+                Assert.assertTrue(tree.remove(added.remove(rnd.nextInt(added.size()))));
+            }
+        }
+        Assert.assertEquals(added.size(), tree.size());
+        tree.nodeIterator().forEachRemaining(node -> assertTreapNode(node, tree));
+    }
+
+    @Test
+    public void testAdvanceWatermark() {
+        final Random rnd = new Random();
+
+        for (final BalancingPolicy policy : BalancingPolicy.values()) {
+            final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                    .usePredefinedType(IntervalType.LONG)
+                    .collectIntervals(interval -> new SetIntervalCollection())
+                    .useBalancingPolicy(policy)
+                    .maintainAggregates(rnd.nextBoolean() ?
+                            IntervalTreeAggregators.COUNT : IntervalTreeAggregators.MIN_END)
+                    .build();
+
+            final Set<IInterval> expected = new HashSet<>();
+            for (int i = 0; i < 5_000; i++) {
+                final long start = rnd.nextInt(10_000);
+                final IInterval interval = new LongInterval(start, start + (rnd.nextInt(20) == 0 ? 5_000 : 50));
+                tree.add(interval);
+                expected.add(interval);
+            }
+
+            for (long watermark = 0L; watermark < 16_000L; watermark += rnd.nextInt(2_000)) {
+                final long size = expected.size();
+                final long finalWatermark = watermark;
+                expected.removeIf(interval -> (Long) interval.getNormEnd() < finalWatermark);
+
+                Assert.assertEquals(size - expected.size(), tree.advanceWatermark(watermark));
+                Assert.assertEquals(watermark, tree.getWatermark());
+                Assert.assertEquals(expected, new HashSet<>(tree));
+                Assert.assertEquals(expected.size(), tree.size());
+                Assert.assertEquals(0L, tree.advanceWatermark(watermark - 1));
+
+                tree.nodeIterator().forEachRemaining(node -> assertNode(node, tree, false));
+                if (BalancingPolicy.AVL.equals(policy)) {
+                    Assert.assertTrue(tree.isBalanced());
+                } else if (BalancingPolicy.TREAP.equals(policy)) {
+                    tree.nodeIterator().forEachRemaining(node -> assertTreapNode(node, tree));
+                }
+            }
+
+            Assert.assertEquals(expected.size(), tree.advanceWatermark(20_000L));
+            Assert.assertTrue(tree.isEmpty());
+        }
+    }
+
+    @Test
+    public void testRetention() {
+        final long retention = 1_000L;
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .useRetention(retention)
+                .build();
+
+        final Random rnd = new Random();
+        long now = 0L;
+        for (int i = 0; i < 100_000; i++) {
+
+            // the snapshots lock the modifications, also the ones advancing the watermark
+            if (i == 50_000) {
+                Assert.assertEquals(tree.size(), tree.snapshot().size());
+            }
+
+            now += rnd.nextInt(3);
+            final long start = now - rnd.nextInt(10);
+            tree.add(new LongInterval(start, start + rnd.nextInt(100)));
+
+            // the tree never holds more than the retention (and a step of the watermark)
+            Assert.assertTrue(tree.size() <= 2 * (retention + retention / 16 + 110));
+        }
+
+        final long watermark = (Long) tree.getWatermark();
+        Assert.assertTrue(watermark >= now - retention - retention / 16 - 10);
+        tree.forEach(interval -> Assert.assertTrue((Long) interval.getNormEnd() >= watermark));
+
+        // intervals ending before the watermark are not added anymore
+        Assert.assertFalse(tree.add(new LongInterval(watermark - 10, watermark - 1)));
+        Assert.assertTrue(tree.add(new LongInterval(watermark - 10, watermark)));
+
+        // clearing the tree resets the watermark
+        tree.clear();
+        Assert.assertNull(tree.getWatermark());
+        Assert.assertTrue(tree.add(new LongInterval(0L, 10L)));
+        Assert.assertEquals(1, tree.size());
+    }
+
+    protected void assertTreapNode(final IntervalTreeNode node, final IntervalTree tree) {
+        assertNode(node, tree, false);
+
+        if (node.hasParent()) {
+            Assert.assertTrue(node.getParent().getPriority() >= node.getPriority());
+        }
+    }
+
     @Test
     public void testTrees() {
         final int nrOfRuns = 1;
@@ -284,6 +456,510 @@ public class TestIntervalTree {
         }
     }
 
+    @Test
+    public void testOverlapVisitor() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.NUMBER)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+
+        final List<IInterval> visited = new ArrayList<>();
+        tree.overlap(new LongInterval(1L, 5L), visited::add);
+        Assert.assertEquals(0, visited.size());
+
+        final Random rnd = new Random();
+        for (int i = 0; i < 200; i++) {
+            final int start = rnd.nextInt(500);
+            tree.insert(new IntegerInterval(start, start + rnd.nextInt(30)));
+        }
+
+        for (int i = 0; i < 50; i++) {
+            final int start = rnd.nextInt(550);
+            final IntegerInterval query = new IntegerInterval(start, start + rnd.nextInt(10));
+
+            visited.clear();
+            tree.overlap(query, visited::add);
+            Assert.assertEquals(tree.overlapStream(query).collect(Collectors.toSet()), new HashSet<>(visited));
+            Assert.assertEquals(tree.overlap(query), visited);
+
+            visited.clear();
+            tree.overlap((long) query.getNormStart(), (long) query.getNormEnd(), visited::add);
+            Assert.assertEquals(tree.overlap(query), visited);
+        }
+    }
+
+    @Test
+    public void testBulkLoad() {
+        final Random rnd = new Random();
+        final List<IInterval> intervals = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final int start = rnd.nextInt(5000);
+            intervals.add(new IntegerInterval(start, start + rnd.nextInt(50)));
+        }
+
+        final IntervalTree insertedTree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.NUMBER)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+        intervals.forEach(insertedTree::insert);
+
+        final IntervalTree loadedTree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.NUMBER)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .bulkLoad(intervals.stream())
+                .build();
+        Assert.assertEquals(insertedTree.size(), loadedTree.size());
+        Assert.assertTrue(loadedTree.isBalanced());
+
+        for (int i = 0; i < 100; i++) {
+            final int start = rnd.nextInt(5100);
+            final IntegerInterval query = new IntegerInterval(start, start + rnd.nextInt(20));
+
+            Assert.assertEquals(new HashSet<>(insertedTree.overlap(query)), new HashSet<>(loadedTree.overlap(query)));
+            Assert.assertEquals(insertedTree.find(query).size(), loadedTree.find(query).size());
+        }
+
+        // the loaded tree must behave like any other tree
+        intervals.subList(0, 500).forEach(interval -> Assert.assertTrue(loadedTree.remove(interval)));
+        Assert.assertEquals(500, loadedTree.size());
+        Assert.assertTrue(loadedTree.isBalanced());
+
+        // validate the structure using unique intervals
+        final IntervalTree uniqueTree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .bulkLoad(IntStream.range(0, 100)
+                        .mapToObj(i -> new LongInterval(99L - i, 99L - i + rnd.nextInt(10)))
+                        .collect(Collectors.toList()))
+                .build();
+        Assert.assertEquals(100, uniqueTree.size());
+        uniqueTree.nodeIterator().forEachRemaining(node -> assertNode(node, uniqueTree, true));
+
+        try {
+            uniqueTree.bulkLoad(intervals);
+            Assert.fail("Bulk-loading into a non-empty tree must fail");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+
+        // a treap is loaded heap-ordered, a stream can be loaded by several trees of a builder
+        final List<IInterval> uniqueIntervals = IntStream.range(0, 1000)
+                .mapToObj(i -> new LongInterval((long) i, (long) i + rnd.nextInt(10)))
+                .collect(Collectors.toList());
+        final IntervalTreeBuilder treapBuilder = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .useBalancingPolicy(BalancingPolicy.TREAP)
+                .bulkLoad(uniqueIntervals.stream());
+        for (int i = 0; i < 2; i++) {
+            final IntervalTree treapTree = treapBuilder.build();
+            Assert.assertEquals(1000, treapTree.size());
+            treapTree.nodeIterator().forEachRemaining(node -> assertTreapNode(node, treapTree));
+
+            uniqueIntervals.subList(0, 500).forEach(interval -> Assert.assertTrue(treapTree.remove(interval)));
+            Assert.assertEquals(500, treapTree.size());
+            treapTree.nodeIterator().forEachRemaining(node -> assertTreapNode(node, treapTree));
+        }
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        final File snapshotFile = new File(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        final File legacyFile = new File(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+
+        try {
+            final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                    .usePredefinedType(IntervalType.NUMBER)
+                    .collectIntervals(interval -> new ListIntervalCollection())
+                    .enableWriteCollections()
+                    .build();
+
+            final Random rnd = new Random();
+            for (int i = 0; i < 2000; i++) {
+                final long start = 1_500_000_000_000L + rnd.nextInt(100_000);
+                if (i % 3 == 0) {
+                    tree.insert(new DoubleInterval(start + 0.5, start + 10.25));
+                } else if (i % 3 == 1) {
+                    tree.insert(new IntegerInterval(rnd.nextInt(1000) - 500, rnd.nextInt(100) + 500));
+                } else {
+                    tree.insert(new LongInterval(start, start + rnd.nextInt(1000)));
+                }
+            }
+
+            // write the snapshot and a file using the format of earlier versions
+            tree.saveToFile(snapshotFile);
+            try (final ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(legacyFile))) {
+                tree.getConfiguration().writeExternal(out);
+                tree.writeExternal(out);
+            }
+            Assert.assertTrue(snapshotFile.length() < legacyFile.length());
+
+            for (final File file : Arrays.asList(snapshotFile, legacyFile)) {
+                final IntervalTree loadedTree = IntervalTreeBuilder.newBuilder()
+                        .loadFromFile(file)
+                        .build();
+                Assert.assertEquals(tree.size(), loadedTree.size());
+
+                final Iterator<IntervalTreeNode> it = tree.nodeIterator();
+                final Iterator<IntervalTreeNode> loadedIt = loadedTree.nodeIterator();
+                while (it.hasNext()) {
+                    final IntervalTreeNode node = it.next();
+                    final IntervalTreeNode loadedNode = loadedIt.next();
+
+                    Assert.assertEquals(node.getStart(), loadedNode.getStart());
+                    Assert.assertEquals(node.getEnd(), loadedNode.getEnd());
+                    Assert.assertEquals(node.getMax(), loadedNode.getMax());
+                    Assert.assertEquals(node.getLevel(), loadedNode.getLevel());
+                    Assert.assertEquals(node.getHeight(), loadedNode.getHeight());
+                    Assert.assertEquals(node.getKey(), loadedNode.getKey());
+                    Assert.assertEquals(node.getIntervals().stream().collect(Collectors.toList()),
+                            loadedNode.getIntervals().stream().collect(Collectors.toList()));
+                }
+                Assert.assertFalse(loadedIt.hasNext());
+            }
+        } finally {
+            Assert.assertTrue(snapshotFile.delete());
+            Assert.assertTrue(legacyFile.delete());
+        }
+    }
+
+    @Test
+    public void testFreeze() {
+        final Random rnd = new Random();
+        for (final IntervalType type : Arrays.asList(IntervalType.LONG, IntervalType.NUMBER)) {
+            final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                    .usePredefinedType(type)
+                    .collectIntervals(interval -> new ListIntervalCollection())
+                    .build();
+            Assert.assertEquals(0, tree.freeze().overlap(new LongInterval(1L, 2L)).size());
+
+            for (int i = 0; i < 1000; i++) {
+                final long start = rnd.nextInt(2000) - 1000;
+                if (IntervalType.NUMBER.equals(type) && i % 2 == 0) {
+                    tree.insert(new DoubleInterval(start - 0.5, start + rnd.nextInt(30) + 0.5));
+                } else {
+                    tree.insert(new LongInterval(start, start + rnd.nextInt(30)));
+                }
+            }
+
+            final FrozenIntervalTree frozenTree = tree.freeze();
+            Assert.assertEquals(tree.size(), frozenTree.size());
+            Assert.assertEquals(new HashSet<>(tree), frozenTree.overlapStream(new LongInterval(-2000L, 2000L))
+                    .collect(Collectors.toSet()));
+
+            for (int i = 0; i < 100; i++) {
+                final long start = rnd.nextInt(2100) - 1050;
+                final IInterval query = i % 2 == 0
+                        ? new LongInterval(start, start + rnd.nextInt(20))
+                        : new DoubleInterval(start + 0.25, start + rnd.nextInt(20) + 0.75);
+
+                Assert.assertEquals(new HashSet<>(tree.overlap(query)), new HashSet<>(frozenTree.overlap(query)));
+                Assert.assertEquals(tree.find(query), frozenTree.find(query));
+            }
+
+            // the frozen tree is not affected by modifications
+            tree.clear();
+            Assert.assertEquals(1000, frozenTree.size());
+        }
+    }
+
+    @Test
+    public void testOverlapAll() {
+        final Random rnd = new Random();
+        for (final IntervalType type : Arrays.asList(IntervalType.LONG, IntervalType.NUMBER)) {
+            final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                    .usePredefinedType(type)
+                    .collectIntervals(interval -> new ListIntervalCollection())
+                    .build();
+            Assert.assertEquals(Collections.singletonList(Collections.emptyList()),
+                    tree.overlapAll(Collections.singletonList(new LongInterval(1L, 2L))));
+
+            for (int i = 0; i < 2000; i++) {
+                final long start = rnd.nextInt(10_000);
+                tree.insert(new LongInterval(start, start + rnd.nextInt(100)));
+            }
+
+            final List<IInterval> queries = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                final long start = rnd.nextInt(10_200) - 100;
+                queries.add(new LongInterval(start, start + rnd.nextInt(50)));
+            }
+
+            final List<List<IInterval>> results = tree.overlapAll(queries);
+            final List<List<IInterval>> parallelResults = tree.overlapAll(queries, ForkJoinPool.commonPool());
+            Assert.assertEquals(queries.size(), results.size());
+            for (int i = 0; i < queries.size(); i++) {
+                Assert.assertEquals(tree.overlap(queries.get(i)), results.get(i));
+                Assert.assertEquals(results.get(i), parallelResults.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testStab() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.NUMBER)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+        Assert.assertEquals(0, tree.stab(5L).size());
+        Assert.assertEquals(0L, tree.stabStream(5L).count());
+
+        final Random rnd = new Random();
+        for (int i = 0; i < 1000; i++) {
+            final long start = rnd.nextInt(2000);
+            tree.insert(new LongInterval(start, start + rnd.nextInt(100)));
+        }
+
+        for (long point = -10; point < 2110; point += 3) {
+            final Collection<IInterval> expected = tree.overlap(new LongInterval(point, point));
+            Assert.assertEquals(expected, tree.stab(point));
+            Assert.assertEquals(new HashSet<>(expected), tree.stabStream(point).collect(Collectors.toSet()));
+
+            final List<IInterval> visited = new ArrayList<>();
+            tree.stab(point, visited::add);
+            Assert.assertEquals(expected, visited);
+        }
+
+        final FrozenIntervalTree frozenTree = tree.freeze();
+        Assert.assertEquals(new HashSet<>(tree.stab(500L)), new HashSet<>(frozenTree.stab(500L)));
+    }
+
+    @Test
+    public void testRelate() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.NUMBER)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+
+        final Random rnd = new Random();
+        for (int i = 0; i < 1000; i++) {
+            final long start = rnd.nextInt(500);
+            tree.insert(new LongInterval(start, start + rnd.nextInt(30)));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            final long start = rnd.nextInt(520) - 10;
+            final LongInterval query = new LongInterval(start, start + rnd.nextInt(20));
+
+            for (final AllenIntervalRelation relation : AllenIntervalRelation.values()) {
+                final Set<IInterval> expected = new HashSet<>();
+                tree.forEach(interval -> {
+                    if (LongInterval.class.cast(interval).ir(query) == relation) {
+                        expected.add(interval);
+                    }
+                });
+
+                Assert.assertEquals(relation + " " + query, expected, new HashSet<>(tree.relate(query, relation)));
+            }
+
+            final Set<IInterval> expected = new HashSet<>(tree.relate(query, AllenIntervalRelation.BEFORE));
+            expected.addAll(tree.relate(query, AllenIntervalRelation.BEGINS));
+            expected.addAll(tree.relate(query, AllenIntervalRelation.IS_DURING));
+            Assert.assertEquals(expected, new HashSet<>(tree.relate(query, AllenIntervalRelation.BEFORE,
+                    AllenIntervalRelation.BEGINS, AllenIntervalRelation.IS_DURING)));
+        }
+
+        Assert.assertEquals(0, tree.relate(new LongInterval(5L, 10L)).size());
+        Assert.assertEquals(tree.size(),
+                tree.relate(new LongInterval(100L, 200L), AllenIntervalRelation.values()).size());
+    }
+
+    @Test
+    public void testNavigation() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.NUMBER)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+        Assert.assertNull(tree.ceiling(5L));
+        Assert.assertNull(tree.nearest(5L));
+        Assert.assertFalse(tree.iteratorFrom(5L).hasNext());
+
+        final Random rnd = new Random();
+        for (int i = 0; i < 1000; i++) {
+            final long start = rnd.nextInt(5000);
+            tree.insert(new LongInterval(start, start + rnd.nextInt(10)));
+        }
+        final List<IInterval> all = new ArrayList<>(tree);
+
+        for (int i = 0; i < 200; i++) {
+            final long point = rnd.nextInt(5100) - 50;
+
+            Assert.assertEquals(all.stream().filter(interval -> compare(interval, point) >= 0).findFirst().orElse(null),
+                    tree.ceiling(point));
+            Assert.assertEquals(all.stream().filter(interval -> compare(interval, point) > 0).findFirst().orElse(null),
+                    tree.higher(point));
+            Assert.assertEquals(all.stream().filter(interval -> compare(interval, point) <= 0)
+                    .reduce((first, second) -> second).orElse(null), tree.floor(point));
+            Assert.assertEquals(all.stream().filter(interval -> compare(interval, point) < 0)
+                    .reduce((first, second) -> second).orElse(null), tree.lower(point));
+
+            final List<IInterval> from = new ArrayList<>();
+            tree.iteratorFrom(point).forEachRemaining(from::add);
+            Assert.assertEquals(all.stream().filter(interval -> compare(interval, point) >= 0)
+                    .collect(Collectors.toList()), from);
+
+            // the nearest intervals may differ for equal distances, thus only the distances are compared
+            final int k = rnd.nextInt(20);
+            Assert.assertEquals(all.stream().map(interval -> distance(interval, point)).sorted().limit(k)
+                            .collect(Collectors.toList()),
+                    tree.nearest(point, k).stream().map(interval -> distance(interval, point))
+                            .collect(Collectors.toList()));
+        }
+    }
+
+    protected int compare(final IInterval interval, final long point) {
+        return Long.compare(LongInterval.class.cast(interval).getNormStart(), point);
+    }
+
+    protected long distance(final IInterval interval, final long point) {
+        final LongInterval longInterval = LongInterval.class.cast(interval);
+        return Math.max(0L, Math.max(longInterval.getNormStart() - point, point - longInterval.getNormEnd()));
+    }
+
+    @Test
+    public void testAggregates() {
+        final File file = new File(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        file.deleteOnExit();
+
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .enableWriteCollections()
+                .maintainAggregates(IntervalTreeAggregators.COUNT, IntervalTreeAggregators.MIN_END,
+                        IntervalTreeAggregators.MIN_START, IntervalTreeAggregators.SUM_OF_DURATIONS)
+                .build();
+        final IntervalTree plainTree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+        Assert.assertNull(tree.aggregate(IntervalTreeAggregators.COUNT));
+
+        final Random rnd = new Random();
+        final List<IInterval> intervals = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            final long start = rnd.nextInt(1000);
+            final IInterval interval = new LongInterval(start, start + rnd.nextInt(100));
+
+            intervals.add(interval);
+            tree.insert(interval);
+            plainTree.insert(interval);
+        }
+        intervals.subList(0, 500).forEach(tree::remove);
+        intervals.subList(0, 500).forEach(plainTree::remove);
+        assertAggregates(tree, intervals.subList(500, intervals.size()));
+
+        for (int i = 0; i < 200; i++) {
+            final long start = rnd.nextInt(1200) - 100;
+            final LongInterval query = new LongInterval(start, start + rnd.nextInt(200));
+
+            Assert.assertEquals(tree.overlap(query).size(), tree.countOverlaps(query));
+            Assert.assertEquals(tree.overlap(query).size(), plainTree.countOverlaps(query));
+
+            long expected = 0L;
+            for (long point = query.getNormStart(); point <= query.getNormEnd(); point++) {
+                expected = Math.max(expected, tree.stab(point).size());
+            }
+            Assert.assertEquals(expected, tree.maxConcurrency(query));
+        }
+
+        IntervalTreeBuilder.saveToFile(file, tree);
+        final IntervalTree loadedTree = IntervalTreeBuilder.newBuilder().loadFromFile(file).build();
+        Assert.assertSame(IntervalTreeAggregators.COUNT, loadedTree.getConfiguration().getAggregators()[0]);
+        assertAggregates(loadedTree, intervals.subList(500, intervals.size()));
+    }
+
+    @Test
+    public void testDegeneratedTree() {
+        final File file = new File(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        file.deleteOnExit();
+
+        // the traversals must not depend on the height of the tree, i.e., a not balanced tree is a list
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .enableWriteCollections()
+                .disableAutoBalancing()
+                .maintainAggregates(IntervalTreeAggregators.COUNT, IntervalTreeAggregators.MIN_END)
+                .build();
+        for (int i = 0; i < 15_000; i++) {
+            tree.insert(new LongInterval((long) i, i + 10L));
+        }
+        Assert.assertEquals(15_000, tree.getRoot().getHeight());
+
+        final LongInterval query = new LongInterval(10_000L, 10_005L);
+        Assert.assertEquals(16, tree.countOverlaps(query));
+        Assert.assertEquals(11, tree.maxConcurrency(query));
+        Assert.assertEquals(16, tree.overlapAll(Arrays.asList(query, query)).get(1).size());
+
+        IntervalTreeBuilder.saveToFile(file, tree);
+
+        // the aggregates of a loaded tree are calculated when first needed
+        final IntervalTree loadedTree = IntervalTreeBuilder.newBuilder().loadFromFile(file).build();
+        Assert.assertEquals(15_000L, loadedTree.getRoot().getAggregate(IntervalTreeAggregators.COUNT).longValue());
+        Assert.assertEquals(15_000L, loadedTree.aggregate(IntervalTreeAggregators.COUNT).longValue());
+        Assert.assertEquals(16, loadedTree.countOverlaps(query));
+    }
+
+    protected void assertAggregates(final IntervalTree tree, final List<IInterval> intervals) {
+        Assert.assertEquals(intervals.size(), tree.aggregate(IntervalTreeAggregators.COUNT).longValue());
+        Assert.assertEquals(intervals.stream().mapToLong(interval -> (Long) interval.getNormStart()).min().getAsLong(),
+                tree.aggregate(IntervalTreeAggregators.MIN_START));
+        Assert.assertEquals(intervals.stream().mapToLong(interval -> (Long) interval.getNormEnd()).min().getAsLong(),
+                tree.aggregate(IntervalTreeAggregators.MIN_END));
+        Assert.assertEquals(intervals.stream()
+                        .mapToDouble(interval -> (Long) interval.getNormEnd() - (Long) interval.getNormStart()).sum(),
+                tree.aggregate(IntervalTreeAggregators.SUM_OF_DURATIONS), 0.0001);
+
+        // every node must keep the count of its sub-tree
+        tree.nodeIterator().forEachRemaining(node -> {
+            final long[] count = new long[1];
+            new IntervalTreeSpliterator(node, 0L).forEachRemaining(interval -> count[0]++);
+            Assert.assertEquals(count[0], node.getAggregate(IntervalTreeAggregators.COUNT).longValue());
+        });
+    }
+
+    @Test
+    public void testSpliterator() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+        Assert.assertEquals(0, tree.stream().parallel().count());
+
+        final Random rnd = new Random();
+        for (int i = 0; i < 5000; i++) {
+            final long start = rnd.nextInt(10_000);
+            tree.insert(new LongInterval(start, start + rnd.nextInt(100)));
+        }
+
+        final Spliterator<IInterval> spliterator = tree.spliterator();
+        Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+        Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+        Assert.assertEquals(tree.size(), spliterator.getExactSizeIfKnown());
+
+        // the splits are prefixes, i.e., the order of the intervals is kept
+        final List<IInterval> intervals = new ArrayList<>();
+        tree.iterator().forEachRemaining(intervals::add);
+        final Spliterator<IInterval> prefix = spliterator.trySplit();
+        Assert.assertNotNull(prefix);
+        final List<IInterval> splitIntervals = new ArrayList<>();
+        prefix.forEachRemaining(splitIntervals::add);
+        spliterator.forEachRemaining(splitIntervals::add);
+        Assert.assertEquals(intervals, splitIntervals);
+
+        Assert.assertEquals(intervals, tree.stream().parallel().collect(Collectors.toList()));
+        Assert.assertEquals(tree.size(), tree.stream().parallel().count());
+
+        for (int i = 0; i < 50; i++) {
+            final long start = rnd.nextInt(10_200) - 100;
+            final LongInterval query = new LongInterval(start, start + rnd.nextInt(500));
+
+            final List<IInterval> overlap = tree.overlapStream(query).parallel().collect(Collectors.toList());
+            Assert.assertEquals(new HashSet<>(tree.overlap(query)), new HashSet<>(overlap));
+            Assert.assertEquals(tree.overlap(query).size(), overlap.size());
+        }
+    }
+
     protected boolean assertContains(final IntervalTree tree, final IInterval interval) {
         return tree.contains(interval);
     }
@@ -0,0 +1,118 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.collections.ListIntervalCollection;
+import com.brein.time.timeintervals.indexes.IntervalTreeBuilder.IntervalType;
+import com.brein.time.timeintervals.intervals.DoubleInterval;
+import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.IntegerInterval;
+import com.brein.time.timeintervals.intervals.LongInterval;
+import com.brein.time.timeintervals.intervals.TimestampInterval;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TestIntervalValueComparator {
+
+    @Test
+    public void testPromotion() {
+        for (final Class<?> clazz : IntervalValueComparator.NUMBER_HIERARCHY) {
+            Assert.assertEquals(IntervalValueComparator.NUMBER_HIERARCHY.indexOf(clazz), NumberPromotion.typeOf(clazz));
+        }
+        Assert.assertEquals(NumberPromotion.UNKNOWN, NumberPromotion.typeOf(BigDecimal.class));
+
+        final Random rnd = new Random();
+        for (int i = 0; i < 10_000; i++) {
+            final Number n1 = randomNumber(rnd);
+            final Number n2 = rnd.nextInt(5) == 0 ? n1 : randomNumber(rnd);
+
+            // the numbers are compared as the larger type of the two
+            final Class<? extends Comparable> clazz = IntervalValueComparator.NUMBER_HIERARCHY.get(Math.max(
+                    IntervalValueComparator.NUMBER_HIERARCHY.indexOf(n1.getClass()),
+                    IntervalValueComparator.NUMBER_HIERARCHY.indexOf(n2.getClass())));
+            @SuppressWarnings("unchecked")
+            final int expected = Integer.signum(IntervalValueComparator.mapNumberValue(n1, clazz)
+                    .compareTo(IntervalValueComparator.mapNumberValue(n2, clazz)));
+
+            Assert.assertEquals(expected, Integer.signum(IntervalValueComparator.compareNumbers(n1, n2)));
+            Assert.assertEquals(expected, Integer.signum(IntervalValueComparator.compareLongNumbers(n1, n2)));
+            Assert.assertEquals(expected, Integer.signum(IntervalValueComparator.compareIntegerNumbers(n1, n2)));
+            Assert.assertEquals(expected, Integer.signum(IntervalValueComparator.compareDoubleNumbers(n1, n2)));
+        }
+
+        Assert.assertEquals(0, IntervalValueComparator.compareNumbers(new BigDecimal("5.0"), 5L));
+        Assert.assertTrue(IntervalValueComparator.compareNumbers(5, new BigDecimal("7")) < 0);
+    }
+
+    @Test
+    public void testStrictType() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.INTEGER, true)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+        tree.add(new IntegerInterval(1, 5));
+        Assert.assertEquals(1, tree.overlap(new IntegerInterval(2, 3)).size());
+
+        try {
+            tree.overlap(new DoubleInterval(2.0, 3.0));
+            Assert.fail("A strict tree must not compare other types.");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+
+        // the non-strict type still allows to query other types
+        final IntervalTree nonStrictTree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.INTEGER)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+        nonStrictTree.add(new IntegerInterval(1, 5));
+        Assert.assertEquals(1, nonStrictTree.overlap(new DoubleInterval(2.0, 3.0)).size());
+        Assert.assertEquals(1, nonStrictTree.overlap(new LongInterval(5L, 6L)).size());
+    }
+
+    @Test
+    public void testStrictPrimitiveQueries() {
+        assertPrimitiveQueries(IntervalType.INTEGER, new IntegerInterval(1, 5));
+        assertPrimitiveQueries(IntervalType.LONG, new LongInterval(1L, 5L));
+        assertPrimitiveQueries(IntervalType.TIMESTAMP, new TimestampInterval(1L, 5L));
+        assertPrimitiveQueries(IntervalType.DOUBLE, new DoubleInterval(1.0, 5.0));
+        assertPrimitiveQueries(IntervalType.NUMBER, new DoubleInterval(1.0, 5.0));
+    }
+
+    protected void assertPrimitiveQueries(final IntervalType type, final IInterval interval) {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(type, true)
+                .collectIntervals(i -> new ListIntervalCollection())
+                .build();
+        tree.add(interval);
+
+        final List<IInterval> result = new ArrayList<>();
+        tree.overlap(2L, 3L, result::add);
+        tree.overlap(5L, Long.MAX_VALUE, result::add);
+        tree.overlap(6L, 7L, result::add);
+        tree.stab(1L, result::add);
+        tree.stab(0L, result::add);
+        Assert.assertEquals(type.name(), 3, result.size());
+    }
+
+    protected Number randomNumber(final Random rnd) {
+        final int value = rnd.nextInt(21) - 10;
+        switch (rnd.nextInt(6)) {
+            case 0:
+                return (byte) value;
+            case 1:
+                return (short) value;
+            case 2:
+                return value;
+            case 3:
+                return rnd.nextBoolean() ? (long) value : Long.MAX_VALUE - rnd.nextInt(3);
+            case 4:
+                return value + rnd.nextFloat();
+            default:
+                return value + (rnd.nextBoolean() ? 0.0 : rnd.nextDouble());
+        }
+    }
+}
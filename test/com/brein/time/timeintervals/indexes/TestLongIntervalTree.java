@@ -0,0 +1,258 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.collections.ListIntervalCollection;
+import com.brein.time.timeintervals.indexes.IntervalTreeBuilder.IntervalType;
+import com.brein.time.timeintervals.intervals.DoubleInterval;
+import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.IntegerInterval;
+import com.brein.time.timeintervals.intervals.LongInterval;
+import com.brein.time.timeintervals.intervals.PrimitiveIntegerInterval;
+import com.brein.time.timeintervals.intervals.PrimitiveLongInterval;
+import com.brein.time.timeintervals.intervals.TimestampInterval;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+public class TestLongIntervalTree {
+
+    @Test
+    public void testCreation() {
+        Assert.assertTrue(IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .enablePrimitiveNodes()
+                .build() instanceof LongIntervalTree);
+        Assert.assertTrue(IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.TIMESTAMP)
+                .enablePrimitiveNodes()
+                .build() instanceof LongIntervalTree);
+        Assert.assertFalse(IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.NUMBER)
+                .enablePrimitiveNodes()
+                .build() instanceof LongIntervalTree);
+    }
+
+    @Test
+    public void testNonIntegralValues() {
+
+        // without primitive nodes, the tree keeps any value (e.g., a double added to a long tree)
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+        Assert.assertFalse(tree instanceof LongIntervalTree);
+        tree.add(new DoubleInterval(1.5, 2.5));
+        tree.add(new LongInterval(2L, 3L));
+        Assert.assertEquals(2, tree.overlap(new LongInterval(2L, 2L)).size());
+
+        final IntervalTree longTree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .enablePrimitiveNodes()
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+        try {
+            longTree.add(new DoubleInterval(1.5, 2.5));
+            Assert.fail("Primitive nodes only hold integral values.");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSameAsNumberTree() {
+        final IntervalTree longTree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .enablePrimitiveNodes()
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+        final IntervalTree numberTree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.NUMBER)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+
+        final Random rnd = new Random();
+        final List<IInterval> intervals = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            final long start = rnd.nextInt(1000);
+            final IInterval interval = new LongInterval(start, start + rnd.nextInt(50));
+
+            intervals.add(interval);
+            longTree.add(interval);
+            numberTree.add(interval);
+        }
+        Assert.assertEquals(numberTree.size(), longTree.size());
+        longTree.nodeIterator().forEachRemaining(node -> Assert.assertTrue(node instanceof LongIntervalTreeNode));
+
+        for (int i = 0; i < 100; i++) {
+            final long start = rnd.nextInt(1100);
+            final LongInterval query = new LongInterval(start, start + rnd.nextInt(20));
+
+            Assert.assertEquals(new HashSet<>(numberTree.overlap(query)), new HashSet<>(longTree.overlap(query)));
+            Assert.assertEquals(numberTree.find(query).size(), longTree.find(query).size());
+
+            final List<IInterval> visited = new ArrayList<>();
+            longTree.overlap(query.getNormStart(), query.getNormEnd(), visited::add);
+            Assert.assertEquals(longTree.overlap(query), visited);
+        }
+
+        // remove half of the intervals and validate the max values
+        intervals.subList(0, 250).forEach(interval -> Assert.assertTrue(longTree.remove(interval)));
+        Assert.assertEquals(250, longTree.size());
+        Assert.assertTrue(longTree.isBalanced());
+        longTree.nodeIterator().forEachRemaining(node -> {
+            long max = LongIntervalTreeNode.class.cast(node).getEndLong();
+            if (node.hasLeft()) {
+                max = Math.max(max, LongIntervalTreeNode.class.cast(node.getLeft()).getMaxLong());
+            }
+            if (node.hasRight()) {
+                max = Math.max(max, LongIntervalTreeNode.class.cast(node.getRight()).getMaxLong());
+            }
+            Assert.assertEquals(max, LongIntervalTreeNode.class.cast(node).getMaxLong());
+        });
+    }
+
+    @Test
+    public void testStab() {
+        final IntervalTree longTree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .enablePrimitiveNodes()
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+        final IntervalTree numberTree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.NUMBER)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+
+        final Random rnd = new Random();
+        for (int i = 0; i < 500; i++) {
+            final long start = rnd.nextInt(1000);
+            final IInterval interval = new LongInterval(start, start + rnd.nextInt(50));
+
+            longTree.add(interval);
+            numberTree.add(interval);
+        }
+
+        for (long point = -10; point < 1100; point++) {
+            final LongInterval query = new LongInterval(point, point);
+
+            final List<IInterval> visited = new ArrayList<>();
+            longTree.stab(point, visited::add);
+            Assert.assertEquals(longTree.overlap(query), visited);
+            Assert.assertEquals(new HashSet<>(numberTree.stab(point)), new HashSet<>(longTree.stab(point)));
+        }
+
+        Assert.assertEquals(new HashSet<>(longTree.overlap(new DoubleInterval(10.5, 10.5))),
+                new HashSet<>(longTree.stab(10.5)));
+    }
+
+    @Test
+    public void testMixedQueries() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.TIMESTAMP)
+                .enablePrimitiveNodes()
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+
+        tree.add(new TimestampInterval(1000L, 2000L));
+        tree.add(new TimestampInterval(1500L, 1600L));
+        tree.add(new IntegerInterval(3000, 4000));
+
+        Assert.assertEquals(2, tree.overlap(new DoubleInterval(1550.5, 1550.7)).size());
+        Assert.assertEquals(0, tree.overlap(new DoubleInterval(2000.5, 2999.5)).size());
+        Assert.assertEquals(2, tree.overlap(new IntegerInterval(2000, 3000)).size());
+        Assert.assertEquals(1, tree.overlap(new IntegerInterval(2001, 3000)).size());
+        Assert.assertEquals(1, tree.find(new LongInterval(3000L, 4000L)).size());
+        Assert.assertEquals(1, tree.find(new DoubleInterval(3000.0, 4000.0)).size());
+
+        try {
+            tree.add(new DoubleInterval(1.5, 2.5));
+            Assert.fail("Non integral values cannot be added");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPrimitiveIntervals() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.TIMESTAMP)
+                .enablePrimitiveNodes()
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+        for (long i = 0; i < 100; i++) {
+            tree.add(new PrimitiveLongInterval(1_500_000_000L + i, 1_500_000_010L + i));
+        }
+        tree.add(new PrimitiveIntegerInterval(5, 10));
+        Assert.assertEquals(101, tree.size());
+
+        // primitive and boxed queries lead to the same result
+        Assert.assertEquals(11, tree.overlap(new PrimitiveLongInterval(1_500_000_050L, 1_500_000_050L)).size());
+        Assert.assertEquals(11, tree.overlap(new LongInterval(1_500_000_050L, 1_500_000_050L)).size());
+        Assert.assertEquals(1, tree.overlap(new IntegerInterval(0, 5)).size());
+        Assert.assertEquals(1, tree.find(new PrimitiveLongInterval(1_500_000_020L, 1_500_000_030L)).size());
+
+        Assert.assertTrue(tree.remove(new PrimitiveLongInterval(1_500_000_020L, 1_500_000_030L)));
+        Assert.assertTrue(tree.remove(new PrimitiveIntegerInterval(5, 10)));
+        Assert.assertEquals(99, tree.size());
+        Assert.assertTrue(tree.isBalanced());
+    }
+
+    @Test
+    public void testBoxedValues() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .enablePrimitiveNodes()
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+        for (long i = 0; i < 10; i++) {
+            tree.add(new LongInterval(1_000L + i, 2_000L + i));
+        }
+
+        // the boxed values are created once and not with every call
+        final IntervalTreeNode root = tree.getRoot();
+        Assert.assertSame(root.getStart(), root.getStart());
+        Assert.assertSame(root.getEnd(), root.getEnd());
+        Assert.assertSame(root.getMax(), root.getMax());
+        Assert.assertEquals(2_009L, root.getMax());
+
+        // changing the max replaces the boxed value
+        tree.add(new LongInterval(1_500L, 5_000L));
+        Assert.assertEquals(5_000L, tree.getRoot().getMax());
+        Assert.assertTrue(tree.remove(new LongInterval(1_500L, 5_000L)));
+        Assert.assertEquals(2_009L, tree.getRoot().getMax());
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        final File treeFile = new File(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+
+        try {
+            final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                    .usePredefinedType(IntervalType.LONG)
+                    .enablePrimitiveNodes()
+                    .collectIntervals(interval -> new ListIntervalCollection())
+                    .enableWriteCollections()
+                    .build();
+            for (long i = 0; i < 100; i++) {
+                tree.add(new LongInterval(i, i + 10));
+            }
+            tree.saveToFile(treeFile);
+
+            final IntervalTree loadedTree = IntervalTreeBuilder.newBuilder()
+                    .loadFromFile(treeFile)
+                    .build();
+            Assert.assertTrue(loadedTree instanceof LongIntervalTree);
+            Assert.assertEquals(100, loadedTree.size());
+            Assert.assertEquals(11, loadedTree.overlap(new LongInterval(50L, 50L)).size());
+            loadedTree.nodeIterator().forEachRemaining(node ->
+                    Assert.assertTrue(node instanceof LongIntervalTreeNode));
+        } finally {
+            Assert.assertTrue(treeFile.delete());
+        }
+    }
+}
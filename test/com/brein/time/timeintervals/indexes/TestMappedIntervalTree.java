@@ -0,0 +1,129 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.exceptions.FailedIO;
+import com.brein.time.timeintervals.collections.ListIntervalCollection;
+import com.brein.time.timeintervals.indexes.IntervalTreeBuilder.IntervalType;
+import com.brein.time.timeintervals.intervals.DoubleInterval;
+import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.IntegerInterval;
+import com.brein.time.timeintervals.intervals.LongInterval;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+public class TestMappedIntervalTree {
+
+    @Test
+    public void testLongTree() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .enableWriteCollections()
+                .build();
+
+        final Random rnd = new Random();
+        for (int i = 0; i < 5000; i++) {
+            final long start = rnd.nextInt(10_000) - 5_000;
+            tree.insert(new LongInterval(start, start + rnd.nextInt(100)));
+        }
+
+        final MappedIntervalTree mappedTree = writeAndOpen(tree);
+        Assert.assertEquals(tree.size(), mappedTree.size());
+
+        final List<IInterval> all = new ArrayList<>();
+        mappedTree.forEach(all::add);
+        Assert.assertEquals(new HashSet<>(tree), new HashSet<>(all));
+
+        for (int i = 0; i < 200; i++) {
+            final long start = rnd.nextInt(10_200) - 5_100;
+            final LongInterval query = new LongInterval(start, start + rnd.nextInt(50));
+
+            Assert.assertEquals(tree.overlap(query), mappedTree.overlap(query));
+            Assert.assertEquals(tree.find(query), mappedTree.find(query));
+        }
+
+        Assert.assertEquals(tree.overlap(new LongInterval(10L, 10L)),
+                mappedTree.overlap(new DoubleInterval(9.5, 10.5)));
+        Assert.assertEquals(0, mappedTree.find(new DoubleInterval(9.5, 10.5)).size());
+        mappedTree.close();
+    }
+
+    @Test
+    public void testNumberTree() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.NUMBER)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .enableWriteCollections()
+                .build();
+
+        tree.insert(new DoubleInterval(-10.5, -2.25));
+        tree.insert(new DoubleInterval(-0.5, 0.5));
+        tree.insert(new IntegerInterval(0, 3));
+        tree.insert(new LongInterval(0L, 3L));
+        tree.insert(new DoubleInterval(1.5, 7.75));
+
+        final MappedIntervalTree mappedTree = writeAndOpen(tree);
+        Assert.assertEquals(5, mappedTree.size());
+        Assert.assertEquals(4, mappedTree.getNodeCount());
+
+        Assert.assertEquals(tree.overlap(new DoubleInterval(-3.0, 0.0)),
+                mappedTree.overlap(new DoubleInterval(-3.0, 0.0)));
+        Assert.assertEquals(2, mappedTree.find(new LongInterval(0L, 3L)).size());
+        Assert.assertEquals(1, mappedTree.find(new DoubleInterval(-10.5, -2.25)).size());
+        Assert.assertEquals(0, mappedTree.overlap(new IntegerInterval(8, 100)).size());
+        mappedTree.close();
+    }
+
+    @Test
+    public void testEmptyTree() {
+        final MappedIntervalTree mappedTree = writeAndOpen(IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build());
+
+        Assert.assertTrue(mappedTree.isEmpty());
+        Assert.assertEquals(0, mappedTree.overlap(new LongInterval(1L, 5L)).size());
+        Assert.assertEquals(0, mappedTree.find(new LongInterval(1L, 5L)).size());
+        Assert.assertFalse(mappedTree.iterator().hasNext());
+        mappedTree.close();
+    }
+
+    @Test
+    public void testClose() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .enableWriteCollections()
+                .build();
+        tree.insert(new LongInterval(1L, 5L));
+        tree.insert(new LongInterval(2L, 3L));
+
+        try (final MappedIntervalTree mappedTree = writeAndOpen(tree)) {
+            Assert.assertFalse(mappedTree.isClosed());
+            Assert.assertEquals(2, mappedTree.overlap(new LongInterval(3L, 3L)).size());
+
+            mappedTree.close();
+            Assert.assertTrue(mappedTree.isClosed());
+            mappedTree.overlap(new LongInterval(3L, 3L));
+            Assert.fail("A closed tree cannot be queried.");
+        } catch (final FailedIO e) {
+            // expected
+        }
+    }
+
+    protected MappedIntervalTree writeAndOpen(final IntervalTree tree) {
+        final File treeFile = new File(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        treeFile.deleteOnExit();
+
+        MappedIntervalTree.write(treeFile, tree);
+        return IntervalTreeBuilder.newBuilder()
+                .loadFromFile(treeFile)
+                .buildMapped();
+    }
+}
@@ -0,0 +1,114 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.collections.ListIntervalCollection;
+import com.brein.time.timeintervals.indexes.IntervalTreeBuilder.IntervalType;
+import com.brein.time.timeintervals.intervals.DoubleInterval;
+import com.brein.time.timeintervals.intervals.IntegerInterval;
+import com.brein.time.timeintervals.intervals.LongInterval;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.UUID;
+
+public class TestPagedIntervalTree {
+
+    @Test
+    public void testLongTree() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .enableWriteCollections()
+                .maintainAggregates(IntervalTreeAggregators.COUNT)
+                .build();
+
+        final Random rnd = new Random();
+        for (int i = 0; i < 5000; i++) {
+            final long start = rnd.nextInt(10_000) - 5_000;
+            tree.insert(new LongInterval(start, start + rnd.nextInt(100)));
+        }
+
+        try (final PagedIntervalTree pagedTree = writeAndOpen(tree, 3)) {
+            Assert.assertEquals(tree.size(), pagedTree.size());
+            Assert.assertEquals(tree.getRoot().getHeight(), pagedTree.getRoot().getHeight());
+            Assert.assertEquals(1L, pagedTree.getPageReads());
+
+            // a query only reads the pages along its path
+            final LongInterval first = new LongInterval(-5_000L, -4_990L);
+            Assert.assertEquals(new HashSet<>(tree.overlap(first)), new HashSet<>(pagedTree.overlap(first)));
+            Assert.assertTrue(pagedTree.getPageReads() <= 1L + 2L * tree.getRoot().getHeight());
+
+            for (int i = 0; i < 200; i++) {
+                final long start = rnd.nextInt(10_200) - 5_100;
+                final LongInterval query = new LongInterval(start, start + rnd.nextInt(50));
+
+                Assert.assertEquals(new HashSet<>(tree.overlap(query)), new HashSet<>(pagedTree.overlap(query)));
+                Assert.assertEquals(tree.find(query), pagedTree.find(query));
+                Assert.assertEquals(tree.stab(start), pagedTree.stab(start));
+                Assert.assertEquals(tree.countOverlaps(query), pagedTree.countOverlaps(query));
+            }
+
+            Assert.assertEquals(new HashSet<>(tree), new HashSet<>(pagedTree));
+            Assert.assertEquals(new HashSet<>(tree.overlap(new LongInterval(10L, 10L))),
+                    new HashSet<>(pagedTree.overlap(new DoubleInterval(9.5, 10.5))));
+        }
+    }
+
+    @Test
+    public void testNumberTree() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.NUMBER)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .enableWriteCollections()
+                .build();
+
+        tree.insert(new DoubleInterval(-10.5, -2.25));
+        tree.insert(new DoubleInterval(-0.5, 0.5));
+        tree.insert(new IntegerInterval(0, 3));
+        tree.insert(new LongInterval(0L, 3L));
+        tree.insert(new DoubleInterval(1.5, 7.75));
+
+        try (final PagedIntervalTree pagedTree = writeAndOpen(tree, 1)) {
+            Assert.assertEquals(5, pagedTree.size());
+            Assert.assertEquals(tree.overlap(new DoubleInterval(-3.0, 0.0)),
+                    pagedTree.overlap(new DoubleInterval(-3.0, 0.0)));
+            Assert.assertEquals(2, pagedTree.find(new LongInterval(0L, 3L)).size());
+            Assert.assertEquals(1, pagedTree.find(new DoubleInterval(-10.5, -2.25)).size());
+            Assert.assertEquals(0, pagedTree.overlap(new IntegerInterval(8, 100)).size());
+            Assert.assertEquals(3, pagedTree.getCachedPages());
+        }
+    }
+
+    @Test
+    public void testReadOnly() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+
+        try (final PagedIntervalTree pagedTree = writeAndOpen(tree, PagedIntervalTree.DEFAULT_PAGE_DEPTH)) {
+            Assert.assertTrue(pagedTree.isEmpty());
+            Assert.assertEquals(0, pagedTree.overlap(new LongInterval(1L, 5L)).size());
+            Assert.assertFalse(pagedTree.iterator().hasNext());
+
+            try {
+                pagedTree.add(new LongInterval(1L, 5L));
+                Assert.fail("A paged tree must be read-only.");
+            } catch (final UnsupportedOperationException e) {
+                // expected
+            }
+        }
+    }
+
+    protected PagedIntervalTree writeAndOpen(final IntervalTree tree, final int pageDepth) {
+        final File treeFile = new File(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        treeFile.deleteOnExit();
+
+        PagedIntervalTree.write(treeFile, tree, pageDepth);
+        return IntervalTreeBuilder.newBuilder()
+                .loadFromFile(treeFile)
+                .buildPaged();
+    }
+}
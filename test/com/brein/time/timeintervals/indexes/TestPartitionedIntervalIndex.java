@@ -0,0 +1,166 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.collections.IntervalCollection;
+import com.brein.time.timeintervals.collections.IntervalCollectionEvent;
+import com.brein.time.timeintervals.collections.IntervalCollectionPersistor;
+import com.brein.time.timeintervals.collections.ListIntervalCollection;
+import com.brein.time.timeintervals.collections.PersistableIntervalCollectionFactory;
+import com.brein.time.timeintervals.indexes.IntervalTreeBuilder.IntervalType;
+import com.brein.time.timeintervals.intervals.DoubleInterval;
+import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.TimestampInterval;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+public class TestPartitionedIntervalIndex {
+    private static final long DAY = Duration.ofDays(1L).getSeconds();
+    private static final long START = 1_500_000_000L / DAY * DAY;
+
+    @Test
+    public void testPartitioning() {
+        final PartitionedIntervalIndex index = createBuilder().buildPartitioned(Duration.ofDays(1L));
+        final IntervalTree tree = createBuilder().build();
+
+        final Random rnd = new Random();
+        for (int i = 0; i < 5_000; i++) {
+            final long start = START + rnd.nextInt(30 * (int) DAY);
+            final long duration = rnd.nextInt(50) == 0 ? rnd.nextInt(5 * (int) DAY) : rnd.nextInt(3_600);
+            final IInterval interval = new TimestampInterval(start, start + duration);
+
+            Assert.assertEquals(tree.add(interval), index.add(interval));
+        }
+        Assert.assertEquals(tree.size(), index.size());
+        Assert.assertEquals(new HashSet<>(tree), toSet(index));
+        Assert.assertTrue(index.getOverflow().size() > 0);
+        Assert.assertTrue(index.getPartitions().size() >= 30);
+
+        index.getPartitions().forEach((partition, p) -> p.forEach(interval -> {
+            Assert.assertEquals(partition, (Long) index.determinePartition((Long) interval.getNormStart()));
+            Assert.assertEquals(partition, (Long) index.determinePartition((Long) interval.getNormEnd()));
+        }));
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        for (int i = 0; i < 200; i++) {
+            final long start = START + rnd.nextInt(32 * (int) DAY) - DAY;
+            final IInterval query = new TimestampInterval(start, start + rnd.nextInt(3 * (int) DAY));
+
+            Assert.assertEquals(new HashSet<>(tree.overlap(query)), new HashSet<>(index.overlap(query)));
+            Assert.assertEquals(new HashSet<>(tree.overlap(query)), new HashSet<>(index.overlap(query, pool)));
+            Assert.assertEquals(new HashSet<>(tree.stab(start)), new HashSet<>(index.stab(start)));
+        }
+        pool.shutdown();
+
+        Assert.assertEquals(new HashSet<>(tree.overlap(new DoubleInterval(START + 10.5, START + 20.5))),
+                new HashSet<>(index.overlap(new DoubleInterval(START + 10.5, START + 20.5))));
+
+        final List<IInterval> intervals = new ArrayList<>(tree);
+        for (final IInterval interval : intervals.subList(0, 1_000)) {
+            Assert.assertTrue(index.contains(interval));
+            Assert.assertEquals(1, index.find(interval).size());
+            Assert.assertTrue(index.remove(interval));
+            Assert.assertFalse(index.contains(interval));
+        }
+        Assert.assertEquals(intervals.size() - 1_000, index.size());
+    }
+
+    @Test
+    public void testPartitionLifecycle() {
+        final PartitionedIntervalIndex index = createBuilder()
+                .enableWriteCollections()
+                .buildPartitioned(Duration.ofDays(1L));
+
+        index.add(new TimestampInterval(START + 100L, START + 200L));
+        index.add(new TimestampInterval(START + DAY + 100L, START + DAY + 200L));
+        index.add(new TimestampInterval(START + 2 * DAY + 100L, START + 2 * DAY + 200L));
+        index.add(new TimestampInterval(START + 2 * DAY + 300L, START + 3 * DAY + 200L));
+        Assert.assertEquals(3, index.getPartitions().size());
+        Assert.assertEquals(1, index.getOverflow().size());
+
+        // save and drop a partition, afterwards load it again
+        final File file = new File(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        file.deleteOnExit();
+        Assert.assertTrue(index.savePartition(START + DAY, file));
+        Assert.assertFalse(index.savePartition(START + 5 * DAY, file));
+
+        Assert.assertEquals(1, index.removePartition(START + DAY + 5L).size());
+        Assert.assertEquals(3, index.size());
+        Assert.assertEquals(0, index.overlap(new TimestampInterval(START + DAY, START + DAY + 150L)).size());
+
+        Assert.assertEquals(1, index.loadPartition(START + DAY, file).size());
+        Assert.assertEquals(4, index.size());
+        Assert.assertEquals(1, index.overlap(new TimestampInterval(START + DAY, START + DAY + 150L)).size());
+
+        // drop everything ending before the watermark
+        Assert.assertEquals(2, index.advanceWatermark(START + 2 * DAY + 150L));
+        Assert.assertEquals(1, index.getPartitions().size());
+        Assert.assertEquals(2, index.size());
+        Assert.assertEquals(2, index.advanceWatermark(START + 4 * DAY));
+        Assert.assertTrue(index.isEmpty());
+    }
+
+    @Test
+    public void testLoadPersistedPartition() {
+        final Map<String, IntervalCollection> persisted = new HashMap<>();
+        final IntervalCollectionPersistor persistor = new IntervalCollectionPersistor() {
+
+            @Override
+            public IntervalCollection load(final String key) {
+                return persisted.get(key);
+            }
+
+            @Override
+            public void upsert(final IntervalCollectionEvent event) {
+                persisted.put(event.getKey(), event.getCollection());
+            }
+
+            @Override
+            public void remove(final IntervalCollectionEvent event) {
+                persisted.remove(event.getKey());
+            }
+        };
+
+        // the collections are only kept by the persistor, i.e., the loaded partition must use it
+        final PartitionedIntervalIndex index = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.TIMESTAMP)
+                .collectIntervals(new PersistableIntervalCollectionFactory(interval -> new ListIntervalCollection()))
+                .usePersistor(persistor)
+                .buildPartitioned(Duration.ofDays(1L));
+        index.add(new TimestampInterval(START + 100L, START + 200L));
+        index.add(new TimestampInterval(START + 100L, START + 300L));
+
+        final File file = new File(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        file.deleteOnExit();
+        Assert.assertTrue(index.savePartition(START, file));
+        index.removePartition(START);
+        Assert.assertTrue(index.isEmpty());
+
+        Assert.assertEquals(2, index.loadPartition(START, file).size());
+        Assert.assertEquals(2, index.overlap(new TimestampInterval(START + 150L, START + 150L)).size());
+    }
+
+    protected IntervalTreeBuilder createBuilder() {
+        return IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.TIMESTAMP)
+                .collectIntervals(interval -> new ListIntervalCollection());
+    }
+
+    protected HashSet<IInterval> toSet(final PartitionedIntervalIndex index) {
+        final List<IInterval> intervals = new ArrayList<>();
+        index.forEach(intervals::add);
+        Assert.assertEquals(intervals.size(), index.size());
+
+        return intervals.stream().collect(Collectors.toCollection(HashSet::new));
+    }
+}
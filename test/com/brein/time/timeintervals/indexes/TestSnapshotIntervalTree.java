@@ -0,0 +1,181 @@
+package com.brein.time.timeintervals.indexes;
+
+import com.brein.time.timeintervals.collections.ListIntervalCollection;
+import com.brein.time.timeintervals.indexes.IntervalTreeBuilder.IntervalType;
+import com.brein.time.timeintervals.intervals.AllenIntervalRelation;
+import com.brein.time.timeintervals.intervals.IInterval;
+import com.brein.time.timeintervals.intervals.LongInterval;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+public class TestSnapshotIntervalTree {
+
+    @Test
+    public void testIsolation() {
+        for (final BalancingPolicy policy : BalancingPolicy.values()) {
+            final IntervalTree tree = createTree(policy);
+            final Random rnd = new Random();
+
+            final List<SnapshotIntervalTree> snapshots = new ArrayList<>();
+            final List<Set<IInterval>> expected = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                final long start = rnd.nextInt(5_000);
+                final LongInterval interval = new LongInterval(start, start + rnd.nextInt(100));
+
+                if (rnd.nextInt(3) == 0) {
+                    tree.remove(interval);
+                } else if (!tree.contains(interval)) {
+                    tree.add(interval);
+                }
+
+                if (i % 1_000 == 0) {
+                    snapshots.add(tree.snapshot());
+                    expected.add(new HashSet<>(tree));
+                }
+                if (i == 5_000 && !BalancingPolicy.TREAP.equals(policy)) {
+                    tree.balance();
+                }
+            }
+            tree.advanceWatermark(2_500L);
+
+            for (int i = 0; i < snapshots.size(); i++) {
+                assertSnapshot(snapshots.get(i), expected.get(i), rnd);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentWriter() throws Exception {
+        final IntervalTree tree = createTree(BalancingPolicy.AVL);
+        for (long i = 0; i < 10_000L; i++) {
+            tree.add(new LongInterval(i, i + 10L));
+        }
+
+        final SnapshotIntervalTree snapshot = tree.snapshot();
+        final Set<IInterval> expected = new HashSet<>(tree);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final Future<?> writer = executor.submit(() -> {
+            final Random rnd = new Random();
+            for (int i = 0; i < 20_000; i++) {
+                final long start = rnd.nextInt(20_000);
+                tree.add(new LongInterval(start, start + 5L));
+                tree.remove(new LongInterval(start, start + 10L));
+            }
+        });
+
+        // the snapshot is streamed while the writer modifies the tree
+        while (!writer.isDone()) {
+            Assert.assertEquals(expected, snapshot.stream().collect(Collectors.toSet()));
+            Assert.assertEquals(11, snapshot.overlapStream(new LongInterval(5_000L, 5_000L)).count());
+        }
+        writer.get();
+        executor.shutdown();
+
+        Assert.assertEquals(expected, snapshot.stream().collect(Collectors.toSet()));
+        Assert.assertEquals(10_000L, snapshot.size());
+    }
+
+    @Test
+    public void testQueriesAsTree() {
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .maintainAggregates(IntervalTreeAggregators.COUNT)
+                .build();
+        final Random rnd = new Random();
+        for (int i = 0; i < 2_000; i++) {
+            final long start = rnd.nextInt(5_000);
+            tree.add(new LongInterval(start, start + rnd.nextInt(100)));
+        }
+
+        final SnapshotIntervalTree snapshot = tree.snapshot();
+        final List<LongInterval> queries = new ArrayList<>();
+        final List<List<Object>> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final long start = rnd.nextInt(5_200) - 100;
+            final LongInterval query = new LongInterval(start, start + rnd.nextInt(50));
+            queries.add(query);
+            expected.add(answer(tree, query));
+        }
+        final long count = tree.aggregate(IntervalTreeAggregators.COUNT);
+
+        // the snapshot answers the queries as the tree did, even after the tree is modified
+        for (int i = 0; i < 2_000; i++) {
+            final long start = rnd.nextInt(5_000);
+            tree.add(new LongInterval(start, start + rnd.nextInt(100)));
+            tree.remove(tree.nearest(start));
+        }
+        for (int i = 0; i < queries.size(); i++) {
+            Assert.assertEquals(expected.get(i), answer(snapshot, queries.get(i)));
+        }
+        Assert.assertEquals(count, snapshot.aggregate(IntervalTreeAggregators.COUNT).longValue());
+    }
+
+    protected List<Object> answer(final IntervalTree tree, final LongInterval query) {
+        final List<IInterval> from = new ArrayList<>();
+        tree.iteratorFrom(query.getNormStart()).forEachRemaining(from::add);
+
+        return Arrays.asList(new HashSet<>(tree.relate(query, AllenIntervalRelation.BEFORE,
+                AllenIntervalRelation.OVERLAPS, AllenIntervalRelation.INCLUDES)),
+                tree.nearest(query.getNormStart(), 5).size(), tree.countOverlaps(query), tree.maxConcurrency(query),
+                tree.ceiling(query.getNormStart()), tree.higher(query.getNormStart()),
+                tree.floor(query.getNormStart()), tree.lower(query.getNormStart()), from,
+                new HashSet<>(tree.freeze().overlap(query)), tree.contains(query));
+    }
+
+    protected List<Object> answer(final SnapshotIntervalTree snapshot, final LongInterval query) {
+        final List<IInterval> from = new ArrayList<>();
+        snapshot.iteratorFrom(query.getNormStart()).forEachRemaining(from::add);
+
+        return Arrays.asList(new HashSet<>(snapshot.relate(query, AllenIntervalRelation.BEFORE,
+                AllenIntervalRelation.OVERLAPS, AllenIntervalRelation.INCLUDES)),
+                snapshot.nearest(query.getNormStart(), 5).size(), snapshot.countOverlaps(query),
+                snapshot.maxConcurrency(query), snapshot.ceiling(query.getNormStart()),
+                snapshot.higher(query.getNormStart()), snapshot.floor(query.getNormStart()),
+                snapshot.lower(query.getNormStart()), from, new HashSet<>(snapshot.freeze().overlap(query)),
+                snapshot.contains(query));
+    }
+
+    protected void assertSnapshot(final SnapshotIntervalTree snapshot,
+                                  final Set<IInterval> expected,
+                                  final Random rnd) {
+        Assert.assertEquals(expected.size(), snapshot.size());
+
+        final List<IInterval> all = snapshot.stream().collect(Collectors.toList());
+        Assert.assertEquals(expected.size(), all.size());
+        Assert.assertEquals(expected, new HashSet<>(all));
+
+        for (int i = 0; i < 100; i++) {
+            final long start = rnd.nextInt(5_200) - 100;
+            final LongInterval query = new LongInterval(start, start + rnd.nextInt(50));
+
+            final Set<IInterval> overlapping = expected.stream()
+                    .filter(interval -> (Long) interval.getNormStart() <= query.getNormEnd() &&
+                            (Long) interval.getNormEnd() >= query.getNormStart())
+                    .collect(Collectors.toSet());
+            Assert.assertEquals(overlapping, new HashSet<>(snapshot.overlap(query)));
+            Assert.assertEquals(overlapping, snapshot.overlapStream(query).collect(Collectors.toSet()));
+            Assert.assertEquals(expected.contains(query) ? 1 : 0, snapshot.find(query).size());
+        }
+    }
+
+    protected IntervalTree createTree(final BalancingPolicy policy) {
+        return IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .useBalancingPolicy(policy)
+                .build();
+    }
+}
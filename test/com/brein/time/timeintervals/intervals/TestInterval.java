@@ -3,6 +3,12 @@ package com.brein.time.timeintervals.intervals;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 public class TestInterval {
 
     @Test
@@ -190,4 +196,29 @@ public class TestInterval {
                 new NumberInterval<>(Double.class, -180481982.0123, 18014398509481982.0, false, false)
                         .getUniqueIdentifier());
     }
+
+    @Test
+    public void testNormalizedValues() throws IOException, ClassNotFoundException {
+        final LongInterval interval = new LongInterval(1L, 5L, true, true);
+        Assert.assertEquals(2L, interval.getNormStart().longValue());
+        Assert.assertEquals(4L, interval.getNormEnd().longValue());
+        Assert.assertSame(interval.getUniqueIdentifier(), interval.getUniqueIdentifier());
+        Assert.assertEquals("[0.5,2]", new DoubleInterval(0.5, 2.0).getUniqueIdentifier());
+
+        // the normalized values are determined again after deserialization
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            out.writeObject(new TimestampInterval(10L, 20L));
+            out.writeObject(interval);
+        }
+        try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+            final TimestampInterval timestamp = TimestampInterval.class.cast(in.readObject());
+            Assert.assertEquals("[10,20]", timestamp.getUniqueIdentifier());
+            Assert.assertEquals(10L, timestamp.getNormStart().longValue());
+
+            final LongInterval deserialized = LongInterval.class.cast(in.readObject());
+            Assert.assertEquals(interval, deserialized);
+            Assert.assertEquals(interval.getUniqueIdentifier(), deserialized.getUniqueIdentifier());
+        }
+    }
 }
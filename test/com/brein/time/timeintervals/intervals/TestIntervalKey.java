@@ -0,0 +1,91 @@
+package com.brein.time.timeintervals.intervals;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestIntervalKey {
+
+    @Test
+    public void testIdentity() {
+        final Random rnd = new Random();
+        for (int i = 0; i < 10_000; i++) {
+            final NumberInterval interval1 = randomInterval(rnd);
+            final NumberInterval interval2 = randomInterval(rnd);
+
+            // the keys are equal if and only if the identifiers are equal
+            final IntervalKey key1 = interval1.getIntervalKey();
+            final IntervalKey key2 = interval2.getIntervalKey();
+            Assert.assertEquals(interval1.getUniqueIdentifier().equals(interval2.getUniqueIdentifier()),
+                    key1.equals(key2));
+            Assert.assertEquals(Integer.signum(interval1.compareTo(interval2)), Integer.signum(key1.compareTo(key2)));
+
+            Assert.assertEquals(interval1.getUniqueIdentifier(), key1.toString());
+            Assert.assertEquals(key1, IntervalKey.valueOf(interval1.getUniqueIdentifier()));
+            Assert.assertEquals(key1, IntervalKey.fromBytes(key1.toBytes()));
+        }
+
+        Assert.assertEquals(new LongInterval(5L, 6L).getIntervalKey(), new DoubleInterval(5.0, 6.0).getIntervalKey());
+        Assert.assertEquals(new IntegerInterval(5, 6).getIntervalKey(), new LongInterval(5L, 6L).getIntervalKey());
+        Assert.assertNotEquals(new LongInterval(5L, 6L).getIntervalKey(),
+                new DoubleInterval(5.0, 6.0, false, true).getIntervalKey());
+        Assert.assertEquals(17, new DoubleInterval(0.25, 0.5).getIntervalKey().toBytes().remaining());
+    }
+
+    @Test
+    public void testIdentifierKey() {
+        final IntervalKey key = IntervalKey.valueOf("[a,b]");
+        Assert.assertEquals("[a,b]", key.toString());
+        Assert.assertEquals(key, IntervalKey.fromBytes(key.toBytes()));
+        Assert.assertNotEquals(key, IntervalKey.valueOf("[1,2]"));
+
+        // an identifier not written by a NumberInterval is kept as is
+        Assert.assertEquals("[1.50,2]", IntervalKey.valueOf("[1.50,2]").toString());
+        Assert.assertEquals(new LongInterval(1L, 2L).getIntervalKey(), IntervalKey.valueOf("[1,2]"));
+    }
+
+    @Test
+    public void testOverriddenIdentifier() {
+        final LongInterval interval = new LongInterval(1L, 2L) {
+            @Override
+            public String getUniqueIdentifier() {
+                return "first";
+            }
+        };
+        Assert.assertEquals(IntervalKey.valueOf("first"), interval.getIntervalKey());
+        Assert.assertNotEquals(new LongInterval(1L, 2L).getIntervalKey(), interval.getIntervalKey());
+
+        // sub-classes keeping the identifier have the same key
+        Assert.assertEquals(new LongInterval(1L, 2L).getIntervalKey(), new LongInterval(1L, 2L) {
+        }.getIntervalKey());
+    }
+
+    @Test
+    public void testSortableBits() {
+        final double[] values = {-Double.MAX_VALUE, -1.5, -Double.MIN_VALUE, 0.0, Double.MIN_VALUE, 0.25, 1e300};
+        for (int i = 1; i < values.length; i++) {
+            Assert.assertTrue(IntervalKey.toSortableBits(values[i - 1]) < IntervalKey.toSortableBits(values[i]));
+            Assert.assertEquals(values[i], IntervalKey.fromSortableBits(IntervalKey.toSortableBits(values[i])), 0.0);
+        }
+    }
+
+    protected NumberInterval randomInterval(final Random rnd) {
+        final int start = rnd.nextInt(10);
+        final int end = start + rnd.nextInt(3);
+
+        switch (rnd.nextInt(3)) {
+            case 0:
+                return new LongInterval((long) start, (long) end);
+            case 1:
+                return new IntegerInterval(start, end);
+            default:
+                final double doubleStart = start + (rnd.nextBoolean() ? 0.0 : 0.5);
+                final double doubleEnd = Math.max(doubleStart, end + 0.5 * rnd.nextInt(2));
+
+                // open intervals are normalized to non-integral values
+                final boolean open = doubleEnd - doubleStart >= 1.0;
+                return new DoubleInterval(doubleStart, doubleEnd, open && rnd.nextBoolean(), open && rnd.nextBoolean());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.brein.time.timeintervals.intervals;
+
+import com.brein.time.timeintervals.collections.ListIntervalCollection;
+import com.brein.time.timeintervals.indexes.IntervalTree;
+import com.brein.time.timeintervals.indexes.IntervalTreeBuilder;
+import com.brein.time.timeintervals.indexes.IntervalTreeBuilder.IntervalType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestIntervalPool {
+
+    @Test
+    public void testIntern() {
+        final IntervalPool pool = new IntervalPool();
+
+        final LongInterval interval = new LongInterval(1L, 5L);
+        Assert.assertSame(interval, pool.intern(interval));
+        Assert.assertSame(interval, pool.intern(new LongInterval(1L, 5L)));
+        Assert.assertEquals(1, pool.size());
+
+        // equal intervals with different endpoints are not shared, the endpoints would differ
+        final LongInterval openInterval = new LongInterval(0L, 6L, true, true);
+        Assert.assertSame(openInterval, pool.intern(openInterval));
+        Assert.assertSame(openInterval, pool.intern(new LongInterval(0L, 6L, true, true)));
+        Assert.assertEquals(0L, pool.intern(new LongInterval(0L, 6L, true, true)).getStart().longValue());
+        Assert.assertTrue(pool.intern(new LongInterval(0L, 6L, true, true)).isOpenStart());
+        Assert.assertNotSame(openInterval, pool.intern(new LongInterval(0L, 6L, true, false)));
+        Assert.assertEquals(3, pool.size());
+        pool.clear();
+        Assert.assertSame(interval, pool.intern(interval));
+
+        // the class and the type of the values are part of the key, primitive intervals are pooled if equal
+        final PrimitiveLongInterval primitiveInterval = new PrimitiveLongInterval(1L, 5L);
+        Assert.assertSame(primitiveInterval, pool.intern(primitiveInterval));
+        Assert.assertSame(primitiveInterval, pool.intern(new PrimitiveLongInterval(0L, 6L, true, true)));
+        final NumberInterval<Long> numberInterval = new NumberInterval<>(Long.class, 1L, 5L);
+        Assert.assertSame(numberInterval, pool.intern(numberInterval));
+        Assert.assertNotSame(interval, pool.intern(new IntegerInterval(1, 5)));
+        Assert.assertEquals(Integer.class, pool.intern(new NumberInterval<>(Integer.class, 1, 5)).getClazz());
+        Assert.assertEquals(Long.class, pool.intern(new NumberInterval<>(Long.class, 1L, 5L)).getClazz());
+        Assert.assertEquals(5, pool.size());
+
+        pool.clear();
+        Assert.assertEquals(0, pool.size());
+        Assert.assertNotSame(interval, pool.intern(new LongInterval(1L, 5L)));
+    }
+
+    @Test
+    public void testMaxSize() {
+        final IntervalPool pool = new IntervalPool(2);
+        pool.intern(new LongInterval(1L, 2L));
+        pool.intern(new LongInterval(2L, 3L));
+
+        final LongInterval interval = new LongInterval(3L, 4L);
+        Assert.assertSame(interval, pool.intern(interval));
+        Assert.assertNotSame(interval, pool.intern(new LongInterval(3L, 4L)));
+        Assert.assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void testNotImmutable() {
+        final IntervalPool pool = new IntervalPool();
+
+        try {
+            pool.intern(new TimestampInterval(1L, 5L));
+            Assert.fail("Timestamp intervals have a modifiable timezone.");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            pool.intern(new IdInterval<>("ID1", 1L, 5L));
+            Assert.fail("Id intervals cannot be pooled.");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testIdInterval() {
+        final IntervalPool pool = new IntervalPool();
+        final IntervalTree tree = IntervalTreeBuilder.newBuilder()
+                .usePredefinedType(IntervalType.LONG)
+                .collectIntervals(interval -> new ListIntervalCollection())
+                .build();
+
+        for (int i = 0; i < 1_000; i++) {
+            final long start = 3600L * (i % 24);
+            tree.add(new IdInterval<>(i, start, start + 3599L, Long.class, pool));
+        }
+        Assert.assertEquals(24, pool.size());
+        Assert.assertEquals(1_000, tree.size());
+
+        // the intervals share the wrapped interval, but are still identified by the identifier
+        final IdInterval<Integer, Long> first = new IdInterval<>(0, 0L, 3599L, Long.class, pool);
+        final IdInterval<Integer, Long> second = new IdInterval<>(24, 0L, 3599L, Long.class, pool);
+        Assert.assertSame(first.interval(), second.interval());
+        Assert.assertNotEquals(first, second);
+        Assert.assertSame(pool.intern(new LongInterval(0L, 3599L)),
+                new IdInterval<>(1, new LongInterval(0L, 3599L), pool).interval());
+        Assert.assertEquals(42, tree.overlap(new LongInterval(1800L, 1800L)).size());
+        Assert.assertTrue(tree.remove(first));
+        Assert.assertEquals(41, tree.overlap(new LongInterval(1800L, 1800L)).size());
+    }
+}
@@ -0,0 +1,85 @@
+package com.brein.time.timeintervals.intervals;
+
+import com.brein.time.exceptions.IllegalTimeInterval;
+import com.brein.time.exceptions.IllegalTimePoint;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestPrimitiveInterval {
+
+    @Test
+    public void testSameAsNumberInterval() {
+        final Random rnd = new Random();
+        for (int i = 0; i < 1_000; i++) {
+            final int start = rnd.nextInt(100) - 50;
+            final int end = start + 2 + rnd.nextInt(10);
+            final boolean openStart = rnd.nextBoolean();
+            final boolean openEnd = rnd.nextBoolean();
+
+            assertSame(new LongInterval((long) start, (long) end, openStart, openEnd),
+                    new PrimitiveLongInterval(start, end, openStart, openEnd));
+            assertSame(new IntegerInterval(start, end, openStart, openEnd),
+                    new PrimitiveIntegerInterval(start, end, openStart, openEnd));
+
+            final double doubleStart = start + 0.25 * rnd.nextInt(4);
+            final double doubleEnd = end + 0.25 * rnd.nextInt(4);
+            assertSame(new DoubleInterval(doubleStart, doubleEnd, openStart, openEnd),
+                    new PrimitiveDoubleInterval(doubleStart, doubleEnd, openStart, openEnd));
+        }
+
+        // the minimal and maximal values are unbounded values
+        assertSame(new LongInterval(null, 5L), new PrimitiveLongInterval(Long.MIN_VALUE, 5L));
+        assertSame(new IntegerInterval(5, null), new PrimitiveIntegerInterval(5, Integer.MAX_VALUE));
+        assertSame(new DoubleInterval(null, null),
+                new PrimitiveDoubleInterval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void testPrimitiveValues() {
+        final PrimitiveLongInterval interval = new PrimitiveLongInterval(1_500_000_000L, 1_500_000_060L, false, true);
+        Assert.assertEquals(1_500_000_000L, interval.getNormStartLong());
+        Assert.assertEquals(1_500_000_059L, interval.getNormEndLong());
+        Assert.assertTrue(interval.contains(1_500_000_059L));
+        Assert.assertFalse(interval.contains(1_500_000_060L));
+        Assert.assertTrue(interval.overlaps(1_500_000_059L, 1_500_000_100L));
+
+        Assert.assertEquals(new PrimitiveLongInterval(1L, 5L), new PrimitiveLongInterval(0L, 6L, true, true));
+        Assert.assertEquals(0, new PrimitiveLongInterval(1L, 5L).compareTo(new PrimitiveIntegerInterval(1, 5)));
+        Assert.assertTrue(new PrimitiveIntegerInterval(1, 5).compareTo(new PrimitiveDoubleInterval(1.0, 5.5)) < 0);
+    }
+
+    @Test
+    public void testInvalidValues() {
+        try {
+            new PrimitiveLongInterval(5L, 4L);
+            Assert.fail("The end must not be smaller than the start.");
+        } catch (final IllegalTimeInterval e) {
+            // expected
+        }
+
+        try {
+            new PrimitiveLongInterval(Long.MIN_VALUE + 1, 4L);
+            Assert.fail("The edge values are reserved.");
+        } catch (final IllegalTimeInterval e) {
+            // expected
+        }
+
+        try {
+            new PrimitiveDoubleInterval(Double.NaN, 4.0);
+            Assert.fail("NaN is not supported.");
+        } catch (final IllegalTimePoint e) {
+            // expected
+        }
+    }
+
+    protected void assertSame(final NumberInterval<?> expected, final IInterval<?> actual) {
+        Assert.assertEquals(expected.getNormStart(), actual.getNormStart());
+        Assert.assertEquals(expected.getNormEnd(), actual.getNormEnd());
+        Assert.assertEquals(expected.getUniqueIdentifier(), actual.getUniqueIdentifier());
+        Assert.assertEquals(expected.getIntervalKey(), actual.getIntervalKey());
+        Assert.assertEquals(0, expected.compareTo(actual));
+        Assert.assertEquals(0, actual.compareTo(expected));
+    }
+}